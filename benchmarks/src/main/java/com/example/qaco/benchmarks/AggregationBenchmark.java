@@ -0,0 +1,57 @@
+package com.example.qaco.benchmarks;
+
+import com.example.qaco.engine.qos.WorkflowAggregator;
+import com.example.qaco.engine.qos.WorkflowEvaluation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * QoS aggregation over the workflow: full scores of random assignments, incremental single-task
+ * moves, and the reduction of the graph into the aggregation tree.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class AggregationBenchmark {
+
+    private WorkflowEvaluation evaluation;
+    private int next;
+
+    @Setup(Level.Iteration)
+    public void setUp(ProblemState state) {
+        evaluation = state.aggregator.newEvaluation();
+        evaluation.reset(state.assignments[0]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ProblemState.ASSIGNMENTS)
+    public void score(ProblemState state, Blackhole blackhole) {
+        for (int[] assignment : state.assignments) {
+            blackhole.consume(state.aggregator.score(assignment));
+        }
+    }
+
+    @Benchmark
+    public double move(ProblemState state) {
+        // Walk the pool: the task and service of the move change at every call
+        int[] target = state.assignments[next++ & (ProblemState.ASSIGNMENTS - 1)];
+        int task = next % target.length;
+        evaluation.set(task, target[task]);
+        return evaluation.score();
+    }
+
+    @Benchmark
+    public Object reduce(ProblemState state) {
+        return WorkflowAggregator.of(state.compiled);
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.qaco.benchmarks;
+
+import com.example.qaco.domain.binding.Binding;
+import com.example.qaco.engine.CompiledQACOProblem;
+import com.example.qaco.engine.LazyBindingSpace;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Enumeration of the binding space, as assignments and as Bindings. The space of the benchmark
+ * problems is far too large to walk, so each operation takes the next {@link #BATCH} elements.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class BindingSpaceBenchmark {
+
+    static final int BATCH = 1024;
+
+    @Param({"MATERIALIZED", "ASSIGNMENT"})
+    public String element;
+
+    private LazyBindingSpace space;
+    private Iterator<Binding> bindings;
+    private Iterator<int[]> assignments;
+
+    @Setup(Level.Iteration)
+    public void setUp(ProblemState state) {
+        space = new LazyBindingSpace(CompiledQACOProblem.compile(state.problem.getCompositeWebService()));
+        bindings = space.iterator();
+        assignments = space.assignments(false).iterator();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void enumerate(Blackhole blackhole) {
+        for (int i = 0; i < BATCH; i++) {
+            if ("MATERIALIZED".equals(element)) {
+                if (!bindings.hasNext()) {
+                    bindings = space.iterator();
+                }
+                blackhole.consume(bindings.next());
+            } else {
+                if (!assignments.hasNext()) {
+                    assignments = space.assignments(false).iterator();
+                }
+                blackhole.consume(assignments.next());
+            }
+        }
+    }
+
+    @Benchmark
+    public long size(ProblemState state) {
+        return new LazyBindingSpace(state.compiled).size().bitLength();
+    }
+}
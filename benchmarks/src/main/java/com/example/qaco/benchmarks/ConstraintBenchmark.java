@@ -0,0 +1,41 @@
+package com.example.qaco.benchmarks;
+
+import com.example.qaco.engine.constraints.ConstraintCompiler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluation of the compiled constraints of a problem over a pool of random assignments, and
+ * their compilation.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ConstraintBenchmark {
+
+    @Benchmark
+    @OperationsPerInvocation(ProblemState.ASSIGNMENTS)
+    public void test(ProblemState state, Blackhole blackhole) {
+        for (int[] assignment : state.assignments) {
+            blackhole.consume(state.constraint.test(assignment));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ProblemState.ASSIGNMENTS)
+    public void violation(ProblemState state, Blackhole blackhole) {
+        for (int[] assignment : state.assignments) {
+            blackhole.consume(state.constraint.violation(assignment));
+        }
+    }
+
+    @Benchmark
+    public Object compile(ProblemState state) {
+        return ConstraintCompiler.compile(state.compiled, state.aggregator);
+    }
+}
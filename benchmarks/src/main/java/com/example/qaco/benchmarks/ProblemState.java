@@ -0,0 +1,74 @@
+package com.example.qaco.benchmarks;
+
+import com.example.qaco.domain.QACOProblem;
+import com.example.qaco.engine.CompiledQACOProblem;
+import com.example.qaco.engine.constraints.CompiledConstraint;
+import com.example.qaco.engine.constraints.ConstraintCompiler;
+import com.example.qaco.engine.qos.WorkflowAggregator;
+import com.example.qaco.generator.SyntheticProblemGenerator;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.SplittableRandom;
+
+/**
+ * A synthetic problem of the size and shape given by the parameters, compiled, with a pool of
+ * random assignments to evaluate. Shared by the threads of a benchmark.
+ */
+@State(Scope.Benchmark)
+public class ProblemState {
+
+    static final int ASSIGNMENTS = 1024;
+
+    @Param({"10", "50"})
+    public int tasks;
+
+    @Param({"5", "20"})
+    public int candidates;
+
+    @Param({"3"})
+    public int features;
+
+    @Param({"SEQUENCE", "MIXED"})
+    public SyntheticProblemGenerator.Shape shape;
+
+    @Param({"42"})
+    public long seed;
+
+    public QACOProblem problem;
+    public CompiledQACOProblem compiled;
+    public WorkflowAggregator aggregator;
+    public CompiledConstraint constraint;
+    public int[][] assignments;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        problem = generator().generate();
+        compiled = CompiledQACOProblem.compile(problem);
+        aggregator = WorkflowAggregator.of(compiled);
+        constraint = ConstraintCompiler.compile(compiled, aggregator);
+        SplittableRandom random = new SplittableRandom(seed);
+        assignments = new int[ASSIGNMENTS][compiled.taskCount()];
+        for (int[] assignment : assignments) {
+            for (int t = 0; t < assignment.length; t++) {
+                int[] domain = compiled.candidates(t);
+                assignment[t] = domain[random.nextInt(domain.length)];
+            }
+        }
+    }
+
+    /**
+     * Constraints: two global, two local, one compose, one conditional, one binding.
+     */
+    SyntheticProblemGenerator generator() {
+        return new SyntheticProblemGenerator(seed)
+                .tasks(tasks)
+                .candidates(candidates)
+                .features(features)
+                .constraints(2, 2, 1, 1, 1)
+                .shape(shape);
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.qaco.benchmarks;
+
+import com.example.qaco.domain.binding.Binding;
+import com.example.qaco.engine.QACOEngineInterface;
+import com.example.qaco.engine.SolveBudget;
+import com.example.qaco.engine.aco.AntColonyEngine;
+import com.example.qaco.engine.exact.BranchAndBoundEngine;
+import com.example.qaco.engine.genetic.GeneticEngine;
+import com.example.qaco.engine.pareto.ParetoEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A full {@code solve} per engine, validation included, on one thread and within the same
+ * evaluation budget (and time limit), so the engines are compared for the same amount of search.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SolveBenchmark {
+
+    @Param({"ACO", "GA", "BNB", "PARETO"})
+    public String engine;
+
+    @Param({"20000"})
+    public int maxEvaluations;
+
+    // Bounds the exact engine, which counts complete bindings only, on large instances
+    @Param({"2000"})
+    public long timeLimit;
+
+    private QACOEngineInterface solver;
+    private Optional<Object> config;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put(SolveBudget.MAX_EVALUATIONS, maxEvaluations);
+        parameters.put(SolveBudget.TIME_LIMIT, timeLimit);
+        parameters.put("threads", 1);
+        parameters.put("seed", 1L);
+        config = Optional.<Object>of(parameters);
+        switch (engine) {
+            case "ACO":
+                solver = new AntColonyEngine();
+                break;
+            case "GA":
+                solver = new GeneticEngine();
+                break;
+            case "BNB":
+                solver = new BranchAndBoundEngine();
+                break;
+            case "PARETO":
+                solver = new ParetoEngine();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown engine: " + engine);
+        }
+    }
+
+    @Benchmark
+    public Optional<List<Binding>> solve(ProblemState state) {
+        return solver.solve(state.problem, config);
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.qaco.benchmarks;
+
+import com.example.qaco.engine.ProblemValidator;
+import com.example.qaco.engine.ValidationLevel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validation of a whole problem at each level.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ValidationBenchmark {
+
+    private static final ProblemValidator VALIDATOR = new ProblemValidator();
+
+    @Benchmark
+    public void structural(ProblemState state) {
+        VALIDATOR.validate(state.problem, ValidationLevel.STRUCTURAL);
+    }
+
+    @Benchmark
+    public void full(ProblemState state) {
+        VALIDATOR.validate(state.problem, ValidationLevel.FULL);
+    }
+}
@@ -6,6 +6,7 @@ import lombok.NoArgsConstructor;
 import java.util.List;
 
 import com.example.qaco.domain.cws.graph.Graph;
+import com.example.qaco.domain.cws.qos.QoSStore;
 
 /**
  * Represents a composite web service that consists of multiple tasks, candidate services, and features. It also has a graph structure that represents it.
@@ -20,4 +21,7 @@ public class CompositeWebService {
     private List<CandidateService> candidateServices;
     private List<Feature> features;
     private Graph graph;
+
+    // Optional off-heap QoS values, taking precedence over the Features' inline values
+    private QoSStore qosStore;
 }
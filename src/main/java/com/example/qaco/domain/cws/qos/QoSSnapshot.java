@@ -0,0 +1,113 @@
+package com.example.qaco.domain.cws.qos;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * One committed version of a {@link QoSStore}. Its columns are never written after the commit,
+ * so a snapshot can be read from any number of threads while the store moves on.
+ * <p>
+ * Missing values read as NaN, including every value of a feature the snapshot has no column for.
+ * For bulk scans, {@link #column(String)} gives a read-only view of a whole column and
+ * {@link #copyColumn} copies a range of rows into an array.
+ */
+public final class QoSSnapshot {
+
+    private final QoSStore store;
+    private final long version;
+    private final Map<String, ByteBuffer> columns;
+
+    QoSSnapshot(QoSStore store, long version, Map<String, ByteBuffer> columns) {
+        this.store = store;
+        this.version = version;
+        this.columns = Collections.unmodifiableMap(columns);
+    }
+
+    public QoSStore getStore() {
+        return store;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int rowCount() {
+        return store.rowCount();
+    }
+
+    /**
+     * @return the names of the features that have a column, in creation order
+     */
+    public Set<String> features() {
+        return columns.keySet();
+    }
+
+    public boolean hasColumn(String feature) {
+        return columns.containsKey(feature);
+    }
+
+    /**
+     * @return the value, or NaN if there is none
+     */
+    public double value(String feature, int row) {
+        ByteBuffer column = columns.get(feature);
+        return column == null ? Double.NaN : column.getDouble(row * Double.BYTES);
+    }
+
+    /**
+     * @return the value, or NaN if there is none or the service has no row
+     */
+    public double value(String feature, String service) {
+        int row = store.row(service);
+        return row < 0 ? Double.NaN : value(feature, row);
+    }
+
+    /**
+     * @return a read-only view of the column with one value per row, or null if there is no column
+     */
+    public DoubleBuffer column(String feature) {
+        ByteBuffer column = columns.get(feature);
+        return column == null ? null : column.duplicate().order(ByteOrder.nativeOrder()).asDoubleBuffer().asReadOnlyBuffer();
+    }
+
+    /**
+     * Copy the values of rows {@code [from, from + length)} into {@code target} from {@code offset}
+     * (NaN if there is no column).
+     */
+    public void copyColumn(String feature, int from, double[] target, int offset, int length) {
+        DoubleBuffer column = column(feature);
+        if (column == null) {
+            if (from < 0 || length < 0 || from + length > rowCount()) {
+                throw new IndexOutOfBoundsException("Rows " + from + " to " + (from + length)
+                        + " of a QoSStore with " + rowCount() + " rows.");
+            }
+            Arrays.fill(target, offset, offset + length, Double.NaN);
+            return;
+        }
+        column.position(from);
+        column.get(target, offset, length);
+    }
+
+    /**
+     * @return a copy of the whole column (NaN if there is no column)
+     */
+    public double[] toArray(String feature) {
+        double[] values = new double[rowCount()];
+        copyColumn(feature, 0, values, 0, values.length);
+        return values;
+    }
+
+    Map<String, ByteBuffer> columns() {
+        return columns;
+    }
+
+    @Override
+    public String toString() {
+        return "QoSSnapshot(version=" + version + ", features=" + columns.keySet() + ")";
+    }
+}
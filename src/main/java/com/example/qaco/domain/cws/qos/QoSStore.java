@@ -0,0 +1,331 @@
+package com.example.qaco.domain.cws.qos;
+
+import com.example.qaco.domain.cws.CandidateService;
+import com.example.qaco.domain.cws.CompositeWebService;
+import com.example.qaco.domain.cws.Feature;
+import com.example.qaco.domain.cws.FeatureValue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * An off-heap, columnar store of QoS values: one column of doubles per Feature (by name) and one
+ * row per CandidateService (by name), each column held in a direct buffer outside the Java heap.
+ * <p>
+ * A CompositeWebService whose {@code qosStore} is set takes the value of a service for a feature
+ * from the store when the store has a column for the feature and a value for the service, and
+ * from the Feature's inline {@code values} otherwise, so registries can leave the inline lists
+ * empty. A missing value is stored as NaN.
+ * <p>
+ * Values are read through an immutable {@link QoSSnapshot}. {@link #snapshot()} returns the
+ * current version, and whoever holds a snapshot (e.g. a solve in flight) keeps seeing the same
+ * values while the store is updated. {@link #update()} collects changes that
+ * {@link Update#commit()} publishes atomically as the next version; only the columns it changes
+ * are copied, the others are shared between versions.
+ * <p>
+ * Rows are fixed when the store is created. Thread-safe; commits are serialized.
+ */
+public final class QoSStore {
+
+    private static final int MAX_ROWS = Integer.MAX_VALUE / Double.BYTES;
+
+    private final UUID id = UUID.randomUUID();
+    private final String[] services;
+    private final Map<String, Integer> rows;
+    private final Object commitLock = new Object();
+    private volatile QoSSnapshot current;
+
+    /**
+     * Create an empty store (no columns) with one row per service.
+     *
+     * @param services the CandidateService names, in row order
+     * @throws IllegalArgumentException if a name is null or repeated, or there are too many rows
+     */
+    public QoSStore(List<String> services) {
+        if (services == null) {
+            throw new IllegalArgumentException("QoSStore services cannot be null.");
+        }
+        if (services.size() > MAX_ROWS) {
+            throw new IllegalArgumentException("QoSStore supports at most " + MAX_ROWS + " rows.");
+        }
+        this.services = services.toArray(new String[0]);
+        this.rows = new HashMap<>(2 * this.services.length);
+        for (int row = 0; row < this.services.length; row++) {
+            if (this.services[row] == null) {
+                throw new IllegalArgumentException("QoSStore service name cannot be null.");
+            }
+            if (rows.put(this.services[row], row) != null) {
+                throw new IllegalArgumentException("Duplicate service in QoSStore: " + this.services[row]);
+            }
+        }
+        this.current = new QoSSnapshot(this, 0, Collections.<String, ByteBuffer>emptyMap());
+    }
+
+    /**
+     * Copy the inline values of a CompositeWebService into a new store, with one row per
+     * candidate service and one column per Feature that has values. The CWS is not modified: set
+     * its {@code qosStore} and clear the Features' {@code values} to move them off the heap.
+     */
+    public static QoSStore of(CompositeWebService cws) {
+        List<String> names = new ArrayList<>();
+        if (cws.getCandidateServices() != null) {
+            for (CandidateService service : cws.getCandidateServices()) {
+                names.add(service.getName());
+            }
+        }
+        QoSStore store = new QoSStore(names);
+        if (cws.getFeatures() == null) {
+            return store;
+        }
+        Update update = store.update();
+        for (Feature feature : cws.getFeatures()) {
+            if (feature == null || feature.getValues() == null) {
+                continue;
+            }
+            double[] column = new double[store.rowCount()];
+            Arrays.fill(column, Double.NaN);
+            for (FeatureValue value : feature.getValues()) {
+                if (value == null || value.getValue() == null || value.getService() == null) {
+                    continue;
+                }
+                int row = store.row(value.getService().getName());
+                if (row >= 0) {
+                    column[row] = value.getValue();
+                }
+            }
+            update.putColumn(feature.getName(), column);
+        }
+        update.commit();
+        return store;
+    }
+
+    /**
+     * @return an identifier unique to this store, which with the snapshot version identifies its
+     * content (see {@code ProblemFingerprint})
+     */
+    public UUID getId() {
+        return id;
+    }
+
+    public int rowCount() {
+        return services.length;
+    }
+
+    /**
+     * @return the row of the service, or -1 if the store has none
+     */
+    public int row(String service) {
+        Integer row = rows.get(service);
+        return row == null ? -1 : row;
+    }
+
+    public String service(int row) {
+        return services[row];
+    }
+
+    /**
+     * @return the latest committed version
+     */
+    public QoSSnapshot snapshot() {
+        return current;
+    }
+
+    public long version() {
+        return current.getVersion();
+    }
+
+    /**
+     * Start a batch of changes, applied on top of whatever version is current at commit time.
+     */
+    public Update update() {
+        return new Update();
+    }
+
+    @Override
+    public String toString() {
+        return "QoSStore(id=" + id + ", rows=" + services.length + ", version=" + current.getVersion() + ")";
+    }
+
+    static ByteBuffer allocate(int rows) {
+        return ByteBuffer.allocateDirect(rows * Double.BYTES).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Changes to a QoSStore, published together by {@link #commit()}. Not thread-safe: use one
+     * Update per thread.
+     */
+    public final class Update {
+
+        private final Map<String, PendingColumn> pending = new LinkedHashMap<>();
+        private boolean committed;
+
+        private Update() {
+        }
+
+        /**
+         * Set one value; NaN removes it.
+         *
+         * @throws IllegalArgumentException if the service has no row
+         */
+        public Update set(String feature, String service, double value) {
+            int row = row(service);
+            if (row < 0) {
+                throw new IllegalArgumentException("CandidateService has no row in the QoSStore: " + service);
+            }
+            return set(feature, row, value);
+        }
+
+        public Update set(String feature, int row, double value) {
+            if (row < 0 || row >= services.length) {
+                throw new IndexOutOfBoundsException("Row " + row + " of a QoSStore with " + services.length + " rows.");
+            }
+            pending(feature).set(row, value);
+            return this;
+        }
+
+        /**
+         * Replace a whole column (NaN for missing values), creating it if needed.
+         *
+         * @param values one value per row; copied
+         */
+        public Update putColumn(String feature, double[] values) {
+            if (values.length != services.length) {
+                throw new IllegalArgumentException("Column of " + values.length
+                        + " values for a QoSStore with " + services.length + " rows.");
+            }
+            pending(feature).replace(values.clone());
+            return this;
+        }
+
+        public Update removeColumn(String feature) {
+            pending(feature).remove();
+            return this;
+        }
+
+        /**
+         * @return true if the store has a column for the feature (committed or in this update) and
+         * a row for the service
+         */
+        public boolean holds(String feature, String service) {
+            PendingColumn change = pending.get(feature);
+            boolean column = change == null ? current.hasColumn(feature) : !change.removed;
+            return column && row(service) >= 0;
+        }
+
+        public boolean isEmpty() {
+            return pending.isEmpty();
+        }
+
+        /**
+         * Publish the changes as the next version of the store.
+         *
+         * @return the new snapshot
+         * @throws IllegalStateException if already committed
+         */
+        public QoSSnapshot commit() {
+            if (committed) {
+                throw new IllegalStateException("QoSStore update was already committed.");
+            }
+            committed = true;
+            synchronized (commitLock) {
+                QoSSnapshot base = current;
+                Map<String, ByteBuffer> columns = new LinkedHashMap<>(base.columns());
+                for (Map.Entry<String, PendingColumn> entry : pending.entrySet()) {
+                    PendingColumn change = entry.getValue();
+                    if (change.removed) {
+                        columns.remove(entry.getKey());
+                    } else {
+                        columns.put(entry.getKey(), change.applyTo(columns.get(entry.getKey()), services.length));
+                    }
+                }
+                QoSSnapshot next = new QoSSnapshot(QoSStore.this, base.getVersion() + 1, columns);
+                current = next;
+                return next;
+            }
+        }
+
+        private PendingColumn pending(String feature) {
+            if (feature == null) {
+                throw new IllegalArgumentException("QoSStore feature name cannot be null.");
+            }
+            if (committed) {
+                throw new IllegalStateException("QoSStore update was already committed.");
+            }
+            return pending.computeIfAbsent(feature, name -> new PendingColumn());
+        }
+    }
+
+    /**
+     * The changes to one column: a replacement column, a removal, or sparse row changes on top of
+     * the committed column.
+     */
+    private static final class PendingColumn {
+        double[] column;
+        boolean removed;
+        // Start from an empty column rather than the committed one (set after a removal)
+        boolean fresh;
+        int[] rows = new int[4];
+        double[] values = new double[4];
+        int size;
+
+        void set(int row, double value) {
+            if (removed) {
+                removed = false;
+                fresh = true;
+            }
+            if (column != null) {
+                column[row] = value;
+                return;
+            }
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, 2 * size);
+                values = Arrays.copyOf(values, 2 * size);
+            }
+            rows[size] = row;
+            values[size++] = value;
+        }
+
+        void replace(double[] values) {
+            column = values;
+            removed = false;
+            fresh = false;
+            size = 0;
+        }
+
+        void remove() {
+            column = null;
+            removed = true;
+            fresh = false;
+            size = 0;
+        }
+
+        /**
+         * @param base the committed column, or null if there is none
+         */
+        ByteBuffer applyTo(ByteBuffer base, int rowCount) {
+            ByteBuffer copy = allocate(rowCount);
+            if (column != null) {
+                copy.asDoubleBuffer().put(column);
+            } else if (base != null && !fresh) {
+                copy.put(base.duplicate());
+            } else {
+                for (int row = 0; row < rowCount; row++) {
+                    copy.putDouble(row * Double.BYTES, Double.NaN);
+                }
+            }
+            for (int i = 0; i < size; i++) {
+                copy.putDouble(rows[i] * Double.BYTES, values[i]);
+            }
+            copy.clear();
+            return copy;
+        }
+    }
+}
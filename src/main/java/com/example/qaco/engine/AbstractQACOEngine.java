@@ -4,16 +4,22 @@ import com.example.qaco.domain.QACOProblem;
 import com.example.qaco.domain.binding.Binding;
 import com.example.qaco.domain.binding.BindingMapping;
 import com.example.qaco.domain.binding.BindingSpace;
-import com.example.qaco.domain.cws.*;
-import com.example.qaco.domain.cws.graph.Graph;
-import com.example.qaco.domain.cws.graph.GraphNodeType;
-import com.example.qaco.domain.problem.Problem;
-import com.example.qaco.domain.problem.Optimization;
-import com.example.qaco.domain.problem.Preference;
-import com.example.qaco.domain.problem.constraints.*;
-
-import java.util.*;
+import com.example.qaco.domain.cws.CompositeWebService;
+import com.example.qaco.engine.metrics.Instrumentation;
+import com.example.qaco.engine.metrics.SolveMetrics;
+import com.example.qaco.engine.reduction.ConstraintPropagation;
+import com.example.qaco.engine.reduction.SkylineReduction;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * An abstract base class for QACOEngineInterface implementations.
@@ -22,291 +28,201 @@ import java.util.Optional;
  */
 public abstract class AbstractQACOEngine implements QACOEngineInterface {
 
-    @Override
-    public Optional<List<Binding>> solve(QACOProblem problem, Optional<Object> extraConfig) throws IllegalArgumentException {
-        validateInput(problem);
-
-        Optional<List<Binding>> result = doSolve(problem, extraConfig);
-
-        // Validate each Binding in the returned list
-        result.ifPresent(bindings -> bindings.forEach(this::validateOutput));
-        
-        return result;
-    }
-
     /**
-     * Perform the actual solving. Must be implemented by concrete solvers.
+     * The input is validated at the level named by the {@code validation} solver config
+     * (see {@link ValidationLevel}, FULL by default), or only at TRUSTED level if the
+     * {@link SolveContext} declares the problem {@link SolveContext#withValidatedProblem validated}. The {@code timeLimit} and
+     * {@code maxEvaluations} solver config set a {@link SolveBudget}.
+     * <p>
+     * While instrumentation is enabled (see {@link Instrumentation}), the solve runs under a child
+     * {@link SolveContext} carrying its {@link SolveMetrics}.
      */
-    protected abstract Optional<List<Binding>> doSolve(QACOProblem problem, Optional<Object> extraConfig);
-
-    /**
-     * Validate the input problem to ensure it's well-formed.
-     */
-    protected void validateInput(QACOProblem problem) {
-        if (problem == null) {
-            throw new IllegalArgumentException("QACOProblem cannot be null.");
-        }
-        Problem domainProblem = problem.getProblem();
-        if (domainProblem == null) {
-            throw new IllegalArgumentException("Problem definition is missing in QACOProblem.");
-        }
-        CompositeWebService cws = problem.getCompositeWebService();
-        if (cws == null) {
-            throw new IllegalArgumentException("CompositeWebService is missing in QACOProblem.");
+    @Override
+    public Optional<List<Binding>> solve(QACOProblem problem, Optional<Object> extraConfig) throws IllegalArgumentException {
+        SolveMetrics metrics = Instrumentation.begin(this, SolveMetrics.Operation.SOLVE);
+        SolveContext context = null;
+        try {
+            long start = metrics.now();
+            validateInput(problem, SolveContext.current().isValidated(problem)
+                    ? ValidationLevel.TRUSTED : ValidationLevel.from(extraConfig));
+            start = metrics.phase(SolveMetrics.Phase.VALIDATION, start);
+
+            SolveBudget budget = SolveBudget.from(extraConfig);
+            if (!budget.isUnlimited() || metrics.isEnabled()) {
+                context = SolveContext.current().child().withBudget(budget).withMetrics(metrics);
+            }
+            Optional<List<Binding>> result = context == null
+                    ? doSolve(problem, extraConfig)
+                    : context.call(() -> doSolve(problem, extraConfig));
+            // Compilation is timed on its own, inside doSolve
+            start = metrics.phase(SolveMetrics.Phase.SEARCH, start + metrics.getNanos(SolveMetrics.Phase.COMPILATION));
+
+            // Validate each Binding in the returned list
+            result.ifPresent(bindings -> bindings.forEach(this::validateResult));
+            metrics.phase(SolveMetrics.Phase.OUTPUT_VALIDATION, start);
+            metrics.setBindings(result.isPresent() ? result.get().size() : 0);
+            return result;
+        } catch (RuntimeException | Error e) {
+            metrics.failed(e);
+            throw e;
+        } finally {
+            if (context != null) {
+                metrics.setEvaluations(context.getEvaluations());
+            }
+            Instrumentation.end(metrics);
         }
-
-        // 1. Validate the CWS structure
-        validateInput(cws);
-
-        // 2. Validate the domain problem (constraints, optimization, etc.) with respect to the CWS
-        validateProblemDefinition(domainProblem, cws);
     }
 
     /**
-     * Validate the input CompositeWebService to ensure it's well-formed.
+     * Problems sharing a CompositeWebService instance are validated and compiled together: the
+     * structure of the CWS is validated and the CWS compiled once, then each problem only has its
+     * Problem validated (at the level of the {@code validation} solver config) and its preferences
+     * compiled (see {@link CompiledQACOProblem#withProblem}) before it is solved, with the
+     * extraConfig unchanged. Problems are
+     * solved in parallel on the common ForkJoinPool. A CWS that fails validation fails every
+     * problem using it.
      */
-    protected void validateInput(CompositeWebService cws) {
-        if (cws.getTasks() == null || cws.getTasks().isEmpty()) {
-            throw new IllegalArgumentException("CompositeWebService must have at least one Task.");
-        }
-        if (cws.getCandidateServices() == null || cws.getCandidateServices().isEmpty()) {
-            throw new IllegalArgumentException("CompositeWebService must have at least one CandidateService.");
+    @Override
+    public List<BatchResult> solveBatch(List<QACOProblem> problems, Optional<Object> extraConfig) throws IllegalArgumentException {
+        if (problems == null) {
+            throw new IllegalArgumentException("Batch of problems cannot be null.");
         }
+        ValidationLevel level = ValidationLevel.from(extraConfig);
 
-        // Validate each Task
-        for (Task task : cws.getTasks()) {
-            validateTask(task);
-        }
-        // Validate each CandidateService
-        for (CandidateService cs : cws.getCandidateServices()) {
-            validateCandidateService(cs);
-        }
-        // Validate each Feature
-        if (cws.getFeatures() != null) {
-            for (Feature feature : cws.getFeatures()) {
-                validateFeature(feature);
+        Map<CompositeWebService, SharedCws> shared = new IdentityHashMap<>();
+        for (QACOProblem problem : problems) {
+            if (problem != null && problem.getCompositeWebService() != null) {
+                shared.computeIfAbsent(problem.getCompositeWebService(), cws -> new SharedCws(cws, level));
             }
         }
-        // Validate the graph has at least one START and one END node
-        if (cws.getGraph() != null) {
-            validateGraph(cws.getGraph());
-        }
-    }
-
-    private void validateTask(Task task) {
-        if (task == null) {
-            throw new IllegalArgumentException("Task cannot be null.");
-        }
-        if (task.getName() == null || task.getName().trim().isEmpty()) {
-            throw new IllegalArgumentException("Task name cannot be null or empty.");
-        }
-    }
-
-    private void validateCandidateService(CandidateService cs) {
-        if (cs == null) {
-            throw new IllegalArgumentException("CandidateService cannot be null.");
-        }
-        if (cs.getName() == null || cs.getName().trim().isEmpty()) {
-            throw new IllegalArgumentException("CandidateService name cannot be null or empty.");
-        }
-        // Additional checks for provider, tasks, etc. can go here.
-    }
-
-    private void validateFeature(Feature feature) {
-        if (feature.getName() == null || feature.getName().trim().isEmpty()) {
-            throw new IllegalArgumentException("Feature name cannot be null or empty.");
-        }
-        // Additional validations on FeatureValue if needed
-    }
-
-    private void validateGraph(Graph graph) {
-        // Must contain at least one START and one END node
-        if (graph.getNodes() == null || graph.getNodes().isEmpty()) {
-            throw new IllegalArgumentException("Graph must contain at least one node.");
-        }
-        boolean hasStart = graph.getNodes().stream().anyMatch(n -> n.getType() == GraphNodeType.START);
-        boolean hasEnd = graph.getNodes().stream().anyMatch(n -> n.getType() == GraphNodeType.END);
-
-        if (!hasStart) {
-            throw new IllegalArgumentException("Graph must contain at least one START node.");
-        }
-        if (!hasEnd) {
-            throw new IllegalArgumentException("Graph must contain at least one END node.");
-        }
+        SolveContext context = SolveContext.current();
+        return problems.parallelStream().map(problem -> BatchResult.of(() -> {
+            SharedCws cws = problem == null ? null : shared.get(problem.getCompositeWebService());
+            if (cws == null) {
+                // Let solve report what is missing
+                return context.call(() -> solve(problem, extraConfig));
+            }
+            cws.validate(problem);
+            return context.child().withCompiledCws(cws.compiled).withValidatedProblem(problem)
+                    .call(() -> solve(problem, extraConfig));
+        })).collect(Collectors.toList());
     }
 
     /**
-     * Validate the domain Problem object (constraints, optimization, etc.) 
-     * in the context of the given CompositeWebService.
+     * A CompositeWebService shared by problems of a batch, validated and compiled once.
      */
-    private void validateProblemDefinition(Problem domainProblem, CompositeWebService cws) {
-        // Collect all CWS tasks and features in sets for quick lookup
-        Set<Task> cwsTasks = new HashSet<>(Optional.ofNullable(cws.getTasks()).orElse(Collections.emptyList()));
-        Set<Feature> cwsFeatures = new HashSet<>(Optional.ofNullable(cws.getFeatures()).orElse(Collections.emptyList()));
-
-        // 1. Check Optimization
-        if (domainProblem.getOptimization() != null) {
-            validateOptimization(domainProblem.getOptimization(), cwsFeatures);
+    private final class SharedCws {
+        private ProblemValidator.Batch validator;
+        private CompiledQACOProblem compiled;
+        private RuntimeException error;
+
+        SharedCws(CompositeWebService cws, ValidationLevel level) {
+            try {
+                this.validator = getValidator().batch(cws, level);
+                this.compiled = CompiledQACOProblem.compile(cws);
+            } catch (RuntimeException e) {
+                this.error = e;
+            }
         }
 
-        // 2. Check Constraints
-        if (domainProblem.getConstraints() != null) {
-            for (Constraint constraint : domainProblem.getConstraints()) {
-                validateConstraint(constraint, cwsTasks, cwsFeatures, domainProblem.getOptimization());
+        void validate(QACOProblem problem) {
+            if (error != null) {
+                throw error;
             }
+            validator.validate(problem);
         }
     }
 
     /**
-     * Validate the optimization: 
-     * - All features in preferences must exist in the CWS.
+     * @return true if a solve that ran to completion (its {@link SolveContext} never asked it to
+     * stop) returns an optimal binding, or nothing only when no feasible binding beats the
+     * context's {@link SolveContext#sharedBound() shared bound}
      */
-    private void validateOptimization(Optimization optimization, Set<Feature> cwsFeatures) {
-        // Collect features used in optimization
-        // For each Preference, we have preference.getFeature()
-        if (optimization.getPreferences() != null) {
-            for (Preference pref : optimization.getPreferences()) {
-                Feature f = pref.getFeature();
-                if (f != null && !cwsFeatures.contains(f)) {
-                    throw new IllegalArgumentException(
-                            "Optimization references a Feature not present in the CWS: " + f.getName());
-                }
-            }
-        }
-        // aggregatorOperation can also reference features, so check them if needed
-        if (optimization.getAggregateDomains() != null) {
-            optimization.getAggregateDomains().forEach(ad -> {
-                if (ad.getAggregatorOperation() != null) {
-                    ad.getAggregatorOperation().forEach(op -> {
-                        if (op.getFeatures() != null) {
-                            for (Feature f : op.getFeatures()) {
-                                if (!cwsFeatures.contains(f)) {
-                                    throw new IllegalArgumentException(
-                                            "AggregatorOperation references a Feature not present in the CWS: "
-                                                    + f.getName());
-                                }
-                            }
-                        }
-                    });
-                }
-            });
-        }
+    public boolean isExact() {
+        return false;
     }
 
     /**
-     * Validate each constraint with respect to the tasks and features in the CWS,
-     * and also check any logic that ties constraints to optimization features.
+     * @return true if every Preference is an objective of its own rather than a term of one
+     * weighted score, so a preference with weight 0 still matters (see {@link #compile})
      */
-    private void validateConstraint(
-            Constraint constraint,
-            Set<Task> cwsTasks,
-            Set<Feature> cwsFeatures,
-            Optimization optimization
-    ) {
-        if (constraint instanceof GlobalConstraint) {
-            validateGlobalConstraint((GlobalConstraint) constraint, cwsFeatures, optimization);
-        } else if (constraint instanceof LocalConstraint) {
-            validateLocalConstraint((LocalConstraint) constraint, cwsTasks, cwsFeatures);
-        } else if (constraint instanceof ComposeConstraint) {
-            validateComposeConstraint((ComposeConstraint) constraint, cwsTasks, cwsFeatures, optimization);
-        } else if (constraint instanceof ConditionalConstraint) {
-            validateConditionalConstraint((ConditionalConstraint) constraint, cwsTasks, cwsFeatures, optimization);
-        } else if (constraint instanceof BindingConstraint) {
-            validateBindingConstraint((BindingConstraint) constraint, cwsTasks);
-        }
-        // If you add new constraint types, handle them here.
+    protected boolean isMultiObjective() {
+        return false;
     }
 
-    private void validateGlobalConstraint(GlobalConstraint gc, Set<Feature> cwsFeatures, Optimization optimization) {
-        // Check that the feature is in the CWS
-        if (gc.getInputFeature() != null && !cwsFeatures.contains(gc.getInputFeature())) {
-            throw new IllegalArgumentException("GlobalConstraint references a feature not in the CWS: "
-                    + gc.getInputFeature().getName());
-        }
-        // Check that global constraint's feature is also in the optimization features (requirement)
-        if (optimization != null && optimization.getPreferences() != null) {
-            boolean found = optimization.getPreferences().stream()
-                    .anyMatch(pref -> pref.getFeature() == gc.getInputFeature());
-            if (!found) {
-                throw new IllegalArgumentException("GlobalConstraint feature must be part of Optimization's features: "
-                        + gc.getInputFeature().getName());
-            }
-        }
+    /**
+     * Perform the actual solving. Must be implemented by concrete solvers.
+     */
+    protected abstract Optional<List<Binding>> doSolve(QACOProblem problem, Optional<Object> extraConfig);
+
+    /**
+     * Compile the (already validated) problem into its integer-indexed form.
+     * Engines should call this once at the start of doSolve and work on the result. Within
+     * {@link #solveBatch}, the CompositeWebService shared by the batch is compiled only once.
+     * Unless the solver config sets {@code skyline} to false, the candidates of every task are
+     * reduced to their skyline (see {@link SkylineReduction}), which never loses an optimal binding
+     * (nor, for a {@link #isMultiObjective() multi-objective} engine, a Pareto-optimal one).
+     * Unless it sets {@code propagation} to false, candidates that cannot be part of a feasible
+     * binding are then removed (see {@link ConstraintPropagation}); an infeasible problem comes
+     * back with an empty domain, for which engines return nothing without searching.
+     */
+    protected CompiledQACOProblem compile(QACOProblem problem, Optional<Object> extraConfig) {
+        SolveMetrics metrics = SolveContext.current().metrics();
+        long start = metrics.now();
+        SolverConfig config = SolverConfig.from(extraConfig);
+        CompiledQACOProblem shared = SolveContext.current().compiledCws(problem.getCompositeWebService());
+        CompiledQACOProblem compiled = shared == null
+                ? CompiledQACOProblem.compile(problem) : shared.withProblem(problem);
+        BigInteger searchSpace = metrics.isEnabled() ? new LazyBindingSpace(compiled).size() : null;
+        if (config.getBoolean(SkylineReduction.SKYLINE, true)) {
+            compiled = SkylineReduction.reduce(compiled, ForkJoinPool.commonPool(), isMultiObjective());
+        }
+        if (config.getBoolean(ConstraintPropagation.PROPAGATION, true) && !compiled.hasEmptyDomain()) {
+            compiled = ConstraintPropagation.reduce(compiled);
+        }
+        if (metrics.isEnabled()) {
+            metrics.setSearchSpace(searchSpace, new LazyBindingSpace(compiled).size());
+        }
+        metrics.phase(SolveMetrics.Phase.COMPILATION, start);
+        return compiled;
     }
 
-    private void validateLocalConstraint(LocalConstraint lc, Set<Task> cwsTasks, Set<Feature> cwsFeatures) {
-        // Check the input feature tasks are in the CWS
-        if (lc.getInputFeature() != null) {
-            FeatureConstraint fc = lc.getInputFeature();
-            validateFeatureConstraint(fc, cwsTasks, cwsFeatures);
-        }
-        // Check that if we have an outputFeature, then 'value' must be null
-        if (lc.getOutputFeature() != null) {
-            // outputFeature must be valid
-            validateFeatureConstraint(lc.getOutputFeature(), cwsTasks, cwsFeatures);
-            // 'value' must be null
-            if (lc.getValue() != null) {
-                throw new IllegalArgumentException(
-                        "LocalConstraint cannot have both outputFeature and a numeric value.");
-            }
-        }
+    /**
+     * Validate the input problem to ensure it's well-formed.
+     */
+    protected void validateInput(QACOProblem problem) {
+        validateInput(problem, ValidationLevel.FULL);
     }
 
-    private void validateComposeConstraint(
-            ComposeConstraint cc,
-            Set<Task> cwsTasks,
-            Set<Feature> cwsFeatures,
-            Optimization optimization
-    ) {
-        // ComposeConstraint can hold multiple sub-conditions
-        if (cc.getConditions() != null) {
-            for (Constraint subConstraint : cc.getConditions()) {
-                validateConstraint(subConstraint, cwsTasks, cwsFeatures, optimization);
-            }
-        }
+    /**
+     * Validate the input problem at the given level (see {@link ProblemValidator}).
+     * Problems already validated at that level are recognised by fingerprint and skipped.
+     */
+    protected void validateInput(QACOProblem problem, ValidationLevel level) {
+        getValidator().validate(problem, level);
     }
 
-    private void validateConditionalConstraint(
-            ConditionalConstraint cond,
-            Set<Task> cwsTasks,
-            Set<Feature> cwsFeatures,
-            Optimization optimization
-    ) {
-        // Condition, then
-        if (cond.getCondition() != null) {
-            validateConstraint(cond.getCondition(), cwsTasks, cwsFeatures, optimization);
-        }
-        if (cond.getThen() != null) {
-            validateConstraint(cond.getThen(), cwsTasks, cwsFeatures, optimization);
-        }
+    /**
+     * Validate the input CompositeWebService to ensure it's well-formed.
+     */
+    protected void validateInput(CompositeWebService cws) {
+        getValidator().validate(cws, ValidationLevel.FULL);
     }
 
-    private void validateBindingConstraint(BindingConstraint bc, Set<Task> cwsTasks) {
-        // Check that the tasks in the constraint are in the CWS
-        if (bc.getProviders() != null) {
-            for (Task t : bc.getProviders()) {
-                if (!cwsTasks.contains(t)) {
-                    throw new IllegalArgumentException("BindingConstraint references a Task not in the CWS: "
-                            + t.getName());
-                }
-            }
-        }
+    /**
+     * The validator used by validateInput. By default it is shared by all engines, so its cache
+     * of validated problems is too.
+     */
+    protected ProblemValidator getValidator() {
+        return ProblemValidator.shared();
     }
 
-    private void validateFeatureConstraint(FeatureConstraint fc, Set<Task> cwsTasks, Set<Feature> cwsFeatures) {
-        // Check feature is in the CWS
-        if (fc.getFeature() != null && !cwsFeatures.contains(fc.getFeature())) {
-            throw new IllegalArgumentException("FeatureConstraint references a Feature not in the CWS: "
-                    + fc.getFeature().getName());
-        }
-        // Check tasks are in the CWS
-        if (fc.getTasks() != null) {
-            for (Task t : fc.getTasks()) {
-                if (!cwsTasks.contains(t)) {
-                    throw new IllegalArgumentException("FeatureConstraint references a Task not in the CWS: "
-                            + t.getName());
-                }
-            }
+    /**
+     * Run validateOutput unless the binding is a {@link TrustedBinding} built by the engine itself.
+     */
+    private void validateResult(Binding binding) {
+        if (!(binding instanceof TrustedBinding) || !((TrustedBinding) binding).isTrusted()) {
+            validateOutput(binding);
         }
     }
 
@@ -330,23 +246,97 @@ public abstract class AbstractQACOEngine implements QACOEngineInterface {
 
     @Override
     public Optional<BindingSpace> bindingSpace(CompositeWebService cws, Optional<Object> extraConfig) throws IllegalArgumentException {
-        validateInput(cws);
-
-        Optional<BindingSpace> result = getBindingSpace(cws, extraConfig);
+        SolveMetrics metrics = Instrumentation.begin(this, SolveMetrics.Operation.BINDING_SPACE);
+        try {
+            long start = metrics.now();
+            validateInput(cws);
+            start = metrics.phase(SolveMetrics.Phase.VALIDATION, start);
+
+            Optional<BindingSpace> result = getBindingSpace(cws, extraConfig);
+            start = metrics.phase(SolveMetrics.Phase.ENUMERATION, start);
+
+            // Validate each Binding in the returned BindingSpace
+            result.ifPresent(bindingSpace -> {
+                if (bindingSpace.getBindings() == null || bindingSpace.getBindings().isEmpty()) {
+                    throw new IllegalStateException("BindingSpace must contain at least one Binding.");
+                }
+                bindingSpace.getBindings().forEach(this::validateResult);
+            });
+            metrics.phase(SolveMetrics.Phase.OUTPUT_VALIDATION, start);
+            metrics.setBindings(result.isPresent() ? result.get().getBindings().size() : 0);
+            return result;
+        } catch (RuntimeException | Error e) {
+            metrics.failed(e);
+            throw e;
+        } finally {
+            Instrumentation.end(metrics);
+        }
+    }
 
-        // Validate each Binding in the returned BindingSpace
-        result.ifPresent(bindingSpace -> {
-            if (bindingSpace.getBindings() == null || bindingSpace.getBindings().isEmpty()) {
-                throw new IllegalStateException("BindingSpace must contain at least one Binding.");
+    /**
+     * Get the binding space for the given CompositeWebService.
+     * By default the lazy binding space is materialized; prefer {@link #bindingSpaceStream} for large spaces.
+     */
+    protected Optional<BindingSpace> getBindingSpace(CompositeWebService cws, Optional<Object> extraConfig) {
+        LazyBindingSpace lazy = getLazyBindingSpace(cws, extraConfig);
+        if (lazy.isEmpty()) {
+            return Optional.empty();
+        }
+        long size = lazy.sizeAsLong();
+        if (size < 0 || size > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("BindingSpace has " + lazy.size()
+                    + " bindings and cannot be materialized; use bindingSpaceStream instead.");
+        }
+        SolveContext context = SolveContext.current();
+        List<Binding> bindings = new ArrayList<>((int) size);
+        lazy.forEach(binding -> {
+            if (context.isStopRequested()) {
+                throw new CancellationException("Binding space enumeration was stopped.");
             }
-            bindingSpace.getBindings().forEach(this::validateOutput);
+            bindings.add(binding);
         });
+        BindingSpace bindingSpace = new BindingSpace();
+        bindingSpace.setBindings(bindings);
+        return Optional.of(bindingSpace);
+    }
 
-        return result;
+    /**
+     * Streams the binding space lazily. Each Binding is validated as it is produced,
+     * so the space is never held in memory as a whole. Its metrics end once the stream is created,
+     * with the size of the space as the number of bindings.
+     */
+    @Override
+    public Stream<Binding> bindingSpaceStream(CompositeWebService cws, Optional<Object> extraConfig) throws IllegalArgumentException {
+        SolveMetrics metrics = Instrumentation.begin(this, SolveMetrics.Operation.BINDING_SPACE_STREAM);
+        LazyBindingSpace lazy;
+        try {
+            long start = metrics.now();
+            validateInput(cws);
+            start = metrics.phase(SolveMetrics.Phase.VALIDATION, start);
+            lazy = getLazyBindingSpace(cws, extraConfig);
+            metrics.phase(SolveMetrics.Phase.COMPILATION, start);
+            if (metrics.isEnabled()) {
+                metrics.setSearchSpace(lazy.size(), lazy.size());
+                metrics.setBindings(lazy.sizeAsLong());
+            }
+        } catch (RuntimeException | Error e) {
+            metrics.failed(e);
+            throw e;
+        } finally {
+            Instrumentation.end(metrics);
+        }
+
+        return lazy.stream().map(binding -> {
+            validateResult(binding);
+            return binding;
+        });
     }
 
     /**
-     * Get the binding space for the given CompositeWebService.
+     * Get the lazily enumerated binding space for the given CompositeWebService.
+     * By default it is the product of the candidates each task accepts.
      */
-    protected abstract Optional<BindingSpace> getBindingSpace(CompositeWebService cws, Optional<Object> extraConfig);
+    protected LazyBindingSpace getLazyBindingSpace(CompositeWebService cws, Optional<Object> extraConfig) {
+        return new LazyBindingSpace(CompiledQACOProblem.compile(cws));
+    }
 }
@@ -0,0 +1,102 @@
+package com.example.qaco.engine;
+
+import com.example.qaco.domain.problem.AggregateDomainType;
+
+import java.util.Locale;
+
+/**
+ * The aggregation functions an AggregatorOperation can name in its {@code operation} string.
+ */
+public enum AggregationFunction {
+    SUM, PRODUCT, MIN, MAX, AVG;
+
+    /**
+     * Parse an AggregatorOperation operation (case-insensitive, "average"/"mean" are accepted for AVG
+     * and "prod"/"multiply" for PRODUCT).
+     *
+     * @throws IllegalArgumentException if the operation is unknown
+     */
+    public static AggregationFunction parse(String operation) {
+        if (operation == null || operation.trim().isEmpty()) {
+            throw new IllegalArgumentException("AggregatorOperation operation cannot be null or empty.");
+        }
+        switch (operation.trim().toUpperCase(Locale.ROOT)) {
+            case "SUM":
+            case "ADD":
+                return SUM;
+            case "PRODUCT":
+            case "PROD":
+            case "MULTIPLY":
+                return PRODUCT;
+            case "MIN":
+            case "MINIMUM":
+                return MIN;
+            case "MAX":
+            case "MAXIMUM":
+                return MAX;
+            case "AVG":
+            case "AVERAGE":
+            case "MEAN":
+                return AVG;
+            default:
+                throw new IllegalArgumentException("Unknown AggregatorOperation operation: " + operation);
+        }
+    }
+
+    /**
+     * The function used when the Optimization does not say how a feature aggregates in a domain:
+     * SUM for sequences and loops, MAX for forks and AVG (the expected value) for branches.
+     */
+    public static AggregationFunction defaultFor(AggregateDomainType type) {
+        switch (type) {
+            case FORK:
+                return MAX;
+            case BRANCH:
+                return AVG;
+            default:
+                return SUM;
+        }
+    }
+
+    /**
+     * The neutral starting value of a left fold with this function.
+     */
+    public double identity() {
+        switch (this) {
+            case PRODUCT:
+                return 1.0;
+            case MIN:
+                return Double.POSITIVE_INFINITY;
+            case MAX:
+                return Double.NEGATIVE_INFINITY;
+            default:
+                return 0.0;
+        }
+    }
+
+    /**
+     * Fold one more value into an accumulator (AVG accumulates a sum, see {@link #finish(double, int)}).
+     */
+    public double accumulate(double accumulator, double value) {
+        switch (this) {
+            case PRODUCT:
+                return accumulator * value;
+            case MIN:
+                return Math.min(accumulator, value);
+            case MAX:
+                return Math.max(accumulator, value);
+            default:
+                return accumulator + value;
+        }
+    }
+
+    /**
+     * Turn the accumulator of {@code count} values into the aggregate.
+     */
+    public double finish(double accumulator, int count) {
+        if (count == 0) {
+            return 0.0;
+        }
+        return this == AVG ? accumulator / count : accumulator;
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.qaco.engine;
+
+import com.example.qaco.domain.binding.Binding;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * The outcome of one problem of {@link QACOEngineInterface#solveBatch}: what its solve returned,
+ * or the exception it threw, so one invalid problem does not fail the whole batch.
+ */
+public final class BatchResult {
+
+    private final Optional<List<Binding>> result;
+    private final RuntimeException error;
+
+    private BatchResult(Optional<List<Binding>> result, RuntimeException error) {
+        this.result = result;
+        this.error = error;
+    }
+
+    /**
+     * Run a solve, catching what it throws.
+     */
+    public static BatchResult of(Supplier<Optional<List<Binding>>> solve) {
+        try {
+            return new BatchResult(solve.get(), null);
+        } catch (RuntimeException e) {
+            return failure(e);
+        }
+    }
+
+    public static BatchResult failure(RuntimeException error) {
+        return new BatchResult(null, error);
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    /**
+     * @return what the solve returned
+     * @throws IllegalStateException if it failed (with the failure as cause)
+     */
+    public Optional<List<Binding>> getResult() {
+        if (error != null) {
+            throw new IllegalStateException("Solve failed: " + error.getMessage(), error);
+        }
+        return result;
+    }
+
+    /**
+     * @return what the solve threw, or null if it succeeded
+     */
+    public RuntimeException getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return error == null ? "BatchResult(" + result + ")" : "BatchResult(error=" + error + ")";
+    }
+}
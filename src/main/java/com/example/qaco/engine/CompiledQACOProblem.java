@@ -0,0 +1,616 @@
+package com.example.qaco.engine;
+
+import com.example.qaco.domain.QACOProblem;
+import com.example.qaco.domain.binding.Binding;
+import com.example.qaco.domain.binding.BindingMapping;
+import com.example.qaco.domain.cws.CandidateService;
+import com.example.qaco.domain.cws.CompositeWebService;
+import com.example.qaco.domain.cws.Feature;
+import com.example.qaco.domain.cws.FeatureValue;
+import com.example.qaco.domain.cws.Task;
+import com.example.qaco.domain.cws.qos.QoSSnapshot;
+import com.example.qaco.domain.problem.AggregateDomain;
+import com.example.qaco.domain.problem.AggregateDomainType;
+import com.example.qaco.domain.problem.AggregatorOperation;
+import com.example.qaco.domain.problem.Optimization;
+import com.example.qaco.domain.problem.Preference;
+import com.example.qaco.engine.graph.GraphIndex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compiled, integer-indexed form of a (validated) QACOProblem.
+ * <p>
+ * Tasks, candidate services and features are given dense ids following their order in the
+ * CompositeWebService, so engines can work on primitive arrays instead of walking the domain
+ * model:
+ * - {@code qos(feature, service)} is a plain {@code double[][]} lookup (services without a value
+ *   for a feature get 0.0). When the CWS has a {@code QoSStore}, its values override the inline
+ *   ones and are all read from one snapshot, so a solve sees a consistent version of the store.
+ * - {@code candidates(task)} lists the ids of the services that declare the task in
+ *   {@code CandidateService.tasks}. A service that declares no tasks is eligible for every task.
+ * - Preferences are kept as parallel feature id / weight arrays (a missing weight counts as 1.0).
+ * - {@code provider(service)} gives services of the same provider the same id.
+ * - {@code aggregation(type, feature)} resolves the Optimization's AggregateDomains ahead of time.
+ * - {@code graphIndex()} is the structure of the workflow graph, analysed once per CWS.
+ * <p>
+ * A solution is represented as an {@code int[]} assignment indexed by task id whose values are
+ * service ids. Arrays returned by the getters are shared with this instance and must not be
+ * modified. Instances are immutable and can be shared between threads.
+ */
+public final class CompiledQACOProblem {
+
+    private final QACOProblem source;
+    private final CompositeWebService compositeWebService;
+
+    private final Task[] tasks;
+    private final CandidateService[] services;
+    private final Feature[] features;
+
+    private final QoSSnapshot qosSnapshot;
+    private final double[][] qos;
+    private final int[][] candidates;
+    private final int[] providers;
+    private final GraphIndex graphIndex;
+
+    private final int[] preferenceFeatures;
+    private final double[] preferenceWeights;
+    private final AggregationFunction[][] aggregations;
+
+    private final Map<Object, Integer> idsByInstance;
+    private final Map<String, Integer> taskIdsByName;
+    private final Map<String, Integer> serviceIdsByName;
+    private final Map<String, Integer> featureIdsByName;
+
+    private CompiledQACOProblem(QACOProblem source, CompositeWebService cws) {
+        this.source = source;
+        this.compositeWebService = cws;
+
+        List<Task> taskList = orEmpty(cws.getTasks());
+        List<CandidateService> serviceList = orEmpty(cws.getCandidateServices());
+        List<Feature> featureList = orEmpty(cws.getFeatures());
+
+        this.tasks = taskList.toArray(new Task[0]);
+        this.services = serviceList.toArray(new CandidateService[0]);
+        this.features = featureList.toArray(new Feature[0]);
+
+        this.idsByInstance = new IdentityHashMap<>(2 * (tasks.length + services.length + features.length));
+        this.taskIdsByName = new HashMap<>(2 * tasks.length);
+        this.serviceIdsByName = new HashMap<>(2 * services.length);
+        this.featureIdsByName = new HashMap<>(2 * features.length);
+        index(tasks, taskIdsByName);
+        index(services, serviceIdsByName);
+        index(features, featureIdsByName);
+
+        this.qosSnapshot = cws.getQosStore() == null ? null : cws.getQosStore().snapshot();
+        this.qos = compileQoS();
+        this.candidates = compileCandidates();
+        this.providers = compileProviders();
+        this.graphIndex = cws.getGraph() == null || orEmpty(cws.getGraph().getNodes()).isEmpty()
+                ? null : GraphIndex.cached(cws.getGraph());
+
+        Optimization optimization = optimizationOf(source);
+        List<Preference> preferences = preferencesOf(optimization);
+        this.preferenceFeatures = compilePreferenceFeatures(preferences);
+        this.preferenceWeights = compilePreferenceWeights(preferences);
+        this.aggregations = compileAggregations(optimization);
+    }
+
+    private CompiledQACOProblem(CompiledQACOProblem base, QACOProblem source) {
+        this.source = source;
+        this.compositeWebService = base.compositeWebService;
+        this.tasks = base.tasks;
+        this.services = base.services;
+        this.features = base.features;
+        this.qosSnapshot = base.qosSnapshot;
+        this.qos = base.qos;
+        this.candidates = base.candidates;
+        this.providers = base.providers;
+        this.graphIndex = base.graphIndex;
+        this.idsByInstance = base.idsByInstance;
+        this.taskIdsByName = base.taskIdsByName;
+        this.serviceIdsByName = base.serviceIdsByName;
+        this.featureIdsByName = base.featureIdsByName;
+
+        Optimization optimization = optimizationOf(source);
+        List<Preference> preferences = preferencesOf(optimization);
+        this.preferenceFeatures = compilePreferenceFeatures(preferences);
+        this.preferenceWeights = compilePreferenceWeights(preferences);
+        this.aggregations = compileAggregations(optimization);
+    }
+
+    private CompiledQACOProblem(CompiledQACOProblem base, int[][] candidates) {
+        this.source = base.source;
+        this.compositeWebService = base.compositeWebService;
+        this.tasks = base.tasks;
+        this.services = base.services;
+        this.features = base.features;
+        this.qosSnapshot = base.qosSnapshot;
+        this.qos = base.qos;
+        this.candidates = candidates;
+        this.providers = base.providers;
+        this.graphIndex = base.graphIndex;
+        this.preferenceFeatures = base.preferenceFeatures;
+        this.preferenceWeights = base.preferenceWeights;
+        this.aggregations = base.aggregations;
+        this.idsByInstance = base.idsByInstance;
+        this.taskIdsByName = base.taskIdsByName;
+        this.serviceIdsByName = base.serviceIdsByName;
+        this.featureIdsByName = base.featureIdsByName;
+    }
+
+    /**
+     * Compile a QACOProblem. The problem is expected to have passed
+     * {@link AbstractQACOEngine#validateInput(QACOProblem)} already.
+     *
+     * @throws IllegalArgumentException if the workflow graph is malformed (see {@link GraphIndex})
+     */
+    public static CompiledQACOProblem compile(QACOProblem problem) {
+        if (problem == null || problem.getCompositeWebService() == null) {
+            throw new IllegalArgumentException("CompositeWebService is missing in QACOProblem.");
+        }
+        return new CompiledQACOProblem(problem, problem.getCompositeWebService());
+    }
+
+    /**
+     * Compile only the CompositeWebService part (no preferences), e.g. to enumerate its binding space.
+     */
+    public static CompiledQACOProblem compile(CompositeWebService cws) {
+        if (cws == null) {
+            throw new IllegalArgumentException("CompositeWebService cannot be null.");
+        }
+        return new CompiledQACOProblem(null, cws);
+    }
+
+    /**
+     * Compile a QACOProblem on top of this compiled CWS, sharing everything that only depends on
+     * the CWS (QoS values, candidates, providers, indexes), so only the preferences and aggregate
+     * domains of the problem are compiled. This is how a batch of problems sharing one CWS is
+     * compiled once (see {@link QACOEngineInterface#solveBatch}).
+     *
+     * @param problem a problem whose CompositeWebService is the very instance this was compiled
+     *                from; expected to have passed validation already
+     * @throws IllegalArgumentException if the problem has another CWS, or this is a reduced problem
+     */
+    public CompiledQACOProblem withProblem(QACOProblem problem) {
+        if (problem == null || problem.getCompositeWebService() != compositeWebService) {
+            throw new IllegalArgumentException("QACOProblem does not share the compiled CompositeWebService.");
+        }
+        if (source != null) {
+            throw new IllegalArgumentException("Only a CompositeWebService compiled on its own can be shared.");
+        }
+        return new CompiledQACOProblem(this, problem);
+    }
+
+    private static Optimization optimizationOf(QACOProblem source) {
+        return source == null || source.getProblem() == null ? null : source.getProblem().getOptimization();
+    }
+
+    private static List<Preference> preferencesOf(Optimization optimization) {
+        return optimization == null ? Collections.<Preference>emptyList() : orEmpty(optimization.getPreferences());
+    }
+
+    private int[] compilePreferenceFeatures(List<Preference> preferences) {
+        int[] result = new int[preferences.size()];
+        for (int i = 0; i < result.length; i++) {
+            Preference pref = preferences.get(i);
+            result[i] = featureId(pref.getFeature());
+            if (result[i] < 0) {
+                throw new IllegalArgumentException("Optimization references a Feature not present in the CWS: "
+                        + (pref.getFeature() == null ? null : pref.getFeature().getName()));
+            }
+        }
+        return result;
+    }
+
+    private static double[] compilePreferenceWeights(List<Preference> preferences) {
+        double[] result = new double[preferences.size()];
+        for (int i = 0; i < result.length; i++) {
+            Double weight = preferences.get(i).getWeight();
+            result[i] = weight == null ? 1.0 : weight;
+        }
+        return result;
+    }
+
+    private double[][] compileQoS() {
+        double[][] matrix = new double[features.length][services.length];
+        for (int f = 0; f < features.length; f++) {
+            if (features[f].getValues() == null) {
+                continue;
+            }
+            for (FeatureValue fv : features[f].getValues()) {
+                if (fv == null || fv.getValue() == null) {
+                    continue;
+                }
+                int s = serviceId(fv.getService());
+                if (s < 0) {
+                    throw new IllegalArgumentException("Feature " + features[f].getName()
+                            + " has a value for a CandidateService not in the CWS: "
+                            + (fv.getService() == null ? null : fv.getService().getName()));
+                }
+                matrix[f][s] = fv.getValue();
+            }
+        }
+        if (qosSnapshot != null) {
+            overlayQoS(matrix);
+        }
+        return matrix;
+    }
+
+    private void overlayQoS(double[][] matrix) {
+        int[] rows = new int[services.length];
+        boolean aligned = services.length <= qosSnapshot.rowCount();
+        for (int s = 0; s < services.length; s++) {
+            rows[s] = qosSnapshot.getStore().row(services[s].getName());
+            aligned &= rows[s] == s;
+        }
+        double[] column = new double[aligned ? services.length : qosSnapshot.rowCount()];
+        for (int f = 0; f < features.length; f++) {
+            if (!qosSnapshot.hasColumn(features[f].getName())) {
+                continue;
+            }
+            // One bulk copy of the column, or only the rows of the CWS services if they come first
+            qosSnapshot.copyColumn(features[f].getName(), 0, column, 0, column.length);
+            for (int s = 0; s < services.length; s++) {
+                double value = rows[s] < 0 ? Double.NaN : column[rows[s]];
+                if (!Double.isNaN(value)) {
+                    matrix[f][s] = value;
+                }
+            }
+        }
+    }
+
+    private int[][] compileCandidates() {
+        int[][] result = new int[tasks.length][];
+        int[] sizes = new int[tasks.length];
+        int[][] declared = new int[services.length][];
+        for (int s = 0; s < services.length; s++) {
+            List<Task> serviceTasks = services[s].getTasks();
+            if (serviceTasks == null || serviceTasks.isEmpty()) {
+                continue;
+            }
+            int[] ids = new int[serviceTasks.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = taskId(serviceTasks.get(i));
+                if (ids[i] < 0) {
+                    throw new IllegalArgumentException("CandidateService " + services[s].getName()
+                            + " references a Task not in the CWS: "
+                            + (serviceTasks.get(i) == null ? null : serviceTasks.get(i).getName()));
+                }
+            }
+            declared[s] = distinct(ids);
+        }
+        for (int s = 0; s < services.length; s++) {
+            if (declared[s] == null) {
+                for (int t = 0; t < tasks.length; t++) {
+                    sizes[t]++;
+                }
+            } else {
+                for (int t : declared[s]) {
+                    sizes[t]++;
+                }
+            }
+        }
+        for (int t = 0; t < tasks.length; t++) {
+            result[t] = new int[sizes[t]];
+            sizes[t] = 0;
+        }
+        for (int s = 0; s < services.length; s++) {
+            if (declared[s] == null) {
+                for (int t = 0; t < tasks.length; t++) {
+                    result[t][sizes[t]++] = s;
+                }
+            } else {
+                for (int t : declared[s]) {
+                    result[t][sizes[t]++] = s;
+                }
+            }
+        }
+        return result;
+    }
+
+    private int[] compileProviders() {
+        // Services without a provider are treated as their own, unique provider.
+        Map<String, Integer> ids = new HashMap<>();
+        int[] result = new int[services.length];
+        int next = 0;
+        for (int s = 0; s < services.length; s++) {
+            String provider = services[s].getProvider();
+            if (provider == null) {
+                result[s] = next++;
+            } else {
+                Integer id = ids.get(provider);
+                if (id == null) {
+                    id = next++;
+                    ids.put(provider, id);
+                }
+                result[s] = id;
+            }
+        }
+        return result;
+    }
+
+    private AggregationFunction[][] compileAggregations(Optimization optimization) {
+        AggregateDomainType[] types = AggregateDomainType.values();
+        AggregationFunction[][] result = new AggregationFunction[types.length][features.length];
+        for (AggregateDomainType type : types) {
+            Arrays.fill(result[type.ordinal()], AggregationFunction.defaultFor(type));
+        }
+        if (optimization == null || optimization.getAggregateDomains() == null) {
+            return result;
+        }
+        for (AggregateDomain domain : optimization.getAggregateDomains()) {
+            if (domain == null || domain.getAggregateDomainType() == null || domain.getAggregatorOperation() == null) {
+                continue;
+            }
+            for (AggregatorOperation op : domain.getAggregatorOperation()) {
+                if (op == null || op.getFeatures() == null) {
+                    continue;
+                }
+                AggregationFunction function = AggregationFunction.parse(op.getOperation());
+                for (Feature feature : op.getFeatures()) {
+                    int f = featureId(feature);
+                    if (f < 0) {
+                        throw new IllegalArgumentException(
+                                "AggregatorOperation references a Feature not present in the CWS: "
+                                        + (feature == null ? null : feature.getName()));
+                    }
+                    result[domain.getAggregateDomainType().ordinal()][f] = function;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static int[] distinct(int[] ids) {
+        int n = 0;
+        int[] out = new int[ids.length];
+        outer:
+        for (int id : ids) {
+            for (int i = 0; i < n; i++) {
+                if (out[i] == id) {
+                    continue outer;
+                }
+            }
+            out[n++] = id;
+        }
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    private void index(Object[] items, Map<String, Integer> byName) {
+        for (int i = 0; i < items.length; i++) {
+            idsByInstance.putIfAbsent(items[i], i);
+            String name = nameOf(items[i]);
+            if (name != null) {
+                byName.putIfAbsent(name, i);
+            }
+        }
+    }
+
+    private static String nameOf(Object item) {
+        if (item instanceof Task) {
+            return ((Task) item).getName();
+        }
+        if (item instanceof CandidateService) {
+            return ((CandidateService) item).getName();
+        }
+        if (item instanceof Feature) {
+            return ((Feature) item).getName();
+        }
+        return null;
+    }
+
+    private static <T> List<T> orEmpty(List<T> list) {
+        return list == null ? Collections.<T>emptyList() : list;
+    }
+
+    private int lookup(Object item, Object[] table, Map<String, Integer> byName, String name) {
+        if (item == null) {
+            return -1;
+        }
+        Integer id = idsByInstance.get(item);
+        if (id != null && table[id] == item) {
+            return id;
+        }
+        // Fall back to the name for references that are equal but not the same instance
+        // (e.g. after a round trip through JSON).
+        id = name == null ? null : byName.get(name);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @return the id of the task, or -1 if it is not part of the CWS
+     */
+    public int taskId(Task task) {
+        return lookup(task, tasks, taskIdsByName, task == null ? null : task.getName());
+    }
+
+    /**
+     * @return the id of the candidate service, or -1 if it is not part of the CWS
+     */
+    public int serviceId(CandidateService service) {
+        return lookup(service, services, serviceIdsByName, service == null ? null : service.getName());
+    }
+
+    /**
+     * @return the id of the feature, or -1 if it is not part of the CWS
+     */
+    public int featureId(Feature feature) {
+        return lookup(feature, features, featureIdsByName, feature == null ? null : feature.getName());
+    }
+
+    public int taskCount() {
+        return tasks.length;
+    }
+
+    public int serviceCount() {
+        return services.length;
+    }
+
+    public int featureCount() {
+        return features.length;
+    }
+
+    public Task task(int taskId) {
+        return tasks[taskId];
+    }
+
+    public CandidateService service(int serviceId) {
+        return services[serviceId];
+    }
+
+    public Feature feature(int featureId) {
+        return features[featureId];
+    }
+
+    /**
+     * @return the value of the feature for the service (0.0 if the feature has no value for it)
+     */
+    public double qos(int featureId, int serviceId) {
+        return qos[featureId][serviceId];
+    }
+
+    /**
+     * @return the QoS values of a feature indexed by service id (shared, do not modify)
+     */
+    public double[] qosRow(int featureId) {
+        return qos[featureId];
+    }
+
+    /**
+     * @return the ids of the services that can be bound to the task (shared, do not modify)
+     */
+    public int[] candidates(int taskId) {
+        return candidates[taskId];
+    }
+
+    /**
+     * A view of this problem where each task may only be bound to the given candidates (e.g. after
+     * a pre-solve reduction). Everything else, including service ids, is shared.
+     *
+     * @param candidates the candidate service ids of every task, indexed by task id
+     * @throws IllegalArgumentException if there is not one array per task or an id is out of range
+     */
+    public CompiledQACOProblem withCandidates(int[][] candidates) {
+        if (candidates == null || candidates.length != tasks.length) {
+            throw new IllegalArgumentException("Expected the candidates of " + tasks.length + " tasks.");
+        }
+        int[][] copy = new int[candidates.length][];
+        for (int t = 0; t < candidates.length; t++) {
+            copy[t] = candidates[t].clone();
+            for (int s : copy[t]) {
+                if (s < 0 || s >= services.length) {
+                    throw new IllegalArgumentException("Unknown service id " + s + " for task " + tasks[t].getName());
+                }
+            }
+        }
+        return new CompiledQACOProblem(this, copy);
+    }
+
+    /**
+     * @return true if some task has no candidate service, i.e. no binding exists at all
+     */
+    public boolean hasEmptyDomain() {
+        for (int[] c : candidates) {
+            if (c.length == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the provider id of the service; services share an id iff they have the same provider
+     */
+    public int provider(int serviceId) {
+        return providers[serviceId];
+    }
+
+    /**
+     * @return how the feature aggregates in the given workflow construct
+     */
+    public AggregationFunction aggregation(AggregateDomainType type, int featureId) {
+        return aggregations[type.ordinal()][featureId];
+    }
+
+    public int preferenceCount() {
+        return preferenceFeatures.length;
+    }
+
+    public int preferenceFeature(int preference) {
+        return preferenceFeatures[preference];
+    }
+
+    public double preferenceWeight(int preference) {
+        return preferenceWeights[preference];
+    }
+
+    /**
+     * @return the QACOProblem this was compiled from, or null if only a CWS was compiled
+     */
+    public QACOProblem getSource() {
+        return source;
+    }
+
+    public CompositeWebService getCompositeWebService() {
+        return compositeWebService;
+    }
+
+    /**
+     * @return the structure of the workflow graph, or null if the CWS has no graph
+     */
+    public GraphIndex graphIndex() {
+        return graphIndex;
+    }
+
+    /**
+     * @return the QoSStore snapshot the QoS values were read from, or null if the CWS has no store
+     */
+    public QoSSnapshot getQoSSnapshot() {
+        return qosSnapshot;
+    }
+
+    /**
+     * Build the domain Binding for an assignment (task id -> service id). The result is a
+     * {@link TrustedBinding}, whose mappings are only materialized when first read.
+     */
+    public Binding toBinding(int[] assignment) {
+        return new TrustedBinding(this, assignment.clone());
+    }
+
+    List<BindingMapping> mappings(int[] assignment) {
+        List<BindingMapping> mappings = new ArrayList<>(assignment.length);
+        for (int t = 0; t < assignment.length; t++) {
+            BindingMapping mapping = new BindingMapping();
+            mapping.setTask(tasks[t]);
+            mapping.setCandidateService(services[assignment[t]]);
+            mappings.add(mapping);
+        }
+        return mappings;
+    }
+
+    /**
+     * Convert a domain Binding back to an assignment. Tasks without a mapping are set to -1.
+     */
+    public int[] toAssignment(Binding binding) {
+        int[] assignment = new int[tasks.length];
+        Arrays.fill(assignment, -1);
+        if (binding != null && binding.getBindingMappings() != null) {
+            for (BindingMapping mapping : binding.getBindingMappings()) {
+                int t = taskId(mapping.getTask());
+                int s = serviceId(mapping.getCandidateService());
+                if (t < 0 || s < 0) {
+                    throw new IllegalArgumentException("Binding references a Task or CandidateService not in the CWS.");
+                }
+                assignment[t] = s;
+            }
+        }
+        return assignment;
+    }
+}
@@ -0,0 +1,241 @@
+package com.example.qaco.engine;
+
+import com.example.qaco.domain.binding.Binding;
+
+import java.math.BigInteger;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A binding space that is enumerated lazily instead of being materialized as a List of Bindings.
+ * <p>
+ * The space is the cartesian product of the candidates of every task (see
+ * {@link CompiledQACOProblem#candidates(int)}), enumerated in lexicographic order with the last
+ * task varying fastest. Its exact size is known up front, and its spliterator splits the product
+ * along the most significant task with more than one candidate left, so parallel streams can
+ * partition it evenly. Nothing is kept in memory besides the current position of each split.
+ */
+public final class LazyBindingSpace implements Iterable<Binding> {
+
+    private final CompiledQACOProblem compiled;
+
+    public LazyBindingSpace(CompiledQACOProblem compiled) {
+        this.compiled = compiled;
+    }
+
+    public CompiledQACOProblem getCompiledProblem() {
+        return compiled;
+    }
+
+    /**
+     * @return the exact number of bindings in the space (0 if some task has no candidate)
+     */
+    public BigInteger size() {
+        BigInteger size = compiled.taskCount() == 0 ? BigInteger.ZERO : BigInteger.ONE;
+        for (int t = 0; t < compiled.taskCount(); t++) {
+            size = size.multiply(BigInteger.valueOf(compiled.candidates(t).length));
+        }
+        return size;
+    }
+
+    /**
+     * @return the number of bindings, or -1 if it does not fit in a long
+     */
+    public long sizeAsLong() {
+        BigInteger size = size();
+        return size.bitLength() < 64 ? size.longValue() : -1L;
+    }
+
+    public boolean isEmpty() {
+        return compiled.taskCount() == 0 || compiled.hasEmptyDomain();
+    }
+
+    /**
+     * Decode the binding at the given position into {@code out} (task id -> service id).
+     *
+     * @throws IndexOutOfBoundsException if there is no binding at that position, e.g. because a
+     * task has no candidates
+     */
+    public void assignmentAt(long index, int[] out) {
+        if (index < 0) {
+            throw new IndexOutOfBoundsException("Binding index must not be negative: " + index);
+        }
+        if (compiled.hasEmptyDomain()) {
+            throw new IndexOutOfBoundsException("Binding index out of range: " + index + " (a task has no candidates)");
+        }
+        long rest = index;
+        for (int t = compiled.taskCount() - 1; t >= 0; t--) {
+            int[] candidates = compiled.candidates(t);
+            out[t] = candidates[(int) (rest % candidates.length)];
+            rest /= candidates.length;
+        }
+        if (rest != 0) {
+            throw new IndexOutOfBoundsException("Binding index out of range: " + index);
+        }
+    }
+
+    public Binding get(long index) {
+        int[] assignment = new int[compiled.taskCount()];
+        assignmentAt(index, assignment);
+        return compiled.toBinding(assignment);
+    }
+
+    @Override
+    public Iterator<Binding> iterator() {
+        return Spliterators.iterator(spliterator());
+    }
+
+    @Override
+    public Spliterator<Binding> spliterator() {
+        return newSpliterator(compiled::toBinding);
+    }
+
+    public Stream<Binding> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    public Stream<Binding> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    /**
+     * Stream the raw assignments (task id -> service id). Each element is a fresh array.
+     */
+    public Stream<int[]> assignments(boolean parallel) {
+        return StreamSupport.stream(newSpliterator(int[]::clone), parallel);
+    }
+
+    private <T> Spliterator<T> newSpliterator(Function<int[], T> mapper) {
+        int n = compiled.taskCount();
+        int[] lo = new int[n];
+        int[] hi = new int[n];
+        for (int t = 0; t < n; t++) {
+            hi[t] = compiled.candidates(t).length;
+        }
+        return new ProductSpliterator<>(compiled, mapper, lo, hi);
+    }
+
+    /**
+     * Enumerates the sub-box lo[t] <= position[t] < hi[t] of the candidate product with an odometer.
+     */
+    private static final class ProductSpliterator<T> implements Spliterator<T> {
+        private final CompiledQACOProblem compiled;
+        private final Function<int[], T> mapper;
+        private final int[] lo;
+        private final int[] hi;
+        private final int[] position;
+        private final int[] assignment;
+        private boolean started;
+        private boolean exhausted;
+
+        ProductSpliterator(CompiledQACOProblem compiled, Function<int[], T> mapper, int[] lo, int[] hi) {
+            this.compiled = compiled;
+            this.mapper = mapper;
+            this.lo = lo;
+            this.hi = hi;
+            this.position = lo.clone();
+            this.assignment = new int[lo.length];
+            boolean empty = lo.length == 0;
+            for (int t = 0; t < lo.length; t++) {
+                empty |= lo[t] >= hi[t];
+            }
+            this.exhausted = empty;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (exhausted) {
+                return false;
+            }
+            started = true;
+            for (int t = 0; t < position.length; t++) {
+                assignment[t] = compiled.candidates(t)[position[t]];
+            }
+            advance();
+            action.accept(mapper.apply(assignment));
+            return true;
+        }
+
+        private void advance() {
+            for (int t = position.length - 1; t >= 0; t--) {
+                if (++position[t] < hi[t]) {
+                    return;
+                }
+                position[t] = lo[t];
+            }
+            exhausted = true;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            if (started || exhausted) {
+                return null;
+            }
+            for (int t = 0; t < lo.length; t++) {
+                int width = hi[t] - lo[t];
+                if (width > 1) {
+                    int mid = lo[t] + width / 2;
+                    int[] prefixLo = lo.clone();
+                    int[] prefixHi = hi.clone();
+                    prefixHi[t] = mid;
+                    lo[t] = mid;
+                    position[t] = mid;
+                    return new ProductSpliterator<>(compiled, mapper, prefixLo, prefixHi);
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return exhausted ? 0 : remaining();
+        }
+
+        private long remaining() {
+            // Positions left = total - consumed, computed in mixed radix over the box.
+            long consumed = 0;
+            long total = 1;
+            for (int t = 0; t < lo.length; t++) {
+                int width = hi[t] - lo[t];
+                consumed = addSaturated(multiplySaturated(consumed, width), position[t] - lo[t]);
+                total = multiplySaturated(total, width);
+            }
+            return total == Long.MAX_VALUE ? Long.MAX_VALUE : total - consumed;
+        }
+
+        @Override
+        public int characteristics() {
+            int base = ORDERED | NONNULL | IMMUTABLE;
+            return fitsInLong() ? base | SIZED | SUBSIZED : base;
+        }
+
+        private boolean fitsInLong() {
+            long size = 1;
+            for (int t = 0; t < lo.length; t++) {
+                size = multiplySaturated(size, hi[t] - lo[t]);
+            }
+            return size != Long.MAX_VALUE;
+        }
+
+        private static long multiplySaturated(long a, long b) {
+            if (a == Long.MAX_VALUE || b == Long.MAX_VALUE) {
+                return Long.MAX_VALUE;
+            }
+            try {
+                return Math.multiplyExact(a, b);
+            } catch (ArithmeticException e) {
+                return Long.MAX_VALUE;
+            }
+        }
+
+        private static long addSaturated(long a, long b) {
+            long sum = a + b;
+            return sum < 0 ? Long.MAX_VALUE : sum;
+        }
+    }
+}
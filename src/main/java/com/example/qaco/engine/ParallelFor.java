@@ -0,0 +1,74 @@
+package com.example.qaco.engine;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Minimal fork/join parallel loop used by the engines for their batched work (ants, individuals,
+ * pheromone rows...). The index range is split into chunks so every worker gets several of them.
+ */
+public final class ParallelFor {
+
+    private ParallelFor() {
+    }
+
+    /**
+     * Run {@code body} for every index in [0, n) on the pool, or inline if the pool is null.
+     * Returns once every index has been processed.
+     */
+    public static void run(ForkJoinPool pool, int n, IntConsumer body) {
+        if (pool == null || n <= 1 || pool.getParallelism() <= 1) {
+            for (int i = 0; i < n; i++) {
+                body.accept(i);
+            }
+            return;
+        }
+        int grain = Math.max(1, n / (pool.getParallelism() * 4));
+        pool.invoke(new Range(0, n, grain, body));
+    }
+
+    /**
+     * @return a dedicated pool with the given parallelism, or the common pool if threads <= 0
+     */
+    public static ForkJoinPool pool(int threads) {
+        return threads <= 0 ? ForkJoinPool.commonPool() : new ForkJoinPool(threads);
+    }
+
+    /**
+     * Shut a pool obtained from {@link #pool(int)} down (the common pool is left alone).
+     */
+    public static void release(ForkJoinPool pool) {
+        if (pool != null && pool != ForkJoinPool.commonPool()) {
+            pool.shutdown();
+        }
+    }
+
+    private static final class Range extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final int grain;
+        private final IntConsumer body;
+
+        Range(int from, int to, int grain, IntConsumer body) {
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+            this.body = body;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                for (int i = from; i < to; i++) {
+                    body.accept(i);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Range(from, mid, grain, body), new Range(mid, to, grain, body));
+        }
+    }
+}
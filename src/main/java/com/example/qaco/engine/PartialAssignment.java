@@ -0,0 +1,156 @@
+package com.example.qaco.engine;
+
+import java.util.Arrays;
+
+/**
+ * An assignment where only some tasks are bound yet, as built by tree-search engines.
+ * <p>
+ * Besides the bound services it maintains, for every feature, the two extreme completions of the
+ * unbound tasks: the lower completion binds each of them to the candidate with the lowest value of
+ * the feature and the upper completion to the one with the highest. As long as the aggregation of a
+ * feature is monotone, evaluating those two plain assignments brackets the feature over every
+ * completion of the partial assignment, which is how {@link
+ * com.example.qaco.engine.constraints.CompiledConstraint#check(PartialAssignment)} and {@link
+ * com.example.qaco.engine.qos.WorkflowAggregator#lowerBound(PartialAssignment)} bound subtrees.
+ * <p>
+ * Binding and unbinding a task costs O(features). Not thread-safe: {@link #copy()} it for another thread.
+ */
+public final class PartialAssignment {
+
+    private final CompiledQACOProblem compiled;
+    // [feature][task] candidates with the lowest / highest value, shared between copies
+    private final int[][] lowest;
+    private final int[][] highest;
+
+    private final int[] services;
+    private final int[][] lower;
+    private final int[][] upper;
+    private int assignedCount;
+
+    /**
+     * An empty partial assignment (no task bound).
+     *
+     * @throws IllegalArgumentException if some task has no candidate
+     */
+    public PartialAssignment(CompiledQACOProblem compiled) {
+        if (compiled.hasEmptyDomain()) {
+            throw new IllegalArgumentException("Some task has no candidate service.");
+        }
+        this.compiled = compiled;
+        int features = compiled.featureCount();
+        int tasks = compiled.taskCount();
+        this.lowest = new int[features][tasks];
+        this.highest = new int[features][tasks];
+        for (int f = 0; f < features; f++) {
+            double[] row = compiled.qosRow(f);
+            for (int t = 0; t < tasks; t++) {
+                int[] candidates = compiled.candidates(t);
+                int min = candidates[0];
+                int max = candidates[0];
+                for (int s : candidates) {
+                    if (row[s] < row[min]) {
+                        min = s;
+                    }
+                    if (row[s] > row[max]) {
+                        max = s;
+                    }
+                }
+                lowest[f][t] = min;
+                highest[f][t] = max;
+            }
+        }
+        this.services = new int[tasks];
+        Arrays.fill(services, -1);
+        this.lower = new int[features][];
+        this.upper = new int[features][];
+        for (int f = 0; f < features; f++) {
+            lower[f] = lowest[f].clone();
+            upper[f] = highest[f].clone();
+        }
+    }
+
+    private PartialAssignment(PartialAssignment other) {
+        this.compiled = other.compiled;
+        this.lowest = other.lowest;
+        this.highest = other.highest;
+        this.services = other.services.clone();
+        this.lower = new int[other.lower.length][];
+        this.upper = new int[other.upper.length][];
+        for (int f = 0; f < lower.length; f++) {
+            lower[f] = other.lower[f].clone();
+            upper[f] = other.upper[f].clone();
+        }
+        this.assignedCount = other.assignedCount;
+    }
+
+    public PartialAssignment copy() {
+        return new PartialAssignment(this);
+    }
+
+    public CompiledQACOProblem getCompiledProblem() {
+        return compiled;
+    }
+
+    public void assign(int task, int service) {
+        if (services[task] < 0) {
+            assignedCount++;
+        }
+        services[task] = service;
+        for (int f = 0; f < lower.length; f++) {
+            lower[f][task] = service;
+            upper[f][task] = service;
+        }
+    }
+
+    public void unassign(int task) {
+        if (services[task] < 0) {
+            return;
+        }
+        services[task] = -1;
+        assignedCount--;
+        for (int f = 0; f < lower.length; f++) {
+            lower[f][task] = lowest[f][task];
+            upper[f][task] = highest[f][task];
+        }
+    }
+
+    public boolean isAssigned(int task) {
+        return services[task] >= 0;
+    }
+
+    /**
+     * @return the service bound to the task, or -1
+     */
+    public int service(int task) {
+        return services[task];
+    }
+
+    public int assignedCount() {
+        return assignedCount;
+    }
+
+    public boolean isComplete() {
+        return assignedCount == services.length;
+    }
+
+    /**
+     * @return the bound services, -1 for unbound tasks (live view, do not modify)
+     */
+    public int[] assignment() {
+        return services;
+    }
+
+    /**
+     * @return the completion minimising the feature on every unbound task (live view, do not modify)
+     */
+    public int[] lowerCompletion(int feature) {
+        return lower[feature];
+    }
+
+    /**
+     * @return the completion maximising the feature on every unbound task (live view, do not modify)
+     */
+    public int[] upperCompletion(int feature) {
+        return upper[feature];
+    }
+}
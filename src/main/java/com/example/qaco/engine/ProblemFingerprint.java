@@ -0,0 +1,346 @@
+package com.example.qaco.engine;
+
+import com.example.qaco.domain.QACOProblem;
+import com.example.qaco.domain.cws.CompositeWebService;
+import com.example.qaco.domain.cws.Feature;
+import com.example.qaco.domain.cws.graph.Graph;
+import com.example.qaco.domain.cws.graph.GraphNode;
+import com.example.qaco.domain.problem.AggregatorOperation;
+import com.example.qaco.domain.problem.Optimization;
+import com.example.qaco.domain.problem.Problem;
+import com.example.qaco.domain.problem.constraints.BindingConstraint;
+import com.example.qaco.domain.problem.constraints.ComposeConstraint;
+import com.example.qaco.domain.problem.constraints.ConditionalConstraint;
+import com.example.qaco.domain.problem.constraints.Constraint;
+import com.example.qaco.domain.problem.constraints.FeatureConstraint;
+import com.example.qaco.domain.problem.constraints.GlobalConstraint;
+import com.example.qaco.domain.problem.constraints.LocalConstraint;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * A 128-bit fingerprint of the content of a QACOProblem (or of a CompositeWebService alone).
+ * <p>
+ * It is computed in one linear walk of the model, never calling the Lombok {@code hashCode} of
+ * the domain objects (which re-walks every nested list). References to tasks, services, features
+ * and graph nodes are hashed by name, the way {@link CompiledQACOProblem} resolves them.
+ * Collections whose order carries no meaning (tasks, services, features, feature values,
+ * preferences, aggregate domains, constraints and their conditions...) are hashed
+ * order-insensitively; the graph nodes, edges and probabilities are hashed in order, since branch
+ * probabilities are matched by position. Names and descriptions of the CWS and Problem
+ * themselves are left out. The values of a {@code QoSStore} are not walked: the store is hashed
+ * by its id and the version of its current snapshot, which changes on every commit.
+ * <p>
+ * Two problems with the same fingerprint can be assumed to have the same content.
+ */
+public final class ProblemFingerprint {
+
+    private static final long NULL = 0x6A09E667F3BCC909L;
+
+    private final long high;
+    private final long low;
+
+    private ProblemFingerprint(long high, long low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    public static ProblemFingerprint of(QACOProblem problem) {
+        Hasher hasher = new Hasher();
+        if (problem == null) {
+            hasher.add(NULL);
+        } else {
+            compositeWebService(hasher, problem.getCompositeWebService());
+            problem(hasher, problem.getProblem());
+        }
+        return hasher.fingerprint();
+    }
+
+    public static ProblemFingerprint of(CompositeWebService cws) {
+        Hasher hasher = new Hasher();
+        compositeWebService(hasher, cws);
+        return hasher.fingerprint();
+    }
+
+    /**
+     * @return the fingerprint of a workflow graph alone: its nodes, edges and probabilities
+     */
+    public static ProblemFingerprint of(Graph graph) {
+        Hasher hasher = new Hasher();
+        graph(hasher, graph);
+        return hasher.fingerprint();
+    }
+
+    public long getHigh() {
+        return high;
+    }
+
+    public long getLow() {
+        return low;
+    }
+
+    private static void compositeWebService(Hasher h, CompositeWebService cws) {
+        if (cws == null) {
+            h.add(NULL);
+            return;
+        }
+        h.add(1);
+        unordered(h, cws.getTasks(), (e, task) -> e.add(task.getName()));
+        unordered(h, cws.getCandidateServices(), (e, service) -> {
+            e.add(service.getName());
+            e.add(service.getProvider());
+            unordered(e, service.getTasks(), (t, task) -> t.add(task.getName()));
+        });
+        unordered(h, cws.getFeatures(), (e, feature) -> {
+            e.add(feature.getName());
+            unordered(e, feature.getValues(), (v, value) -> {
+                v.add(value.getService() == null ? null : value.getService().getName());
+                v.add(value.getValue());
+            });
+        });
+        if (cws.getQosStore() != null) {
+            h.add(4);
+            h.add(cws.getQosStore().getId().getMostSignificantBits());
+            h.add(cws.getQosStore().getId().getLeastSignificantBits());
+            h.add(cws.getQosStore().version());
+        }
+        graph(h, cws.getGraph());
+    }
+
+    private static void graph(Hasher h, Graph graph) {
+        if (graph == null) {
+            h.add(NULL);
+            return;
+        }
+        h.add(2);
+        ordered(h, graph.getNodes(), (e, node) -> {
+            e.add(node.getLabel());
+            e.add(node.getType() == null ? -1 : node.getType().ordinal());
+        });
+        ordered(h, graph.getEdges(), (e, edge) -> {
+            node(e, edge.getSource());
+            node(e, edge.getTarget());
+            e.add(edge.getLabel());
+        });
+        ordered(h, graph.getProbabilities(), (e, probability) ->
+                ordered(e, probability.getNodes(), (n, node) ->
+                        ordered(n, node.getEdges(), (x, edge) -> x.add(edge.getValue()))));
+    }
+
+    /**
+     * An edge end is hashed like GraphIndex resolves it: by type and label.
+     */
+    private static void node(Hasher h, GraphNode node) {
+        if (node == null) {
+            h.add(NULL);
+            return;
+        }
+        h.add(node.getLabel());
+        h.add(node.getType() == null ? -1 : node.getType().ordinal());
+    }
+
+    private static void problem(Hasher h, Problem problem) {
+        if (problem == null) {
+            h.add(NULL);
+            return;
+        }
+        h.add(3);
+        Optimization optimization = problem.getOptimization();
+        if (optimization == null) {
+            h.add(NULL);
+        } else {
+            unordered(h, optimization.getPreferences(), (e, preference) -> {
+                e.add(name(preference.getFeature()));
+                e.add(preference.getWeight());
+            });
+            unordered(h, optimization.getAggregateDomains(), (e, domain) -> {
+                e.add(domain.getAggregateDomainType() == null ? -1 : domain.getAggregateDomainType().ordinal());
+                unordered(e, domain.getAggregatorOperation(), ProblemFingerprint::aggregator);
+            });
+        }
+        unordered(h, problem.getConstraints(), ProblemFingerprint::constraint);
+    }
+
+    private static void aggregator(Hasher h, AggregatorOperation operation) {
+        if (operation == null) {
+            h.add(NULL);
+            return;
+        }
+        h.add(operation.getOperation());
+        unordered(h, operation.getFeatures(), (e, feature) -> e.add(feature.getName()));
+    }
+
+    private static void constraint(Hasher h, Constraint constraint) {
+        if (constraint instanceof GlobalConstraint) {
+            GlobalConstraint gc = (GlobalConstraint) constraint;
+            h.add(10);
+            h.add(name(gc.getInputFeature()));
+            h.add(gc.getOperator() == null ? -1 : gc.getOperator().ordinal());
+            h.add(gc.getValue());
+        } else if (constraint instanceof LocalConstraint) {
+            LocalConstraint lc = (LocalConstraint) constraint;
+            h.add(11);
+            featureConstraint(h, lc.getInputFeature());
+            h.add(lc.getOperator() == null ? -1 : lc.getOperator().ordinal());
+            h.add(lc.getValue());
+            featureConstraint(h, lc.getOutputFeature());
+        } else if (constraint instanceof ComposeConstraint) {
+            ComposeConstraint cc = (ComposeConstraint) constraint;
+            h.add(12);
+            h.add(cc.getType() == null ? -1 : cc.getType().ordinal());
+            unordered(h, cc.getConditions(), ProblemFingerprint::constraint);
+        } else if (constraint instanceof ConditionalConstraint) {
+            ConditionalConstraint cc = (ConditionalConstraint) constraint;
+            h.add(13);
+            constraint(h, cc.getCondition());
+            constraint(h, cc.getThen());
+        } else if (constraint instanceof BindingConstraint) {
+            BindingConstraint bc = (BindingConstraint) constraint;
+            h.add(14);
+            unordered(h, bc.getProviders(), (e, task) -> e.add(task.getName()));
+            h.add(bc.getOperator() == null ? -1 : bc.getOperator().ordinal());
+        } else if (constraint == null) {
+            h.add(NULL);
+        } else {
+            h.add(constraint.getClass().getName());
+        }
+    }
+
+    private static void featureConstraint(Hasher h, FeatureConstraint fc) {
+        if (fc == null) {
+            h.add(NULL);
+            return;
+        }
+        h.add(name(fc.getFeature()));
+        unordered(h, fc.getTasks(), (e, task) -> e.add(task.getName()));
+        aggregator(h, fc.getAggregator());
+    }
+
+    private static String name(Feature feature) {
+        return feature == null ? null : feature.getName();
+    }
+
+    private static <T> void ordered(Hasher h, List<T> items, BiConsumer<Hasher, T> element) {
+        if (items == null) {
+            h.add(NULL);
+            return;
+        }
+        h.add(items.size());
+        for (T item : items) {
+            if (item == null) {
+                h.add(NULL);
+            } else {
+                element.accept(h, item);
+            }
+        }
+    }
+
+    /**
+     * Hash every element on its own and combine them with a commutative sum.
+     */
+    private static <T> void unordered(Hasher h, List<T> items, BiConsumer<Hasher, T> element) {
+        if (items == null) {
+            h.add(NULL);
+            return;
+        }
+        long sumHigh = 0L;
+        long sumLow = 0L;
+        Hasher e = new Hasher();
+        for (T item : items) {
+            e.reset();
+            if (item == null) {
+                e.add(NULL);
+            } else {
+                element.accept(e, item);
+            }
+            e.finish();
+            sumHigh += e.a;
+            sumLow += e.b;
+        }
+        h.add(items.size());
+        h.add(sumHigh);
+        h.add(sumLow);
+    }
+
+    /**
+     * Two independent 64-bit lanes, each absorbing values with a multiply / xor-shift mixer.
+     */
+    private static final class Hasher {
+        long a;
+        long b;
+
+        Hasher() {
+            reset();
+        }
+
+        void reset() {
+            a = 0xBB67AE8584CAA73BL;
+            b = 0x3C6EF372FE94F82BL;
+        }
+
+        void add(long value) {
+            a = mix((a ^ value) * 0x9E3779B97F4A7C15L);
+            b = mix((b + value) * 0xC2B2AE3D27D4EB4FL + Long.rotateLeft(a, 23));
+        }
+
+        void add(Double value) {
+            add(value == null ? NULL : Double.doubleToLongBits(value));
+        }
+
+        void add(double value) {
+            add(Double.doubleToLongBits(value));
+        }
+
+        void add(String value) {
+            if (value == null) {
+                add(NULL);
+                return;
+            }
+            int length = value.length();
+            add(length);
+            for (int i = 0; i < length; i += 4) {
+                long chunk = 0L;
+                for (int j = i; j < Math.min(length, i + 4); j++) {
+                    chunk = (chunk << 16) | value.charAt(j);
+                }
+                add(chunk);
+            }
+        }
+
+        void finish() {
+            a = mix(a + 0x510E527FADE682D1L);
+            b = mix(b ^ 0x9B05688C2B3E6C1FL);
+        }
+
+        ProblemFingerprint fingerprint() {
+            finish();
+            return new ProblemFingerprint(a, b);
+        }
+
+        private static long mix(long z) {
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            return z ^ (z >>> 31);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof ProblemFingerprint)) {
+            return false;
+        }
+        ProblemFingerprint other = (ProblemFingerprint) o;
+        return high == other.high && low == other.low;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (low ^ (low >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%016x%016x", high, low);
+    }
+}
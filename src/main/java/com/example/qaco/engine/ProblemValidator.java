@@ -0,0 +1,408 @@
+package com.example.qaco.engine;
+
+import com.example.qaco.domain.QACOProblem;
+import com.example.qaco.domain.cws.CandidateService;
+import com.example.qaco.domain.cws.CompositeWebService;
+import com.example.qaco.domain.cws.Feature;
+import com.example.qaco.domain.cws.Task;
+import com.example.qaco.domain.cws.graph.Graph;
+import com.example.qaco.domain.cws.graph.GraphNode;
+import com.example.qaco.domain.cws.graph.GraphNodeType;
+import com.example.qaco.domain.problem.AggregateDomain;
+import com.example.qaco.domain.problem.AggregatorOperation;
+import com.example.qaco.domain.problem.Optimization;
+import com.example.qaco.domain.problem.Preference;
+import com.example.qaco.domain.problem.Problem;
+import com.example.qaco.domain.problem.constraints.BindingConstraint;
+import com.example.qaco.domain.problem.constraints.ComposeConstraint;
+import com.example.qaco.domain.problem.constraints.ConditionalConstraint;
+import com.example.qaco.domain.problem.constraints.Constraint;
+import com.example.qaco.domain.problem.constraints.FeatureConstraint;
+import com.example.qaco.domain.problem.constraints.GlobalConstraint;
+import com.example.qaco.domain.problem.constraints.LocalConstraint;
+import com.example.qaco.engine.graph.GraphIndex;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Validates QACOProblems and CompositeWebServices for {@link AbstractQACOEngine}.
+ * <p>
+ * References from the Problem to the CWS are looked up in identity / name indexes built once per
+ * validation, instead of hashing the Lombok {@code @Data} objects (whose {@code hashCode} walks
+ * every nested list). As in {@link CompiledQACOProblem}, a reference is valid if it is the very
+ * instance of the CWS or has the same name as one of its elements.
+ * <p>
+ * Validation is linear in the size of the problem, and results are not cached: keying a cache by
+ * content would cost as much as validating again. A problem already validated is instead passed
+ * on at {@link ValidationLevel#TRUSTED} or through {@link SolveContext#withValidatedProblem}.
+ * Thread-safe.
+ */
+public class ProblemValidator {
+
+    private static final ProblemValidator SHARED = new ProblemValidator();
+
+    /**
+     * @return the validator shared by the engines (and by anyone validating ahead of them)
+     */
+    public static ProblemValidator shared() {
+        return SHARED;
+    }
+
+    /**
+     * Validate the problem at the given level.
+     *
+     * @throws IllegalArgumentException if the problem is not valid
+     */
+    public void validate(QACOProblem problem, ValidationLevel level) {
+        if (problem == null) {
+            throw new IllegalArgumentException("QACOProblem cannot be null.");
+        }
+        Problem domainProblem = problem.getProblem();
+        if (domainProblem == null) {
+            throw new IllegalArgumentException("Problem definition is missing in QACOProblem.");
+        }
+        CompositeWebService cws = problem.getCompositeWebService();
+        if (cws == null) {
+            throw new IllegalArgumentException("CompositeWebService is missing in QACOProblem.");
+        }
+        if (level == ValidationLevel.TRUSTED) {
+            return;
+        }
+        // 1. Validate the CWS structure
+        validateStructure(cws);
+
+        // 2. Validate the domain problem (constraints, optimization, etc.) with respect to the CWS
+        if (level == ValidationLevel.FULL) {
+            new References(cws).validate(domainProblem);
+        }
+    }
+
+    /**
+     * Validate a CompositeWebService on its own (its structure).
+     *
+     * @throws IllegalArgumentException if the CWS is not valid
+     */
+    public void validate(CompositeWebService cws, ValidationLevel level) {
+        if (cws == null) {
+            throw new IllegalArgumentException("CompositeWebService cannot be null.");
+        }
+        if (level == ValidationLevel.TRUSTED) {
+            return;
+        }
+        validateStructure(cws);
+    }
+
+    /**
+     * Start validating problems that share one CompositeWebService: its structure is validated
+     * once, now, and the returned Batch checks the Problem of each of them against indexes of the
+     * CWS built once.
+     *
+     * @throws IllegalArgumentException if the CWS is not valid
+     */
+    public Batch batch(CompositeWebService cws, ValidationLevel level) {
+        validate(cws, level);
+        return new Batch(cws, level);
+    }
+
+    /**
+     * Validates the problems of a batch sharing one CompositeWebService. Thread-safe.
+     */
+    public static final class Batch {
+        private final CompositeWebService cws;
+        private final ValidationLevel level;
+        private final Index<Task> tasks;
+        private final Index<Feature> features;
+
+        private Batch(CompositeWebService cws, ValidationLevel level) {
+            this.cws = cws;
+            this.level = level;
+            boolean references = level == ValidationLevel.FULL;
+            this.tasks = references ? new Index<>(cws.getTasks()) : null;
+            this.features = references ? new Index<>(cws.getFeatures()) : null;
+        }
+
+        /**
+         * @throws IllegalArgumentException if the problem is not valid or has another CWS instance
+         */
+        public void validate(QACOProblem problem) {
+            if (problem == null) {
+                throw new IllegalArgumentException("QACOProblem cannot be null.");
+            }
+            if (problem.getProblem() == null) {
+                throw new IllegalArgumentException("Problem definition is missing in QACOProblem.");
+            }
+            if (problem.getCompositeWebService() != cws) {
+                throw new IllegalArgumentException("QACOProblem does not share the CompositeWebService of the batch.");
+            }
+            if (level == ValidationLevel.FULL) {
+                new References(tasks, features).validate(problem.getProblem());
+            }
+        }
+    }
+
+    private void validateStructure(CompositeWebService cws) {
+        if (cws.getTasks() == null || cws.getTasks().isEmpty()) {
+            throw new IllegalArgumentException("CompositeWebService must have at least one Task.");
+        }
+        if (cws.getCandidateServices() == null || cws.getCandidateServices().isEmpty()) {
+            throw new IllegalArgumentException("CompositeWebService must have at least one CandidateService.");
+        }
+
+        // Validate each Task
+        for (Task task : cws.getTasks()) {
+            if (task == null) {
+                throw new IllegalArgumentException("Task cannot be null.");
+            }
+            if (isBlank(task.getName())) {
+                throw new IllegalArgumentException("Task name cannot be null or empty.");
+            }
+        }
+        // Validate each CandidateService
+        for (CandidateService cs : cws.getCandidateServices()) {
+            if (cs == null) {
+                throw new IllegalArgumentException("CandidateService cannot be null.");
+            }
+            if (isBlank(cs.getName())) {
+                throw new IllegalArgumentException("CandidateService name cannot be null or empty.");
+            }
+        }
+        // Validate each Feature
+        if (cws.getFeatures() != null) {
+            for (Feature feature : cws.getFeatures()) {
+                if (isBlank(feature.getName())) {
+                    throw new IllegalArgumentException("Feature name cannot be null or empty.");
+                }
+            }
+        }
+        // Validate the graph has at least one START and one END node
+        if (cws.getGraph() != null) {
+            validateGraph(cws.getGraph());
+        }
+    }
+
+    private static boolean isBlank(String name) {
+        return name == null || name.trim().isEmpty();
+    }
+
+    private void validateGraph(Graph graph) {
+        // Must contain at least one START and one END node
+        if (graph.getNodes() == null || graph.getNodes().isEmpty()) {
+            throw new IllegalArgumentException("Graph must contain at least one node.");
+        }
+        boolean hasStart = false;
+        boolean hasEnd = false;
+        for (GraphNode node : graph.getNodes()) {
+            hasStart |= node != null && node.getType() == GraphNodeType.START;
+            hasEnd |= node != null && node.getType() == GraphNodeType.END;
+        }
+        if (!hasStart) {
+            throw new IllegalArgumentException("Graph must contain at least one START node.");
+        }
+        if (!hasEnd) {
+            throw new IllegalArgumentException("Graph must contain at least one END node.");
+        }
+        // Reachability, split / join matching and loops
+        GraphIndex.cached(graph);
+    }
+
+    /**
+     * Checks that everything the Problem references is part of the CWS.
+     */
+    private static final class References {
+        private final Index<Task> tasks;
+        private final Index<Feature> features;
+        private Optimization optimization;
+
+        References(CompositeWebService cws) {
+            this(new Index<>(cws.getTasks()), new Index<>(cws.getFeatures()));
+        }
+
+        References(Index<Task> tasks, Index<Feature> features) {
+            this.tasks = tasks;
+            this.features = features;
+        }
+
+        void validate(Problem domainProblem) {
+            optimization = domainProblem.getOptimization();
+            // 1. Check Optimization
+            if (optimization != null) {
+                validateOptimization();
+            }
+            // 2. Check Constraints
+            if (domainProblem.getConstraints() != null) {
+                for (Constraint constraint : domainProblem.getConstraints()) {
+                    validateConstraint(constraint);
+                }
+            }
+        }
+
+        private void validateOptimization() {
+            if (optimization.getPreferences() != null) {
+                for (Preference pref : optimization.getPreferences()) {
+                    Feature f = pref.getFeature();
+                    if (f != null && !features.contains(f)) {
+                        throw new IllegalArgumentException(
+                                "Optimization references a Feature not present in the CWS: " + f.getName());
+                    }
+                }
+            }
+            // aggregatorOperation can also reference features
+            if (optimization.getAggregateDomains() != null) {
+                for (AggregateDomain ad : optimization.getAggregateDomains()) {
+                    if (ad.getAggregatorOperation() == null) {
+                        continue;
+                    }
+                    for (AggregatorOperation op : ad.getAggregatorOperation()) {
+                        if (op.getFeatures() == null) {
+                            continue;
+                        }
+                        for (Feature f : op.getFeatures()) {
+                            if (!features.contains(f)) {
+                                throw new IllegalArgumentException(
+                                        "AggregatorOperation references a Feature not present in the CWS: "
+                                                + (f == null ? null : f.getName()));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        private void validateConstraint(Constraint constraint) {
+            if (constraint instanceof GlobalConstraint) {
+                validateGlobalConstraint((GlobalConstraint) constraint);
+            } else if (constraint instanceof LocalConstraint) {
+                validateLocalConstraint((LocalConstraint) constraint);
+            } else if (constraint instanceof ComposeConstraint) {
+                List<Constraint> conditions = ((ComposeConstraint) constraint).getConditions();
+                if (conditions != null) {
+                    for (Constraint subConstraint : conditions) {
+                        validateConstraint(subConstraint);
+                    }
+                }
+            } else if (constraint instanceof ConditionalConstraint) {
+                ConditionalConstraint cond = (ConditionalConstraint) constraint;
+                if (cond.getCondition() != null) {
+                    validateConstraint(cond.getCondition());
+                }
+                if (cond.getThen() != null) {
+                    validateConstraint(cond.getThen());
+                }
+            } else if (constraint instanceof BindingConstraint) {
+                validateBindingConstraint((BindingConstraint) constraint);
+            }
+            // If you add new constraint types, handle them here.
+        }
+
+        private void validateGlobalConstraint(GlobalConstraint gc) {
+            Feature input = gc.getInputFeature();
+            if (input != null && !features.contains(input)) {
+                throw new IllegalArgumentException("GlobalConstraint references a feature not in the CWS: "
+                        + input.getName());
+            }
+            // The global constraint's feature must also be one of the optimization features
+            if (optimization != null && optimization.getPreferences() != null) {
+                boolean found = false;
+                for (Preference pref : optimization.getPreferences()) {
+                    found |= Index.same(pref.getFeature(), input);
+                }
+                if (!found) {
+                    throw new IllegalArgumentException("GlobalConstraint feature must be part of Optimization's features: "
+                            + (input == null ? null : input.getName()));
+                }
+            }
+        }
+
+        private void validateLocalConstraint(LocalConstraint lc) {
+            if (lc.getInputFeature() != null) {
+                validateFeatureConstraint(lc.getInputFeature());
+            }
+            // If we have an outputFeature, then 'value' must be null
+            if (lc.getOutputFeature() != null) {
+                validateFeatureConstraint(lc.getOutputFeature());
+                if (lc.getValue() != null) {
+                    throw new IllegalArgumentException(
+                            "LocalConstraint cannot have both outputFeature and a numeric value.");
+                }
+            }
+        }
+
+        private void validateBindingConstraint(BindingConstraint bc) {
+            if (bc.getProviders() != null) {
+                for (Task t : bc.getProviders()) {
+                    if (!tasks.contains(t)) {
+                        throw new IllegalArgumentException("BindingConstraint references a Task not in the CWS: "
+                                + (t == null ? null : t.getName()));
+                    }
+                }
+            }
+        }
+
+        private void validateFeatureConstraint(FeatureConstraint fc) {
+            if (fc.getFeature() != null && !features.contains(fc.getFeature())) {
+                throw new IllegalArgumentException("FeatureConstraint references a Feature not in the CWS: "
+                        + fc.getFeature().getName());
+            }
+            if (fc.getTasks() != null) {
+                for (Task t : fc.getTasks()) {
+                    if (!tasks.contains(t)) {
+                        throw new IllegalArgumentException("FeatureConstraint references a Task not in the CWS: "
+                                + (t == null ? null : t.getName()));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Identity set of the elements of the CWS, with a fallback on their names.
+     */
+    private static final class Index<T> {
+        private final Set<Object> instances;
+        private final Set<String> names;
+
+        Index(List<T> items) {
+            List<T> list = items == null ? Collections.<T>emptyList() : items;
+            this.instances = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>(2 * list.size()));
+            this.names = new HashSet<>(2 * list.size());
+            for (T item : list) {
+                if (item != null) {
+                    instances.add(item);
+                    String name = nameOf(item);
+                    if (name != null) {
+                        names.add(name);
+                    }
+                }
+            }
+        }
+
+        boolean contains(Object item) {
+            if (item == null) {
+                return false;
+            }
+            if (instances.contains(item)) {
+                return true;
+            }
+            String name = nameOf(item);
+            return name != null && names.contains(name);
+        }
+
+        static boolean same(Feature a, Feature b) {
+            return a == b || (a != null && b != null && a.getName() != null && a.getName().equals(b.getName()));
+        }
+
+        private static String nameOf(Object item) {
+            if (item instanceof Task) {
+                return ((Task) item).getName();
+            }
+            if (item instanceof Feature) {
+                return ((Feature) item).getName();
+            }
+            return null;
+        }
+    }
+}
@@ -7,6 +7,8 @@ import com.example.qaco.domain.cws.CompositeWebService;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * A generic interface for solving QACO problems and computing binding spaces.
@@ -23,6 +25,47 @@ public interface QACOEngineInterface {
      */
     Optional<List<Binding>> solve(QACOProblem problem, Optional<Object> extraConfig) throws IllegalArgumentException;
 
+    /**
+     * Anytime variant of {@link #solve(QACOProblem, Optional)}: the solve stops when the budget runs
+     * out and returns the best binding found by then, and every improving feasible binding is
+     * passed to the listener as soon as it is found. The listener may cancel the context it is
+     * given to stop early. Engines that do not poll their {@link SolveContext} run to completion.
+     *
+     * @param problem the QACOProblem to solve
+     * @param extraConfig an optional extra configuration object that it may be needed for a specific solver/engine.
+     * @param budget how long the solve may run
+     * @param listener notified of each improving binding, or null
+     * @return an optional containing a list of the best bindings found, or empty if none is found
+     * @throws IllegalArgumentException if the problem is invalid
+     */
+    default Optional<List<Binding>> solve(QACOProblem problem, Optional<Object> extraConfig, SolveBudget budget,
+                                          SolutionListener listener) throws IllegalArgumentException {
+        SolveContext context = SolveContext.current().child().withBudget(budget).withListener(listener);
+        return context.call(() -> solve(problem, extraConfig));
+    }
+
+    /**
+     * Solves several problems in parallel across cores, e.g. the variants of one CompositeWebService
+     * with the constraints and preferences of each customer. A problem whose solve fails (e.g. an
+     * invalid one) gets a failed {@link BatchResult} and does not affect the others. The solves run
+     * under the calling thread's {@link SolveContext}, so cancelling it stops them all.
+     * The default implementation solves each problem on its own.
+     *
+     * @param problems the problems to solve
+     * @param extraConfig an optional extra configuration object, applied to every problem.
+     * @return one BatchResult per problem, in the order of {@code problems}
+     * @throws IllegalArgumentException if the list is null
+     */
+    default List<BatchResult> solveBatch(List<QACOProblem> problems, Optional<Object> extraConfig) throws IllegalArgumentException {
+        if (problems == null) {
+            throw new IllegalArgumentException("Batch of problems cannot be null.");
+        }
+        SolveContext context = SolveContext.current();
+        return problems.parallelStream()
+                .map(problem -> BatchResult.of(() -> context.call(() -> solve(problem, extraConfig))))
+                .collect(Collectors.toList());
+    }
+
     /**
      * Returns the binding space for a given CompositeWebService.
      * 
@@ -32,4 +75,21 @@ public interface QACOEngineInterface {
      * @throws IllegalArgumentException if the CompositeWebService is invalid
      */
     Optional<BindingSpace> bindingSpace(CompositeWebService cws, Optional<Object> extraConfig) throws IllegalArgumentException;
+
+    /**
+     * Returns the binding space for a given CompositeWebService as a lazily evaluated stream,
+     * so spaces that do not fit in memory can still be enumerated.
+     * The default implementation streams the result of {@link #bindingSpace(CompositeWebService, Optional)}.
+     *
+     * @param cws the CompositeWebService to get the binding space for
+     * @param extraConfig an optional extra configuration object that it may be needed for a specific solver/engine.
+     * @return a stream over the bindings of the space (empty if no binding space is found)
+     * @throws IllegalArgumentException if the CompositeWebService is invalid
+     */
+    default Stream<Binding> bindingSpaceStream(CompositeWebService cws, Optional<Object> extraConfig) throws IllegalArgumentException {
+        return bindingSpace(cws, extraConfig)
+                .filter(space -> space.getBindings() != null)
+                .map(space -> space.getBindings().stream())
+                .orElseGet(Stream::empty);
+    }
 }
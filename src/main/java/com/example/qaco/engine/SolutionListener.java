@@ -0,0 +1,21 @@
+package com.example.qaco.engine;
+
+import com.example.qaco.domain.binding.Binding;
+
+/**
+ * Receives the feasible bindings an engine finds while it runs, each better (lower score) than
+ * the previous one. Calls come from the engine's threads, one at a time.
+ * <p>
+ * To stop once a binding is good enough, cancel the context: the engine then returns the best
+ * binding found.
+ */
+@FunctionalInterface
+public interface SolutionListener {
+
+    /**
+     * @param binding the new best binding
+     * @param score   its score (weighted sum of the aggregated preference features, lower is better)
+     * @param context the context of the running solve
+     */
+    void improved(Binding binding, double score, SolveContext context);
+}
@@ -0,0 +1,105 @@
+package com.example.qaco.engine;
+
+import java.util.Optional;
+
+/**
+ * How long a solve may run: a wall-clock limit, a number of evaluations (complete bindings
+ * scored), or both. Engines honour it through the {@link SolveContext}, between iterations, and
+ * return the best binding found when it runs out. Immutable.
+ */
+public final class SolveBudget {
+
+    /**
+     * Solver config key for the wall-clock limit, in milliseconds.
+     */
+    public static final String TIME_LIMIT = "timeLimit";
+    /**
+     * Solver config key for the maximum number of evaluations.
+     */
+    public static final String MAX_EVALUATIONS = "maxEvaluations";
+
+    private static final SolveBudget UNLIMITED = new SolveBudget(0L, 0L);
+
+    private final long millis;
+    private final long evaluations;
+
+    private SolveBudget(long millis, long evaluations) {
+        if (millis < 0 || evaluations < 0) {
+            throw new IllegalArgumentException("A solve budget cannot be negative.");
+        }
+        this.millis = millis;
+        this.evaluations = evaluations;
+    }
+
+    public static SolveBudget unlimited() {
+        return UNLIMITED;
+    }
+
+    public static SolveBudget millis(long millis) {
+        return new SolveBudget(millis, 0L);
+    }
+
+    public static SolveBudget evaluations(long evaluations) {
+        return new SolveBudget(0L, evaluations);
+    }
+
+    /**
+     * @return the budget given by the {@code timeLimit} and {@code maxEvaluations} solver config
+     */
+    public static SolveBudget from(Optional<Object> extraConfig) {
+        SolverConfig config = SolverConfig.from(extraConfig);
+        if (!config.has(TIME_LIMIT) && !config.has(MAX_EVALUATIONS)) {
+            return UNLIMITED;
+        }
+        return new SolveBudget(config.getLong(TIME_LIMIT, 0L), config.getLong(MAX_EVALUATIONS, 0L));
+    }
+
+    /**
+     * @return this budget also limited to {@code millis} (0 for no new limit): the tighter of the
+     * two wall-clock limits applies
+     */
+    public SolveBudget andMillis(long millis) {
+        return new SolveBudget(tighter(this.millis, millis), evaluations);
+    }
+
+    /**
+     * @return this budget also limited to {@code evaluations} (0 for no new limit): the tighter of
+     * the two evaluation limits applies
+     */
+    public SolveBudget andEvaluations(long evaluations) {
+        return new SolveBudget(millis, tighter(this.evaluations, evaluations));
+    }
+
+    /**
+     * @return the smaller of two limits, where 0 means none
+     */
+    private static long tighter(long limit, long other) {
+        if (other < 0) {
+            throw new IllegalArgumentException("A solve budget cannot be negative.");
+        }
+        return limit == 0L ? other : other == 0L ? limit : Math.min(limit, other);
+    }
+
+    /**
+     * @return the wall-clock limit in milliseconds, 0 for none
+     */
+    public long getMillis() {
+        return millis;
+    }
+
+    /**
+     * @return the maximum number of evaluations, 0 for none
+     */
+    public long getEvaluations() {
+        return evaluations;
+    }
+
+    public boolean isUnlimited() {
+        return millis == 0L && evaluations == 0L;
+    }
+
+    @Override
+    public String toString() {
+        return "SolveBudget(millis=" + millis + ", evaluations=" + evaluations + ")";
+    }
+}
@@ -0,0 +1,357 @@
+package com.example.qaco.engine;
+
+import com.example.qaco.domain.QACOProblem;
+import com.example.qaco.domain.binding.Binding;
+import com.example.qaco.domain.cws.CompositeWebService;
+import com.example.qaco.engine.metrics.SolveMetrics;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cooperative control of a running solve: stop requests (cancellation, deadline or evaluation
+ * budget), progress, and the improving bindings found so far.
+ * <p>
+ * Whoever runs a solve (e.g. {@code JobManager}) installs a context on the calling thread with
+ * {@link #call(Supplier)}; engines read it once with {@link #current()} at the start of
+ * {@code doSolve}, poll {@link #isStopRequested()} between iterations, count their evaluations and
+ * {@link #publish} each better feasible binding. An engine asked to stop returns the best binding
+ * found so far (or nothing) instead of running to completion. Without an installed context,
+ * {@link #current()} returns one that never stops.
+ * <p>
+ * A {@link #child()} context stops when its parent does, and forwards progress, evaluations and
+ * bindings to it, so a budgeted solve inside a job still honours the job.
+ * <p>
+ * Solves running side by side under one context that {@link #shareIncumbent() shares its
+ * incumbent} see the best score any of them published through {@link #sharedBound()}, so an exact
+ * engine can prune with a binding a heuristic found.
+ * <p>
+ * Bindings found by solves running elsewhere (e.g. the other islands of an
+ * {@code IslandEngine}) {@link #immigrate immigrate} into a context that
+ * {@link #acceptImmigrants() accepts them}; engines that can use them {@link #pollImmigrant() poll}
+ * for them between iterations.
+ * <p>
+ * An instrumented solve (see {@link com.example.qaco.engine.metrics.Instrumentation}) runs under a
+ * context carrying its {@link #metrics()}, which also count the improving bindings published.
+ * <p>
+ * Thread-safe: the context is typically read by engine threads and written by a controller.
+ */
+public final class SolveContext {
+
+    private static final ThreadLocal<SolveContext> CURRENT = new ThreadLocal<>();
+
+    private final SolveContext parent;
+
+    private volatile boolean cancelled;
+    private volatile long deadline;
+    private volatile boolean hasDeadline;
+    private volatile long maxEvaluations;
+    private final AtomicLong evaluations = new AtomicLong();
+    private volatile double progress;
+
+    private volatile SolutionListener listener;
+    private volatile boolean sharesIncumbent;
+    private volatile SolveMetrics metrics;
+    private volatile CompiledQACOProblem compiledCws;
+    private volatile QACOProblem validated;
+    private volatile Queue<Binding> immigrants;
+    private volatile double bestScore = Double.POSITIVE_INFINITY;
+
+    public SolveContext() {
+        this(null);
+    }
+
+    private SolveContext(SolveContext parent) {
+        this.parent = parent;
+    }
+
+    /**
+     * @return the context installed on this thread, or a fresh one that is never stopped
+     */
+    public static SolveContext current() {
+        SolveContext context = CURRENT.get();
+        return context == null ? new SolveContext() : context;
+    }
+
+    /**
+     * @return a new context that also stops when this one does and reports to it
+     */
+    public SolveContext child() {
+        return new SolveContext(this);
+    }
+
+    /**
+     * Run {@code work} with this context installed on the current thread.
+     */
+    public <T> T call(Supplier<T> work) {
+        SolveContext previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Ask the solve to stop as soon as possible.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled || parent != null && parent.isCancelled();
+    }
+
+    /**
+     * Ask the solve to stop once {@link System#nanoTime()} reaches {@code deadlineNanos}.
+     */
+    public SolveContext withDeadline(long deadlineNanos) {
+        this.deadline = deadlineNanos;
+        this.hasDeadline = true;
+        return this;
+    }
+
+    /**
+     * Same as {@link #withDeadline(long)}, {@code millis} from now.
+     */
+    public SolveContext withTimeout(long millis) {
+        return withDeadline(System.nanoTime() + millis * 1_000_000L);
+    }
+
+    /**
+     * Limit the solve to the budget, starting now.
+     */
+    public SolveContext withBudget(SolveBudget budget) {
+        if (budget.getMillis() > 0) {
+            withTimeout(budget.getMillis());
+        }
+        this.maxEvaluations = budget.getEvaluations();
+        return this;
+    }
+
+    /**
+     * Notify {@code listener} of the improving bindings (null for none).
+     */
+    public SolveContext withListener(SolutionListener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    /**
+     * Keep track of the best score published through this context, for {@link #sharedBound()}.
+     */
+    public SolveContext shareIncumbent() {
+        this.sharesIncumbent = true;
+        return this;
+    }
+
+    /**
+     * @return the best score published so far through the nearest context (this one or an
+     * ancestor) that shares its incumbent, or positive infinity if there is none
+     */
+    public double sharedBound() {
+        for (SolveContext context = this; context != null; context = context.parent) {
+            if (context.sharesIncumbent) {
+                return context.bestScore;
+            }
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Queue the bindings that {@link #immigrate} into this context for the solves under it.
+     */
+    public SolveContext acceptImmigrants() {
+        this.immigrants = new ConcurrentLinkedQueue<>();
+        return this;
+    }
+
+    /**
+     * Hand a feasible binding found by another solve to the nearest context (this one or an
+     * ancestor) accepting immigrants; each immigrant is polled by one engine. Its score also
+     * lowers the {@link #sharedBound()}, without notifying the listeners.
+     */
+    public void immigrate(Binding binding, double score) {
+        for (SolveContext context = this; context != null; context = context.parent) {
+            if (context.sharesIncumbent) {
+                synchronized (context) {
+                    context.bestScore = Math.min(context.bestScore, score);
+                }
+            }
+            Queue<Binding> queue = context.immigrants;
+            if (queue != null) {
+                queue.add(binding);
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the next binding that immigrated into the nearest context accepting immigrants, or
+     * null if there is none
+     */
+    public Binding pollImmigrant() {
+        for (SolveContext context = this; context != null; context = context.parent) {
+            Queue<Binding> queue = context.immigrants;
+            if (queue != null) {
+                return queue.poll();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Record the solve in {@code metrics} (ignored if disabled).
+     */
+    public SolveContext withMetrics(SolveMetrics metrics) {
+        this.metrics = metrics.isEnabled() ? metrics : null;
+        return this;
+    }
+
+    /**
+     * @return the metrics of the nearest context (this one or an ancestor) that has some, or
+     * {@link SolveMetrics#DISABLED}
+     */
+    public SolveMetrics metrics() {
+        for (SolveContext context = this; context != null; context = context.parent) {
+            SolveMetrics found = context.metrics;
+            if (found != null) {
+                return found;
+            }
+        }
+        return SolveMetrics.DISABLED;
+    }
+
+    /**
+     * Let the solves under this context compile their problem on top of {@code compiled}, the
+     * CompositeWebService they share compiled on its own (see {@link CompiledQACOProblem#withProblem}).
+     */
+    public SolveContext withCompiledCws(CompiledQACOProblem compiled) {
+        this.compiledCws = compiled;
+        return this;
+    }
+
+    /**
+     * Let the solves of {@code problem} under this context skip its validation: it was validated
+     * already, e.g. once for all the engines of a portfolio.
+     */
+    public SolveContext withValidatedProblem(QACOProblem problem) {
+        this.validated = problem;
+        return this;
+    }
+
+    /**
+     * @return true if {@code problem} was declared validated on this context or an ancestor
+     */
+    public boolean isValidated(QACOProblem problem) {
+        for (SolveContext context = this; context != null; context = context.parent) {
+            if (problem != null && context.validated == problem) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the compiled form of {@code cws} set on this context or an ancestor, or null
+     */
+    public CompiledQACOProblem compiledCws(CompositeWebService cws) {
+        for (SolveContext context = this; context != null; context = context.parent) {
+            CompiledQACOProblem found = context.compiledCws;
+            if (found != null && found.getCompositeWebService() == cws) {
+                return found;
+            }
+        }
+        return null;
+    }
+
+    public boolean isDeadlineReached() {
+        return hasDeadline && System.nanoTime() - deadline >= 0
+                || parent != null && parent.isDeadlineReached();
+    }
+
+    /**
+     * @return true if as many evaluations as the budget allows were counted
+     */
+    public boolean isBudgetExhausted() {
+        long max = maxEvaluations;
+        return max > 0 && evaluations.get() >= max
+                || parent != null && parent.isBudgetExhausted();
+    }
+
+    /**
+     * @return true if the solve was cancelled, or its deadline or evaluation budget reached
+     */
+    public boolean isStopRequested() {
+        return isCancelled() || isDeadlineReached() || isBudgetExhausted();
+    }
+
+    /**
+     * Count {@code count} more evaluations (complete bindings scored).
+     */
+    public void addEvaluations(long count) {
+        evaluations.addAndGet(count);
+        if (parent != null) {
+            parent.addEvaluations(count);
+        }
+    }
+
+    public long getEvaluations() {
+        return evaluations.get();
+    }
+
+    /**
+     * Report how far the solve is, between 0 and 1 (clamped).
+     */
+    public void reportProgress(double fraction) {
+        progress = Math.max(0.0, Math.min(1.0, fraction));
+        if (parent != null) {
+            parent.reportProgress(fraction);
+        }
+    }
+
+    public double getProgress() {
+        return progress;
+    }
+
+    /**
+     * @return true if someone listens to the improving bindings (or shares the incumbent, or
+     * counts them), so engines can skip building them
+     */
+    public boolean hasListener() {
+        return listener != null || sharesIncumbent || metrics != null
+                || parent != null && parent.hasListener();
+    }
+
+    /**
+     * Pass a feasible binding to the listener if its score beats every binding published before.
+     */
+    public void publish(Binding binding, double score) {
+        SolutionListener current = listener;
+        SolveMetrics recorded = metrics;
+        if (current != null || sharesIncumbent || recorded != null) {
+            synchronized (this) {
+                if (score < bestScore) {
+                    bestScore = score;
+                    if (recorded != null) {
+                        recorded.improved(score);
+                    }
+                    if (current != null) {
+                        current.improved(binding, score, this);
+                    }
+                }
+            }
+        }
+        if (parent != null) {
+            parent.publish(binding, score);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.qaco.engine;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Read-only view over the {@code extraConfig} passed to an engine.
+ * <p>
+ * The OpenAPI SolverConfig is a free-form object, so engines accept a {@code Map} of parameters
+ * (values may be numbers, booleans or strings) or a SolverConfig built from one. Missing or
+ * unrecognised configs fall back to the engine defaults.
+ */
+public final class SolverConfig {
+
+    private static final SolverConfig EMPTY = new SolverConfig(Collections.<String, Object>emptyMap());
+
+    private final Map<String, Object> values;
+
+    private SolverConfig(Map<String, Object> values) {
+        this.values = values;
+    }
+
+    public static SolverConfig of(Map<String, ?> values) {
+        return values == null || values.isEmpty()
+                ? EMPTY : new SolverConfig(Collections.unmodifiableMap(new HashMap<String, Object>(values)));
+    }
+
+    /**
+     * Wrap an engine's extraConfig: a SolverConfig, a Map of parameters, or anything else (ignored).
+     */
+    @SuppressWarnings("unchecked")
+    public static SolverConfig from(Optional<Object> extraConfig) {
+        if (extraConfig == null || !extraConfig.isPresent()) {
+            return EMPTY;
+        }
+        Object config = extraConfig.get();
+        if (config instanceof SolverConfig) {
+            return (SolverConfig) config;
+        }
+        if (config instanceof Map) {
+            return of((Map<String, ?>) config);
+        }
+        return EMPTY;
+    }
+
+    public boolean has(String key) {
+        return values.get(key) != null;
+    }
+
+    public Map<String, Object> asMap() {
+        return values;
+    }
+
+    public int getInt(String key, int defaultValue) {
+        Object value = values.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        return value instanceof Number ? ((Number) value).intValue() : Integer.parseInt(value.toString().trim());
+    }
+
+    public long getLong(String key, long defaultValue) {
+        Object value = values.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        return value instanceof Number ? ((Number) value).longValue() : Long.parseLong(value.toString().trim());
+    }
+
+    public double getDouble(String key, double defaultValue) {
+        Object value = values.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        return value instanceof Number ? ((Number) value).doubleValue() : Double.parseDouble(value.toString().trim());
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        Object value = values.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        return value instanceof Boolean ? (Boolean) value : Boolean.parseBoolean(value.toString().trim());
+    }
+
+    public String getString(String key, String defaultValue) {
+        Object value = values.get(key);
+        return value == null ? defaultValue : value.toString();
+    }
+
+    /**
+     * @throws IllegalArgumentException if the value is not strictly positive
+     */
+    public int getPositiveInt(String key, int defaultValue) {
+        int value = getInt(key, defaultValue);
+        if (value <= 0) {
+            throw new IllegalArgumentException("Solver config '" + key + "' must be positive: " + value);
+        }
+        return value;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof SolverConfig && values.equals(((SolverConfig) o).values);
+    }
+
+    @Override
+    public int hashCode() {
+        return values.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "SolverConfig" + values;
+    }
+}
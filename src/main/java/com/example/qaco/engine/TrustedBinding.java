@@ -0,0 +1,60 @@
+package com.example.qaco.engine;
+
+import com.example.qaco.domain.binding.Binding;
+import com.example.qaco.domain.binding.BindingMapping;
+
+import java.util.List;
+
+/**
+ * A Binding built by {@link CompiledQACOProblem#toBinding(int[])} from an assignment.
+ * <p>
+ * It only holds the compact assignment until its mappings are first read, and since every task is
+ * mapped to one of its services by construction, {@link AbstractQACOEngine} does not run
+ * {@code validateOutput} on it. Replacing its mappings makes it an ordinary Binding again.
+ * It equals any Binding with the same mappings.
+ */
+public final class TrustedBinding extends Binding {
+
+    private final CompiledQACOProblem compiled;
+    private int[] assignment;
+
+    TrustedBinding(CompiledQACOProblem compiled, int[] assignment) {
+        this.compiled = compiled;
+        this.assignment = assignment;
+    }
+
+    /**
+     * @return true while the mappings are the ones built from the assignment
+     */
+    public synchronized boolean isTrusted() {
+        return assignment != null && assignment.length > 0;
+    }
+
+    /**
+     * @return a copy of the assignment (task id -> service id) of the compiled problem, or null if
+     * the mappings were replaced
+     */
+    public synchronized int[] assignment() {
+        return assignment == null ? null : assignment.clone();
+    }
+
+    public CompiledQACOProblem getCompiledProblem() {
+        return compiled;
+    }
+
+    @Override
+    public synchronized List<BindingMapping> getBindingMappings() {
+        List<BindingMapping> mappings = super.getBindingMappings();
+        if (mappings == null && assignment != null) {
+            mappings = compiled.mappings(assignment);
+            super.setBindingMappings(mappings);
+        }
+        return mappings;
+    }
+
+    @Override
+    public synchronized void setBindingMappings(List<BindingMapping> bindingMappings) {
+        assignment = null;
+        super.setBindingMappings(bindingMappings);
+    }
+}
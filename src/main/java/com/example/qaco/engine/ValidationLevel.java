@@ -0,0 +1,51 @@
+package com.example.qaco.engine;
+
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * How thoroughly {@link ProblemValidator} checks a QACOProblem before it is solved.
+ */
+public enum ValidationLevel {
+    /**
+     * Structure of the CWS plus every reference of the Problem (optimization, constraints).
+     */
+    FULL,
+    /**
+     * Structure of the CWS only: tasks, candidate services, feature names and graph START / END.
+     */
+    STRUCTURAL,
+    /**
+     * Only what is needed to run: the problem, its Problem and its CWS must be present.
+     * For problems that were validated upstream.
+     */
+    TRUSTED;
+
+    /**
+     * Solver config key selecting the level (FULL by default).
+     */
+    public static final String CONFIG_KEY = "validation";
+
+    /**
+     * @return the level named by the {@code validation} solver config, FULL if absent
+     * @throws IllegalArgumentException if the name is not a level
+     */
+    public static ValidationLevel from(Optional<Object> extraConfig) {
+        String name = SolverConfig.from(extraConfig).getString(CONFIG_KEY, null);
+        if (name == null) {
+            return FULL;
+        }
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown validation level: " + name);
+        }
+    }
+
+    /**
+     * @return true if validating at this level also covers {@code other}
+     */
+    public boolean covers(ValidationLevel other) {
+        return ordinal() <= other.ordinal();
+    }
+}
@@ -0,0 +1,311 @@
+package com.example.qaco.engine.aco;
+
+import com.example.qaco.domain.QACOProblem;
+import com.example.qaco.domain.binding.Binding;
+import com.example.qaco.engine.AbstractQACOEngine;
+import com.example.qaco.engine.CompiledQACOProblem;
+import com.example.qaco.engine.ParallelFor;
+import com.example.qaco.engine.SolveContext;
+import com.example.qaco.engine.SolverConfig;
+import com.example.qaco.engine.constraints.CompiledConstraint;
+import com.example.qaco.engine.constraints.ConstraintCompiler;
+import com.example.qaco.engine.qos.WorkflowAggregator;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A MAX-MIN Ant System engine.
+ * <p>
+ * Pheromone and heuristic information are kept in {@code double[task][candidate]} arrays. In every
+ * iteration the ants build their bindings in parallel, each with its own SplittableRandom split
+ * sequentially from the seeded root (so seeded runs are reproducible whatever the thread count).
+ * Bindings are scored with the {@link WorkflowAggregator}; infeasible ones are ranked by their
+ * constraint violation, behind every feasible one. The pheromone update is striped by task: every
+ * row is evaporated and reinforced by a single worker, so no locking is needed. A binding that
+ * {@link SolveContext#immigrate immigrates} and beats the best one becomes the best one, and is
+ * reinforced right away.
+ * <p>
+ * Configuration (extraConfig, see {@link SolverConfig}): {@code ants} (32), {@code iterations}
+ * (200), {@code evaporation} (0.1), {@code alpha} (1.0), {@code beta} (2.0), {@code seed} (random)
+ * and {@code threads} (0 = common pool).
+ */
+public class AntColonyEngine extends AbstractQACOEngine {
+
+    public static final String ANTS = "ants";
+    public static final String ITERATIONS = "iterations";
+    public static final String EVAPORATION = "evaporation";
+    public static final String ALPHA = "alpha";
+    public static final String BETA = "beta";
+    public static final String SEED = "seed";
+    public static final String THREADS = "threads";
+
+    @Override
+    protected Optional<List<Binding>> doSolve(QACOProblem problem, Optional<Object> extraConfig) {
+        SolverConfig config = SolverConfig.from(extraConfig);
+        CompiledQACOProblem compiled = compile(problem, extraConfig);
+        if (compiled.hasEmptyDomain()) {
+            return Optional.empty();
+        }
+        WorkflowAggregator aggregator = WorkflowAggregator.of(compiled);
+        CompiledConstraint constraint = SolveContext.current().metrics()
+                .counting(ConstraintCompiler.compile(compiled, aggregator));
+
+        ForkJoinPool pool = ParallelFor.pool(config.getInt(THREADS, 0));
+        try {
+            Colony colony = new Colony(compiled, aggregator, constraint, config, pool, SolveContext.current());
+            int[] best = colony.run();
+            return best == null
+                    ? Optional.<List<Binding>>empty()
+                    : Optional.of(Collections.singletonList(compiled.toBinding(best)));
+        } finally {
+            ParallelFor.release(pool);
+        }
+    }
+
+    /**
+     * State of one run.
+     */
+    private static final class Colony {
+        private static final double TAU_MAX = 1.0;
+
+        private final CompiledQACOProblem compiled;
+        private final WorkflowAggregator aggregator;
+        private final CompiledConstraint constraint;
+        private final ForkJoinPool pool;
+        private final SolveContext context;
+
+        private final int ants;
+        private final int iterations;
+        private final double evaporation;
+        private final double alpha;
+        private final double beta;
+        private final SplittableRandom root;
+
+        private final int taskCount;
+        private final double tauMin;
+        private final double[][] pheromone;
+        private final double[][] heuristic;
+        private final double[][] cumulative;
+
+        private final int[][] positions;
+        private final int[][] assignments;
+        private final double[] scores;
+        private final double[] violations;
+        private final SplittableRandom[] randoms;
+
+        private final int[] bestPositions;
+        private double bestScore = Double.POSITIVE_INFINITY;
+        private double bestViolation = Double.POSITIVE_INFINITY;
+
+        Colony(CompiledQACOProblem compiled, WorkflowAggregator aggregator, CompiledConstraint constraint,
+               SolverConfig config, ForkJoinPool pool, SolveContext context) {
+            this.compiled = compiled;
+            this.aggregator = aggregator;
+            this.constraint = constraint;
+            this.pool = pool;
+            this.context = context;
+            this.ants = config.getPositiveInt(ANTS, 32);
+            this.iterations = config.getPositiveInt(ITERATIONS, 200);
+            this.evaporation = config.getDouble(EVAPORATION, 0.1);
+            if (evaporation <= 0.0 || evaporation >= 1.0) {
+                throw new IllegalArgumentException("Solver config '" + EVAPORATION
+                        + "' must be between 0 and 1: " + evaporation);
+            }
+            this.alpha = config.getDouble(ALPHA, 1.0);
+            this.beta = config.getDouble(BETA, 2.0);
+            this.root = config.has(SEED) ? new SplittableRandom(config.getLong(SEED, 0L)) : new SplittableRandom();
+
+            this.taskCount = compiled.taskCount();
+            this.pheromone = new double[taskCount][];
+            this.heuristic = new double[taskCount][];
+            this.cumulative = new double[taskCount][];
+            double averageCandidates = 0.0;
+            for (int t = 0; t < taskCount; t++) {
+                int k = compiled.candidates(t).length;
+                pheromone[t] = new double[k];
+                Arrays.fill(pheromone[t], TAU_MAX);
+                heuristic[t] = heuristic(compiled, t);
+                cumulative[t] = new double[k];
+                averageCandidates += k;
+            }
+            averageCandidates /= Math.max(1, taskCount);
+            this.tauMin = TAU_MAX / (2.0 * Math.max(1.0, averageCandidates));
+
+            this.positions = new int[ants][taskCount];
+            this.assignments = new int[ants][taskCount];
+            this.scores = new double[ants];
+            this.violations = new double[ants];
+            this.randoms = new SplittableRandom[ants];
+            this.bestPositions = new int[taskCount];
+        }
+
+        /**
+         * Greedy desirability of each candidate of a task: 1 / (0.1 + normalised local score),
+         * where the local score is the weighted preference value of the service alone.
+         */
+        private static double[] heuristic(CompiledQACOProblem compiled, int task) {
+            int[] candidates = compiled.candidates(task);
+            double[] local = new double[candidates.length];
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int k = 0; k < candidates.length; k++) {
+                for (int p = 0; p < compiled.preferenceCount(); p++) {
+                    local[k] += compiled.preferenceWeight(p) * compiled.qos(compiled.preferenceFeature(p), candidates[k]);
+                }
+                min = Math.min(min, local[k]);
+                max = Math.max(max, local[k]);
+            }
+            double range = max - min;
+            double[] eta = new double[candidates.length];
+            for (int k = 0; k < candidates.length; k++) {
+                eta[k] = 1.0 / (0.1 + (range > 0.0 ? (local[k] - min) / range : 0.0));
+            }
+            return eta;
+        }
+
+        /**
+         * @return the best feasible assignment found, or null if no ant found a feasible one
+         */
+        int[] run() {
+            for (int iteration = 0; iteration < iterations && !context.isStopRequested(); iteration++) {
+                ParallelFor.run(pool, taskCount, this::prepareTask);
+                for (int a = 0; a < ants; a++) {
+                    randoms[a] = root.split();
+                }
+                ParallelFor.run(pool, ants, this::construct);
+                context.addEvaluations(ants);
+
+                int iterationBest = 0;
+                for (int a = 1; a < ants; a++) {
+                    if (better(scores[a], violations[a], scores[iterationBest], violations[iterationBest])) {
+                        iterationBest = a;
+                    }
+                }
+                if (better(scores[iterationBest], violations[iterationBest], bestScore, bestViolation)) {
+                    bestScore = scores[iterationBest];
+                    bestViolation = violations[iterationBest];
+                    System.arraycopy(positions[iterationBest], 0, bestPositions, 0, taskCount);
+                    if (bestViolation == 0.0 && context.hasListener()) {
+                        context.publish(compiled.toBinding(best()), bestScore);
+                    }
+                }
+                boolean immigrated = immigrate();
+                // Mostly reinforce the iteration best, periodically (or when an immigrant improved it) the global best
+                final int[] reinforced = iteration % 10 == 9 || immigrated ? bestPositions : positions[iterationBest];
+                ParallelFor.run(pool, taskCount, t -> updatePheromone(t, reinforced[t]));
+                context.reportProgress((iteration + 1.0) / iterations);
+            }
+            return bestViolation > 0.0 ? null : best();
+        }
+
+        /**
+         * Adopt the bindings other solves sent (see {@link SolveContext#pollImmigrant()}) that beat
+         * the best one; those using a service that is not a candidate of its task are ignored.
+         *
+         * @return true if the best binding changed
+         */
+        private boolean immigrate() {
+            boolean improved = false;
+            for (Binding binding = context.pollImmigrant(); binding != null; binding = context.pollImmigrant()) {
+                int[] assignment = compiled.toAssignment(binding);
+                int[] position = new int[taskCount];
+                boolean candidate = true;
+                for (int t = 0; t < taskCount && candidate; t++) {
+                    position[t] = indexOf(compiled.candidates(t), assignment[t]);
+                    candidate = position[t] >= 0;
+                }
+                if (!candidate) {
+                    continue;
+                }
+                double score = aggregator.score(assignment);
+                double violation = constraint.test(assignment) ? 0.0 : constraint.violation(assignment);
+                if (better(score, violation, bestScore, bestViolation)) {
+                    bestScore = score;
+                    bestViolation = violation;
+                    System.arraycopy(position, 0, bestPositions, 0, taskCount);
+                    improved = true;
+                }
+            }
+            return improved;
+        }
+
+        private static int indexOf(int[] candidates, int service) {
+            for (int k = 0; k < candidates.length; k++) {
+                if (candidates[k] == service) {
+                    return k;
+                }
+            }
+            return -1;
+        }
+
+        private int[] best() {
+            int[] best = new int[taskCount];
+            for (int t = 0; t < taskCount; t++) {
+                best[t] = compiled.candidates(t)[bestPositions[t]];
+            }
+            return best;
+        }
+
+        private void prepareTask(int t) {
+            double[] tau = pheromone[t];
+            double[] eta = heuristic[t];
+            double[] cum = cumulative[t];
+            double total = 0.0;
+            for (int k = 0; k < tau.length; k++) {
+                total += Math.pow(tau[k], alpha) * Math.pow(eta[k], beta);
+                cum[k] = total;
+            }
+        }
+
+        private void construct(int ant) {
+            SplittableRandom random = randoms[ant];
+            int[] position = positions[ant];
+            int[] assignment = assignments[ant];
+            for (int t = 0; t < taskCount; t++) {
+                double[] cum = cumulative[t];
+                int k = sample(cum, random.nextDouble() * cum[cum.length - 1]);
+                position[t] = k;
+                assignment[t] = compiled.candidates(t)[k];
+            }
+            scores[ant] = aggregator.score(assignment);
+            violations[ant] = constraint.test(assignment) ? 0.0 : constraint.violation(assignment);
+        }
+
+        private static int sample(double[] cum, double r) {
+            int lo = 0;
+            int hi = cum.length - 1;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (cum[mid] <= r) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        private void updatePheromone(int t, int reinforcedPosition) {
+            double[] tau = pheromone[t];
+            for (int k = 0; k < tau.length; k++) {
+                double value = (1.0 - evaporation) * tau[k];
+                if (k == reinforcedPosition) {
+                    value += evaporation * TAU_MAX;
+                }
+                tau[k] = Math.max(tauMin, Math.min(TAU_MAX, value));
+            }
+        }
+
+        private static boolean better(double score, double violation, double otherScore, double otherViolation) {
+            if (violation != otherViolation) {
+                return violation < otherViolation;
+            }
+            return score < otherScore;
+        }
+    }
+}
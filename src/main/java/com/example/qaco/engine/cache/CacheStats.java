@@ -0,0 +1,90 @@
+package com.example.qaco.engine.cache;
+
+/**
+ * Snapshot of the counters of a {@link CachingQACOEngine}. Immutable.
+ */
+public final class CacheStats {
+
+    private final long hits;
+    private final long misses;
+    private final long joins;
+    private final long evictions;
+    private final long expirations;
+    private final int size;
+    private final long weight;
+
+    CacheStats(long hits, long misses, long joins, long evictions, long expirations, int size, long weight) {
+        this.hits = hits;
+        this.misses = misses;
+        this.joins = joins;
+        this.evictions = evictions;
+        this.expirations = expirations;
+        this.size = size;
+        this.weight = weight;
+    }
+
+    /**
+     * @return requests answered from a finished cached result
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return requests that ran the engine
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return requests that waited for an identical request already running, instead of running
+     * the engine again
+     */
+    public long getJoins() {
+        return joins;
+    }
+
+    /**
+     * @return entries dropped to respect the entry or binding limits
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return entries dropped because their time to live had passed
+     */
+    public long getExpirations() {
+        return expirations;
+    }
+
+    /**
+     * @return entries currently cached, running ones included
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return bindings currently held by the cache
+     */
+    public long getWeight() {
+        return weight;
+    }
+
+    /**
+     * @return the share of requests that did not run the engine, 0 if there was none
+     */
+    public double hitRate() {
+        long total = hits + joins + misses;
+        return total == 0 ? 0.0 : (double) (hits + joins) / total;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats(hits=" + hits + ", misses=" + misses + ", joins=" + joins
+                + ", evictions=" + evictions + ", expirations=" + expirations
+                + ", size=" + size + ", weight=" + weight + ")";
+    }
+}
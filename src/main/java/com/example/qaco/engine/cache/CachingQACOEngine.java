@@ -0,0 +1,411 @@
+package com.example.qaco.engine.cache;
+
+import com.example.qaco.domain.QACOProblem;
+import com.example.qaco.domain.binding.Binding;
+import com.example.qaco.domain.binding.BindingMapping;
+import com.example.qaco.domain.binding.BindingSpace;
+import com.example.qaco.domain.cws.CandidateService;
+import com.example.qaco.domain.cws.CompositeWebService;
+import com.example.qaco.domain.cws.Task;
+import com.example.qaco.engine.ProblemFingerprint;
+import com.example.qaco.engine.QACOEngineInterface;
+import com.example.qaco.engine.SolveContext;
+import com.example.qaco.engine.SolverConfig;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * A QACOEngineInterface that caches the results of another one.
+ * <p>
+ * Solve and binding space results are keyed by the {@link ProblemFingerprint} of the problem (or
+ * CWS) and the solver config, so a problem rebuilt with the same content, in any order, hits the
+ * cache. Entries are evicted least recently used first when there are more than
+ * {@code maxEntries} of them or they hold more than {@code maxBindings} bindings, and expire
+ * {@code ttlMillis} after they were computed. Concurrent identical requests run the engine once:
+ * the later ones wait for the first one's result, unless their own {@link SolveContext} asks them
+ * to stop first (they then throw a CancellationException). Failures, and results of solves
+ * stopped early by their {@link SolveContext}, are not cached.
+ * <p>
+ * Results are cached in a compact form: each binding as task / service indexes into tables of
+ * names, so an entry pins neither the problem it was computed for nor the engine's compiled
+ * problem, and its weight (one per binding) bounds its memory. Every call gets Bindings of its
+ * own, on the Tasks and CandidateServices of its own CWS (found by name), which it may change
+ * without changing the cache. Streams are not cached. Thread-safe.
+ */
+public class CachingQACOEngine implements QACOEngineInterface {
+
+    public static final int DEFAULT_MAX_ENTRIES = 1024;
+    public static final long DEFAULT_MAX_BINDINGS = 1_000_000L;
+    public static final long DEFAULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private static final long WAIT_POLL_MILLIS = 20L;
+
+    private final QACOEngineInterface delegate;
+    private final int maxEntries;
+    private final long maxBindings;
+    private final long ttlNanos;
+
+    // Access-ordered: the eldest entry is the least recently used. Guarded by itself.
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+    private long hits;
+    private long misses;
+    private long joins;
+    private long evictions;
+    private long expirations;
+
+    public CachingQACOEngine(QACOEngineInterface delegate) {
+        this(delegate, DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BINDINGS, DEFAULT_TTL_MILLIS);
+    }
+
+    /**
+     * @param delegate    the engine whose results are cached
+     * @param maxEntries  how many results are kept at most
+     * @param maxBindings how many bindings, over all the results, are kept at most
+     * @param ttlMillis   how long a result is kept after it was computed (0 = forever)
+     */
+    public CachingQACOEngine(QACOEngineInterface delegate, int maxEntries, long maxBindings, long ttlMillis) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("CachingQACOEngine needs an engine to delegate to.");
+        }
+        if (maxEntries <= 0 || maxBindings <= 0 || ttlMillis < 0) {
+            throw new IllegalArgumentException("CachingQACOEngine needs positive maxEntries and maxBindings, "
+                    + "and a non-negative ttlMillis.");
+        }
+        this.delegate = delegate;
+        this.maxEntries = maxEntries;
+        this.maxBindings = maxBindings;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    }
+
+    public QACOEngineInterface getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public Optional<List<Binding>> solve(QACOProblem problem, Optional<Object> extraConfig) throws IllegalArgumentException {
+        Key key = new Key(Kind.SOLVE, problem == null ? null : ProblemFingerprint.of(problem), extraConfig);
+        CompositeWebService cws = problem == null ? null : problem.getCompositeWebService();
+        return get(key, cws, () -> delegate.solve(problem, extraConfig));
+    }
+
+    @Override
+    public Optional<BindingSpace> bindingSpace(CompositeWebService cws, Optional<Object> extraConfig) throws IllegalArgumentException {
+        Key key = new Key(Kind.BINDING_SPACE, cws == null ? null : ProblemFingerprint.of(cws), extraConfig);
+        Optional<List<Binding>> bindings = get(key, cws,
+                () -> delegate.bindingSpace(cws, extraConfig).map(space -> space.getBindings() == null
+                        ? Collections.<Binding>emptyList() : space.getBindings()));
+        return bindings.map(list -> {
+            BindingSpace space = new BindingSpace();
+            space.setBindings(list);
+            return space;
+        });
+    }
+
+    @Override
+    public Stream<Binding> bindingSpaceStream(CompositeWebService cws, Optional<Object> extraConfig) throws IllegalArgumentException {
+        return delegate.bindingSpaceStream(cws, extraConfig);
+    }
+
+    public CacheStats getStats() {
+        synchronized (entries) {
+            return new CacheStats(hits, misses, joins, evictions, expirations, entries.size(), weight);
+        }
+    }
+
+    /**
+     * Drop every cached result (running requests complete normally).
+     */
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+            weight = 0;
+        }
+    }
+
+    /**
+     * @param cws the CompositeWebService of the request, whose instances the bindings must use
+     */
+    @SuppressWarnings("unchecked")
+    private Optional<List<Binding>> get(Key key, CompositeWebService cws, Supplier<Optional<List<Binding>>> compute) {
+        Entry entry;
+        boolean owner = false;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && entry.isExpired(System.nanoTime())) {
+                remove(key, entry);
+                expirations++;
+                entry = null;
+            }
+            if (entry == null) {
+                entry = new Entry();
+                entries.put(key, entry);
+                misses++;
+                owner = true;
+                evict();
+            } else if (entry.future.isDone()) {
+                hits++;
+            } else {
+                joins++;
+            }
+        }
+        if (owner) {
+            try {
+                Optional<List<Binding>> value = compute.get();
+                Optional<Result> result = value.map(Result::of);
+                if (SolveContext.current().isStopRequested()) {
+                    // Cut short by a deadline, budget or cancellation: not the engine's full answer
+                    synchronized (entries) {
+                        remove(key, entry);
+                    }
+                } else {
+                    complete(key, entry, result.map(Result::size).orElse(0));
+                }
+                entry.future.complete(result);
+                return value;
+            } catch (RuntimeException | Error e) {
+                synchronized (entries) {
+                    remove(key, entry);
+                }
+                entry.future.completeExceptionally(e);
+                throw e;
+            }
+        }
+        Optional<Result> result = (Optional<Result>) await(entry.future, SolveContext.current());
+        return result.map(cached -> cached.bind(cws));
+    }
+
+    /**
+     * Wait for the result, checking {@code context} while waiting.
+     *
+     * @throws CancellationException if the context asks to stop first
+     */
+    private static Object await(CompletableFuture<Object> future, SolveContext context) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return future.get(WAIT_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    if (context.isStopRequested()) {
+                        throw new CancellationException("Solve was stopped while waiting for an identical request.");
+                    }
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException | CompletionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw new IllegalStateException(cause);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void complete(Key key, Entry entry, long entryWeight) {
+        synchronized (entries) {
+            entry.weight = entryWeight;
+            entry.expiresAt = ttlNanos == 0 ? Long.MAX_VALUE : System.nanoTime() + ttlNanos;
+            entry.expires = ttlNanos != 0;
+            if (entries.get(key) == entry) {
+                weight += entryWeight;
+                evict();
+            }
+        }
+    }
+
+    /**
+     * Drop least recently used entries until both limits hold; must hold the lock.
+     */
+    private void evict() {
+        Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || weight > maxBindings) && eldest.hasNext()) {
+            Entry entry = eldest.next().getValue();
+            eldest.remove();
+            weight -= entry.weight;
+            evictions++;
+        }
+    }
+
+    /**
+     * Remove the entry if it is still the one cached under the key; must hold the lock.
+     */
+    private void remove(Key key, Entry entry) {
+        if (entries.get(key) == entry) {
+            entries.remove(key);
+            weight -= entry.weight;
+        }
+    }
+
+    private enum Kind {
+        SOLVE,
+        BINDING_SPACE
+    }
+
+    private static final class Entry {
+        final CompletableFuture<Object> future = new CompletableFuture<>();
+        // Set once the result is in; guarded by the cache lock
+        long weight;
+        long expiresAt;
+        boolean expires;
+
+        boolean isExpired(long now) {
+            return expires && now - expiresAt >= 0;
+        }
+    }
+
+    /**
+     * Bindings as indexes into tables of the task and service names they use. Immutable.
+     */
+    private static final class Result {
+        private final String[] tasks;
+        private final String[] services;
+        // The (task, service) index pairs of each binding's mappings, in order; null if it had
+        // none. A null Task or CandidateService is -1.
+        private final int[][] mappings;
+
+        private Result(String[] tasks, String[] services, int[][] mappings) {
+            this.tasks = tasks;
+            this.services = services;
+            this.mappings = mappings;
+        }
+
+        static Result of(List<Binding> bindings) {
+            Map<String, Integer> tasks = new LinkedHashMap<>();
+            Map<String, Integer> services = new LinkedHashMap<>();
+            int[][] mappings = new int[bindings.size()][];
+            for (int b = 0; b < mappings.length; b++) {
+                List<BindingMapping> list = bindings.get(b).getBindingMappings();
+                if (list == null) {
+                    continue;
+                }
+                int[] pairs = new int[2 * list.size()];
+                for (int m = 0; m < list.size(); m++) {
+                    Task task = list.get(m).getTask();
+                    CandidateService service = list.get(m).getCandidateService();
+                    pairs[2 * m] = task == null ? -1 : index(tasks, task.getName());
+                    pairs[2 * m + 1] = service == null ? -1 : index(services, service.getName());
+                }
+                mappings[b] = pairs;
+            }
+            return new Result(tasks.keySet().toArray(new String[0]), services.keySet().toArray(new String[0]),
+                    mappings);
+        }
+
+        private static int index(Map<String, Integer> names, String name) {
+            Integer index = names.get(name);
+            if (index == null) {
+                index = names.size();
+                names.put(name, index);
+            }
+            return index;
+        }
+
+        int size() {
+            return mappings.length;
+        }
+
+        /**
+         * @return new Bindings on the Tasks and CandidateServices of {@code cws}, found by name
+         */
+        List<Binding> bind(CompositeWebService cws) {
+            Task[] ownTasks = new Task[tasks.length];
+            CandidateService[] ownServices = new CandidateService[services.length];
+            Map<String, Task> tasksByName = new HashMap<>();
+            for (Task task : cws == null || cws.getTasks() == null
+                    ? Collections.<Task>emptyList() : cws.getTasks()) {
+                tasksByName.putIfAbsent(task.getName(), task);
+            }
+            Map<String, CandidateService> servicesByName = new HashMap<>();
+            for (CandidateService service : cws == null || cws.getCandidateServices() == null
+                    ? Collections.<CandidateService>emptyList() : cws.getCandidateServices()) {
+                servicesByName.putIfAbsent(service.getName(), service);
+            }
+            for (int t = 0; t < tasks.length; t++) {
+                ownTasks[t] = require(tasksByName.get(tasks[t]));
+            }
+            for (int s = 0; s < services.length; s++) {
+                ownServices[s] = require(servicesByName.get(services[s]));
+            }
+
+            List<Binding> bindings = new ArrayList<>(mappings.length);
+            for (int[] pairs : mappings) {
+                Binding binding = new Binding();
+                if (pairs != null) {
+                    List<BindingMapping> list = new ArrayList<>(pairs.length / 2);
+                    for (int m = 0; m < pairs.length; m += 2) {
+                        BindingMapping mapping = new BindingMapping();
+                        mapping.setTask(pairs[m] < 0 ? null : ownTasks[pairs[m]]);
+                        mapping.setCandidateService(pairs[m + 1] < 0 ? null : ownServices[pairs[m + 1]]);
+                        list.add(mapping);
+                    }
+                    binding.setBindingMappings(list);
+                }
+                bindings.add(binding);
+            }
+            return bindings;
+        }
+
+        private static <T> T require(T own) {
+            if (own == null) {
+                throw new IllegalStateException("Cached binding references a Task or CandidateService not in the CWS.");
+            }
+            return own;
+        }
+    }
+
+    private static final class Key {
+        private final Kind kind;
+        private final ProblemFingerprint fingerprint;
+        // The config parameters, or the config object itself if it is neither a Map nor a SolverConfig
+        private final Object config;
+
+        Key(Kind kind, ProblemFingerprint fingerprint, Optional<Object> extraConfig) {
+            this.kind = kind;
+            this.fingerprint = fingerprint;
+            Object raw = extraConfig == null ? null : extraConfig.orElse(null);
+            this.config = raw == null || raw instanceof Map || raw instanceof SolverConfig
+                    ? SolverConfig.from(extraConfig).asMap() : raw;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return kind == other.kind
+                    && (fingerprint == null ? other.fingerprint == null : fingerprint.equals(other.fingerprint))
+                    && config.equals(other.config);
+        }
+
+        @Override
+        public int hashCode() {
+            return (kind.hashCode() * 31 + (fingerprint == null ? 0 : fingerprint.hashCode())) * 31
+                    + config.hashCode();
+        }
+    }
+}
@@ -0,0 +1,541 @@
+package com.example.qaco.engine.constraints;
+
+import com.example.qaco.domain.problem.constraints.Operator;
+import com.example.qaco.engine.AggregationFunction;
+import com.example.qaco.engine.PartialAssignment;
+import com.example.qaco.engine.qos.WorkflowAggregator;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A constraint compiled by {@link ConstraintCompiler} into a flat evaluator over an assignment
+ * (task id -> service id, see {@link com.example.qaco.engine.CompiledQACOProblem}).
+ * <p>
+ * Features, tasks, operators and aggregation functions are all resolved at compile time, so
+ * evaluating a constraint only reads primitive arrays and never allocates. Instances are
+ * immutable and can be shared between threads.
+ */
+public abstract class CompiledConstraint {
+
+    /**
+     * Relative tolerance used by EQUALS / NOT_EQUALS, so aggregated sums are not compared bit for bit.
+     */
+    static final double EQUALITY_TOLERANCE = 1e-9;
+
+    /**
+     * Results of {@link #check(PartialAssignment)}, ordered so AND is a min and OR a max.
+     */
+    public static final int VIOLATED = -1;
+    public static final int UNDECIDED = 0;
+    public static final int SATISFIED = 1;
+
+    /**
+     * @return true if the assignment satisfies the constraint
+     */
+    public abstract boolean test(int[] assignment);
+
+    /**
+     * How far the assignment is from satisfying the constraint: 0 if it does, otherwise at least 1
+     * per violated comparison plus its gap relative to the bound. Meant for penalty functions.
+     */
+    public abstract double violation(int[] assignment);
+
+    /**
+     * Three-valued check of a partial assignment: {@link #VIOLATED} if no completion can satisfy
+     * the constraint, {@link #SATISFIED} if every completion does, {@link #UNDECIDED} otherwise.
+     * Bounds come from the lower / upper completions of the partial assignment, so the answer is
+     * conservative: it may be UNDECIDED where a finer analysis could decide.
+     */
+    public abstract int check(PartialAssignment partial);
+
+    /**
+     * @return this constraint, adding one to {@code checks} per test, violation or check
+     */
+    public CompiledConstraint counting(LongAdder checks) {
+        return new Counting(this, checks);
+    }
+
+    static boolean holds(Operator operator, double left, double right) {
+        switch (operator) {
+            case LESS_THAN_OR_EQUALS:
+                return left <= right;
+            case LESS_THAN:
+                return left < right;
+            case GREATER_THAN:
+                return left > right;
+            case GREATER_THAN_OR_EQUALS:
+                return left >= right;
+            case EQUALS:
+                return nearlyEqual(left, right);
+            default:
+                return !nearlyEqual(left, right);
+        }
+    }
+
+    static double gap(Operator operator, double left, double right) {
+        if (holds(operator, left, right)) {
+            return 0.0;
+        }
+        return 1.0 + Math.abs(left - right) / Math.max(1.0, Math.abs(right));
+    }
+
+    private static boolean nearlyEqual(double a, double b) {
+        return Math.abs(a - b) <= EQUALITY_TOLERANCE * Math.max(1.0, Math.max(Math.abs(a), Math.abs(b)));
+    }
+
+    /**
+     * Compare a left-hand side known to lie in [low, high] with a right-hand side in [rightLow, rightHigh].
+     *
+     * @return {@link #VIOLATED}, {@link #UNDECIDED} or {@link #SATISFIED}
+     */
+    public static int check(Operator operator, double low, double high, double rightLow, double rightHigh) {
+        if (low == high && rightLow == rightHigh) {
+            return holds(operator, low, rightLow) ? SATISFIED : VIOLATED;
+        }
+        switch (operator) {
+            case LESS_THAN_OR_EQUALS:
+                return high <= rightLow ? SATISFIED : low > rightHigh ? VIOLATED : UNDECIDED;
+            case LESS_THAN:
+                return high < rightLow ? SATISFIED : low >= rightHigh ? VIOLATED : UNDECIDED;
+            case GREATER_THAN:
+                return low > rightHigh ? SATISFIED : high <= rightLow ? VIOLATED : UNDECIDED;
+            case GREATER_THAN_OR_EQUALS:
+                return low >= rightHigh ? SATISFIED : high < rightLow ? VIOLATED : UNDECIDED;
+            default:
+                boolean disjoint = (low > rightHigh && !nearlyEqual(low, rightHigh))
+                        || (high < rightLow && !nearlyEqual(high, rightLow));
+                if (!disjoint) {
+                    return UNDECIDED;
+                }
+                return operator == Operator.EQUALS ? VIOLATED : SATISFIED;
+        }
+    }
+
+    static final class Counting extends CompiledConstraint {
+        private final CompiledConstraint delegate;
+        private final LongAdder checks;
+
+        Counting(CompiledConstraint delegate, LongAdder checks) {
+            this.delegate = delegate;
+            this.checks = checks;
+        }
+
+        @Override
+        public boolean test(int[] assignment) {
+            checks.increment();
+            return delegate.test(assignment);
+        }
+
+        @Override
+        public double violation(int[] assignment) {
+            checks.increment();
+            return delegate.violation(assignment);
+        }
+
+        @Override
+        public int check(PartialAssignment partial) {
+            checks.increment();
+            return delegate.check(partial);
+        }
+    }
+
+    static final class True extends CompiledConstraint {
+        static final True INSTANCE = new True();
+
+        @Override
+        public boolean test(int[] assignment) {
+            return true;
+        }
+
+        @Override
+        public double violation(int[] assignment) {
+            return 0.0;
+        }
+
+        @Override
+        public int check(PartialAssignment partial) {
+            return SATISFIED;
+        }
+    }
+
+    static final class And extends CompiledConstraint {
+        final CompiledConstraint[] children;
+
+        And(CompiledConstraint[] children) {
+            this.children = children;
+        }
+
+        @Override
+        public boolean test(int[] assignment) {
+            for (CompiledConstraint child : children) {
+                if (!child.test(assignment)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public double violation(int[] assignment) {
+            double total = 0.0;
+            for (CompiledConstraint child : children) {
+                total += child.violation(assignment);
+            }
+            return total;
+        }
+
+        @Override
+        public int check(PartialAssignment partial) {
+            int result = SATISFIED;
+            for (CompiledConstraint child : children) {
+                result = Math.min(result, child.check(partial));
+                if (result == VIOLATED) {
+                    break;
+                }
+            }
+            return result;
+        }
+    }
+
+    static final class Or extends CompiledConstraint {
+        final CompiledConstraint[] children;
+
+        Or(CompiledConstraint[] children) {
+            this.children = children;
+        }
+
+        @Override
+        public boolean test(int[] assignment) {
+            for (CompiledConstraint child : children) {
+                if (child.test(assignment)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public double violation(int[] assignment) {
+            double best = Double.POSITIVE_INFINITY;
+            for (CompiledConstraint child : children) {
+                best = Math.min(best, child.violation(assignment));
+                if (best == 0.0) {
+                    break;
+                }
+            }
+            return best;
+        }
+
+        @Override
+        public int check(PartialAssignment partial) {
+            int result = VIOLATED;
+            for (CompiledConstraint child : children) {
+                result = Math.max(result, child.check(partial));
+                if (result == SATISFIED) {
+                    break;
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * ConditionalConstraint: {@code then} only has to hold when {@code condition} does.
+     */
+    static final class Implies extends CompiledConstraint {
+        final CompiledConstraint condition;
+        final CompiledConstraint then;
+
+        Implies(CompiledConstraint condition, CompiledConstraint then) {
+            this.condition = condition;
+            this.then = then;
+        }
+
+        @Override
+        public boolean test(int[] assignment) {
+            return !condition.test(assignment) || then.test(assignment);
+        }
+
+        @Override
+        public double violation(int[] assignment) {
+            return condition.test(assignment) ? then.violation(assignment) : 0.0;
+        }
+
+        @Override
+        public int check(PartialAssignment partial) {
+            int premise = condition.check(partial);
+            return premise == VIOLATED ? SATISFIED : Math.max(-premise, then.check(partial));
+        }
+    }
+
+    /**
+     * The aggregated value of a feature over a fixed set of tasks.
+     */
+    static final class Aggregate {
+        final int[] tasks;
+        final int feature;
+        final double[] row;
+        final AggregationFunction function;
+        final boolean monotone;
+
+        Aggregate(int[] tasks, int feature, double[] row, AggregationFunction function) {
+            this.tasks = tasks;
+            this.feature = feature;
+            this.row = row;
+            this.function = function;
+            boolean negative = false;
+            for (double value : row) {
+                negative |= value < 0.0;
+            }
+            this.monotone = function != AggregationFunction.PRODUCT || !negative;
+        }
+
+        double lower(PartialAssignment partial) {
+            return monotone ? value(partial.lowerCompletion(feature)) : Double.NEGATIVE_INFINITY;
+        }
+
+        double upper(PartialAssignment partial) {
+            return monotone ? value(partial.upperCompletion(feature)) : Double.POSITIVE_INFINITY;
+        }
+
+        double value(int[] assignment) {
+            if (tasks.length == 0) {
+                return 0.0;
+            }
+            double acc;
+            switch (function) {
+                case PRODUCT:
+                    acc = 1.0;
+                    for (int t : tasks) {
+                        acc *= row[assignment[t]];
+                    }
+                    return acc;
+                case MIN:
+                    acc = Double.POSITIVE_INFINITY;
+                    for (int t : tasks) {
+                        acc = Math.min(acc, row[assignment[t]]);
+                    }
+                    return acc;
+                case MAX:
+                    acc = Double.NEGATIVE_INFINITY;
+                    for (int t : tasks) {
+                        acc = Math.max(acc, row[assignment[t]]);
+                    }
+                    return acc;
+                default:
+                    acc = 0.0;
+                    for (int t : tasks) {
+                        acc += row[assignment[t]];
+                    }
+                    return function == AggregationFunction.AVG ? acc / tasks.length : acc;
+            }
+        }
+    }
+
+    /**
+     * An aggregate compared with a constant or with another aggregate.
+     */
+    static final class AggregateComparison extends CompiledConstraint {
+        final Aggregate left;
+        final Operator operator;
+        final Aggregate right;
+        final double constant;
+
+        AggregateComparison(Aggregate left, Operator operator, Aggregate right, double constant) {
+            this.left = left;
+            this.operator = operator;
+            this.right = right;
+            this.constant = constant;
+        }
+
+        private double rightValue(int[] assignment) {
+            return right == null ? constant : right.value(assignment);
+        }
+
+        @Override
+        public boolean test(int[] assignment) {
+            return holds(operator, left.value(assignment), rightValue(assignment));
+        }
+
+        @Override
+        public double violation(int[] assignment) {
+            return gap(operator, left.value(assignment), rightValue(assignment));
+        }
+
+        @Override
+        public int check(PartialAssignment partial) {
+            return CompiledConstraint.check(operator, left.lower(partial), left.upper(partial),
+                    right == null ? constant : right.lower(partial), right == null ? constant : right.upper(partial));
+        }
+    }
+
+    /**
+     * A feature aggregated over the whole workflow compared with a constant.
+     */
+    static final class GlobalComparison extends CompiledConstraint {
+        final WorkflowAggregator aggregator;
+        final int feature;
+        final Operator operator;
+        final double constant;
+
+        GlobalComparison(WorkflowAggregator aggregator, int feature, Operator operator, double constant) {
+            this.aggregator = aggregator;
+            this.feature = feature;
+            this.operator = operator;
+            this.constant = constant;
+        }
+
+        @Override
+        public boolean test(int[] assignment) {
+            return holds(operator, aggregator.aggregate(feature, assignment), constant);
+        }
+
+        @Override
+        public double violation(int[] assignment) {
+            return gap(operator, aggregator.aggregate(feature, assignment), constant);
+        }
+
+        @Override
+        public int check(PartialAssignment partial) {
+            if (!aggregator.isMonotone(feature)) {
+                return partial.isComplete() ? (test(partial.assignment()) ? SATISFIED : VIOLATED) : UNDECIDED;
+            }
+            return CompiledConstraint.check(operator, aggregator.aggregate(feature, partial.lowerCompletion(feature)),
+                    aggregator.aggregate(feature, partial.upperCompletion(feature)), constant, constant);
+        }
+    }
+
+    /**
+     * The feature value of every listed task, taken one by one, compared with a constant or an aggregate.
+     */
+    static final class PerTaskComparison extends CompiledConstraint {
+        final int[] tasks;
+        final int feature;
+        final double[] row;
+        final Operator operator;
+        final Aggregate right;
+        final double constant;
+
+        PerTaskComparison(int[] tasks, int feature, double[] row, Operator operator, Aggregate right,
+                          double constant) {
+            this.tasks = tasks;
+            this.feature = feature;
+            this.row = row;
+            this.operator = operator;
+            this.right = right;
+            this.constant = constant;
+        }
+
+        @Override
+        public boolean test(int[] assignment) {
+            double bound = right == null ? constant : right.value(assignment);
+            for (int t : tasks) {
+                if (!holds(operator, row[assignment[t]], bound)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public double violation(int[] assignment) {
+            double bound = right == null ? constant : right.value(assignment);
+            double total = 0.0;
+            for (int t : tasks) {
+                total += gap(operator, row[assignment[t]], bound);
+            }
+            return total;
+        }
+
+        @Override
+        public int check(PartialAssignment partial) {
+            double rightLow = right == null ? constant : right.lower(partial);
+            double rightHigh = right == null ? constant : right.upper(partial);
+            int[] lower = partial.lowerCompletion(feature);
+            int[] upper = partial.upperCompletion(feature);
+            int result = SATISFIED;
+            for (int t : tasks) {
+                result = Math.min(result,
+                        CompiledConstraint.check(operator, row[lower[t]], row[upper[t]], rightLow, rightHigh));
+                if (result == VIOLATED) {
+                    break;
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * BindingConstraint: the listed tasks must be bound to services of the same provider (EQUALS)
+     * or of pairwise different providers (NOT_EQUALS).
+     */
+    static final class ProviderComparison extends CompiledConstraint {
+        final int[] tasks;
+        final int[] providers;
+        final boolean same;
+
+        ProviderComparison(int[] tasks, int[] providers, boolean same) {
+            this.tasks = tasks;
+            this.providers = providers;
+            this.same = same;
+        }
+
+        @Override
+        public boolean test(int[] assignment) {
+            return conflicts(assignment, true) == 0;
+        }
+
+        @Override
+        public double violation(int[] assignment) {
+            return conflicts(assignment, false);
+        }
+
+        @Override
+        public int check(PartialAssignment partial) {
+            int[] services = partial.assignment();
+            boolean complete = true;
+            for (int i = 0; i < tasks.length; i++) {
+                int service = services[tasks[i]];
+                if (service < 0) {
+                    complete = false;
+                    continue;
+                }
+                for (int j = i + 1; j < tasks.length; j++) {
+                    int other = services[tasks[j]];
+                    if (other >= 0 && (providers[other] == providers[service]) != same) {
+                        return VIOLATED;
+                    }
+                }
+            }
+            return complete ? SATISFIED : UNDECIDED;
+        }
+
+        private int conflicts(int[] assignment, boolean stopAtFirst) {
+            int count = 0;
+            if (same) {
+                int first = providers[assignment[tasks[0]]];
+                for (int i = 1; i < tasks.length; i++) {
+                    if (providers[assignment[tasks[i]]] != first) {
+                        if (stopAtFirst) {
+                            return 1;
+                        }
+                        count++;
+                    }
+                }
+                return count;
+            }
+            for (int i = 0; i < tasks.length; i++) {
+                int provider = providers[assignment[tasks[i]]];
+                for (int j = i + 1; j < tasks.length; j++) {
+                    if (providers[assignment[tasks[j]]] == provider) {
+                        if (stopAtFirst) {
+                            return 1;
+                        }
+                        count++;
+                    }
+                }
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.qaco.engine.constraints;
+
+import com.example.qaco.domain.cws.Feature;
+import com.example.qaco.domain.cws.Task;
+import com.example.qaco.domain.problem.Problem;
+import com.example.qaco.domain.problem.constraints.BindingConstraint;
+import com.example.qaco.domain.problem.constraints.ComposeConstraint;
+import com.example.qaco.domain.problem.constraints.ComposeConstraintType;
+import com.example.qaco.domain.problem.constraints.ConditionalConstraint;
+import com.example.qaco.domain.problem.constraints.Constraint;
+import com.example.qaco.domain.problem.constraints.FeatureConstraint;
+import com.example.qaco.domain.problem.constraints.GlobalConstraint;
+import com.example.qaco.domain.problem.constraints.LocalConstraint;
+import com.example.qaco.domain.problem.constraints.Operator;
+import com.example.qaco.engine.AggregationFunction;
+import com.example.qaco.engine.CompiledQACOProblem;
+import com.example.qaco.engine.qos.WorkflowAggregator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Compiles the Constraint tree of a Problem into {@link CompiledConstraint} evaluators.
+ * <p>
+ * Semantics of the constraint types:
+ * - GlobalConstraint: the feature aggregated over the whole workflow (see {@link WorkflowAggregator})
+ *   compared with {@code value}.
+ * - LocalConstraint: if the input FeatureConstraint has an aggregator, the feature is aggregated
+ *   over its tasks and compared once; otherwise every listed task is compared on its own.
+ *   A FeatureConstraint without tasks applies to all tasks. The right-hand side is either
+ *   {@code value} or the {@code outputFeature} aggregated with its aggregator (SUM by default).
+ * - ComposeConstraint: AND / OR of its conditions (AND if no type is given), short-circuited.
+ * - ConditionalConstraint: {@code then} must hold whenever {@code condition} holds.
+ * - BindingConstraint: the {@code providers} tasks must be bound to services of the same provider
+ *   (EQUALS) or of pairwise different providers (NOT_EQUALS).
+ */
+public final class ConstraintCompiler {
+
+    private final CompiledQACOProblem compiled;
+    private WorkflowAggregator aggregator;
+    private final int[] allTasks;
+    private int[] providers;
+
+    private ConstraintCompiler(CompiledQACOProblem compiled, WorkflowAggregator aggregator) {
+        this.compiled = compiled;
+        this.aggregator = aggregator;
+        this.allTasks = new int[compiled.taskCount()];
+        for (int t = 0; t < allTasks.length; t++) {
+            allTasks[t] = t;
+        }
+    }
+
+    /**
+     * Compile all constraints of the problem the CompiledQACOProblem was built from into a
+     * single conjunction.
+     *
+     * @throws IllegalArgumentException if a constraint is incomplete or references unknown entities
+     */
+    public static CompiledConstraint compile(CompiledQACOProblem compiled) {
+        return compile(compiled, null);
+    }
+
+    /**
+     * Same as {@link #compile(CompiledQACOProblem)}, evaluating global constraints with the given
+     * aggregator (built on demand if null).
+     */
+    public static CompiledConstraint compile(CompiledQACOProblem compiled, WorkflowAggregator aggregator) {
+        Problem problem = compiled.getSource() == null ? null : compiled.getSource().getProblem();
+        List<Constraint> constraints = problem == null || problem.getConstraints() == null
+                ? Collections.<Constraint>emptyList() : problem.getConstraints();
+        return new ConstraintCompiler(compiled, aggregator).and(constraints);
+    }
+
+    /**
+     * Compile a single constraint against the given compiled problem.
+     */
+    public static CompiledConstraint compile(Constraint constraint, CompiledQACOProblem compiled,
+                                             WorkflowAggregator aggregator) {
+        return new ConstraintCompiler(compiled, aggregator).compile(constraint);
+    }
+
+    private CompiledConstraint compile(Constraint constraint) {
+        if (constraint instanceof GlobalConstraint) {
+            return compileGlobal((GlobalConstraint) constraint);
+        } else if (constraint instanceof LocalConstraint) {
+            return compileLocal((LocalConstraint) constraint);
+        } else if (constraint instanceof ComposeConstraint) {
+            ComposeConstraint cc = (ComposeConstraint) constraint;
+            List<Constraint> conditions = cc.getConditions() == null
+                    ? Collections.<Constraint>emptyList() : cc.getConditions();
+            return cc.getType() == ComposeConstraintType.OR ? or(conditions) : and(conditions);
+        } else if (constraint instanceof ConditionalConstraint) {
+            ConditionalConstraint cond = (ConditionalConstraint) constraint;
+            if (cond.getThen() == null) {
+                return CompiledConstraint.True.INSTANCE;
+            }
+            if (cond.getCondition() == null) {
+                return compile(cond.getThen());
+            }
+            CompiledConstraint condition = compile(cond.getCondition());
+            CompiledConstraint then = compile(cond.getThen());
+            if (condition instanceof CompiledConstraint.True) {
+                return then;
+            }
+            return then instanceof CompiledConstraint.True ? then : new CompiledConstraint.Implies(condition, then);
+        } else if (constraint instanceof BindingConstraint) {
+            return compileBinding((BindingConstraint) constraint);
+        }
+        throw new IllegalArgumentException("Unsupported constraint type: "
+                + (constraint == null ? null : constraint.getClass().getSimpleName()));
+    }
+
+    private CompiledConstraint and(List<Constraint> constraints) {
+        List<CompiledConstraint> children = new ArrayList<>(constraints.size());
+        for (Constraint constraint : constraints) {
+            CompiledConstraint child = compile(constraint);
+            if (child instanceof CompiledConstraint.And) {
+                Collections.addAll(children, ((CompiledConstraint.And) child).children);
+            } else if (!(child instanceof CompiledConstraint.True)) {
+                children.add(child);
+            }
+        }
+        if (children.isEmpty()) {
+            return CompiledConstraint.True.INSTANCE;
+        }
+        return children.size() == 1
+                ? children.get(0) : new CompiledConstraint.And(children.toArray(new CompiledConstraint[0]));
+    }
+
+    private CompiledConstraint or(List<Constraint> constraints) {
+        List<CompiledConstraint> children = new ArrayList<>(constraints.size());
+        for (Constraint constraint : constraints) {
+            CompiledConstraint child = compile(constraint);
+            if (child instanceof CompiledConstraint.True) {
+                return child;
+            }
+            if (child instanceof CompiledConstraint.Or) {
+                Collections.addAll(children, ((CompiledConstraint.Or) child).children);
+            } else {
+                children.add(child);
+            }
+        }
+        if (children.isEmpty()) {
+            return CompiledConstraint.True.INSTANCE;
+        }
+        return children.size() == 1
+                ? children.get(0) : new CompiledConstraint.Or(children.toArray(new CompiledConstraint[0]));
+    }
+
+    private CompiledConstraint compileGlobal(GlobalConstraint gc) {
+        Operator operator = requireOperator(gc.getOperator(), "GlobalConstraint");
+        if (gc.getValue() == null) {
+            throw new IllegalArgumentException("GlobalConstraint must have a value.");
+        }
+        int feature = requireFeature(gc.getInputFeature(), "GlobalConstraint");
+        if (aggregator == null) {
+            aggregator = WorkflowAggregator.of(compiled);
+        }
+        return new CompiledConstraint.GlobalComparison(aggregator, feature, operator, gc.getValue());
+    }
+
+    private CompiledConstraint compileLocal(LocalConstraint lc) {
+        Operator operator = requireOperator(lc.getOperator(), "LocalConstraint");
+        FeatureConstraint input = lc.getInputFeature();
+        if (input == null) {
+            throw new IllegalArgumentException("LocalConstraint must have an inputFeature.");
+        }
+        if (lc.getValue() == null && lc.getOutputFeature() == null) {
+            throw new IllegalArgumentException("LocalConstraint must have either a value or an outputFeature.");
+        }
+        CompiledConstraint.Aggregate right = lc.getOutputFeature() == null
+                ? null : aggregate(lc.getOutputFeature(), AggregationFunction.SUM);
+        double constant = lc.getValue() == null ? 0.0 : lc.getValue();
+
+        if (input.getAggregator() != null) {
+            return new CompiledConstraint.AggregateComparison(aggregate(input, null), operator, right, constant);
+        }
+        int feature = requireFeature(input.getFeature(), "LocalConstraint");
+        return new CompiledConstraint.PerTaskComparison(tasks(input.getTasks(), "LocalConstraint"),
+                feature, compiled.qosRow(feature), operator, right, constant);
+    }
+
+    private CompiledConstraint.Aggregate aggregate(FeatureConstraint fc, AggregationFunction fallback) {
+        int feature = requireFeature(fc.getFeature(), "FeatureConstraint");
+        AggregationFunction function = fc.getAggregator() == null
+                ? fallback : AggregationFunction.parse(fc.getAggregator().getOperation());
+        return new CompiledConstraint.Aggregate(tasks(fc.getTasks(), "FeatureConstraint"),
+                feature, compiled.qosRow(feature), function);
+    }
+
+    private CompiledConstraint compileBinding(BindingConstraint bc) {
+        Operator operator = requireOperator(bc.getOperator(), "BindingConstraint");
+        if (operator != Operator.EQUALS && operator != Operator.NOT_EQUALS) {
+            throw new IllegalArgumentException("BindingConstraint only supports the " + Operator.EQUALS
+                    + " and " + Operator.NOT_EQUALS + " operators, got: " + operator);
+        }
+        int[] tasks = tasks(bc.getProviders(), "BindingConstraint");
+        if (tasks.length < 2) {
+            return CompiledConstraint.True.INSTANCE;
+        }
+        return new CompiledConstraint.ProviderComparison(tasks, providers(), operator == Operator.EQUALS);
+    }
+
+    private int[] providers() {
+        if (providers == null) {
+            providers = new int[compiled.serviceCount()];
+            for (int s = 0; s < providers.length; s++) {
+                providers[s] = compiled.provider(s);
+            }
+        }
+        return providers;
+    }
+
+    private int[] tasks(List<Task> tasks, String owner) {
+        if (tasks == null || tasks.isEmpty()) {
+            return allTasks;
+        }
+        int[] ids = new int[tasks.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = compiled.taskId(tasks.get(i));
+            if (ids[i] < 0) {
+                throw new IllegalArgumentException(owner + " references a Task not in the CWS: "
+                        + (tasks.get(i) == null ? null : tasks.get(i).getName()));
+            }
+        }
+        return ids;
+    }
+
+    private int requireFeature(Feature feature, String owner) {
+        int id = compiled.featureId(feature);
+        if (id < 0) {
+            throw new IllegalArgumentException(owner + " references a Feature not in the CWS: "
+                    + (feature == null ? null : feature.getName()));
+        }
+        return id;
+    }
+
+    private static Operator requireOperator(Operator operator, String owner) {
+        if (operator == null) {
+            throw new IllegalArgumentException(owner + " must have an operator.");
+        }
+        return operator;
+    }
+}
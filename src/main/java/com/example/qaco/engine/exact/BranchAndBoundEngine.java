@@ -0,0 +1,269 @@
+package com.example.qaco.engine.exact;
+
+import com.example.qaco.domain.QACOProblem;
+import com.example.qaco.domain.binding.Binding;
+import com.example.qaco.engine.AbstractQACOEngine;
+import com.example.qaco.engine.CompiledQACOProblem;
+import com.example.qaco.engine.ParallelFor;
+import com.example.qaco.engine.PartialAssignment;
+import com.example.qaco.engine.SolveContext;
+import com.example.qaco.engine.SolverConfig;
+import com.example.qaco.engine.constraints.CompiledConstraint;
+import com.example.qaco.engine.constraints.ConstraintCompiler;
+import com.example.qaco.engine.metrics.SolveMetrics;
+import com.example.qaco.engine.qos.WorkflowAggregator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.DoubleAdder;
+
+/**
+ * An exact, parallel depth-first branch-and-bound engine: the binding it returns is optimal.
+ * <p>
+ * Tasks are bound one at a time, those with fewest candidates first, and the candidates of a task
+ * are tried from the best local score. Every partial assignment is bounded with {@link
+ * WorkflowAggregator#lowerBound(PartialAssignment)} (unbound tasks take their best value of each
+ * preference feature) and checked with {@link CompiledConstraint#check(PartialAssignment)}, so a
+ * subtree is cut as soon as it cannot beat the incumbent or cannot satisfy the constraints.
+ * <p>
+ * The top levels of the search tree are forked as tasks of a work-stealing ForkJoinPool; all of
+ * them share a single atomic incumbent, so a good binding found by one worker prunes the others.
+ * <p>
+ * Subtrees are also cut against the {@link SolveContext#sharedBound() shared bound} of the
+ * context, so when it runs alongside other engines (e.g. in a {@code PortfolioEngine}) a binding
+ * they found prunes the search too; the optimum is then the better of the returned binding and the
+ * best one published. A completed search returns nothing if no binding beats the shared bound.
+ * <p>
+ * If the {@link SolveContext} asks it to stop, the search is cut short and the incumbent, which
+ * is then the best binding found but not necessarily the optimum, is returned.
+ * <p>
+ * Configuration (extraConfig, see {@link SolverConfig}): {@code threads} (0 = common pool).
+ */
+public class BranchAndBoundEngine extends AbstractQACOEngine {
+
+    public static final String THREADS = "threads";
+
+    /**
+     * Fork until the number of open subtrees reaches this many per worker.
+     */
+    private static final int SUBTREES_PER_WORKER = 16;
+
+    @Override
+    public boolean isExact() {
+        return true;
+    }
+
+    @Override
+    protected Optional<List<Binding>> doSolve(QACOProblem problem, Optional<Object> extraConfig) {
+        SolverConfig config = SolverConfig.from(extraConfig);
+        CompiledQACOProblem compiled = compile(problem, extraConfig);
+        if (compiled.hasEmptyDomain()) {
+            return Optional.empty();
+        }
+        WorkflowAggregator aggregator = WorkflowAggregator.of(compiled);
+        CompiledConstraint constraint = SolveContext.current().metrics()
+                .counting(ConstraintCompiler.compile(compiled, aggregator));
+
+        ForkJoinPool pool = ParallelFor.pool(config.getInt(THREADS, 0));
+        try {
+            Search search = new Search(compiled, aggregator, constraint, pool.getParallelism(),
+                    SolveContext.current());
+            PartialAssignment root = new PartialAssignment(compiled);
+            if (constraint.check(root) != CompiledConstraint.VIOLATED) {
+                pool.invoke(search.new Subtree(root, 0, 1.0));
+            }
+            Incumbent best = search.incumbent.get();
+            return best.assignment == null
+                    ? Optional.<List<Binding>>empty()
+                    : Optional.of(Collections.singletonList(compiled.toBinding(best.assignment)));
+        } finally {
+            ParallelFor.release(pool);
+        }
+    }
+
+    /**
+     * Best complete binding found so far; replaced atomically, never mutated.
+     */
+    private static final class Incumbent {
+        static final Incumbent NONE = new Incumbent(Double.POSITIVE_INFINITY, null);
+
+        final double score;
+        final int[] assignment;
+
+        Incumbent(double score, int[] assignment) {
+            this.score = score;
+            this.assignment = assignment;
+        }
+    }
+
+    /**
+     * State shared by all the subtrees of one run.
+     */
+    private static final class Search {
+        private final CompiledQACOProblem compiled;
+        private final WorkflowAggregator aggregator;
+        private final CompiledConstraint constraint;
+        private final SolveContext context;
+        private final SolveMetrics metrics;
+        private final AtomicReference<Incumbent> incumbent = new AtomicReference<>(Incumbent.NONE);
+        // Fraction of the search tree explored or pruned, for progress reporting
+        private final DoubleAdder done = new DoubleAdder();
+
+        // order[depth] is the task bound at that depth, values[depth] its candidates, best first
+        private final int[] order;
+        private final int[][] values;
+        private final int forkDepth;
+
+        Search(CompiledQACOProblem compiled, WorkflowAggregator aggregator, CompiledConstraint constraint,
+               int parallelism, SolveContext context) {
+            this.compiled = compiled;
+            this.aggregator = aggregator;
+            this.constraint = constraint;
+            this.context = context;
+            this.metrics = context.metrics();
+            int taskCount = compiled.taskCount();
+
+            List<Integer> tasks = new ArrayList<>(taskCount);
+            for (int t = 0; t < taskCount; t++) {
+                tasks.add(t);
+            }
+            tasks.sort(Comparator.comparingInt(t -> compiled.candidates(t).length));
+            this.order = new int[taskCount];
+            this.values = new int[taskCount][];
+            for (int d = 0; d < taskCount; d++) {
+                order[d] = tasks.get(d);
+                values[d] = byLocalScore(compiled, order[d]);
+            }
+
+            long subtrees = 1;
+            int depth = 0;
+            long target = (long) Math.max(1, parallelism) * SUBTREES_PER_WORKER;
+            while (parallelism > 1 && depth < taskCount && subtrees < target) {
+                subtrees *= values[depth].length;
+                depth++;
+            }
+            this.forkDepth = depth;
+        }
+
+        private static int[] byLocalScore(CompiledQACOProblem compiled, int task) {
+            int[] candidates = compiled.candidates(task);
+            List<Integer> sorted = new ArrayList<>(candidates.length);
+            for (int s : candidates) {
+                sorted.add(s);
+            }
+            sorted.sort(Comparator.comparingDouble(s -> {
+                double local = 0.0;
+                for (int p = 0; p < compiled.preferenceCount(); p++) {
+                    local += compiled.preferenceWeight(p) * compiled.qos(compiled.preferenceFeature(p), s);
+                }
+                return local;
+            }));
+            int[] result = new int[sorted.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = sorted.get(i);
+            }
+            return result;
+        }
+
+        private boolean promising(PartialAssignment partial) {
+            if (context.isStopRequested()) {
+                return false;
+            }
+            metrics.addNodes(1);
+            if (aggregator.lowerBound(partial) < Math.min(incumbent.get().score, context.sharedBound())
+                    && constraint.check(partial) != CompiledConstraint.VIOLATED) {
+                return true;
+            }
+            metrics.addPruned(1);
+            return false;
+        }
+
+        private void finished(double weight) {
+            done.add(weight);
+            context.reportProgress(done.sum());
+        }
+
+        private void offer(int[] assignment) {
+            context.addEvaluations(1);
+            if (!constraint.test(assignment)) {
+                return;
+            }
+            double score = aggregator.score(assignment);
+            Incumbent current = incumbent.get();
+            while (score < current.score) {
+                Incumbent better = new Incumbent(score, assignment.clone());
+                if (incumbent.compareAndSet(current, better)) {
+                    if (context.hasListener()) {
+                        context.publish(compiled.toBinding(better.assignment.clone()), score);
+                    }
+                    return;
+                }
+                current = incumbent.get();
+            }
+        }
+
+        /**
+         * Depth-first search below {@code depth}, binding and unbinding tasks in place.
+         */
+        private void explore(PartialAssignment partial, int depth) {
+            if (depth == order.length) {
+                offer(partial.assignment());
+                return;
+            }
+            int task = order[depth];
+            for (int service : values[depth]) {
+                partial.assign(task, service);
+                if (promising(partial)) {
+                    explore(partial, depth + 1);
+                }
+            }
+            partial.unassign(task);
+        }
+
+        /**
+         * A subtree above the fork depth: its promising children are forked, each with its own copy.
+         */
+        final class Subtree extends RecursiveAction {
+            private static final long serialVersionUID = 1L;
+
+            private final PartialAssignment partial;
+            private final int depth;
+            // Share of the whole search tree below this subtree
+            private final double weight;
+
+            Subtree(PartialAssignment partial, int depth, double weight) {
+                this.partial = partial;
+                this.depth = depth;
+                this.weight = weight;
+            }
+
+            @Override
+            protected void compute() {
+                if (depth >= forkDepth) {
+                    explore(partial, depth);
+                    finished(weight);
+                    return;
+                }
+                int task = order[depth];
+                double childWeight = weight / values[depth].length;
+                List<Subtree> forks = new ArrayList<>(values[depth].length);
+                for (int service : values[depth]) {
+                    PartialAssignment child = partial.copy();
+                    child.assign(task, service);
+                    if (promising(child)) {
+                        forks.add(new Subtree(child, depth + 1, childWeight));
+                    } else {
+                        finished(childWeight);
+                    }
+                }
+                invokeAll(forks);
+            }
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package com.example.qaco.engine.genetic;
+
+import com.example.qaco.domain.QACOProblem;
+import com.example.qaco.domain.binding.Binding;
+import com.example.qaco.engine.AbstractQACOEngine;
+import com.example.qaco.engine.CompiledQACOProblem;
+import com.example.qaco.engine.ParallelFor;
+import com.example.qaco.engine.SolveContext;
+import com.example.qaco.engine.SolverConfig;
+import com.example.qaco.engine.constraints.CompiledConstraint;
+import com.example.qaco.engine.constraints.ConstraintCompiler;
+import com.example.qaco.engine.qos.WorkflowAggregator;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A generational genetic algorithm engine.
+ * <p>
+ * Every individual is an {@code int[]} genome holding the service id bound to each task. The
+ * population lives in two preallocated buffers that are swapped between generations, so no
+ * genome is allocated after start-up. Fitness is evaluated in parallel fork/join batches, and
+ * offspring are bred in parallel too; each offspring draws from its own SplitMix64 stream seeded
+ * sequentially from the root, which keeps seeded runs reproducible whatever the thread count.
+ * <p>
+ * Constraints are handled with Deb's feasibility rules: a feasible individual beats an infeasible
+ * one, two infeasible ones compare by their constraint violation and two feasible ones by score.
+ * Selection is a binary tournament, crossover is uniform, mutation rebinds a task to another of
+ * its candidates, and the best individuals are carried over unchanged (elitism). Bindings that
+ * {@link SolveContext#immigrate immigrate} replace the worst individuals of the next generation.
+ * <p>
+ * Configuration (extraConfig, see {@link SolverConfig}): {@code population} (100),
+ * {@code generations} (300), {@code crossover} (0.9), {@code mutation} (1 / tasks),
+ * {@code elite} (2), {@code seed} (random) and {@code threads} (0 = common pool).
+ */
+public class GeneticEngine extends AbstractQACOEngine {
+
+    public static final String POPULATION = "population";
+    public static final String GENERATIONS = "generations";
+    public static final String CROSSOVER = "crossover";
+    public static final String MUTATION = "mutation";
+    public static final String ELITE = "elite";
+    public static final String SEED = "seed";
+    public static final String THREADS = "threads";
+
+    @Override
+    protected Optional<List<Binding>> doSolve(QACOProblem problem, Optional<Object> extraConfig) {
+        SolverConfig config = SolverConfig.from(extraConfig);
+        CompiledQACOProblem compiled = compile(problem, extraConfig);
+        if (compiled.hasEmptyDomain()) {
+            return Optional.empty();
+        }
+        WorkflowAggregator aggregator = WorkflowAggregator.of(compiled);
+        CompiledConstraint constraint = SolveContext.current().metrics()
+                .counting(ConstraintCompiler.compile(compiled, aggregator));
+
+        ForkJoinPool pool = ParallelFor.pool(config.getInt(THREADS, 0));
+        try {
+            int[] best = new Evolution(compiled, aggregator, constraint, config, pool, SolveContext.current()).run();
+            return best == null
+                    ? Optional.<List<Binding>>empty()
+                    : Optional.of(Collections.singletonList(compiled.toBinding(best)));
+        } finally {
+            ParallelFor.release(pool);
+        }
+    }
+
+    /**
+     * State of one run.
+     */
+    private static final class Evolution {
+        private final CompiledQACOProblem compiled;
+        private final WorkflowAggregator aggregator;
+        private final CompiledConstraint constraint;
+        private final ForkJoinPool pool;
+        private final SolveContext context;
+
+        private final int size;
+        private final int generations;
+        private final double crossover;
+        private final double mutation;
+        private final int elite;
+        private final SplittableRandom root;
+        private final int taskCount;
+
+        private int[][] population;
+        private int[][] offspring;
+        private final double[] scores;
+        private final double[] violations;
+        private final long[] streams;
+        private final int[] elites;
+
+        private final int[] best;
+        private double bestScore = Double.POSITIVE_INFINITY;
+        private double bestViolation = Double.POSITIVE_INFINITY;
+
+        Evolution(CompiledQACOProblem compiled, WorkflowAggregator aggregator, CompiledConstraint constraint,
+                  SolverConfig config, ForkJoinPool pool, SolveContext context) {
+            this.compiled = compiled;
+            this.aggregator = aggregator;
+            this.constraint = constraint;
+            this.pool = pool;
+            this.context = context;
+            this.taskCount = compiled.taskCount();
+            this.size = Math.max(2, config.getPositiveInt(POPULATION, 100));
+            this.generations = config.getPositiveInt(GENERATIONS, 300);
+            this.crossover = config.getDouble(CROSSOVER, 0.9);
+            this.mutation = config.getDouble(MUTATION, 1.0 / Math.max(1, taskCount));
+            this.elite = Math.min(size - 1, Math.max(0, config.getInt(ELITE, 2)));
+            this.root = config.has(SEED) ? new SplittableRandom(config.getLong(SEED, 0L)) : new SplittableRandom();
+
+            this.population = new int[size][taskCount];
+            this.offspring = new int[size][taskCount];
+            this.scores = new double[size];
+            this.violations = new double[size];
+            this.streams = new long[size];
+            this.elites = new int[elite];
+            this.best = new int[taskCount];
+        }
+
+        /**
+         * @return the best feasible genome found, or null if none was feasible
+         */
+        int[] run() {
+            seedStreams();
+            ParallelFor.run(pool, size, this::randomize);
+            for (int generation = 0; generation < generations && !context.isStopRequested(); generation++) {
+                ParallelFor.run(pool, size, this::evaluate);
+                immigrate();
+                recordBest();
+                selectElites();
+                seedStreams();
+                ParallelFor.run(pool, size, this::breed);
+                int[][] swap = population;
+                population = offspring;
+                offspring = swap;
+                context.reportProgress((generation + 1.0) / generations);
+            }
+            ParallelFor.run(pool, size, this::evaluate);
+            recordBest();
+            return bestViolation > 0.0 ? null : best.clone();
+        }
+
+        private void seedStreams() {
+            for (int i = 0; i < size; i++) {
+                streams[i] = root.nextLong();
+            }
+        }
+
+        private void randomize(int i) {
+            int[] genome = population[i];
+            for (int t = 0; t < taskCount; t++) {
+                int[] candidates = compiled.candidates(t);
+                genome[t] = candidates[nextInt(i, candidates.length)];
+            }
+        }
+
+        private void evaluate(int i) {
+            int[] genome = population[i];
+            scores[i] = aggregator.score(genome);
+            violations[i] = constraint.test(genome) ? 0.0 : constraint.violation(genome);
+        }
+
+        /**
+         * Replace the worst individuals with the bindings other solves sent (see
+         * {@link SolveContext#pollImmigrant()}).
+         */
+        private void immigrate() {
+            for (Binding binding = context.pollImmigrant(); binding != null; binding = context.pollImmigrant()) {
+                int[] genome = compiled.toAssignment(binding);
+                if (!isCandidate(genome)) {
+                    continue;
+                }
+                int worst = 0;
+                for (int i = 1; i < size; i++) {
+                    if (beats(worst, i)) {
+                        worst = i;
+                    }
+                }
+                System.arraycopy(genome, 0, population[worst], 0, taskCount);
+                evaluate(worst);
+            }
+        }
+
+        /**
+         * @return true if every gene is a candidate of its task in the problem being solved, which
+         * also excludes the services reductions removed
+         */
+        private boolean isCandidate(int[] genome) {
+            for (int t = 0; t < taskCount; t++) {
+                if (indexOf(compiled.candidates(t), genome[t]) < 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static int indexOf(int[] candidates, int service) {
+            for (int k = 0; k < candidates.length; k++) {
+                if (candidates[k] == service) {
+                    return k;
+                }
+            }
+            return -1;
+        }
+
+        private void recordBest() {
+            context.addEvaluations(size);
+            boolean improved = false;
+            for (int i = 0; i < size; i++) {
+                if (better(i, bestScore, bestViolation)) {
+                    bestScore = scores[i];
+                    bestViolation = violations[i];
+                    System.arraycopy(population[i], 0, best, 0, taskCount);
+                    improved = true;
+                }
+            }
+            if (improved && bestViolation == 0.0 && context.hasListener()) {
+                context.publish(compiled.toBinding(best.clone()), bestScore);
+            }
+        }
+
+        private void selectElites() {
+            // Partial selection of the top individuals; elite is small.
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                int pos;
+                if (count < elite) {
+                    pos = count++;
+                } else if (elite > 0 && beats(i, elites[elite - 1])) {
+                    pos = elite - 1;
+                } else {
+                    continue;
+                }
+                while (pos > 0 && beats(i, elites[pos - 1])) {
+                    elites[pos] = elites[pos - 1];
+                    pos--;
+                }
+                elites[pos] = i;
+            }
+        }
+
+        private void breed(int i) {
+            int[] child = offspring[i];
+            if (i < elite) {
+                System.arraycopy(population[elites[i]], 0, child, 0, taskCount);
+                return;
+            }
+            int[] first = population[tournament(i)];
+            int[] second = population[tournament(i)];
+            boolean cross = nextDouble(i) < crossover;
+            for (int t = 0; t < taskCount; t++) {
+                child[t] = cross && (nextLong(i) & 1L) == 0L ? second[t] : first[t];
+                if (nextDouble(i) < mutation) {
+                    int[] candidates = compiled.candidates(t);
+                    child[t] = candidates[nextInt(i, candidates.length)];
+                }
+            }
+        }
+
+        private int tournament(int stream) {
+            int a = nextInt(stream, size);
+            int b = nextInt(stream, size);
+            return beats(b, a) ? b : a;
+        }
+
+        private boolean beats(int i, int j) {
+            return better(i, scores[j], violations[j]);
+        }
+
+        private boolean better(int i, double otherScore, double otherViolation) {
+            if (violations[i] != otherViolation) {
+                return violations[i] < otherViolation;
+            }
+            return scores[i] < otherScore;
+        }
+
+        // SplitMix64, one independent stream per individual; no allocation per draw.
+        private long nextLong(int stream) {
+            long z = (streams[stream] += 0x9E3779B97F4A7C15L);
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            return z ^ (z >>> 31);
+        }
+
+        private double nextDouble(int stream) {
+            return (nextLong(stream) >>> 11) * 0x1.0p-53;
+        }
+
+        private int nextInt(int stream, int bound) {
+            return (int) ((nextLong(stream) >>> 33) * bound >>> 31);
+        }
+    }
+}
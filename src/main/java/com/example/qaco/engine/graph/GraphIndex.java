@@ -0,0 +1,776 @@
+package com.example.qaco.engine.graph;
+
+import com.example.qaco.domain.cws.graph.Graph;
+import com.example.qaco.domain.cws.graph.GraphEdge;
+import com.example.qaco.domain.cws.graph.GraphNode;
+import com.example.qaco.domain.cws.graph.GraphNodeType;
+import com.example.qaco.domain.cws.graph.probability.Probability;
+import com.example.qaco.domain.cws.graph.probability.ProbabilityEdge;
+import com.example.qaco.domain.cws.graph.probability.ProbabilityNode;
+import com.example.qaco.engine.ProblemFingerprint;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The structure of a workflow Graph, analysed once and in O(V + E): integer node ids, adjacency
+ * in CSR form, loops, a topological order, split / join matching and the decomposition of the
+ * workflow into single-entry / single-exit {@link Region}s.
+ * <p>
+ * Nodes get dense ids in the order of {@code Graph.nodes}; an edge may reference the very node
+ * instance or an equal one (same type and label). The outgoing edges of node {@code i} are
+ * {@code outTargets[outOffsets[i] .. outOffsets[i + 1])}, in the order of {@code Graph.edges}, and
+ * likewise for the incoming ones.
+ * <p>
+ * A depth-first search from the (first) START node finds the back edges, each closing a loop from
+ * its latch to its header; without them the graph is a DAG, of which {@link #topologicalOrder()}
+ * is an order. The graph is then parsed as a block-structured workflow: every split (a node with
+ * several forward outgoing edges) must have its branches meet at a single join, and every loop
+ * must have a single back edge and a single exit.
+ * <p>
+ * Branch probabilities are read from {@code Graph.probabilities}: the ProbabilityNodes (flattened
+ * in order) are matched to the EXCLUSIVE_GATE nodes with several outgoing edges in node order,
+ * and each ProbabilityNode lists the probabilities of the gate's outgoing edges in edge order.
+ * Missing probabilities are uniform.
+ * <p>
+ * {@link #of(Graph)} rejects malformed graphs with an IllegalArgumentException. Instances are
+ * immutable; arrays returned by the getters are shared and must not be modified.
+ * <p>
+ * {@link #cached(Graph)} analyses each graph structure once: the validator and every compilation
+ * of a CWS share the index of graphs with the same {@link ProblemFingerprint}.
+ */
+public final class GraphIndex {
+
+    /**
+     * Loops are repeated at most 1 / (1 - p) times for this back edge probability p.
+     */
+    public static final double MAX_LOOP_PROBABILITY = 0.99;
+
+    public static final int CACHE_SIZE = 64;
+
+    private static final Map<ProblemFingerprint, GraphIndex> CACHE =
+            new LinkedHashMap<ProblemFingerprint, GraphIndex>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<ProblemFingerprint, GraphIndex> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            };
+
+    private final GraphNode[] nodes;
+    private final Map<GraphNode, Integer> idsByInstance;
+    private final Map<String, Integer> idsByKey;
+
+    private final int[] outOffsets;
+    private final int[] outTargets;
+    private final int[] outEdges;
+    private final int[] inOffsets;
+    private final int[] inSources;
+    private final int[] inEdges;
+    // Probability of each edge (by index in Graph.edges)
+    private final double[] edgeProbabilities;
+
+    private final int start;
+    private final int end;
+    private final boolean[] back;
+    private final int[] forwardIn;
+    private final int[] loopLatch;
+    private final int[] topologicalOrder;
+    private final int[] joins;
+    private final int[] splits;
+    private final Region root;
+
+    private GraphIndex(Graph graph) {
+        if (graph.getNodes() == null || graph.getNodes().isEmpty()) {
+            throw new IllegalArgumentException("Graph must contain at least one node.");
+        }
+        this.nodes = graph.getNodes().toArray(new GraphNode[0]);
+        int n = nodes.length;
+        this.idsByInstance = new IdentityHashMap<>(2 * n);
+        this.idsByKey = new HashMap<>(2 * n);
+        int start = -1;
+        boolean hasEnd = false;
+        for (int i = 0; i < n; i++) {
+            if (nodes[i] == null || nodes[i].getType() == null) {
+                throw new IllegalArgumentException("Graph node and its type cannot be null.");
+            }
+            idsByInstance.putIfAbsent(nodes[i], i);
+            idsByKey.putIfAbsent(key(nodes[i]), i);
+            if (start < 0 && nodes[i].getType() == GraphNodeType.START) {
+                start = i;
+            }
+            hasEnd |= nodes[i].getType() == GraphNodeType.END;
+        }
+        if (start < 0) {
+            throw new IllegalArgumentException("Graph must contain at least one START node.");
+        }
+        if (!hasEnd) {
+            throw new IllegalArgumentException("Graph must contain at least one END node.");
+        }
+        this.start = start;
+
+        List<GraphEdge> edges = graph.getEdges() == null ? Collections.<GraphEdge>emptyList() : graph.getEdges();
+        int m = edges.size();
+        int[] source = new int[m];
+        int[] target = new int[m];
+        for (int e = 0; e < m; e++) {
+            GraphEdge edge = edges.get(e);
+            if (edge == null) {
+                throw new IllegalArgumentException("Graph edge cannot be null.");
+            }
+            source[e] = resolve(edge.getSource());
+            target[e] = resolve(edge.getTarget());
+        }
+        this.outOffsets = new int[n + 1];
+        this.outTargets = new int[m];
+        this.outEdges = new int[m];
+        this.inOffsets = new int[n + 1];
+        this.inSources = new int[m];
+        this.inEdges = new int[m];
+        csr(source, target, outOffsets, outTargets, outEdges);
+        csr(target, source, inOffsets, inSources, inEdges);
+        for (int i = 0; i < n; i++) {
+            if (nodes[i].getType() == GraphNodeType.START && inDegree(i) > 0) {
+                throw new IllegalArgumentException("Graph START node " + nodes[i].getLabel() + " has incoming edges.");
+            }
+            if (nodes[i].getType() == GraphNodeType.END && outDegree(i) > 0) {
+                throw new IllegalArgumentException("Graph END node " + nodes[i].getLabel() + " has outgoing edges.");
+            }
+        }
+        this.edgeProbabilities = probabilities(graph, m);
+
+        this.back = new boolean[m];
+        boolean[] reached = depthFirst();
+        checkReachability(reached);
+
+        this.forwardIn = new int[n];
+        this.loopLatch = new int[n];
+        Arrays.fill(loopLatch, -1);
+        for (int e = 0; e < m; e++) {
+            if (!back[e]) {
+                forwardIn[target[e]]++;
+            } else if (loopLatch[target[e]] >= 0 && loopLatch[target[e]] != source[e]) {
+                throw new IllegalArgumentException("Graph loop at node " + nodes[target[e]].getLabel()
+                        + " has more than one back edge.");
+            } else {
+                loopLatch[target[e]] = source[e];
+            }
+        }
+        this.topologicalOrder = topologicalSort();
+
+        this.joins = new int[n];
+        this.splits = new int[n];
+        Arrays.fill(joins, -1);
+        Arrays.fill(splits, -1);
+        Parser parser = new Parser();
+        Chain chain = parser.parseChain(start, -1, false);
+        if (nodes[chain.next].getType() != GraphNodeType.END) {
+            throw new IllegalArgumentException("Graph is not block-structured: node "
+                    + nodes[chain.next].getLabel() + " joins branches that were never split.");
+        }
+        this.end = chain.next;
+        this.root = chain.region;
+    }
+
+    /**
+     * Analyse a graph.
+     *
+     * @throws IllegalArgumentException if the graph is malformed: no node, no START or END node,
+     *                                  dangling edges, nodes unreachable from START or that cannot
+     *                                  reach an END, or a workflow that is not block-structured
+     */
+    public static GraphIndex of(Graph graph) {
+        if (graph == null) {
+            throw new IllegalArgumentException("Graph cannot be null.");
+        }
+        return new GraphIndex(graph);
+    }
+
+    /**
+     * Analyse a graph, or return the index of a graph with the same fingerprint analysed
+     * recently. Only the indexes of valid graphs whose nodes all differ by type or label are kept,
+     * since edges of such graphs resolve to the same ids whichever instances they reference.
+     *
+     * @throws IllegalArgumentException if the graph is malformed (see {@link #of(Graph)})
+     */
+    public static GraphIndex cached(Graph graph) {
+        if (graph == null) {
+            throw new IllegalArgumentException("Graph cannot be null.");
+        }
+        ProblemFingerprint fingerprint = ProblemFingerprint.of(graph);
+        synchronized (CACHE) {
+            GraphIndex cached = CACHE.get(fingerprint);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        GraphIndex index = new GraphIndex(graph);
+        if (index.idsByKey.size() == index.nodes.length) {
+            synchronized (CACHE) {
+                CACHE.putIfAbsent(fingerprint, index);
+            }
+        }
+        return index;
+    }
+
+    private static String key(GraphNode node) {
+        return node.getType() + ":" + node.getLabel();
+    }
+
+    private int resolve(GraphNode node) {
+        Integer id = node == null ? null : idsByInstance.get(node);
+        if (id == null && node != null) {
+            id = idsByKey.get(key(node));
+        }
+        if (id == null) {
+            throw new IllegalArgumentException("Graph edge references a node not in the graph: "
+                    + (node == null ? null : node.getLabel()));
+        }
+        return id;
+    }
+
+    /**
+     * Counting sort of the edges by {@code from}, stable so each node keeps the edge order.
+     */
+    private static void csr(int[] from, int[] to, int[] offsets, int[] targets, int[] edgeIds) {
+        for (int f : from) {
+            offsets[f + 1]++;
+        }
+        for (int i = 0; i + 1 < offsets.length; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        int[] next = Arrays.copyOf(offsets, offsets.length - 1);
+        for (int e = 0; e < from.length; e++) {
+            int slot = next[from[e]]++;
+            targets[slot] = to[e];
+            edgeIds[slot] = e;
+        }
+    }
+
+    private double[] probabilities(Graph graph, int edgeCount) {
+        List<ProbabilityNode> declared = new ArrayList<>();
+        if (graph.getProbabilities() != null) {
+            for (Probability probability : graph.getProbabilities()) {
+                if (probability != null && probability.getNodes() != null) {
+                    declared.addAll(probability.getNodes());
+                }
+            }
+        }
+        double[] result = new double[edgeCount];
+        int next = 0;
+        for (int i = 0; i < nodes.length; i++) {
+            int degree = outDegree(i);
+            for (int k = outOffsets[i]; k < outOffsets[i + 1]; k++) {
+                result[outEdges[k]] = 1.0 / degree;
+            }
+            if (nodes[i].getType() != GraphNodeType.EXCLUSIVE_GATE || degree < 2) {
+                continue;
+            }
+            ProbabilityNode pn = next < declared.size() ? declared.get(next) : null;
+            next++;
+            if (pn == null || pn.getEdges() == null || pn.getEdges().size() != degree) {
+                continue;
+            }
+            for (int j = 0; j < degree; j++) {
+                ProbabilityEdge pe = pn.getEdges().get(j);
+                double value = pe == null ? 0.0 : pe.getValue();
+                if (value < 0.0 || value > 1.0) {
+                    throw new IllegalArgumentException("Branch probability must be between 0 and 1: " + value);
+                }
+                result[outEdges[outOffsets[i] + j]] = value;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Iterative DFS from START; an edge to a node still on the stack closes a loop.
+     *
+     * @return the nodes reached
+     */
+    private boolean[] depthFirst() {
+        int n = nodes.length;
+        int[] state = new int[n]; // 0 = new, 1 = on stack, 2 = done
+        int[] cursor = new int[n];
+        int[] stack = new int[n];
+        int top = 0;
+        stack[top++] = start;
+        state[start] = 1;
+        cursor[start] = outOffsets[start];
+        while (top > 0) {
+            int node = stack[top - 1];
+            if (cursor[node] < outOffsets[node + 1]) {
+                int k = cursor[node]++;
+                int next = outTargets[k];
+                if (state[next] == 1) {
+                    back[outEdges[k]] = true;
+                } else if (state[next] == 0) {
+                    state[next] = 1;
+                    cursor[next] = outOffsets[next];
+                    stack[top++] = next;
+                }
+            } else {
+                state[node] = 2;
+                top--;
+            }
+        }
+        boolean[] reached = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            reached[i] = state[i] != 0;
+        }
+        return reached;
+    }
+
+    private void checkReachability(boolean[] reached) {
+        int n = nodes.length;
+        for (int i = 0; i < n; i++) {
+            if (!reached[i]) {
+                throw new IllegalArgumentException("Graph node " + nodes[i].getLabel() + " is not reachable from START.");
+            }
+        }
+        // Backwards from every END node
+        boolean[] reaches = new boolean[n];
+        int[] queue = new int[n];
+        int tail = 0;
+        for (int i = 0; i < n; i++) {
+            if (nodes[i].getType() == GraphNodeType.END) {
+                reaches[i] = true;
+                queue[tail++] = i;
+            }
+        }
+        for (int head = 0; head < tail; head++) {
+            int node = queue[head];
+            for (int k = inOffsets[node]; k < inOffsets[node + 1]; k++) {
+                if (!reaches[inSources[k]]) {
+                    reaches[inSources[k]] = true;
+                    queue[tail++] = inSources[k];
+                }
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            if (!reaches[i]) {
+                throw new IllegalArgumentException("Graph node " + nodes[i].getLabel() + " cannot reach an END node.");
+            }
+        }
+    }
+
+    /**
+     * Kahn's algorithm over the forward edges.
+     */
+    private int[] topologicalSort() {
+        int n = nodes.length;
+        int[] remaining = forwardIn.clone();
+        int[] order = new int[n];
+        int tail = 0;
+        for (int i = 0; i < n; i++) {
+            if (remaining[i] == 0) {
+                order[tail++] = i;
+            }
+        }
+        for (int head = 0; head < tail; head++) {
+            int node = order[head];
+            for (int k = outOffsets[node]; k < outOffsets[node + 1]; k++) {
+                if (!back[outEdges[k]] && --remaining[outTargets[k]] == 0) {
+                    order[tail++] = outTargets[k];
+                }
+            }
+        }
+        if (tail != n) {
+            throw new IllegalArgumentException("Graph has a cycle that is not a loop from START.");
+        }
+        return order;
+    }
+
+    public int nodeCount() {
+        return nodes.length;
+    }
+
+    public int edgeCount() {
+        return outTargets.length;
+    }
+
+    public GraphNode node(int id) {
+        return nodes[id];
+    }
+
+    /**
+     * @return the id of the node (the very instance, or one with the same type and label), or -1
+     */
+    public int nodeId(GraphNode node) {
+        if (node == null) {
+            return -1;
+        }
+        Integer id = idsByInstance.get(node);
+        if (id == null) {
+            id = idsByKey.get(key(node));
+        }
+        return id == null ? -1 : id;
+    }
+
+    public int outDegree(int node) {
+        return outOffsets[node + 1] - outOffsets[node];
+    }
+
+    public int inDegree(int node) {
+        return inOffsets[node + 1] - inOffsets[node];
+    }
+
+    /**
+     * @return the outgoing edges of node {@code i} start at {@code outOffsets()[i]} and end before
+     * {@code outOffsets()[i + 1]}
+     */
+    public int[] outOffsets() {
+        return outOffsets;
+    }
+
+    /**
+     * @return the target node of each outgoing edge slot
+     */
+    public int[] outTargets() {
+        return outTargets;
+    }
+
+    /**
+     * @return the index in {@code Graph.edges} of each outgoing edge slot
+     */
+    public int[] outEdges() {
+        return outEdges;
+    }
+
+    public int[] inOffsets() {
+        return inOffsets;
+    }
+
+    public int[] inSources() {
+        return inSources;
+    }
+
+    public int[] inEdges() {
+        return inEdges;
+    }
+
+    /**
+     * @return the probability of taking the edge (by index in {@code Graph.edges}) when leaving its source
+     */
+    public double edgeProbability(int edge) {
+        return edgeProbabilities[edge];
+    }
+
+    public int start() {
+        return start;
+    }
+
+    /**
+     * @return the END node the workflow reaches
+     */
+    public int end() {
+        return end;
+    }
+
+    /**
+     * @return true if the edge (by index in {@code Graph.edges}) goes back to a loop header
+     */
+    public boolean isBackEdge(int edge) {
+        return back[edge];
+    }
+
+    public boolean hasLoops() {
+        for (int latch : loopLatch) {
+            if (latch >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the node whose back edge returns to {@code header}, or -1 if it heads no loop
+     */
+    public int loopLatch(int header) {
+        return loopLatch[header];
+    }
+
+    /**
+     * @return the nodes ordered so that every forward (not back) edge goes to a later node
+     */
+    public int[] topologicalOrder() {
+        return topologicalOrder;
+    }
+
+    /**
+     * @return the node where the branches of {@code split} meet, or -1 if it is not a split
+     */
+    public int join(int split) {
+        return joins[split];
+    }
+
+    /**
+     * @return the split whose branches meet at {@code join}, or -1 if it is not a join
+     */
+    public int split(int join) {
+        return splits[join];
+    }
+
+    /**
+     * @return the region of the whole workflow, from START to END
+     */
+    public Region root() {
+        return root;
+    }
+
+    @Override
+    public String toString() {
+        return "GraphIndex(nodes=" + nodes.length + ", edges=" + outTargets.length + ")";
+    }
+
+    /**
+     * A single-entry / single-exit part of the workflow: an ACTIVITY node, a SEQUENCE of regions,
+     * the branches of an EXCLUSIVE_GATE split (BRANCH) or of another split (FORK) up to their
+     * join, or a LOOP from its header to its latch. Sequences are flattened, and a sequence of a
+     * single region is that region. Gates and other nodes that are not activities only shape
+     * the regions.
+     */
+    public static final class Region {
+
+        public enum Kind {
+            ACTIVITY, SEQUENCE, BRANCH, FORK, LOOP
+        }
+
+        private final Kind kind;
+        private final int entry;
+        private final int exit;
+        private final List<Region> children;
+        private final double[] probabilities;
+        private final double iterations;
+
+        private Region(Kind kind, int entry, int exit, List<Region> children, double[] probabilities, double iterations) {
+            this.kind = kind;
+            this.entry = entry;
+            this.exit = exit;
+            this.children = Collections.unmodifiableList(children);
+            this.probabilities = probabilities;
+            this.iterations = iterations;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        /**
+         * @return the first node of the region (the split of a BRANCH / FORK, the header of a
+         * LOOP), or -1 for an empty branch
+         */
+        public int getEntry() {
+            return entry;
+        }
+
+        /**
+         * @return the last node of the region (the join of a BRANCH / FORK, the latch of a LOOP),
+         * or -1 for an empty branch
+         */
+        public int getExit() {
+            return exit;
+        }
+
+        /**
+         * @return the regions in sequence, the branches of a split, or the body of a loop
+         */
+        public List<Region> getChildren() {
+            return children;
+        }
+
+        /**
+         * @return the probability of taking branch {@code i} of a BRANCH (normalised to sum to 1), 1 otherwise
+         */
+        public double getProbability(int i) {
+            return probabilities == null ? 1.0 : probabilities[i];
+        }
+
+        /**
+         * @return the expected number of times a LOOP runs its body, 1 otherwise
+         */
+        public double getIterations() {
+            return iterations;
+        }
+
+        @Override
+        public String toString() {
+            return kind == Kind.ACTIVITY ? "ACTIVITY(" + entry + ")" : kind + children.toString();
+        }
+    }
+
+    private static final class Chain {
+        final Region region;
+        final int next;
+
+        Chain(Region region, int next) {
+            this.region = region;
+            this.next = next;
+        }
+    }
+
+    /**
+     * Parses the block structure by walking the forward edges from START; every node is parsed once.
+     */
+    private final class Parser {
+        private final boolean[] insideLoop = new boolean[nodes.length];
+
+        /**
+         * Parse a chain of nodes starting at {@code node} until END, a join that belongs to an
+         * enclosing split, or after {@code stopAfter} (the latch of the loop being parsed).
+         */
+        Chain parseChain(int node, int stopAfter, boolean startsAtJoin) {
+            List<Region> sequence = new ArrayList<>();
+            int current = node;
+            int first = -1;
+            int last = -1;
+            boolean consumeJoin = startsAtJoin;
+            while (true) {
+                if (nodes[current].getType() == GraphNodeType.END) {
+                    return new Chain(sequence(sequence, first, last), current);
+                }
+                if (forwardIn[current] > 1 && !consumeJoin) {
+                    return new Chain(sequence(sequence, first, last), current);
+                }
+                consumeJoin = false;
+                if (first < 0) {
+                    first = current;
+                }
+
+                if (loopLatch[current] >= 0 && !insideLoop[current]) {
+                    insideLoop[current] = true;
+                    Chain body = parseChain(current, loopLatch[current], true);
+                    insideLoop[current] = false;
+                    add(sequence, new Region(Region.Kind.LOOP, current, loopLatch[current],
+                            Collections.singletonList(body.region), null, iterations(current)));
+                    last = loopLatch[current];
+                    current = body.next;
+                    if (current == stopAfter) {
+                        throw new IllegalArgumentException("Graph loops at node " + nodes[current].getLabel()
+                                + " overlap.");
+                    }
+                    continue;
+                }
+
+                if (nodes[current].getType() == GraphNodeType.ACTIVITY) {
+                    add(sequence, new Region(Region.Kind.ACTIVITY, current, current,
+                            Collections.<Region>emptyList(), null, 1.0));
+                }
+                last = current;
+
+                int count = forwardCount(current);
+                if (current == stopAfter) {
+                    if (count != 1) {
+                        throw new IllegalArgumentException("Graph loop ending at node " + nodes[current].getLabel()
+                                + " must have exactly one exit.");
+                    }
+                    return new Chain(sequence(sequence, first, last), forwardTarget(current, 0));
+                }
+                if (count == 0) {
+                    throw new IllegalArgumentException("Graph node " + nodes[current].getLabel()
+                            + " has no outgoing edge and is not an END node.");
+                }
+                if (count == 1) {
+                    current = forwardTarget(current, 0);
+                    continue;
+                }
+
+                boolean exclusive = nodes[current].getType() == GraphNodeType.EXCLUSIVE_GATE;
+                List<Region> branches = new ArrayList<>(count);
+                double[] probabilities = exclusive ? new double[count] : null;
+                double mass = 0.0;
+                int join = -1;
+                int j = 0;
+                for (int k = outOffsets[current]; k < outOffsets[current + 1]; k++) {
+                    if (back[outEdges[k]]) {
+                        continue;
+                    }
+                    Chain branch = parseChain(outTargets[k], -1, false);
+                    if (join >= 0 && branch.next != join) {
+                        throw new IllegalArgumentException("Graph is not block-structured: the branches of node "
+                                + nodes[current].getLabel() + " do not meet at a single join.");
+                    }
+                    join = branch.next;
+                    branches.add(branch.region);
+                    if (exclusive) {
+                        probabilities[j] = edgeProbabilities[outEdges[k]];
+                        mass += probabilities[j];
+                    }
+                    j++;
+                }
+                if (exclusive) {
+                    for (j = 0; j < count; j++) {
+                        probabilities[j] = mass > 0 ? probabilities[j] / mass : 1.0 / count;
+                    }
+                }
+                checkGates(current, join);
+                joins[current] = join;
+                splits[join] = current;
+                add(sequence, new Region(exclusive ? Region.Kind.BRANCH : Region.Kind.FORK, current, join,
+                        branches, probabilities, 1.0));
+                current = join;
+                consumeJoin = true;
+            }
+        }
+
+        private int forwardCount(int node) {
+            int count = 0;
+            for (int k = outOffsets[node]; k < outOffsets[node + 1]; k++) {
+                if (!back[outEdges[k]]) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        private int forwardTarget(int node, int index) {
+            int j = 0;
+            for (int k = outOffsets[node]; k < outOffsets[node + 1]; k++) {
+                if (!back[outEdges[k]] && j++ == index) {
+                    return outTargets[k];
+                }
+            }
+            throw new IllegalStateException("Node " + node + " has no forward edge " + index);
+        }
+
+        private double iterations(int header) {
+            int latch = loopLatch[header];
+            for (int k = outOffsets[latch]; k < outOffsets[latch + 1]; k++) {
+                if (back[outEdges[k]] && outTargets[k] == header) {
+                    return 1.0 / (1.0 - Math.min(MAX_LOOP_PROBABILITY, edgeProbabilities[outEdges[k]]));
+                }
+            }
+            return 1.0;
+        }
+
+        private void checkGates(int split, int join) {
+            GraphNodeType splitType = nodes[split].getType();
+            GraphNodeType joinType = nodes[join].getType();
+            boolean gates = (splitType == GraphNodeType.EXCLUSIVE_GATE || splitType == GraphNodeType.PARALLEL_GATE)
+                    && (joinType == GraphNodeType.EXCLUSIVE_GATE || joinType == GraphNodeType.PARALLEL_GATE);
+            if (gates && splitType != joinType) {
+                throw new IllegalArgumentException("Graph " + splitType + " split " + nodes[split].getLabel()
+                        + " is joined by the " + joinType + " " + nodes[join].getLabel() + ".");
+            }
+        }
+
+        private void add(List<Region> sequence, Region region) {
+            if (region.kind == Region.Kind.SEQUENCE) {
+                // Flatten nested sequences
+                sequence.addAll(region.children);
+            } else {
+                sequence.add(region);
+            }
+        }
+
+        private Region sequence(List<Region> regions, int first, int last) {
+            return regions.size() == 1 ? regions.get(0)
+                    : new Region(Region.Kind.SEQUENCE, first, last, regions, null, 1.0);
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package com.example.qaco.engine.incremental;
+
+import com.example.qaco.domain.QACOProblem;
+import com.example.qaco.domain.binding.Binding;
+import com.example.qaco.domain.binding.BindingMapping;
+import com.example.qaco.domain.problem.constraints.Constraint;
+import com.example.qaco.engine.CompiledQACOProblem;
+import com.example.qaco.engine.ProblemValidator;
+import com.example.qaco.engine.QACOEngineInterface;
+import com.example.qaco.engine.SolveContext;
+import com.example.qaco.engine.SolverConfig;
+import com.example.qaco.engine.ValidationLevel;
+import com.example.qaco.engine.constraints.CompiledConstraint;
+import com.example.qaco.engine.constraints.ConstraintCompiler;
+import com.example.qaco.engine.genetic.GeneticEngine;
+import com.example.qaco.engine.qos.WorkflowAggregator;
+import com.example.qaco.engine.qos.WorkflowEvaluation;
+import com.example.qaco.engine.reduction.ConstraintPropagation;
+import com.example.qaco.engine.reduction.SkylineReduction;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Re-solves a problem after a {@link ProblemDelta}, starting from the binding found before.
+ * <p>
+ * The previous binding is mapped onto the changed problem; tasks whose service was removed (or
+ * dropped by the skyline reduction or constraint propagation) are rebound to their best candidate by local score. When no
+ * task had to be rebound, only the constraints the delta touches are checked on this start: the
+ * others held for the previous binding and still do (the result is checked against all of them,
+ * in case the previous binding was not feasible). The start is then improved by best-improvement
+ * local search over single-task moves, tasks with changed or added candidates first, each move
+ * re-aggregating only the path from the task to the root ({@link WorkflowEvaluation}). Feasible
+ * bindings beat infeasible ones, which compare by violation.
+ * <p>
+ * The result is a local optimum around the previous binding, not necessarily the global one. If
+ * the search ends infeasible, the problem is solved from scratch by the fallback engine.
+ * The search honours the {@link SolveContext} (stop requests, evaluations, improving bindings).
+ * <p>
+ * Configuration (extraConfig, see {@link SolverConfig}): {@code passes} (50), plus
+ * {@code validation}, {@code skyline} and {@code propagation} as for the engines; the whole config is passed to the
+ * fallback.
+ */
+public class IncrementalSolver {
+
+    public static final String PASSES = "passes";
+
+    private final QACOEngineInterface fallback;
+
+    public IncrementalSolver() {
+        this(new GeneticEngine());
+    }
+
+    /**
+     * @param fallback the engine used when the local search finds no feasible binding
+     */
+    public IncrementalSolver(QACOEngineInterface fallback) {
+        if (fallback == null) {
+            throw new IllegalArgumentException("IncrementalSolver needs a fallback engine.");
+        }
+        this.fallback = fallback;
+    }
+
+    /**
+     * Apply the delta to the problem (in place) and re-optimize from the previous binding.
+     *
+     * @param problem     the problem as it was when {@code previous} was found
+     * @param previous    a feasible binding of the problem before the delta (null to start from scratch)
+     * @param delta       what changed
+     * @param extraConfig solver config
+     * @return the re-optimized binding, or empty if the changed problem has no feasible binding
+     * @throws IllegalArgumentException if the delta (leaving the problem unchanged) or the changed
+     *                                  problem is invalid
+     */
+    public Optional<List<Binding>> resolve(QACOProblem problem, Binding previous, ProblemDelta delta,
+                                           Optional<Object> extraConfig) {
+        if (delta == null) {
+            throw new IllegalArgumentException("ProblemDelta cannot be null.");
+        }
+        delta.applyTo(problem);
+        ProblemValidator.shared().validate(problem, ValidationLevel.from(extraConfig));
+        SolverConfig config = SolverConfig.from(extraConfig);
+
+        CompiledQACOProblem compiled = CompiledQACOProblem.compile(problem);
+        if (config.getBoolean(SkylineReduction.SKYLINE, true)) {
+            compiled = SkylineReduction.reduce(compiled, ForkJoinPool.commonPool());
+        }
+        if (config.getBoolean(ConstraintPropagation.PROPAGATION, true) && !compiled.hasEmptyDomain()) {
+            compiled = ConstraintPropagation.reduce(compiled);
+        }
+        if (compiled.hasEmptyDomain()) {
+            return Optional.empty();
+        }
+        WorkflowAggregator aggregator = WorkflowAggregator.of(compiled);
+        CompiledConstraint constraint = ConstraintCompiler.compile(compiled, aggregator);
+
+        int taskCount = compiled.taskCount();
+        int[] start = new int[taskCount];
+        boolean[] touched = new boolean[taskCount];
+        boolean rebound = map(compiled, previous, start);
+        for (int t = 0; t < taskCount; t++) {
+            if (start[t] < 0) {
+                start[t] = bestLocal(compiled, t);
+                touched[t] = true;
+            }
+        }
+        Set<String> changed = delta.changedServices();
+        for (int t = 0; t < taskCount; t++) {
+            for (int s : compiled.candidates(t)) {
+                if (changed.contains(compiled.service(s).getName())) {
+                    touched[t] = true;
+                    break;
+                }
+            }
+        }
+
+        double violation;
+        if (rebound) {
+            violation = violation(constraint, start);
+        } else {
+            violation = 0.0;
+            Set<String> features = delta.changedFeatures();
+            List<Constraint> constraints = problem.getProblem().getConstraints();
+            if (constraints != null) {
+                for (Constraint c : constraints) {
+                    if (delta.touches(c, features)) {
+                        violation += violation(ConstraintCompiler.compile(c, compiled, aggregator), start);
+                    }
+                }
+            }
+        }
+
+        SolveContext context = SolveContext.current();
+        int passes = config.getPositiveInt(PASSES, 50);
+        int[] best = new LocalSearch(compiled, aggregator, constraint, context, passes).run(start, violation, touched);
+        if (best != null && !rebound && !constraint.test(best)) {
+            // The previous binding was not feasible after all: search again with its real violation
+            best = new LocalSearch(compiled, aggregator, constraint, context, passes)
+                    .run(best, violation(constraint, best), touched);
+        }
+        if (best == null) {
+            return fallback.solve(problem, extraConfig);
+        }
+        return Optional.of(Collections.singletonList(compiled.toBinding(best)));
+    }
+
+    /**
+     * Map the previous binding to service ids of the changed problem; tasks left without one of
+     * their candidates are set to -1.
+     *
+     * @return true if some task has to be rebound
+     */
+    private static boolean map(CompiledQACOProblem compiled, Binding previous, int[] assignment) {
+        Arrays.fill(assignment, -1);
+        if (previous != null && previous.getBindingMappings() != null) {
+            for (BindingMapping mapping : previous.getBindingMappings()) {
+                int t = compiled.taskId(mapping.getTask());
+                int s = compiled.serviceId(mapping.getCandidateService());
+                if (t >= 0 && s >= 0 && contains(compiled.candidates(t), s)) {
+                    assignment[t] = s;
+                }
+            }
+        }
+        for (int s : assignment) {
+            if (s < 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean contains(int[] candidates, int service) {
+        for (int c : candidates) {
+            if (c == service) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int bestLocal(CompiledQACOProblem compiled, int task) {
+        int best = -1;
+        double bestScore = Double.POSITIVE_INFINITY;
+        for (int s : compiled.candidates(task)) {
+            double local = 0.0;
+            for (int p = 0; p < compiled.preferenceCount(); p++) {
+                local += compiled.preferenceWeight(p) * compiled.qos(compiled.preferenceFeature(p), s);
+            }
+            if (best < 0 || local < bestScore) {
+                best = s;
+                bestScore = local;
+            }
+        }
+        return best;
+    }
+
+    private static double violation(CompiledConstraint constraint, int[] assignment) {
+        return constraint.test(assignment) ? 0.0 : constraint.violation(assignment);
+    }
+
+    /**
+     * Best-improvement descent over single-task moves.
+     */
+    private static final class LocalSearch {
+        private final CompiledQACOProblem compiled;
+        private final CompiledConstraint constraint;
+        private final SolveContext context;
+        private final int passes;
+        private final WorkflowEvaluation evaluation;
+
+        LocalSearch(CompiledQACOProblem compiled, WorkflowAggregator aggregator, CompiledConstraint constraint,
+                    SolveContext context, int passes) {
+            this.compiled = compiled;
+            this.constraint = constraint;
+            this.context = context;
+            this.passes = passes;
+            this.evaluation = aggregator.newEvaluation();
+        }
+
+        /**
+         * @return the best feasible assignment reached from the start, or null if none is feasible
+         */
+        int[] run(int[] start, double startViolation, boolean[] touched) {
+            int taskCount = start.length;
+            int[] order = new int[taskCount];
+            int next = 0;
+            for (int t = 0; t < taskCount; t++) {
+                if (touched[t]) {
+                    order[next++] = t;
+                }
+            }
+            for (int t = 0; t < taskCount; t++) {
+                if (!touched[t]) {
+                    order[next++] = t;
+                }
+            }
+
+            evaluation.reset(start);
+            int[] assignment = evaluation.assignment();
+            double score = evaluation.score();
+            double violation = startViolation;
+            context.addEvaluations(1);
+            if (violation == 0.0 && context.hasListener()) {
+                context.publish(compiled.toBinding(assignment.clone()), score);
+            }
+
+            boolean improved = true;
+            for (int pass = 0; pass < passes && improved && !context.isStopRequested(); pass++) {
+                improved = false;
+                for (int t : order) {
+                    int current = assignment[t];
+                    int bestMove = current;
+                    double bestScore = score;
+                    double bestViolation = violation;
+                    for (int s : compiled.candidates(t)) {
+                        if (s == current) {
+                            continue;
+                        }
+                        evaluation.set(t, s);
+                        double moveScore = evaluation.score();
+                        // A feasible incumbent is only beaten by a feasible, lower score
+                        if (bestViolation == 0.0 && moveScore >= bestScore) {
+                            continue;
+                        }
+                        double moveViolation = violation(constraint, assignment);
+                        context.addEvaluations(1);
+                        if (moveViolation < bestViolation
+                                || moveViolation == bestViolation && moveScore < bestScore) {
+                            bestMove = s;
+                            bestScore = moveScore;
+                            bestViolation = moveViolation;
+                        }
+                    }
+                    evaluation.set(t, bestMove);
+                    if (bestMove != current) {
+                        improved = true;
+                        score = bestScore;
+                        violation = bestViolation;
+                        if (violation == 0.0 && context.hasListener()) {
+                            context.publish(compiled.toBinding(assignment.clone()), score);
+                        }
+                    }
+                }
+                context.reportProgress((pass + 1.0) / passes);
+            }
+            return violation > 0.0 ? null : assignment.clone();
+        }
+    }
+}
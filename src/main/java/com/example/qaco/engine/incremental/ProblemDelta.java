@@ -0,0 +1,324 @@
+package com.example.qaco.engine.incremental;
+
+import com.example.qaco.domain.QACOProblem;
+import com.example.qaco.domain.cws.CandidateService;
+import com.example.qaco.domain.cws.CompositeWebService;
+import com.example.qaco.domain.cws.Feature;
+import com.example.qaco.domain.cws.FeatureValue;
+import com.example.qaco.domain.cws.qos.QoSStore;
+import com.example.qaco.domain.problem.constraints.ComposeConstraint;
+import com.example.qaco.domain.problem.constraints.ConditionalConstraint;
+import com.example.qaco.domain.problem.constraints.Constraint;
+import com.example.qaco.domain.problem.constraints.FeatureConstraint;
+import com.example.qaco.domain.problem.constraints.GlobalConstraint;
+import com.example.qaco.domain.problem.constraints.LocalConstraint;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Changes to a QACOProblem since it was last solved: new QoS values, candidate services that
+ * joined or left the CWS, and new constraint thresholds. Used by {@link IncrementalSolver}.
+ * <p>
+ * Features and services are referred to by name, the way {@code CompiledQACOProblem} resolves
+ * them; constraints are referred to by identity. Changes are recorded in call order and
+ * {@link #applyTo(QACOProblem) applied} removals first, then additions, values and thresholds,
+ * once every reference has been checked. Values the CWS's {@code QoSStore} holds (its feature has
+ * a column and its service a row) are changed in the store, in one commit made last; the others
+ * are changed in the Features' inline values.
+ */
+public final class ProblemDelta {
+
+    private final List<ValueChange> values = new ArrayList<>();
+    private final Map<String, CandidateService> added = new LinkedHashMap<>();
+    private final Map<String, Map<String, Double>> addedValues = new LinkedHashMap<>();
+    private final Set<String> removed = new HashSet<>();
+    private final Map<Constraint, Double> thresholds = new IdentityHashMap<>();
+
+    /**
+     * Set the value of a feature for a service (added if the feature had no value for it).
+     */
+    public ProblemDelta setValue(String feature, String service, double value) {
+        values.add(new ValueChange(requireName(feature, "Feature"), requireName(service, "CandidateService"), value));
+        return this;
+    }
+
+    /**
+     * Add a candidate service with its feature values (by feature name).
+     */
+    public ProblemDelta addCandidate(CandidateService service, Map<String, Double> featureValues) {
+        if (service == null) {
+            throw new IllegalArgumentException("Added CandidateService cannot be null.");
+        }
+        String name = requireName(service.getName(), "CandidateService");
+        added.put(name, service);
+        addedValues.put(name, featureValues == null
+                ? Collections.<String, Double>emptyMap() : new LinkedHashMap<>(featureValues));
+        return this;
+    }
+
+    /**
+     * Remove a candidate service, and its feature values, from the CWS.
+     */
+    public ProblemDelta removeCandidate(String service) {
+        removed.add(requireName(service, "CandidateService"));
+        return this;
+    }
+
+    /**
+     * Set the value a GlobalConstraint or LocalConstraint of the problem compares against.
+     */
+    public ProblemDelta setThreshold(Constraint constraint, double value) {
+        if (!(constraint instanceof GlobalConstraint) && !(constraint instanceof LocalConstraint)) {
+            throw new IllegalArgumentException("Only GlobalConstraint and LocalConstraint have a threshold.");
+        }
+        thresholds.put(constraint, value);
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return values.isEmpty() && added.isEmpty() && removed.isEmpty() && thresholds.isEmpty();
+    }
+
+    /**
+     * @return names of the features whose values change
+     */
+    public Set<String> changedFeatures() {
+        Set<String> features = new HashSet<>();
+        for (ValueChange change : values) {
+            features.add(change.feature);
+        }
+        return features;
+    }
+
+    /**
+     * @return names of the services that are added or whose values change
+     */
+    public Set<String> changedServices() {
+        Set<String> services = new HashSet<>(added.keySet());
+        for (ValueChange change : values) {
+            services.add(change.service);
+        }
+        return services;
+    }
+
+    /**
+     * @return names of the removed services
+     */
+    public Set<String> removedServices() {
+        return Collections.unmodifiableSet(removed);
+    }
+
+    /**
+     * @return true if whether the constraint holds for a binding may change: it references a
+     * changed feature or its threshold (or that of one of its conditions) changes
+     */
+    public boolean touches(Constraint constraint) {
+        return touches(constraint, changedFeatures());
+    }
+
+    boolean touches(Constraint constraint, Set<String> features) {
+        if (constraint == null) {
+            return false;
+        }
+        if (thresholds.containsKey(constraint)) {
+            return true;
+        }
+        if (constraint instanceof GlobalConstraint) {
+            return references(((GlobalConstraint) constraint).getInputFeature(), features);
+        } else if (constraint instanceof LocalConstraint) {
+            LocalConstraint lc = (LocalConstraint) constraint;
+            return references(lc.getInputFeature(), features) || references(lc.getOutputFeature(), features);
+        } else if (constraint instanceof ComposeConstraint) {
+            List<Constraint> conditions = ((ComposeConstraint) constraint).getConditions();
+            if (conditions != null) {
+                for (Constraint condition : conditions) {
+                    if (touches(condition, features)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        } else if (constraint instanceof ConditionalConstraint) {
+            ConditionalConstraint cc = (ConditionalConstraint) constraint;
+            return touches(cc.getCondition(), features) || touches(cc.getThen(), features);
+        }
+        // BindingConstraints depend on providers only, which a delta does not change
+        return false;
+    }
+
+    private static boolean references(FeatureConstraint fc, Set<String> features) {
+        return fc != null && references(fc.getFeature(), features);
+    }
+
+    private static boolean references(Feature feature, Set<String> features) {
+        return feature != null && features.contains(feature.getName());
+    }
+
+    /**
+     * Apply the changes to the problem, in place. Every feature, service and constraint the
+     * changes refer to is checked first, so an invalid delta leaves the problem unchanged.
+     *
+     * @throws IllegalArgumentException if a change references a feature, service or constraint
+     *                                  that is not in the problem, or adds a service already there
+     */
+    public void applyTo(QACOProblem problem) {
+        CompositeWebService cws = problem == null ? null : problem.getCompositeWebService();
+        if (cws == null) {
+            throw new IllegalArgumentException("CompositeWebService is missing in QACOProblem.");
+        }
+        List<CandidateService> services = new ArrayList<>(
+                cws.getCandidateServices() == null ? Collections.<CandidateService>emptyList() : cws.getCandidateServices());
+        List<Feature> features = cws.getFeatures() == null ? Collections.<Feature>emptyList() : cws.getFeatures();
+
+        Set<String> missing = new HashSet<>(removed);
+        services.removeIf(service -> missing.remove(service.getName()));
+        if (!missing.isEmpty()) {
+            throw new IllegalArgumentException("Removed CandidateServices are not in the CWS: " + missing);
+        }
+        Map<String, CandidateService> byName = new LinkedHashMap<>();
+        for (CandidateService service : services) {
+            byName.put(service.getName(), service);
+        }
+        for (CandidateService service : added.values()) {
+            if (byName.containsKey(service.getName())) {
+                throw new IllegalArgumentException("Added CandidateService is already in the CWS: " + service.getName());
+            }
+            services.add(service);
+            byName.put(service.getName(), service);
+        }
+        Map<String, Feature> featuresByName = new LinkedHashMap<>();
+        for (Feature feature : features) {
+            featuresByName.put(feature.getName(), feature);
+        }
+        for (Map.Entry<String, Map<String, Double>> entry : addedValues.entrySet()) {
+            for (String feature : entry.getValue().keySet()) {
+                check(featuresByName, byName, feature, entry.getKey());
+            }
+        }
+        for (ValueChange change : values) {
+            check(featuresByName, byName, change.feature, change.service);
+        }
+        if (!thresholds.isEmpty()) {
+            Set<Constraint> found = Collections.newSetFromMap(new IdentityHashMap<Constraint, Boolean>());
+            if (problem.getProblem() != null && problem.getProblem().getConstraints() != null) {
+                for (Constraint constraint : problem.getProblem().getConstraints()) {
+                    collect(constraint, found);
+                }
+            }
+            for (Constraint constraint : thresholds.keySet()) {
+                if (!found.contains(constraint)) {
+                    throw new IllegalArgumentException("Constraint whose threshold changes is not in the Problem.");
+                }
+            }
+        }
+
+        // Nothing below throws: the delta is applied entirely
+        if (!removed.isEmpty()) {
+            for (Feature feature : features) {
+                if (feature.getValues() != null) {
+                    List<FeatureValue> kept = new ArrayList<>(feature.getValues());
+                    kept.removeIf(value -> value.getService() != null && removed.contains(value.getService().getName()));
+                    feature.setValues(kept);
+                }
+            }
+        }
+        cws.setCandidateServices(services);
+
+        QoSStore store = cws.getQosStore();
+        QoSStore.Update storeUpdate = store == null ? null : store.update();
+        for (Map.Entry<String, Map<String, Double>> entry : addedValues.entrySet()) {
+            for (Map.Entry<String, Double> value : entry.getValue().entrySet()) {
+                set(featuresByName, byName, storeUpdate, value.getKey(), entry.getKey(), value.getValue());
+            }
+        }
+        for (ValueChange change : values) {
+            set(featuresByName, byName, storeUpdate, change.feature, change.service, change.value);
+        }
+        for (Map.Entry<Constraint, Double> threshold : thresholds.entrySet()) {
+            if (threshold.getKey() instanceof GlobalConstraint) {
+                ((GlobalConstraint) threshold.getKey()).setValue(threshold.getValue());
+            } else {
+                ((LocalConstraint) threshold.getKey()).setValue(threshold.getValue());
+            }
+        }
+        if (storeUpdate != null && !storeUpdate.isEmpty()) {
+            storeUpdate.commit();
+        }
+    }
+
+    private static void check(Map<String, Feature> features, Map<String, CandidateService> services,
+                              String featureName, String serviceName) {
+        if (!features.containsKey(featureName)) {
+            throw new IllegalArgumentException("Feature is not in the CWS: " + featureName);
+        }
+        if (!services.containsKey(serviceName)) {
+            throw new IllegalArgumentException("CandidateService is not in the CWS: " + serviceName);
+        }
+    }
+
+    /**
+     * Set a value whose feature and service were {@link #check checked}.
+     */
+    private static void set(Map<String, Feature> features, Map<String, CandidateService> services,
+                            QoSStore.Update storeUpdate, String featureName, String serviceName, double value) {
+        if (storeUpdate != null && storeUpdate.holds(featureName, serviceName)) {
+            storeUpdate.set(featureName, serviceName, value);
+            return;
+        }
+        Feature feature = features.get(featureName);
+        List<FeatureValue> featureValues = feature.getValues() == null
+                ? new ArrayList<FeatureValue>() : new ArrayList<>(feature.getValues());
+        for (FeatureValue featureValue : featureValues) {
+            if (featureValue.getService() != null && serviceName.equals(featureValue.getService().getName())) {
+                featureValue.setValue(value);
+                feature.setValues(featureValues);
+                return;
+            }
+        }
+        FeatureValue featureValue = new FeatureValue();
+        featureValue.setService(services.get(serviceName));
+        featureValue.setValue(value);
+        featureValues.add(featureValue);
+        feature.setValues(featureValues);
+    }
+
+    private static void collect(Constraint constraint, Set<Constraint> found) {
+        if (constraint == null || !found.add(constraint)) {
+            return;
+        }
+        if (constraint instanceof ComposeConstraint && ((ComposeConstraint) constraint).getConditions() != null) {
+            for (Constraint condition : ((ComposeConstraint) constraint).getConditions()) {
+                collect(condition, found);
+            }
+        } else if (constraint instanceof ConditionalConstraint) {
+            collect(((ConditionalConstraint) constraint).getCondition(), found);
+            collect(((ConditionalConstraint) constraint).getThen(), found);
+        }
+    }
+
+    private static String requireName(String name, String what) {
+        if (name == null) {
+            throw new IllegalArgumentException(what + " name cannot be null in a ProblemDelta.");
+        }
+        return name;
+    }
+
+    private static final class ValueChange {
+        final String feature;
+        final String service;
+        final double value;
+
+        ValueChange(String feature, String service, double value) {
+            this.feature = feature;
+            this.service = service;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,557 @@
+package com.example.qaco.engine.island;
+
+import com.example.qaco.domain.QACOProblem;
+import com.example.qaco.domain.binding.Binding;
+import com.example.qaco.engine.AbstractQACOEngine;
+import com.example.qaco.engine.CompiledQACOProblem;
+import com.example.qaco.engine.SolveContext;
+import com.example.qaco.engine.SolverConfig;
+import com.example.qaco.engine.ValidationLevel;
+import com.example.qaco.engine.aco.AntColonyEngine;
+import com.example.qaco.engine.constraints.CompiledConstraint;
+import com.example.qaco.engine.constraints.ConstraintCompiler;
+import com.example.qaco.engine.qos.WorkflowAggregator;
+import com.example.qaco.io.QACOJson;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Island-model solving across worker processes: every island runs an engine on the whole problem
+ * in an {@link IslandWorker}, and the islands exchange their best bindings while they search.
+ * <p>
+ * The problem is validated once, by the coordinator, and sent to every island in
+ * {@code QACOJson} form over the binary {@link IslandProtocol}. Each island periodically
+ * ({@code migrationInterval}) sends its best binding when it improved; the coordinator checks and
+ * scores it, publishes it to its own {@link SolveContext} if it beats every binding seen so far,
+ * and migrates it to the other islands, whose engines take it in (see
+ * {@link SolveContext#immigrate}). When the coordinator's context asks to stop, so do the islands.
+ * The result is the single best feasible binding among those migrated and returned by the
+ * islands. An island that fails or cannot be reached is ignored unless every island failed, in
+ * which case the first failure is rethrown as an IllegalStateException.
+ * <p>
+ * Islands connect in the background, so the context is honoured while they do: connecting gives
+ * up after 10 s, and so does an island that does not answer the handshake. A solve stopped before
+ * any island returned a binding returns nothing, whatever the failures.
+ * <p>
+ * Workers are either given, as {@code workers} ({@code host:port} list, comma-separated), e.g.
+ * one per node of a cluster, or started by the engine as {@code processes} local JVMs (2 by
+ * default) listening on the loopback interface only, with the classpath of the current JVM. Local
+ * workers are started on first use (each given 30 s to start listening), kept for the following
+ * solves and stopped by {@link #close()} (or when this JVM exits).
+ * <p>
+ * Configuration (extraConfig, see {@link SolverConfig}): {@code islandEngine} (the class name of
+ * an {@link AbstractQACOEngine} with a public no-argument constructor, AntColonyEngine by
+ * default), {@code migrationInterval} (100 ms), {@code workers} and {@code processes}. The other
+ * entries are passed to every island, as strings; island {@code i} gets {@code seed + i} as its
+ * seed, and {@code maxEvaluations} applies to each island.
+ */
+public class IslandEngine extends AbstractQACOEngine implements AutoCloseable {
+
+    public static final String WORKERS = "workers";
+    public static final String PROCESSES = "processes";
+    public static final String ISLAND_ENGINE = "islandEngine";
+    public static final String MIGRATION_INTERVAL = "migrationInterval";
+    public static final String SEED = "seed";
+
+    static final long DEFAULT_MIGRATION_INTERVAL = 100L;
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 10_000;
+    private static final long STOP_POLL_MILLIS = 20L;
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private static final ExecutorService READERS = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "qaco-island-" + THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final List<LocalWorker> localWorkers = new ArrayList<>();
+    private Thread shutdownHook;
+
+    @Override
+    protected Optional<List<Binding>> doSolve(QACOProblem problem, Optional<Object> extraConfig) {
+        SolverConfig config = SolverConfig.from(extraConfig);
+        SolveContext context = SolveContext.current();
+        List<InetSocketAddress> workers = config.has(WORKERS)
+                ? parseWorkers(config.getString(WORKERS, ""))
+                : localWorkers(config.getPositiveInt(PROCESSES, 2), context);
+        if (workers == null) {
+            return Optional.empty();
+        }
+        String engine = config.getString(ISLAND_ENGINE, AntColonyEngine.class.getName());
+        String json;
+        try {
+            StringWriter writer = new StringWriter();
+            QACOJson.writeProblem(problem, writer);
+            json = writer.toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        Archipelago archipelago = new Archipelago(problem, context, workers.size());
+        try {
+            for (int i = 0; i < workers.size(); i++) {
+                archipelago.connect(i, workers.get(i), engine, islandConfig(config, i), json);
+            }
+            archipelago.await();
+        } finally {
+            archipelago.close();
+        }
+        return archipelago.result();
+    }
+
+    /**
+     * The solver config of island {@code i}: the problem is already validated, and the island
+     * settings are the coordinator's.
+     */
+    private static Map<String, String> islandConfig(SolverConfig config, int island) {
+        Map<String, String> values = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> entry : config.asMap().entrySet()) {
+            if (entry.getValue() != null && !WORKERS.equals(entry.getKey()) && !PROCESSES.equals(entry.getKey())
+                    && !ISLAND_ENGINE.equals(entry.getKey())) {
+                values.put(entry.getKey(), entry.getValue().toString());
+            }
+        }
+        values.put(ValidationLevel.CONFIG_KEY, ValidationLevel.TRUSTED.name());
+        if (config.has(SEED)) {
+            values.put(SEED, Long.toString(config.getLong(SEED, 0L) + island));
+        }
+        return values;
+    }
+
+    /**
+     * @throws IllegalArgumentException if an address is not {@code host:port}
+     */
+    static List<InetSocketAddress> parseWorkers(String workers) {
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (String worker : workers.split(",")) {
+            String trimmed = worker.trim();
+            int colon = trimmed.lastIndexOf(':');
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            if (colon <= 0 || colon == trimmed.length() - 1) {
+                throw new IllegalArgumentException("Island worker must be host:port: " + trimmed);
+            }
+            try {
+                addresses.add(InetSocketAddress.createUnresolved(trimmed.substring(0, colon),
+                        Integer.parseInt(trimmed.substring(colon + 1))));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Island worker must be host:port: " + trimmed, e);
+            }
+        }
+        if (addresses.isEmpty()) {
+            throw new IllegalArgumentException("Solver config '" + WORKERS + "' lists no worker.");
+        }
+        return addresses;
+    }
+
+    /**
+     * @return the addresses of {@code count} local workers, starting the missing ones, or null if
+     * the context asked to stop before they were all started
+     */
+    private synchronized List<InetSocketAddress> localWorkers(int count, SolveContext context) {
+        localWorkers.removeIf(worker -> !worker.process.isAlive());
+        try {
+            while (localWorkers.size() < count) {
+                LocalWorker worker = LocalWorker.start(context);
+                if (worker == null) {
+                    return null;
+                }
+                localWorkers.add(worker);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot start a local island worker.", e);
+        }
+        if (shutdownHook == null) {
+            shutdownHook = new Thread(this::close, "qaco-island-shutdown");
+            Runtime.getRuntime().addShutdownHook(shutdownHook);
+        }
+        List<InetSocketAddress> addresses = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            addresses.add(localWorkers.get(i).address);
+        }
+        return addresses;
+    }
+
+    /**
+     * @return the number of local worker processes running
+     */
+    public synchronized int getLocalWorkerCount() {
+        int count = 0;
+        for (LocalWorker worker : localWorkers) {
+            if (worker.process.isAlive()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Stop the local worker processes; the next solve that needs them starts new ones.
+     */
+    @Override
+    public synchronized void close() {
+        for (LocalWorker worker : localWorkers) {
+            worker.process.destroy();
+        }
+        localWorkers.clear();
+        if (shutdownHook != null && Thread.currentThread() != shutdownHook) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // already shutting down
+            }
+        }
+        shutdownHook = null;
+    }
+
+    /**
+     * An {@link IslandWorker} process started by this engine.
+     */
+    private static final class LocalWorker {
+        static final long START_TIMEOUT_MILLIS = 30_000L;
+
+        final Process process;
+        final InetSocketAddress address;
+
+        private LocalWorker(Process process, InetSocketAddress address) {
+            this.process = process;
+            this.address = address;
+        }
+
+        /**
+         * Start a worker and wait, at most {@link #START_TIMEOUT_MILLIS}, for it to listen.
+         *
+         * @return the worker, or null if the context asked to stop first
+         * @throws IOException if the worker failed or did not start in time
+         */
+        static LocalWorker start(SolveContext context) throws IOException {
+            String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+            Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                    IslandWorker.class.getName(), "0", "--parent")
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start();
+            BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+            Future<String> ready = READERS.submit(out::readLine);
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(START_TIMEOUT_MILLIS);
+            String line;
+            try {
+                while (true) {
+                    try {
+                        line = ready.get(STOP_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                        break;
+                    } catch (TimeoutException e) {
+                        if (context.isStopRequested()) {
+                            process.destroy();
+                            return null;
+                        }
+                        if (System.nanoTime() - deadline >= 0) {
+                            process.destroy();
+                            throw new IOException("Island worker did not start within " + START_TIMEOUT_MILLIS + " ms.");
+                        }
+                    }
+                }
+            } catch (ExecutionException e) {
+                process.destroy();
+                throw new IOException("Island worker did not start.", e.getCause());
+            } catch (InterruptedException e) {
+                process.destroy();
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Island solve was interrupted.");
+            }
+            if (line == null || !line.startsWith(IslandWorker.READY)) {
+                process.destroy();
+                throw new IOException("Island worker did not start: " + line);
+            }
+            int port = Integer.parseInt(line.substring(IslandWorker.READY.length()).trim());
+            return new LocalWorker(process, new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        }
+    }
+
+    /**
+     * The islands of one solve, and the best binding they found.
+     */
+    private static final class Archipelago {
+        private final SolveContext context;
+        private final CompiledQACOProblem compiled;
+        private final WorkflowAggregator aggregator;
+        private final CompiledConstraint constraint;
+        private final Link[] links;
+        private final CountDownLatch done;
+
+        private int[] best;
+        private double bestScore = Double.POSITIVE_INFINITY;
+        private RuntimeException failure;
+        // Set once the islands were asked to stop; the failures that follow are expected
+        private volatile boolean stopped;
+
+        Archipelago(QACOProblem problem, SolveContext context, int islands) {
+            this.context = context;
+            this.compiled = CompiledQACOProblem.compile(problem);
+            this.aggregator = WorkflowAggregator.of(compiled);
+            this.constraint = ConstraintCompiler.compile(compiled, aggregator);
+            this.links = new Link[islands];
+            this.done = new CountDownLatch(islands);
+        }
+
+        /**
+         * Connect to an island and solve there, in a reader thread, so the coordinator can
+         * {@link #await()} (and stop) islands that are still connecting.
+         */
+        void connect(int island, InetSocketAddress address, String engine, Map<String, String> config, String json) {
+            Link link = new Link(this, island, address);
+            links[island] = link;
+            READERS.execute(() -> link.run(engine, config, json));
+        }
+
+        void await() {
+            try {
+                while (!done.await(STOP_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    if (!stopped && context.isStopRequested()) {
+                        stopped = true;
+                        for (Link link : links) {
+                            if (link.opened) {
+                                link.stop();
+                            } else {
+                                // still connecting or waiting for the handshake
+                                link.close();
+                            }
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Island solve was interrupted.");
+            }
+        }
+
+        /**
+         * Score a binding an island sent; if it is the best so far, publish it and migrate it to
+         * the other islands.
+         */
+        void offer(int from, int[] assignment) {
+            if (assignment.length != compiled.taskCount()) {
+                return;
+            }
+            for (int service : assignment) {
+                if (service < 0 || service >= compiled.serviceCount()) {
+                    return;
+                }
+            }
+            if (!constraint.test(assignment)) {
+                return;
+            }
+            double score = aggregator.score(assignment);
+            synchronized (this) {
+                if (score >= bestScore) {
+                    return;
+                }
+                best = assignment;
+                bestScore = score;
+            }
+            context.publish(compiled.toBinding(assignment.clone()), score);
+            for (int i = 0; i < links.length; i++) {
+                Link link = links[i];
+                if (i != from && link != null) {
+                    link.migrate(score, assignment);
+                }
+            }
+        }
+
+        synchronized void failed(RuntimeException error) {
+            if (failure == null) {
+                failure = error;
+            }
+        }
+
+        void finished() {
+            done.countDown();
+        }
+
+        void close() {
+            for (Link link : links) {
+                if (link != null) {
+                    link.close();
+                }
+            }
+        }
+
+        boolean isStopped() {
+            return stopped;
+        }
+
+        synchronized Optional<List<Binding>> result() {
+            if (best == null && failure != null && !stopped) {
+                throw failure;
+            }
+            return best == null
+                    ? Optional.<List<Binding>>empty()
+                    : Optional.of(Collections.singletonList(compiled.toBinding(best)));
+        }
+    }
+
+    /**
+     * The connection to one island.
+     */
+    private static final class Link {
+        private final Archipelago archipelago;
+        private final int island;
+        private final InetSocketAddress address;
+        // Created up front so that close() also aborts a connect or handshake in progress
+        private final Socket socket = new Socket();
+        private DataInputStream in;
+        private DataOutputStream out;
+        // Set once the island answered the handshake; in and out are usable from then on
+        volatile boolean opened;
+
+        Link(Archipelago archipelago, int island, InetSocketAddress address) {
+            this.archipelago = archipelago;
+            this.island = island;
+            this.address = address;
+        }
+
+        void run(String engine, Map<String, String> config, String json) {
+            try {
+                open(engine, config, json);
+            } catch (IOException | RuntimeException e) {
+                if (!archipelago.isStopped()) {
+                    archipelago.failed(new IllegalStateException("Island worker " + address + " is unreachable: " + e, e));
+                }
+                close();
+                archipelago.finished();
+                return;
+            }
+            opened = true;
+            if (archipelago.isStopped()) {
+                stop();
+            }
+            read();
+        }
+
+        private void open(String engine, Map<String, String> config, String json) throws IOException {
+            InetSocketAddress resolved = address.isUnresolved()
+                    ? new InetSocketAddress(address.getHostString(), address.getPort()) : address;
+            socket.connect(resolved, CONNECT_TIMEOUT_MILLIS);
+            socket.setTcpNoDelay(true);
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            synchronized (out) {
+                IslandProtocol.writeHello(out);
+                out.writeByte(IslandProtocol.SOLVE);
+                IslandProtocol.writeString(out, engine);
+                IslandProtocol.writeVarInt(out, config.size());
+                for (Map.Entry<String, String> entry : config.entrySet()) {
+                    IslandProtocol.writeString(out, entry.getKey());
+                    IslandProtocol.writeString(out, entry.getValue());
+                }
+                IslandProtocol.writeString(out, json);
+                out.flush();
+            }
+            // A worker that accepts the connection but never answers must not hang the solve
+            socket.setSoTimeout(IslandWorker.HANDSHAKE_TIMEOUT_MILLIS);
+            IslandProtocol.readHello(in);
+            socket.setSoTimeout(0);
+        }
+
+        private void read() {
+            try {
+                while (true) {
+                    int type = in.read();
+                    if (type < 0) {
+                        throw new IOException("Connection closed.");
+                    }
+                    switch (type) {
+                        case IslandProtocol.BEST:
+                            in.readDouble(); // the coordinator scores bindings itself
+                            archipelago.offer(island, IslandProtocol.readAssignment(in, archipelago.compiled.taskCount()));
+                            break;
+                        case IslandProtocol.RESULT:
+                            int count = IslandProtocol.readVarInt(in);
+                            for (int b = 0; b < count; b++) {
+                                archipelago.offer(island, IslandProtocol.readAssignment(in, archipelago.compiled.taskCount()));
+                            }
+                            return;
+                        case IslandProtocol.ERROR:
+                            archipelago.failed(new IllegalStateException("Island " + address + " failed: "
+                                    + IslandProtocol.readString(in, IslandProtocol.MAX_STRING_LENGTH)));
+                            return;
+                        default:
+                            throw new IOException("Unknown QACO island message: " + type);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                archipelago.failed(new IllegalStateException("Island " + address + " was lost: " + e, e));
+            } finally {
+                archipelago.finished();
+            }
+        }
+
+        void migrate(double score, int[] assignment) {
+            if (!opened) {
+                return;
+            }
+            try {
+                synchronized (out) {
+                    out.writeByte(IslandProtocol.MIGRANT);
+                    out.writeDouble(score);
+                    IslandProtocol.writeAssignment(out, assignment);
+                    out.flush();
+                }
+            } catch (IOException e) {
+                // the reader reports the lost island
+            }
+        }
+
+        void stop() {
+            if (!opened) {
+                return;
+            }
+            try {
+                synchronized (out) {
+                    out.writeByte(IslandProtocol.STOP);
+                    out.flush();
+                }
+            } catch (IOException e) {
+                // the reader reports the lost island
+            }
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // nothing to do
+            }
+        }
+    }
+}
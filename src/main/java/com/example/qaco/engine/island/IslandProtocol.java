@@ -0,0 +1,148 @@
+package com.example.qaco.engine.island;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * The binary protocol between an {@link IslandEngine} (the coordinator) and an {@link IslandWorker}.
+ * <p>
+ * Both ends first send {@link #MAGIC} and {@link #VERSION} as two ints. Every message is then a
+ * type byte followed by its fields; counts, lengths and service ids are unsigned LEB128 varints,
+ * strings are UTF-8 bytes preceded by their length, and an assignment is its length followed by
+ * {@code service id + 1} per task (0 for an unbound task). Ids are those of the problem compiled
+ * on either side, which agree since the problem is sent in {@code QACOJson} form. A reader bounds
+ * every string and assignment length before allocating it: names, config values and messages by
+ * {@link #MAX_STRING_LENGTH}, the problem JSON by {@link #MAX_PROBLEM_LENGTH} and assignments by
+ * the task count of the problem.
+ * <pre>
+ * coordinator -> worker
+ *   SOLVE    engine class name, config entry count, (key, value)*, problem JSON
+ *   MIGRANT  score (double), assignment
+ *   STOP
+ * worker -> coordinator
+ *   BEST     score (double), assignment
+ *   RESULT   binding count, assignment*
+ *   ERROR    message
+ * </pre>
+ */
+final class IslandProtocol {
+
+    static final int MAGIC = 0x5141434F; // "QACO"
+    static final int VERSION = 1;
+
+    static final int SOLVE = 1;
+    static final int MIGRANT = 2;
+    static final int STOP = 3;
+
+    static final int BEST = 16;
+    static final int RESULT = 17;
+    static final int ERROR = 18;
+
+    /**
+     * The longest engine class name, config key or value, or error message, in bytes.
+     */
+    static final int MAX_STRING_LENGTH = 1 << 16;
+
+    /**
+     * The longest problem JSON, in bytes.
+     */
+    static final int MAX_PROBLEM_LENGTH = 1 << 28;
+
+    // Strings are read in chunks of at most this size, so a length is only backed by memory once
+    // the bytes actually arrive
+    private static final int CHUNK = 1 << 16;
+
+    private IslandProtocol() {
+    }
+
+    static void writeHello(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.flush();
+    }
+
+    /**
+     * @throws IOException if the peer does not speak this protocol version
+     */
+    static void readHello(DataInputStream in) throws IOException {
+        int magic = in.readInt();
+        int version = in.readInt();
+        if (magic != MAGIC) {
+            throw new IOException("Peer is not a QACO island.");
+        }
+        if (version != VERSION) {
+            throw new IOException("Unsupported QACO island protocol version: " + version);
+        }
+    }
+
+    static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint.");
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * @throws IOException if the string is longer than {@code maxLength} bytes
+     */
+    static String readString(DataInputStream in, int maxLength) throws IOException {
+        int length = readVarInt(in);
+        if (length < 0 || length > maxLength) {
+            throw new IOException("Malformed string length: " + length);
+        }
+        byte[] bytes = new byte[Math.min(length, CHUNK)];
+        for (int read = 0; read < length; ) {
+            if (read == bytes.length) {
+                bytes = Arrays.copyOf(bytes, (int) Math.min(length, 2L * bytes.length));
+            }
+            int chunk = Math.min(bytes.length - read, CHUNK);
+            in.readFully(bytes, read, chunk);
+            read += chunk;
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeAssignment(DataOutputStream out, int[] assignment) throws IOException {
+        writeVarInt(out, assignment.length);
+        for (int service : assignment) {
+            writeVarInt(out, service + 1);
+        }
+    }
+
+    /**
+     * @throws IOException if the assignment has more than {@code maxLength} tasks
+     */
+    static int[] readAssignment(DataInputStream in, int maxLength) throws IOException {
+        int length = readVarInt(in);
+        if (length < 0 || length > maxLength) {
+            throw new IOException("Malformed assignment length: " + length);
+        }
+        int[] assignment = new int[length];
+        for (int t = 0; t < length; t++) {
+            assignment[t] = readVarInt(in) - 1;
+        }
+        return assignment;
+    }
+}
@@ -0,0 +1,398 @@
+package com.example.qaco.engine.island;
+
+import com.example.qaco.domain.QACOProblem;
+import com.example.qaco.domain.binding.Binding;
+import com.example.qaco.engine.AbstractQACOEngine;
+import com.example.qaco.engine.CompiledQACOProblem;
+import com.example.qaco.engine.SolveContext;
+import com.example.qaco.engine.SolverConfig;
+import com.example.qaco.io.QACOJson;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A worker process running the islands of {@link IslandEngine}s.
+ * <p>
+ * The worker listens on a TCP port; every connection is a coordinator session that can run one
+ * island at a time. An island instantiates the requested {@link AbstractQACOEngine} (by class
+ * name, with a public no-argument constructor) and solves the problem under a {@link SolveContext}
+ * that shares its incumbent and accepts immigrants. Every {@code migrationInterval} milliseconds
+ * the island sends its best binding to the coordinator if it improved, and the bindings the
+ * coordinator migrates from other islands are handed to the engine through
+ * {@link SolveContext#immigrate}. When the engine returns, its bindings are sent back.
+ * <p>
+ * Run it as {@code java -cp <classpath> com.example.qaco.engine.island.IslandWorker [port]
+ * [--bind address] [--parent]}: port 0 (the default) picks a free one. The worker listens on the
+ * loopback interface unless {@code --bind} names another address, e.g. {@code 0.0.0.0} for a
+ * worker serving coordinators on other nodes. Sessions are not authenticated and instantiate the
+ * engine class they name, so a worker must only be reachable from trusted hosts. Once listening,
+ * the worker prints {@value #READY} followed by its port on standard output. With
+ * {@code --parent} it exits when its standard input is closed, i.e. when the process that
+ * started it dies.
+ */
+public final class IslandWorker implements Closeable {
+
+    /**
+     * Printed on standard output, followed by the port, once the worker listens.
+     */
+    public static final String READY = "QACO island worker listening on ";
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private static final ExecutorService THREADS = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "qaco-island-worker-" + THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final ScheduledExecutorService MIGRATION = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "qaco-island-migration");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * How long a coordinator has to complete the protocol handshake.
+     */
+    static final int HANDSHAKE_TIMEOUT_MILLIS = 10_000;
+
+    private final ServerSocket server;
+
+    /**
+     * Listen on the loopback interface.
+     *
+     * @param port the port to listen on, 0 for any free one
+     */
+    public IslandWorker(int port) throws IOException {
+        this(InetAddress.getLoopbackAddress(), port);
+    }
+
+    /**
+     * @param address the address to listen on, e.g. the wildcard address for every interface
+     * @param port    the port to listen on, 0 for any free one
+     */
+    public IslandWorker(InetAddress address, int port) throws IOException {
+        this.server = new ServerSocket(port, 0, address);
+    }
+
+    public InetAddress getAddress() {
+        return server.getInetAddress();
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Accept coordinator sessions in the background until {@link #close()}.
+     */
+    public IslandWorker start() {
+        THREADS.execute(this::serve);
+        return this;
+    }
+
+    private void serve() {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                THREADS.execute(() -> new Session(socket).run());
+            } catch (IOException e) {
+                if (!server.isClosed()) {
+                    System.err.println("QACO island worker: " + e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = 0;
+        InetAddress address = InetAddress.getLoopbackAddress();
+        boolean parent = false;
+        for (int i = 0; i < args.length; i++) {
+            if ("--parent".equals(args[i])) {
+                parent = true;
+            } else if ("--bind".equals(args[i])) {
+                if (++i == args.length) {
+                    throw new IllegalArgumentException("--bind needs an address.");
+                }
+                address = InetAddress.getByName(args[i]);
+            } else {
+                port = Integer.parseInt(args[i]);
+            }
+        }
+        IslandWorker worker = new IslandWorker(address, port).start();
+        System.out.println(READY + worker.getPort());
+        System.out.flush();
+        if (parent) {
+            // Exit with the process that started us: it holds our standard input
+            while (System.in.read() >= 0) {
+                // ignore input
+            }
+            System.exit(0);
+        }
+        try {
+            Thread.currentThread().join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * One coordinator connection.
+     */
+    private static final class Session {
+        private final Socket socket;
+        private DataOutputStream out;
+        private volatile Island island;
+        // The task count of the last problem solved, which bounds the migrants
+        private int taskCount;
+
+        Session(Socket socket) {
+            this.socket = socket;
+        }
+
+        void run() {
+            try {
+                socket.setTcpNoDelay(true);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                synchronized (out) {
+                    IslandProtocol.writeHello(out);
+                }
+                socket.setSoTimeout(HANDSHAKE_TIMEOUT_MILLIS);
+                IslandProtocol.readHello(in);
+                socket.setSoTimeout(0);
+                for (int type = in.read(); type >= 0; type = in.read()) {
+                    switch (type) {
+                        case IslandProtocol.SOLVE:
+                            solve(in);
+                            break;
+                        case IslandProtocol.MIGRANT:
+                            double score = in.readDouble();
+                            int[] assignment = IslandProtocol.readAssignment(in, taskCount);
+                            Island current = island;
+                            if (current != null) {
+                                current.immigrate(assignment, score);
+                            }
+                            break;
+                        case IslandProtocol.STOP:
+                            Island stopped = island;
+                            if (stopped != null) {
+                                stopped.context.cancel();
+                            }
+                            break;
+                        default:
+                            throw new IOException("Unknown QACO island message: " + type);
+                    }
+                }
+            } catch (EOFException | SocketException | SocketTimeoutException e) {
+                // coordinator gone, or not one
+            } catch (IOException e) {
+                System.err.println("QACO island worker: " + e);
+            } finally {
+                Island current = island;
+                if (current != null) {
+                    current.context.cancel();
+                }
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    // already gone
+                }
+            }
+        }
+
+        private void solve(DataInputStream in) throws IOException {
+            String engineClass = IslandProtocol.readString(in, IslandProtocol.MAX_STRING_LENGTH);
+            int entries = IslandProtocol.readVarInt(in);
+            Map<String, Object> config = new LinkedHashMap<>();
+            for (int i = 0; i < entries; i++) {
+                config.put(IslandProtocol.readString(in, IslandProtocol.MAX_STRING_LENGTH),
+                        IslandProtocol.readString(in, IslandProtocol.MAX_STRING_LENGTH));
+            }
+            String json = IslandProtocol.readString(in, IslandProtocol.MAX_PROBLEM_LENGTH);
+            if (island != null) {
+                error("An island is already running on this connection.");
+                return;
+            }
+            Island next;
+            try {
+                // Not initialized, so no static initializer runs unless the class is an engine
+                Class<?> type = Class.forName(engineClass, false, IslandWorker.class.getClassLoader());
+                if (!AbstractQACOEngine.class.isAssignableFrom(type)) {
+                    error("Cannot start island " + engineClass + ": not an " + AbstractQACOEngine.class.getSimpleName());
+                    return;
+                }
+                AbstractQACOEngine engine = type.asSubclass(AbstractQACOEngine.class).getDeclaredConstructor().newInstance();
+                next = new Island(this, engine, QACOJson.readProblem(new StringReader(json)), SolverConfig.of(config));
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                error("Cannot start island " + engineClass + ": " + e);
+                return;
+            }
+            island = next;
+            taskCount = next.compiled.taskCount();
+            THREADS.execute(next::run);
+        }
+
+        void send(int type, double score, int[] assignment) throws IOException {
+            synchronized (out) {
+                out.writeByte(type);
+                out.writeDouble(score);
+                IslandProtocol.writeAssignment(out, assignment);
+                out.flush();
+            }
+        }
+
+        void result(List<int[]> assignments) throws IOException {
+            synchronized (out) {
+                out.writeByte(IslandProtocol.RESULT);
+                IslandProtocol.writeVarInt(out, assignments.size());
+                for (int[] assignment : assignments) {
+                    IslandProtocol.writeAssignment(out, assignment);
+                }
+                out.flush();
+            }
+        }
+
+        void error(String message) throws IOException {
+            synchronized (out) {
+                out.writeByte(IslandProtocol.ERROR);
+                IslandProtocol.writeString(out, message == null ? "" : message);
+                out.flush();
+            }
+        }
+
+        void finished(Island finished) {
+            if (island == finished) {
+                island = null;
+            }
+        }
+    }
+
+    /**
+     * One engine solving the problem, sending its improving bindings to the coordinator.
+     */
+    private static final class Island {
+        private final Session session;
+        private final AbstractQACOEngine engine;
+        private final QACOProblem problem;
+        private final SolverConfig config;
+        private final CompiledQACOProblem compiled;
+        private final SolveContext context;
+        private final long interval;
+
+        private int[] best;
+        private double bestScore = Double.POSITIVE_INFINITY;
+        private boolean sent = true;
+
+        Island(Session session, AbstractQACOEngine engine, QACOProblem problem, SolverConfig config) {
+            this.session = session;
+            this.engine = engine;
+            this.problem = problem;
+            this.config = config;
+            this.compiled = CompiledQACOProblem.compile(problem);
+            this.interval = Math.max(1L, config.getLong(IslandEngine.MIGRATION_INTERVAL, IslandEngine.DEFAULT_MIGRATION_INTERVAL));
+            this.context = new SolveContext().shareIncumbent().acceptImmigrants()
+                    .withListener((binding, score, source) -> offer(binding, score));
+        }
+
+        private synchronized void offer(Binding binding, double score) {
+            if (score < bestScore) {
+                best = compiled.toAssignment(binding);
+                bestScore = score;
+                sent = false;
+            }
+        }
+
+        void immigrate(int[] assignment, double score) {
+            if (assignment.length != compiled.taskCount()) {
+                return;
+            }
+            synchronized (this) {
+                if (score < bestScore) {
+                    // Already known to the coordinator
+                    best = assignment;
+                    bestScore = score;
+                    sent = true;
+                }
+            }
+            context.immigrate(compiled.toBinding(assignment), score);
+        }
+
+        /**
+         * Send the best binding if it improved since it was last sent.
+         */
+        void migrate() {
+            int[] assignment;
+            double score;
+            synchronized (this) {
+                if (sent) {
+                    return;
+                }
+                assignment = best;
+                score = bestScore;
+                sent = true;
+            }
+            try {
+                session.send(IslandProtocol.BEST, score, assignment);
+            } catch (IOException e) {
+                context.cancel();
+            }
+        }
+
+        void run() {
+            ScheduledFuture<?> migration = MIGRATION.scheduleWithFixedDelay(this::migrate, interval, interval,
+                    TimeUnit.MILLISECONDS);
+            try {
+                Optional<List<Binding>> result = context.call(() -> engine.solve(problem, Optional.<Object>of(config)));
+                migration.cancel(false);
+                migrate();
+                List<int[]> assignments = new ArrayList<>();
+                for (Binding binding : result.orElse(Collections.<Binding>emptyList())) {
+                    assignments.add(compiled.toAssignment(binding));
+                }
+                session.finished(this);
+                session.result(assignments);
+            } catch (RuntimeException e) {
+                migration.cancel(false);
+                session.finished(this);
+                try {
+                    session.error(e.toString());
+                } catch (IOException ignored) {
+                    // coordinator gone
+                }
+            } catch (IOException e) {
+                // coordinator gone
+            }
+        }
+    }
+}
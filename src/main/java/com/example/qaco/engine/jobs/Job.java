@@ -0,0 +1,169 @@
+package com.example.qaco.engine.jobs;
+
+import com.example.qaco.engine.SolveContext;
+
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * An asynchronous solve or binding space request run by a {@link JobManager}.
+ * <p>
+ * A job goes from PENDING to RUNNING to COMPLETED or FAILED. The engine runs under the job's
+ * {@link SolveContext}, which it polls: cancelling the job or reaching its deadline asks the engine
+ * to stop. A cancelled job is FAILED and its result is dropped; a job stopped by its deadline
+ * completes with the best result the engine had. Thread-safe.
+ *
+ * @param <T> the type of the result
+ */
+public final class Job<T> {
+
+    /**
+     * What the job computes.
+     */
+    public enum Kind {
+        SOLVE,
+        BINDING_SPACE
+    }
+
+    private final String id;
+    private final Kind kind;
+    private final Supplier<T> work;
+    private final SolveContext context;
+    private final Consumer<Job<?>> onDone;
+    private final CountDownLatch done = new CountDownLatch(1);
+    // What the manager queues, so that a job cancelled while pending can leave the queue
+    final Runnable task = this::run;
+
+    private JobStatus.State state = JobStatus.State.PENDING;
+    private String message;
+    private T result;
+    private long finishedAt;
+
+    Job(String id, Kind kind, Supplier<T> work, SolveContext context, Consumer<Job<?>> onDone) {
+        this.id = id;
+        this.kind = kind;
+        this.work = work;
+        this.context = context;
+        this.onDone = onDone;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public synchronized JobStatus.State getState() {
+        return state;
+    }
+
+    /**
+     * @return fraction of the work done, 1 once COMPLETED
+     */
+    public synchronized double getProgress() {
+        return state == JobStatus.State.COMPLETED ? 1.0 : context.getProgress();
+    }
+
+    public synchronized JobStatus getStatus() {
+        return new JobStatus(id, state, message, getProgress());
+    }
+
+    /**
+     * @return the result once the job is COMPLETED, empty otherwise
+     */
+    public synchronized Optional<T> getResult() {
+        return state == JobStatus.State.COMPLETED ? Optional.ofNullable(result) : Optional.empty();
+    }
+
+    public synchronized boolean isDone() {
+        return state == JobStatus.State.COMPLETED || state == JobStatus.State.FAILED;
+    }
+
+    /**
+     * Wait until the job is COMPLETED or FAILED.
+     *
+     * @return true if it is, false if the timeout elapsed first
+     */
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        return done.await(timeout, unit);
+    }
+
+    /**
+     * Cancel the job: a PENDING job fails at once, a RUNNING one as soon as the engine stops.
+     *
+     * @return false if the job was already done
+     */
+    public boolean cancel() {
+        context.cancel();
+        synchronized (this) {
+            if (state == JobStatus.State.PENDING) {
+                finish(JobStatus.State.FAILED, "Job was cancelled.", null);
+                return true;
+            }
+            return state == JobStatus.State.RUNNING;
+        }
+    }
+
+    /**
+     * Run the job on the calling thread; does nothing if it is no longer PENDING.
+     */
+    void run() {
+        synchronized (this) {
+            if (state != JobStatus.State.PENDING) {
+                return;
+            }
+            if (context.isDeadlineReached()) {
+                finish(JobStatus.State.FAILED, "Deadline exceeded before the job started.", null);
+                return;
+            }
+            state = JobStatus.State.RUNNING;
+        }
+        try {
+            T value = context.call(work);
+            synchronized (this) {
+                if (context.isCancelled()) {
+                    finish(JobStatus.State.FAILED, "Job was cancelled.", null);
+                } else if (context.isDeadlineReached()) {
+                    finish(JobStatus.State.COMPLETED, "Deadline reached; the result is the best found in time.", value);
+                } else {
+                    finish(JobStatus.State.COMPLETED, null, value);
+                }
+            }
+        } catch (CancellationException e) {
+            fail(context.isCancelled() ? "Job was cancelled." : "Deadline exceeded.");
+        } catch (RuntimeException | Error e) {
+            fail(e.getMessage() == null ? e.getClass().getName() : e.getMessage());
+        }
+    }
+
+    /**
+     * Fail the job unless it is already done (e.g. when its manager is closed).
+     */
+    synchronized void fail(String reason) {
+        if (!isDone()) {
+            finish(JobStatus.State.FAILED, reason, null);
+        }
+    }
+
+    /**
+     * @return {@link System#nanoTime()} when the job finished
+     */
+    synchronized long getFinishedAt() {
+        return finishedAt;
+    }
+
+    private void finish(JobStatus.State state, String message, T result) {
+        this.state = state;
+        this.message = message;
+        this.result = result;
+        this.finishedAt = System.nanoTime();
+        done.countDown();
+        onDone.accept(this);
+    }
+}
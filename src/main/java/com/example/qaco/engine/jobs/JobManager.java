@@ -0,0 +1,244 @@
+package com.example.qaco.engine.jobs;
+
+import com.example.qaco.domain.QACOProblem;
+import com.example.qaco.domain.binding.Binding;
+import com.example.qaco.domain.binding.BindingSpace;
+import com.example.qaco.domain.cws.CompositeWebService;
+import com.example.qaco.engine.ProblemValidator;
+import com.example.qaco.engine.QACOEngineInterface;
+import com.example.qaco.engine.SolveContext;
+import com.example.qaco.engine.ValidationLevel;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs solve and binding space requests of any {@link QACOEngineInterface} asynchronously, as the
+ * {@code /qaco/solve} and {@code /qaco/bindingSpace} operations of the OpenAPI contract: submitting
+ * validates the input synchronously and returns a {@link Job} whose id can be looked up later.
+ * <p>
+ * Jobs run on a fixed number of workers fed by a bounded queue; when the queue is full, submitting
+ * fails fast with a RejectedExecutionException instead of queueing without limit. Each job may have
+ * a deadline, and can be cancelled; both are cooperative (see {@link SolveContext}). Finished jobs
+ * are kept for a retention period, and at most {@code maxRetained} of them, then forgotten.
+ * Thread-safe.
+ */
+public class JobManager implements AutoCloseable {
+
+    public static final int DEFAULT_WORKERS = 2;
+    public static final int DEFAULT_QUEUE_CAPACITY = 64;
+    public static final long DEFAULT_RETENTION_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    public static final int DEFAULT_MAX_RETAINED = 1024;
+
+    private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+
+    private final QACOEngineInterface engine;
+    private final ProblemValidator validator = ProblemValidator.shared();
+    private final ThreadPoolExecutor executor;
+    private final int queueCapacity;
+    private final long retentionNanos;
+    private final int maxRetained;
+
+    private final Map<String, Job<?>> jobs = new ConcurrentHashMap<>();
+    // Finished jobs, oldest first
+    private final Queue<Job<?>> finished = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger finishedCount = new AtomicInteger();
+
+    public JobManager(QACOEngineInterface engine) {
+        this(engine, DEFAULT_WORKERS, DEFAULT_QUEUE_CAPACITY, DEFAULT_RETENTION_MILLIS, DEFAULT_MAX_RETAINED);
+    }
+
+    /**
+     * @param engine          the engine solving the jobs
+     * @param workers         how many jobs run at the same time
+     * @param queueCapacity   how many jobs may wait for a worker
+     * @param retentionMillis how long a finished job can still be looked up
+     * @param maxRetained     how many finished jobs are kept at most
+     */
+    public JobManager(QACOEngineInterface engine, int workers, int queueCapacity, long retentionMillis, int maxRetained) {
+        if (engine == null) {
+            throw new IllegalArgumentException("JobManager needs an engine.");
+        }
+        if (workers <= 0 || queueCapacity <= 0 || retentionMillis < 0 || maxRetained < 0) {
+            throw new IllegalArgumentException("JobManager needs positive workers and queue capacity, "
+                    + "and non-negative retention and maxRetained.");
+        }
+        this.engine = engine;
+        this.queueCapacity = queueCapacity;
+        this.retentionNanos = TimeUnit.MILLISECONDS.toNanos(retentionMillis);
+        this.maxRetained = maxRetained;
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(queueCapacity), workerFactory(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    private static ThreadFactory workerFactory() {
+        int pool = POOL_COUNT.incrementAndGet();
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "qaco-job-" + pool + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Submit a solve without deadline.
+     */
+    public Job<Optional<List<Binding>>> submitSolve(QACOProblem problem, Optional<Object> extraConfig) {
+        return submitSolve(problem, extraConfig, 0L);
+    }
+
+    /**
+     * Validate the problem (at the level of the {@code validation} solver config) and queue its solve.
+     *
+     * @param timeoutMillis deadline from now, 0 for none
+     * @throws IllegalArgumentException   if the problem is invalid
+     * @throws RejectedExecutionException if the queue is full or the manager is closed
+     */
+    public Job<Optional<List<Binding>>> submitSolve(QACOProblem problem, Optional<Object> extraConfig,
+                                                    long timeoutMillis) {
+        validator.validate(problem, ValidationLevel.from(extraConfig));
+        // The engine does not validate the problem again
+        return submit(Job.Kind.SOLVE, () -> engine.solve(problem, extraConfig), timeoutMillis, problem);
+    }
+
+    /**
+     * Submit a binding space request without deadline.
+     */
+    public Job<Optional<BindingSpace>> submitBindingSpace(CompositeWebService cws, Optional<Object> extraConfig) {
+        return submitBindingSpace(cws, extraConfig, 0L);
+    }
+
+    /**
+     * Validate the CWS and queue the computation of its binding space.
+     *
+     * @param timeoutMillis deadline from now, 0 for none
+     * @throws IllegalArgumentException   if the CWS is invalid
+     * @throws RejectedExecutionException if the queue is full or the manager is closed
+     */
+    public Job<Optional<BindingSpace>> submitBindingSpace(CompositeWebService cws, Optional<Object> extraConfig,
+                                                          long timeoutMillis) {
+        validator.validate(cws, ValidationLevel.FULL);
+        return submit(Job.Kind.BINDING_SPACE, () -> engine.bindingSpace(cws, extraConfig), timeoutMillis, null);
+    }
+
+    private <T> Job<T> submit(Job.Kind kind, Supplier<T> work, long timeoutMillis, QACOProblem validated) {
+        if (timeoutMillis < 0) {
+            throw new IllegalArgumentException("Job timeout cannot be negative: " + timeoutMillis);
+        }
+        evict();
+        SolveContext context = new SolveContext().withValidatedProblem(validated);
+        if (timeoutMillis > 0) {
+            context.withTimeout(timeoutMillis);
+        }
+        Job<T> job = new Job<>(UUID.randomUUID().toString(), kind, work, context, this::finished);
+        jobs.put(job.getId(), job);
+        try {
+            executor.execute(job.task);
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            throw new RejectedExecutionException(executor.isShutdown()
+                    ? "JobManager is closed."
+                    : "Job queue is full (" + queueCapacity + " jobs waiting).", e);
+        }
+        return job;
+    }
+
+    /**
+     * @return the job with this id, unless it is unknown or was evicted
+     */
+    public Optional<Job<?>> find(String jobId) {
+        evict();
+        return jobId == null ? Optional.<Job<?>>empty() : Optional.<Job<?>>ofNullable(jobs.get(jobId));
+    }
+
+    /**
+     * @return the solve job with this id, unless it is unknown, evicted or not a solve
+     */
+    @SuppressWarnings("unchecked")
+    public Optional<Job<Optional<List<Binding>>>> findSolve(String jobId) {
+        return find(jobId).filter(job -> job.getKind() == Job.Kind.SOLVE)
+                .map(job -> (Job<Optional<List<Binding>>>) job);
+    }
+
+    /**
+     * @return the binding space job with this id, unless it is unknown, evicted or not a binding space
+     */
+    @SuppressWarnings("unchecked")
+    public Optional<Job<Optional<BindingSpace>>> findBindingSpace(String jobId) {
+        return find(jobId).filter(job -> job.getKind() == Job.Kind.BINDING_SPACE)
+                .map(job -> (Job<Optional<BindingSpace>>) job);
+    }
+
+    public Optional<JobStatus> status(String jobId) {
+        return find(jobId).map(Job::getStatus);
+    }
+
+    /**
+     * @return true if the job was pending or running
+     */
+    public boolean cancel(String jobId) {
+        return find(jobId).map(Job::cancel).orElse(false);
+    }
+
+    /**
+     * @return how many jobs wait for a worker
+     */
+    public int queuedCount() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * @return how many jobs, pending, running or finished, can be looked up
+     */
+    public int size() {
+        evict();
+        return jobs.size();
+    }
+
+    private void finished(Job<?> job) {
+        executor.remove(job.task);
+        finished.add(job);
+        finishedCount.incrementAndGet();
+    }
+
+    /**
+     * Forget the finished jobs past their retention, or beyond maxRetained, oldest first.
+     */
+    private void evict() {
+        long now = System.nanoTime();
+        Job<?> oldest;
+        while ((oldest = finished.peek()) != null
+                && (finishedCount.get() > maxRetained || now - oldest.getFinishedAt() >= retentionNanos)) {
+            if (finished.remove(oldest)) {
+                finishedCount.decrementAndGet();
+                jobs.remove(oldest.getId());
+            }
+        }
+    }
+
+    /**
+     * Stop accepting jobs and cancel those pending or running.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        for (Job<?> job : jobs.values()) {
+            job.cancel();
+        }
+        executor.getQueue().clear();
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.qaco.engine.jobs;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Snapshot of a {@link Job}, as the {@code JobStatus} schema of the OpenAPI contract.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JobStatus {
+    private String jobId;
+    private State status;
+    private String message;
+    /**
+     * Fraction of the work done, between 0 and 1, as reported by the engine.
+     */
+    private double progress;
+
+    /**
+     * Cancelled jobs and jobs whose deadline passed before they started are FAILED, with a message
+     * saying so.
+     */
+    public enum State {
+        PENDING,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.qaco.engine.metrics;
+
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The registry of {@link MetricsListener}s, and where engine operations start and end their
+ * {@link SolveMetrics}.
+ * <p>
+ * It starts with the listeners found by {@link ServiceLoader} and, when the runtime has JDK Flight
+ * Recorder, one committing a {@code com.example.qaco.Solve} event per operation while a recording
+ * enables it. When no listener is enabled, operations get {@link SolveMetrics#DISABLED} and
+ * measure nothing. Thread-safe.
+ */
+public final class Instrumentation {
+
+    private static final List<MetricsListener> LISTENERS = new CopyOnWriteArrayList<>();
+
+    static {
+        for (MetricsListener listener : ServiceLoader.load(MetricsListener.class)) {
+            LISTENERS.add(listener);
+        }
+        if (hasFlightRecorder()) {
+            LISTENERS.add(new JfrMetricsListener());
+        }
+    }
+
+    private Instrumentation() {
+    }
+
+    public static void addListener(MetricsListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("MetricsListener cannot be null.");
+        }
+        LISTENERS.add(listener);
+    }
+
+    public static void removeListener(MetricsListener listener) {
+        LISTENERS.remove(listener);
+    }
+
+    /**
+     * @return true if some listener is enabled, so operations starting now are measured
+     */
+    public static boolean isEnabled() {
+        for (MetricsListener listener : LISTENERS) {
+            if (listener.isEnabled()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Start measuring an operation of {@code engine}.
+     *
+     * @return new metrics, or {@link SolveMetrics#DISABLED} if no listener is enabled
+     */
+    public static SolveMetrics begin(Object engine, SolveMetrics.Operation operation) {
+        return isEnabled() ? new SolveMetrics(engine.getClass().getName(), operation) : SolveMetrics.DISABLED;
+    }
+
+    /**
+     * Finish measuring an operation and pass its metrics to the enabled listeners.
+     */
+    public static void end(SolveMetrics metrics) {
+        if (!metrics.isEnabled()) {
+            return;
+        }
+        metrics.finish();
+        for (MetricsListener listener : LISTENERS) {
+            if (listener.isEnabled()) {
+                listener.finished(metrics);
+            }
+        }
+    }
+
+    /**
+     * A runtime image can be linked without the jdk.jfr module: the event classes are only loaded if it is there.
+     */
+    private static boolean hasFlightRecorder() {
+        try {
+            Class.forName("jdk.jfr.Event", false, Instrumentation.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.qaco.engine.metrics;
+
+import java.math.BigInteger;
+
+/**
+ * Commits a {@link SolveEvent} per operation. Enabled only while a Flight Recorder recording
+ * enables the event, so without a recording operations are not measured on its account.
+ */
+final class JfrMetricsListener implements MetricsListener {
+
+    @Override
+    public boolean isEnabled() {
+        return new SolveEvent().isEnabled();
+    }
+
+    @Override
+    public void finished(SolveMetrics metrics) {
+        SolveEvent event = new SolveEvent();
+        if (!event.shouldCommit()) {
+            return;
+        }
+        event.engine = metrics.getEngine();
+        event.operation = metrics.getOperation().name();
+        event.total = metrics.getTotalNanos();
+        event.validation = metrics.getNanos(SolveMetrics.Phase.VALIDATION);
+        event.compilation = metrics.getNanos(SolveMetrics.Phase.COMPILATION);
+        event.search = metrics.getNanos(SolveMetrics.Phase.SEARCH);
+        event.enumeration = metrics.getNanos(SolveMetrics.Phase.ENUMERATION);
+        event.outputValidation = metrics.getNanos(SolveMetrics.Phase.OUTPUT_VALIDATION);
+        event.evaluations = metrics.getEvaluations();
+        event.evaluationsPerSecond = metrics.getEvaluationsPerSecond();
+        event.constraintChecks = metrics.getConstraintChecks();
+        event.nodes = metrics.getNodes();
+        event.pruned = metrics.getPruned();
+        event.pruneRatio = metrics.getPruneRatio();
+        event.improvements = metrics.getImprovements();
+        event.bestScore = metrics.getBestScore();
+        event.searchSpace = toDouble(metrics.getSearchSpace());
+        event.reducedSearchSpace = toDouble(metrics.getReducedSearchSpace());
+        event.bindings = metrics.getBindings();
+        event.failure = metrics.getFailure() == null ? null : metrics.getFailure().toString();
+        event.commit();
+    }
+
+    private static double toDouble(BigInteger value) {
+        return value == null ? Double.NaN : value.doubleValue();
+    }
+}
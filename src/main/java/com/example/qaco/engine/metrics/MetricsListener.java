@@ -0,0 +1,24 @@
+package com.example.qaco.engine.metrics;
+
+/**
+ * Receives the {@link SolveMetrics} of every instrumented engine operation once it is over.
+ * <p>
+ * Listeners are registered with {@link Instrumentation#addListener}, or found by
+ * {@link java.util.ServiceLoader} when listed in
+ * {@code META-INF/services/com.example.qaco.engine.metrics.MetricsListener}. Calls come from the
+ * thread that ran the operation, so they should be quick and must not throw.
+ */
+public interface MetricsListener {
+
+    /**
+     * Checked when an operation starts: operations are only measured while some listener is enabled.
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * @param metrics what the operation recorded; not modified after this call
+     */
+    void finished(SolveMetrics metrics);
+}
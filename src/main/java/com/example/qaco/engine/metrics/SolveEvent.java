@@ -0,0 +1,92 @@
+package com.example.qaco.engine.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Percentage;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * The Flight Recorder event of one engine operation, mirroring its {@link SolveMetrics}. It is
+ * committed when the operation ends; {@code total} is how long the operation took.
+ */
+@Name(SolveEvent.NAME)
+@Label("QACO Solve")
+@Category({"QACO", "Engine"})
+@Description("A solve or binding space request of a QACO engine")
+@StackTrace(false)
+class SolveEvent extends jdk.jfr.Event {
+
+    static final String NAME = "com.example.qaco.Solve";
+
+    @Label("Engine")
+    String engine;
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Total")
+    @Timespan
+    long total;
+
+    @Label("Validation")
+    @Timespan
+    long validation;
+
+    @Label("Compilation")
+    @Timespan
+    long compilation;
+
+    @Label("Search")
+    @Timespan
+    long search;
+
+    @Label("Enumeration")
+    @Timespan
+    long enumeration;
+
+    @Label("Output Validation")
+    @Timespan
+    long outputValidation;
+
+    @Label("Evaluations")
+    long evaluations;
+
+    @Label("Evaluations per Second")
+    double evaluationsPerSecond;
+
+    @Label("Constraint Checks")
+    long constraintChecks;
+
+    @Label("Search Nodes")
+    long nodes;
+
+    @Label("Pruned Nodes")
+    long pruned;
+
+    @Label("Prune Ratio")
+    @Percentage
+    double pruneRatio;
+
+    @Label("Incumbent Improvements")
+    long improvements;
+
+    @Label("Best Score")
+    double bestScore;
+
+    @Label("Search Space")
+    @Description("Bindings of the compiled problem")
+    double searchSpace;
+
+    @Label("Reduced Search Space")
+    @Description("Bindings left once the candidates are reduced")
+    double reducedSearchSpace;
+
+    @Label("Bindings")
+    long bindings;
+
+    @Label("Failure")
+    String failure;
+}
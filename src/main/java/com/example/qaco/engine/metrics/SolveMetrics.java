@@ -0,0 +1,296 @@
+package com.example.qaco.engine.metrics;
+
+import com.example.qaco.engine.constraints.CompiledConstraint;
+
+import java.math.BigInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * What one engine operation (a solve or a binding space request) recorded: the time spent in each
+ * {@link Phase}, the search counters, and the size of the binding space before and after the
+ * candidates were reduced.
+ * <p>
+ * An operation is measured only while some {@link MetricsListener} is enabled; otherwise it gets
+ * {@link #DISABLED}, whose methods do nothing, so engines call them unconditionally. Engines find
+ * the metrics of their operation with {@link com.example.qaco.engine.SolveContext#metrics()}.
+ * <p>
+ * The search counters are {@link LongAdder}s, which engine threads update without contending;
+ * the rest is written by the thread running the operation.
+ */
+public final class SolveMetrics {
+
+    public enum Operation {
+        SOLVE,
+        BINDING_SPACE,
+        BINDING_SPACE_STREAM
+    }
+
+    public enum Phase {
+        /**
+         * Validating the input problem or CWS.
+         */
+        VALIDATION,
+        /**
+         * Compiling the problem and reducing the candidates (skyline, propagation).
+         */
+        COMPILATION,
+        /**
+         * The engine's search, compilation excluded.
+         */
+        SEARCH,
+        /**
+         * Building a binding space.
+         */
+        ENUMERATION,
+        /**
+         * Validating the returned bindings.
+         */
+        OUTPUT_VALIDATION
+    }
+
+    public static final SolveMetrics DISABLED = new SolveMetrics();
+
+    private final boolean enabled;
+    private final String engine;
+    private final Operation operation;
+    private final long startNanos;
+    private final long[] phaseNanos = new long[Phase.values().length];
+    private long totalNanos;
+
+    private final LongAdder nodes = new LongAdder();
+    private final LongAdder pruned = new LongAdder();
+    private final LongAdder constraintChecks = new LongAdder();
+    private final LongAdder improvements = new LongAdder();
+    private volatile double bestScore = Double.POSITIVE_INFINITY;
+    private long evaluations;
+    private BigInteger searchSpace;
+    private BigInteger reducedSearchSpace;
+    private long bindings = -1;
+    private Throwable failure;
+
+    private SolveMetrics() {
+        this.enabled = false;
+        this.engine = null;
+        this.operation = null;
+        this.startNanos = 0L;
+    }
+
+    SolveMetrics(String engine, Operation operation) {
+        this.enabled = true;
+        this.engine = engine;
+        this.operation = operation;
+        this.startNanos = System.nanoTime();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return {@link System#nanoTime()}, or 0 if disabled, to start timing a phase
+     */
+    public long now() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Add the time elapsed since {@code startNanos} (from {@link #now()}) to a phase.
+     *
+     * @return the current time, to start timing the next phase
+     */
+    public long phase(Phase phase, long startNanos) {
+        if (!enabled) {
+            return 0L;
+        }
+        long now = System.nanoTime();
+        phaseNanos[phase.ordinal()] += now - startNanos;
+        return now;
+    }
+
+    /**
+     * Count search nodes (partial assignments bounded or checked).
+     */
+    public void addNodes(long count) {
+        if (enabled) {
+            nodes.add(count);
+        }
+    }
+
+    /**
+     * Count search nodes whose subtree was cut (by the bound or the constraints).
+     */
+    public void addPruned(long count) {
+        if (enabled) {
+            pruned.add(count);
+        }
+    }
+
+    /**
+     * @return {@code constraint}, counting its evaluations when enabled
+     */
+    public CompiledConstraint counting(CompiledConstraint constraint) {
+        return enabled ? constraint.counting(constraintChecks) : constraint;
+    }
+
+    /**
+     * Count an improving feasible binding.
+     */
+    public void improved(double score) {
+        if (enabled) {
+            improvements.increment();
+            bestScore = Math.min(bestScore, score);
+        }
+    }
+
+    public void setEvaluations(long evaluations) {
+        if (enabled) {
+            this.evaluations = evaluations;
+        }
+    }
+
+    /**
+     * @param searchSpace        the number of bindings of the compiled problem
+     * @param reducedSearchSpace the number left once the candidates are reduced
+     */
+    public void setSearchSpace(BigInteger searchSpace, BigInteger reducedSearchSpace) {
+        if (enabled) {
+            this.searchSpace = searchSpace;
+            this.reducedSearchSpace = reducedSearchSpace;
+        }
+    }
+
+    public void setBindings(long bindings) {
+        if (enabled) {
+            this.bindings = bindings;
+        }
+    }
+
+    public void failed(Throwable failure) {
+        if (enabled) {
+            this.failure = failure;
+        }
+    }
+
+    void finish() {
+        totalNanos = System.nanoTime() - startNanos;
+    }
+
+    /**
+     * @return the class name of the engine
+     */
+    public String getEngine() {
+        return engine;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public long getNanos(Phase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+
+    /**
+     * @return the wall-clock time of the whole operation
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public long getNodes() {
+        return nodes.sum();
+    }
+
+    public long getPruned() {
+        return pruned.sum();
+    }
+
+    /**
+     * @return the share of the search nodes that were pruned, NaN if no node was counted
+     */
+    public double getPruneRatio() {
+        long count = nodes.sum();
+        return count == 0 ? Double.NaN : (double) pruned.sum() / count;
+    }
+
+    public long getConstraintChecks() {
+        return constraintChecks.sum();
+    }
+
+    public long getImprovements() {
+        return improvements.sum();
+    }
+
+    /**
+     * @return the score of the best binding published, positive infinity if none
+     */
+    public double getBestScore() {
+        return bestScore;
+    }
+
+    /**
+     * @return the complete bindings scored (see {@link com.example.qaco.engine.SolveContext#addEvaluations})
+     */
+    public long getEvaluations() {
+        return evaluations;
+    }
+
+    /**
+     * @return evaluations per second of {@link Phase#SEARCH}, 0 if no search time was recorded
+     */
+    public double getEvaluationsPerSecond() {
+        long nanos = getNanos(Phase.SEARCH);
+        return nanos <= 0 ? 0.0 : evaluations * 1e9 / nanos;
+    }
+
+    /**
+     * @return the number of bindings of the compiled problem, null if it was not compiled
+     */
+    public BigInteger getSearchSpace() {
+        return searchSpace;
+    }
+
+    /**
+     * @return the number of bindings once the candidates were reduced, null if it was not compiled
+     */
+    public BigInteger getReducedSearchSpace() {
+        return reducedSearchSpace;
+    }
+
+    /**
+     * @return the number of bindings returned (or in the binding space), -1 if the operation failed
+     */
+    public long getBindings() {
+        return bindings;
+    }
+
+    /**
+     * @return what the operation threw, or null
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    @Override
+    public String toString() {
+        if (!enabled) {
+            return "SolveMetrics(disabled)";
+        }
+        StringBuilder text = new StringBuilder("SolveMetrics(engine=").append(engine)
+                .append(", operation=").append(operation)
+                .append(", totalNanos=").append(totalNanos);
+        for (Phase phase : Phase.values()) {
+            text.append(", ").append(phase).append('=').append(getNanos(phase));
+        }
+        return text.append(", evaluations=").append(evaluations)
+                .append(", constraintChecks=").append(getConstraintChecks())
+                .append(", nodes=").append(getNodes())
+                .append(", pruned=").append(getPruned())
+                .append(", improvements=").append(getImprovements())
+                .append(", searchSpace=").append(searchSpace)
+                .append(", reducedSearchSpace=").append(reducedSearchSpace)
+                .append(", bindings=").append(bindings)
+                .append(failure == null ? "" : ", failure=" + failure)
+                .append(')').toString();
+    }
+}
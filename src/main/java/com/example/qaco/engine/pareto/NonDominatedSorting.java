@@ -0,0 +1,200 @@
+package com.example.qaco.engine.pareto;
+
+import java.util.Arrays;
+
+/**
+ * Efficient non-dominated sorting (ENS-SS, Zhang et al. 2015) and crowding distance over objective
+ * vectors stored in a flat {@code double[]} ({@code values[i * objectives + k]}, all minimised).
+ * <p>
+ * Solutions are first sorted lexicographically, so a solution can only be dominated by one sorted
+ * before it; each solution is then placed in the first front none of whose members dominates it,
+ * checking the most recently added members first. This avoids the O(MN^2) comparisons of the
+ * naive sort on typical populations. Work buffers are kept between calls, so a sorter reused
+ * across generations does not allocate once it has reached the population size.
+ * Not thread-safe.
+ */
+public final class NonDominatedSorting {
+
+    private final int objectives;
+    private int[] order = new int[0];
+    private int[] scratch = new int[0];
+    private int[] frontHead = new int[0];
+    private int[] next = new int[0];
+    private int[] frontStart = new int[1];
+
+    public NonDominatedSorting(int objectives) {
+        this.objectives = objectives;
+    }
+
+    /**
+     * @return true if solution {@code a} is no worse than {@code b} on every objective and better on one
+     */
+    public static boolean dominates(double[] values, int objectives, int a, int b) {
+        boolean better = false;
+        int ia = a * objectives;
+        int ib = b * objectives;
+        for (int k = 0; k < objectives; k++) {
+            double x = values[ia + k];
+            double y = values[ib + k];
+            if (x > y) {
+                return false;
+            }
+            better |= x < y;
+        }
+        return better;
+    }
+
+    /**
+     * Rank the given solutions: {@code rank[i]} is set to the index of the front of {@code i}
+     * (0 for the non-dominated ones) for every i in {@code members[0..count)}.
+     *
+     * @return the number of fronts
+     */
+    public int sort(double[] values, int[] members, int count, int[] rank) {
+        ensureCapacity(count, rank.length);
+        System.arraycopy(members, 0, order, 0, count);
+        sort(order, 0, count, scratch, (a, b) -> {
+            int ia = a * objectives;
+            int ib = b * objectives;
+            for (int k = 0; k < objectives; k++) {
+                int c = Double.compare(values[ia + k], values[ib + k]);
+                if (c != 0) {
+                    return c;
+                }
+            }
+            return Integer.compare(a, b);
+        });
+
+        int fronts = 0;
+        for (int i = 0; i < count; i++) {
+            int solution = order[i];
+            int front = 0;
+            while (front < fronts && dominatedBy(values, solution, frontHead[front])) {
+                front++;
+            }
+            if (front == fronts) {
+                frontHead[fronts++] = -1;
+            }
+            rank[solution] = front;
+            next[solution] = frontHead[front];
+            frontHead[front] = solution;
+        }
+        return fronts;
+    }
+
+    private boolean dominatedBy(double[] values, int solution, int head) {
+        for (int member = head; member >= 0; member = next[member]) {
+            if (dominates(values, objectives, member, solution)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Crowding distance of every solution within its front: the boundary solutions of each
+     * objective get infinity, the others the sum of the normalised gaps between their neighbours.
+     */
+    public void crowding(double[] values, int[] members, int count, int[] rank, int fronts, double[] distance) {
+        ensureCapacity(count, rank.length);
+        if (frontStart.length < fronts + 1) {
+            frontStart = new int[fronts + 1];
+        }
+        // Counting sort of the members by front
+        Arrays.fill(frontStart, 0, fronts + 1, 0);
+        for (int i = 0; i < count; i++) {
+            frontStart[rank[members[i]] + 1]++;
+        }
+        for (int f = 0; f < fronts; f++) {
+            frontStart[f + 1] += frontStart[f];
+        }
+        for (int i = 0; i < count; i++) {
+            int solution = members[i];
+            order[frontStart[rank[solution]]++] = solution;
+            distance[solution] = 0.0;
+        }
+        for (int f = fronts; f > 0; f--) {
+            frontStart[f] = frontStart[f - 1];
+        }
+        frontStart[0] = 0;
+
+        for (int f = 0; f < fronts; f++) {
+            int from = frontStart[f];
+            int to = frontStart[f + 1];
+            if (to - from <= 2) {
+                for (int i = from; i < to; i++) {
+                    distance[order[i]] = Double.POSITIVE_INFINITY;
+                }
+                continue;
+            }
+            for (int k = 0; k < objectives; k++) {
+                final int objective = k;
+                sort(order, from, to, scratch, (a, b) ->
+                        Double.compare(values[a * objectives + objective], values[b * objectives + objective]));
+                double min = values[order[from] * objectives + k];
+                double max = values[order[to - 1] * objectives + k];
+                distance[order[from]] = Double.POSITIVE_INFINITY;
+                distance[order[to - 1]] = Double.POSITIVE_INFINITY;
+                if (max <= min) {
+                    continue;
+                }
+                for (int i = from + 1; i < to - 1; i++) {
+                    distance[order[i]] += (values[order[i + 1] * objectives + k]
+                            - values[order[i - 1] * objectives + k]) / (max - min);
+                }
+            }
+        }
+    }
+
+    private void ensureCapacity(int count, int solutions) {
+        if (order.length < count) {
+            order = new int[count];
+            scratch = new int[count];
+            frontHead = new int[count];
+        }
+        if (next.length < solutions) {
+            next = new int[solutions];
+        }
+    }
+
+    /**
+     * Order of two solution indices.
+     */
+    interface IndexOrder {
+        int compare(int a, int b);
+    }
+
+    /**
+     * Stable merge sort of {@code indices[from..to)} using {@code scratch} (at least as long) as buffer.
+     */
+    static void sort(int[] indices, int from, int to, int[] scratch, IndexOrder order) {
+        if (to - from <= 16) {
+            for (int i = from + 1; i < to; i++) {
+                int value = indices[i];
+                int j = i - 1;
+                while (j >= from && order.compare(indices[j], value) > 0) {
+                    indices[j + 1] = indices[j];
+                    j--;
+                }
+                indices[j + 1] = value;
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        sort(indices, from, mid, scratch, order);
+        sort(indices, mid, to, scratch, order);
+        if (order.compare(indices[mid - 1], indices[mid]) <= 0) {
+            return;
+        }
+        System.arraycopy(indices, from, scratch, from, to - from);
+        int i = from;
+        int j = mid;
+        for (int k = from; k < to; k++) {
+            if (j >= to || (i < mid && order.compare(scratch[i], scratch[j]) <= 0)) {
+                indices[k] = scratch[i++];
+            } else {
+                indices[k] = scratch[j++];
+            }
+        }
+    }
+}
@@ -0,0 +1,420 @@
+package com.example.qaco.engine.pareto;
+
+import com.example.qaco.domain.QACOProblem;
+import com.example.qaco.domain.binding.Binding;
+import com.example.qaco.engine.AbstractQACOEngine;
+import com.example.qaco.engine.CompiledQACOProblem;
+import com.example.qaco.engine.ParallelFor;
+import com.example.qaco.engine.SolveContext;
+import com.example.qaco.engine.SolverConfig;
+import com.example.qaco.engine.constraints.CompiledConstraint;
+import com.example.qaco.engine.constraints.ConstraintCompiler;
+import com.example.qaco.engine.qos.WorkflowAggregator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A multi-objective NSGA-II engine: every Preference is an objective of its own (its aggregated
+ * feature, minimised for a non-negative weight, including 0, and maximised for a negative one; the
+ * magnitude of the weight is ignored), and {@code solve} returns the non-dominated feasible bindings found,
+ * ordered by the first objective.
+ * <p>
+ * Parents and offspring share one buffer of 2N genomes; after each generation the survivors are
+ * moved to its first half by swapping references, so genomes are never reallocated. Fronts come
+ * from {@link NonDominatedSorting} (ENS-SS) and survivors are chosen by rank, then crowding
+ * distance. Infeasible bindings rank behind all feasible ones, by constraint violation. The
+ * non-dominated feasible bindings seen so far are kept in a bounded archive of primitive arrays,
+ * trimmed by crowding distance when it overflows. Evaluation and breeding run in parallel, with
+ * one SplitMix64 stream per offspring seeded from the root as in {@code GeneticEngine}.
+ * <p>
+ * Configuration (extraConfig, see {@link SolverConfig}): {@code population} (100),
+ * {@code generations} (250), {@code crossover} (0.9), {@code mutation} (1 / tasks),
+ * {@code archive} (population), {@code seed} (random) and {@code threads} (0 = common pool).
+ */
+public class ParetoEngine extends AbstractQACOEngine {
+
+    public static final String POPULATION = "population";
+    public static final String GENERATIONS = "generations";
+    public static final String CROSSOVER = "crossover";
+    public static final String MUTATION = "mutation";
+    public static final String ARCHIVE = "archive";
+    public static final String SEED = "seed";
+    public static final String THREADS = "threads";
+
+    @Override
+    protected boolean isMultiObjective() {
+        return true;
+    }
+
+    @Override
+    protected Optional<List<Binding>> doSolve(QACOProblem problem, Optional<Object> extraConfig) {
+        SolverConfig config = SolverConfig.from(extraConfig);
+        CompiledQACOProblem compiled = compile(problem, extraConfig);
+        if (compiled.hasEmptyDomain()) {
+            return Optional.empty();
+        }
+        WorkflowAggregator aggregator = WorkflowAggregator.of(compiled);
+        CompiledConstraint constraint = SolveContext.current().metrics()
+                .counting(ConstraintCompiler.compile(compiled, aggregator));
+
+        ForkJoinPool pool = ParallelFor.pool(config.getInt(THREADS, 0));
+        try {
+            Nsga2 search = new Nsga2(compiled, aggregator, constraint, config, pool, SolveContext.current());
+            search.run();
+            List<Binding> front = search.front();
+            return front.isEmpty() ? Optional.<List<Binding>>empty() : Optional.of(front);
+        } finally {
+            ParallelFor.release(pool);
+        }
+    }
+
+    /**
+     * State of one run.
+     */
+    private static final class Nsga2 {
+        private final CompiledQACOProblem compiled;
+        private final WorkflowAggregator aggregator;
+        private final CompiledConstraint constraint;
+        private final ForkJoinPool pool;
+        private final SolveContext context;
+
+        private final int size;
+        private final int generations;
+        private final double crossover;
+        private final double mutation;
+        private final SplittableRandom root;
+        private final int taskCount;
+        private final int objectives;
+        private final int[] objectiveFeatures;
+        private final double[] objectiveSigns;
+
+        // Slots [0, size) are the parents, [size, 2 * size) the offspring
+        private int[][] genomes;
+        private double[] values;
+        private double[] violations;
+        private int[] rank;
+        private double[] crowding;
+        private final long[] streams;
+
+        // Buffers of the environmental selection
+        private final NonDominatedSorting sorting;
+        private final int[] members;
+        private final int[] order;
+        private final int[] scratch;
+        private int[][] swapGenomes;
+        private double[] swapValues;
+        private double[] swapViolations;
+        private int[] swapRank;
+        private double[] swapCrowding;
+
+        private final Archive archive;
+        private double bestPublished = Double.POSITIVE_INFINITY;
+
+        Nsga2(CompiledQACOProblem compiled, WorkflowAggregator aggregator, CompiledConstraint constraint,
+              SolverConfig config, ForkJoinPool pool, SolveContext context) {
+            this.compiled = compiled;
+            this.aggregator = aggregator;
+            this.constraint = constraint;
+            this.pool = pool;
+            this.context = context;
+            this.taskCount = compiled.taskCount();
+            this.size = Math.max(2, config.getPositiveInt(POPULATION, 100));
+            this.generations = config.getPositiveInt(GENERATIONS, 250);
+            this.crossover = config.getDouble(CROSSOVER, 0.9);
+            this.mutation = config.getDouble(MUTATION, 1.0 / Math.max(1, taskCount));
+            this.root = config.has(SEED) ? new SplittableRandom(config.getLong(SEED, 0L)) : new SplittableRandom();
+
+            this.objectives = compiled.preferenceCount();
+            this.objectiveFeatures = new int[objectives];
+            this.objectiveSigns = new double[objectives];
+            for (int p = 0; p < objectives; p++) {
+                objectiveFeatures[p] = compiled.preferenceFeature(p);
+                objectiveSigns[p] = compiled.preferenceWeight(p) < 0.0 ? -1.0 : 1.0;
+            }
+
+            int total = 2 * size;
+            this.genomes = new int[total][taskCount];
+            this.values = new double[total * objectives];
+            this.violations = new double[total];
+            this.rank = new int[total];
+            this.crowding = new double[total];
+            this.streams = new long[size];
+            this.sorting = new NonDominatedSorting(objectives);
+            this.members = new int[total];
+            this.order = new int[total];
+            this.scratch = new int[total];
+            this.swapGenomes = new int[total][];
+            this.swapValues = new double[total * objectives];
+            this.swapViolations = new double[total];
+            this.swapRank = new int[total];
+            this.swapCrowding = new double[total];
+            this.archive = new Archive(config.getPositiveInt(ARCHIVE, size), taskCount, objectives);
+        }
+
+        void run() {
+            seedStreams();
+            ParallelFor.run(pool, size, this::randomize);
+            ParallelFor.run(pool, size, this::evaluate);
+            archive(0, size);
+            rankAndCrowd(size);
+            for (int generation = 0; generation < generations && !context.isStopRequested(); generation++) {
+                seedStreams();
+                ParallelFor.run(pool, size, this::breed);
+                ParallelFor.run(pool, size, i -> evaluate(size + i));
+                archive(size, 2 * size);
+                select();
+                context.reportProgress((generation + 1.0) / generations);
+            }
+        }
+
+        List<Binding> front() {
+            int count = archive.count;
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            double[] archived = archive.values;
+            NonDominatedSorting.sort(order, 0, count, scratch, (a, b) -> {
+                for (int k = 0; k < objectives; k++) {
+                    int c = Double.compare(archived[a * objectives + k], archived[b * objectives + k]);
+                    if (c != 0) {
+                        return c;
+                    }
+                }
+                return 0;
+            });
+            List<Binding> front = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                front.add(compiled.toBinding(archive.genomes[order[i]]));
+            }
+            return front;
+        }
+
+        private void seedStreams() {
+            for (int i = 0; i < size; i++) {
+                streams[i] = root.nextLong();
+            }
+        }
+
+        private void randomize(int i) {
+            int[] genome = genomes[i];
+            for (int t = 0; t < taskCount; t++) {
+                int[] candidates = compiled.candidates(t);
+                genome[t] = candidates[nextInt(i, candidates.length)];
+            }
+        }
+
+        private void evaluate(int i) {
+            int[] genome = genomes[i];
+            for (int k = 0; k < objectives; k++) {
+                values[i * objectives + k] = objectiveSigns[k] * aggregator.aggregate(objectiveFeatures[k], genome);
+            }
+            violations[i] = constraint.test(genome) ? 0.0 : constraint.violation(genome);
+        }
+
+        /**
+         * Archive the feasible solutions of slots [from, to), and publish those that improve the
+         * weighted score.
+         */
+        private void archive(int from, int to) {
+            context.addEvaluations(to - from);
+            boolean listening = context.hasListener();
+            for (int i = from; i < to; i++) {
+                if (violations[i] == 0.0) {
+                    archive.offer(genomes[i], values, i * objectives, sorting);
+                    if (listening) {
+                        double score = aggregator.score(genomes[i]);
+                        if (score < bestPublished) {
+                            bestPublished = score;
+                            context.publish(compiled.toBinding(genomes[i].clone()), score);
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Rank and crowding distance of slots [0, count): ENS over the feasible ones, then the
+         * infeasible ones one front each by increasing violation.
+         */
+        private void rankAndCrowd(int count) {
+            int feasible = 0;
+            int infeasible = count;
+            for (int i = 0; i < count; i++) {
+                if (violations[i] == 0.0) {
+                    members[feasible++] = i;
+                } else {
+                    members[--infeasible] = i;
+                }
+            }
+            int fronts = feasible == 0 ? 0 : sorting.sort(values, members, feasible, rank);
+            if (feasible > 0) {
+                sorting.crowding(values, members, feasible, rank, fronts, crowding);
+            }
+            NonDominatedSorting.sort(members, feasible, count, scratch,
+                    (a, b) -> Double.compare(violations[a], violations[b]));
+            for (int i = feasible; i < count; i++) {
+                int solution = members[i];
+                boolean tie = i > feasible && violations[members[i - 1]] == violations[solution];
+                rank[solution] = tie ? rank[members[i - 1]] : fronts++;
+                crowding[solution] = 0.0;
+            }
+        }
+
+        /**
+         * Keep the best half of parents + offspring in the parent slots.
+         */
+        private void select() {
+            int total = 2 * size;
+            rankAndCrowd(total);
+            for (int i = 0; i < total; i++) {
+                order[i] = i;
+            }
+            NonDominatedSorting.sort(order, 0, total, scratch, (a, b) -> {
+                if (rank[a] != rank[b]) {
+                    return Integer.compare(rank[a], rank[b]);
+                }
+                return Double.compare(crowding[b], crowding[a]);
+            });
+            for (int i = 0; i < total; i++) {
+                int from = order[i];
+                swapGenomes[i] = genomes[from];
+                System.arraycopy(values, from * objectives, swapValues, i * objectives, objectives);
+                swapViolations[i] = violations[from];
+                swapRank[i] = rank[from];
+                swapCrowding[i] = crowding[from];
+            }
+            int[][] g = genomes;
+            genomes = swapGenomes;
+            swapGenomes = g;
+            double[] v = values;
+            values = swapValues;
+            swapValues = v;
+            double[] c = violations;
+            violations = swapViolations;
+            swapViolations = c;
+            int[] r = rank;
+            rank = swapRank;
+            swapRank = r;
+            double[] d = crowding;
+            crowding = swapCrowding;
+            swapCrowding = d;
+        }
+
+        private void breed(int i) {
+            int[] child = genomes[size + i];
+            int[] first = genomes[tournament(i)];
+            int[] second = genomes[tournament(i)];
+            boolean cross = nextDouble(i) < crossover;
+            for (int t = 0; t < taskCount; t++) {
+                child[t] = cross && (nextLong(i) & 1L) == 0L ? second[t] : first[t];
+                if (nextDouble(i) < mutation) {
+                    int[] candidates = compiled.candidates(t);
+                    child[t] = candidates[nextInt(i, candidates.length)];
+                }
+            }
+        }
+
+        private int tournament(int stream) {
+            int a = nextInt(stream, size);
+            int b = nextInt(stream, size);
+            if (rank[a] != rank[b]) {
+                return rank[a] < rank[b] ? a : b;
+            }
+            return crowding[b] > crowding[a] ? b : a;
+        }
+
+        // SplitMix64, one independent stream per offspring; no allocation per draw.
+        private long nextLong(int stream) {
+            long z = (streams[stream] += 0x9E3779B97F4A7C15L);
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            return z ^ (z >>> 31);
+        }
+
+        private double nextDouble(int stream) {
+            return (nextLong(stream) >>> 11) * 0x1.0p-53;
+        }
+
+        private int nextInt(int stream, int bound) {
+            return (int) ((nextLong(stream) >>> 33) * bound >>> 31);
+        }
+    }
+
+    /**
+     * Bounded set of mutually non-dominated feasible solutions, in primitive arrays.
+     */
+    private static final class Archive {
+        private final int capacity;
+        private final int taskCount;
+        private final int objectives;
+        // One spare slot for the solution being inserted before trimming
+        final int[][] genomes;
+        final double[] values;
+        private final int[] members;
+        private final int[] rank;
+        private final double[] crowding;
+        int count;
+
+        Archive(int capacity, int taskCount, int objectives) {
+            this.capacity = capacity;
+            this.taskCount = taskCount;
+            this.objectives = objectives;
+            this.genomes = new int[capacity + 1][taskCount];
+            this.values = new double[(capacity + 1) * objectives];
+            this.members = new int[capacity + 1];
+            this.rank = new int[capacity + 1];
+            this.crowding = new double[capacity + 1];
+        }
+
+        void offer(int[] genome, double[] source, int offset, NonDominatedSorting sorting) {
+            for (int a = 0; a < count; a++) {
+                if (noWorse(values, a * objectives, source, offset)) {
+                    return;
+                }
+            }
+            for (int a = count - 1; a >= 0; a--) {
+                if (noWorse(source, offset, values, a * objectives)) {
+                    remove(a);
+                }
+            }
+            System.arraycopy(genome, 0, genomes[count], 0, taskCount);
+            System.arraycopy(source, offset, values, count * objectives, objectives);
+            count++;
+            if (count > capacity) {
+                for (int a = 0; a < count; a++) {
+                    members[a] = a;
+                    rank[a] = 0;
+                }
+                sorting.crowding(values, members, count, rank, 1, crowding);
+                int mostCrowded = 0;
+                for (int a = 1; a < count; a++) {
+                    if (crowding[a] < crowding[mostCrowded]) {
+                        mostCrowded = a;
+                    }
+                }
+                remove(mostCrowded);
+            }
+        }
+
+        private void remove(int a) {
+            int last = --count;
+            int[] genome = genomes[a];
+            genomes[a] = genomes[last];
+            genomes[last] = genome;
+            System.arraycopy(values, last * objectives, values, a * objectives, objectives);
+        }
+
+        private boolean noWorse(double[] x, int xOffset, double[] y, int yOffset) {
+            for (int k = 0; k < objectives; k++) {
+                if (x[xOffset + k] > y[yOffset + k]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
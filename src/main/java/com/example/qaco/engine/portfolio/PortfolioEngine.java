@@ -0,0 +1,227 @@
+package com.example.qaco.engine.portfolio;
+
+import com.example.qaco.domain.QACOProblem;
+import com.example.qaco.domain.binding.Binding;
+import com.example.qaco.engine.AbstractQACOEngine;
+import com.example.qaco.engine.CompiledQACOProblem;
+import com.example.qaco.engine.SolveBudget;
+import com.example.qaco.engine.SolveContext;
+import com.example.qaco.engine.SolverConfig;
+import com.example.qaco.engine.constraints.CompiledConstraint;
+import com.example.qaco.engine.constraints.ConstraintCompiler;
+import com.example.qaco.engine.qos.WorkflowAggregator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Races several engines on the same problem and returns the best binding any of them finds.
+ * <p>
+ * The problem is validated once, by the portfolio (at the level of the {@code validation} solver
+ * config); the engines then run under a context declaring it validated (see
+ * {@link SolveContext#withValidatedProblem}), so they only check it at TRUSTED level. Likewise the
+ * CompositeWebService is compiled once and shared with the engines (see
+ * {@link SolveContext#withCompiledCws}), with its graph index. Each engine
+ * is driven by a thread of the portfolio's executor, and their parallel work shares the common
+ * ForkJoinPool (unless their {@code threads} config says otherwise).
+ * <p>
+ * All the engines run under one {@link SolveContext} that {@link SolveContext#shareIncumbent()
+ * shares its incumbent}: every feasible binding an engine publishes tightens the bound exact
+ * engines (see {@link AbstractQACOEngine#isExact()}) prune with. As soon as an exact engine
+ * completes, the best binding is proven optimal: the other engines are cancelled, and the
+ * portfolio returns once they have stopped. Otherwise it returns when every engine has returned,
+ * typically at the {@code timeLimit} deadline or when the {@code maxEvaluations} budget, counted
+ * over all the engines, is exhausted.
+ * <p>
+ * The result is the single best feasible binding among those the engines published and returned
+ * (a ParetoEngine's front is reduced to its best-scored member). An engine that throws is ignored
+ * unless every engine failed or found nothing, in which case the first failure is rethrown.
+ * <p>
+ * The other solver config entries are passed to every engine.
+ */
+public class PortfolioEngine extends AbstractQACOEngine {
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    // Engine drivers mostly wait on the work they fork, so the default executor grows as needed
+    private static final ExecutorService SHARED_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "qaco-portfolio-" + THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final List<AbstractQACOEngine> engines;
+    private final ExecutorService executor;
+
+    public PortfolioEngine(List<? extends AbstractQACOEngine> engines) {
+        this(engines, SHARED_EXECUTOR);
+    }
+
+    /**
+     * @param engines  the engines to race
+     * @param executor runs one driver task per engine for the whole solve, so it should have at
+     *                 least as many threads as there are engines
+     */
+    public PortfolioEngine(List<? extends AbstractQACOEngine> engines, ExecutorService executor) {
+        if (engines == null || engines.isEmpty() || engines.contains(null)) {
+            throw new IllegalArgumentException("PortfolioEngine needs at least one engine, and no null engine.");
+        }
+        if (executor == null) {
+            throw new IllegalArgumentException("PortfolioEngine needs an executor.");
+        }
+        this.engines = Collections.unmodifiableList(new ArrayList<AbstractQACOEngine>(engines));
+        this.executor = executor;
+    }
+
+    public List<AbstractQACOEngine> getEngines() {
+        return engines;
+    }
+
+    /**
+     * @return true if one of the engines is exact
+     */
+    @Override
+    public boolean isExact() {
+        for (AbstractQACOEngine engine : engines) {
+            if (engine.isExact()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    protected Optional<List<Binding>> doSolve(QACOProblem problem, Optional<Object> extraConfig) {
+        Optional<Object> engineConfig = engineConfig(extraConfig);
+        CompiledQACOProblem compiledCws = SolveContext.current().compiledCws(problem.getCompositeWebService());
+        if (compiledCws == null) {
+            compiledCws = CompiledQACOProblem.compile(problem.getCompositeWebService());
+        }
+        Best best = new Best(compiledCws);
+        SolveContext shared = SolveContext.current().child().shareIncumbent().withValidatedProblem(problem)
+                .withCompiledCws(compiledCws).withListener((binding, score, context) -> best.offer(binding, score));
+
+        ExecutorCompletionService<Outcome> completion = new ExecutorCompletionService<>(executor);
+        for (AbstractQACOEngine engine : engines) {
+            SolveContext context = shared.child();
+            completion.submit(() -> {
+                Optional<List<Binding>> result = context.call(() -> engine.solve(problem, engineConfig));
+                return new Outcome(result, engine.isExact() && !context.isStopRequested());
+            });
+        }
+
+        List<Optional<List<Binding>>> results = new ArrayList<>(engines.size());
+        RuntimeException failure = null;
+        boolean proven = false;
+        for (int remaining = engines.size(); remaining > 0; remaining--) {
+            Outcome outcome;
+            try {
+                outcome = completion.take().get();
+            } catch (InterruptedException e) {
+                shared.cancel();
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Portfolio solve was interrupted.");
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof RuntimeException
+                            ? (RuntimeException) e.getCause()
+                            : new IllegalStateException("Portfolio engine failed.", e.getCause());
+                }
+                continue;
+            }
+            results.add(outcome.result);
+            if (outcome.proven && !proven) {
+                proven = true;
+                shared.cancel();
+            }
+        }
+
+        for (Optional<List<Binding>> result : results) {
+            result.ifPresent(bindings -> bindings.forEach(binding -> best.offer(binding, problem)));
+        }
+        if (best.binding == null && failure != null && !proven) {
+            throw failure;
+        }
+        return best.binding == null
+                ? Optional.<List<Binding>>empty()
+                : Optional.of(Collections.singletonList(best.binding));
+    }
+
+    /**
+     * The solver config for the engines: the budget is enforced by the portfolio's context. Any
+     * other extraConfig than a Map or a SolverConfig is passed on unchanged.
+     */
+    private static Optional<Object> engineConfig(Optional<Object> extraConfig) {
+        Object config = extraConfig == null ? null : extraConfig.orElse(null);
+        if (!(config instanceof Map) && !(config instanceof SolverConfig)) {
+            return extraConfig;
+        }
+        Map<String, Object> values = new HashMap<>(SolverConfig.from(extraConfig).asMap());
+        values.remove(SolveBudget.TIME_LIMIT);
+        values.remove(SolveBudget.MAX_EVALUATIONS);
+        return Optional.<Object>of(SolverConfig.of(values));
+    }
+
+    private static final class Outcome {
+        final Optional<List<Binding>> result;
+        // Returned by an exact engine that was not stopped
+        final boolean proven;
+
+        Outcome(Optional<List<Binding>> result, boolean proven) {
+            this.result = result;
+            this.proven = proven;
+        }
+    }
+
+    /**
+     * The best feasible binding published or returned so far. Returned bindings are scored
+     * against the problem compiled on first use.
+     */
+    private static final class Best {
+        Binding binding;
+        double score = Double.POSITIVE_INFINITY;
+        private final CompiledQACOProblem compiledCws;
+        private WorkflowAggregator aggregator;
+        private CompiledConstraint constraint;
+
+        Best(CompiledQACOProblem compiledCws) {
+            this.compiledCws = compiledCws;
+        }
+
+        synchronized void offer(Binding binding, double score) {
+            if (score < this.score) {
+                this.binding = binding;
+                this.score = score;
+            }
+        }
+
+        synchronized void offer(Binding binding, QACOProblem problem) {
+            if (binding == this.binding) {
+                return;
+            }
+            if (aggregator == null) {
+                aggregator = WorkflowAggregator.of(compiledCws.withProblem(problem));
+                constraint = ConstraintCompiler.compile(aggregator.getCompiledProblem(), aggregator);
+            }
+            int[] assignment = aggregator.getCompiledProblem().toAssignment(binding);
+            for (int service : assignment) {
+                if (service < 0) {
+                    return;
+                }
+            }
+            if (constraint.test(assignment)) {
+                offer(binding, aggregator.score(assignment));
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.qaco.engine.qos;
+
+import com.example.qaco.domain.cws.Feature;
+
+import java.util.Arrays;
+
+/**
+ * The simulated distribution of one feature aggregated over the workflow (see
+ * {@link WorkflowSimulator}): its mean and standard deviation, and the requested percentiles, each
+ * with a confidence interval at {@link SimulationResult#getConfidence()}.
+ * <p>
+ * The interval of the mean is the normal approximation {@code mean +/- z * sd / sqrt(n)}. The
+ * interval of a percentile is distribution-free: the order statistics whose ranks bound
+ * {@code n * q +/- z * sqrt(n * q * (1 - q))}.
+ */
+public final class FeatureStatistics {
+
+    private final Feature feature;
+    private final double expected;
+    private final double mean;
+    private final double standardDeviation;
+    private final double meanLower;
+    private final double meanUpper;
+    private final double min;
+    private final double max;
+    private final double[] levels;
+    private final double[] percentiles;
+    private final double[] percentileLower;
+    private final double[] percentileUpper;
+
+    FeatureStatistics(Feature feature, double expected, double mean, double standardDeviation, double meanLower,
+                      double meanUpper, double min, double max, double[] levels, double[] percentiles,
+                      double[] percentileLower, double[] percentileUpper) {
+        this.feature = feature;
+        this.expected = expected;
+        this.mean = mean;
+        this.standardDeviation = standardDeviation;
+        this.meanLower = meanLower;
+        this.meanUpper = meanUpper;
+        this.min = min;
+        this.max = max;
+        this.levels = levels;
+        this.percentiles = percentiles;
+        this.percentileLower = percentileLower;
+        this.percentileUpper = percentileUpper;
+    }
+
+    public Feature getFeature() {
+        return feature;
+    }
+
+    /**
+     * @return the value {@link WorkflowAggregator#aggregate(int, int[])} computes analytically, for comparison
+     */
+    public double getExpected() {
+        return expected;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public double getStandardDeviation() {
+        return standardDeviation;
+    }
+
+    public double getMeanLower() {
+        return meanLower;
+    }
+
+    public double getMeanUpper() {
+        return meanUpper;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * @return the percentile levels, in (0, 1)
+     */
+    public double[] getLevels() {
+        return levels.clone();
+    }
+
+    /**
+     * @param level one of {@link #getLevels()}, e.g. 0.95
+     * @throws IllegalArgumentException if the level was not simulated
+     */
+    public double getPercentile(double level) {
+        return percentiles[indexOf(level)];
+    }
+
+    public double getPercentileLower(double level) {
+        return percentileLower[indexOf(level)];
+    }
+
+    public double getPercentileUpper(double level) {
+        return percentileUpper[indexOf(level)];
+    }
+
+    private int indexOf(double level) {
+        for (int i = 0; i < levels.length; i++) {
+            if (levels[i] == level) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Percentile " + level + " was not simulated; levels: " + Arrays.toString(levels));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("FeatureStatistics(feature=")
+                .append(feature == null ? null : feature.getName())
+                .append(", mean=").append(mean)
+                .append(" [").append(meanLower).append(", ").append(meanUpper).append(']')
+                .append(", sd=").append(standardDeviation);
+        for (int i = 0; i < levels.length; i++) {
+            text.append(", p").append(levels[i] * 100).append('=').append(percentiles[i])
+                    .append(" [").append(percentileLower[i]).append(", ").append(percentileUpper[i]).append(']');
+        }
+        return text.append(')').toString();
+    }
+}
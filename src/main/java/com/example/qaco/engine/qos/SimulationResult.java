@@ -0,0 +1,77 @@
+package com.example.qaco.engine.qos;
+
+import com.example.qaco.domain.cws.Feature;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What a {@link WorkflowSimulator} run estimated: the statistics of every feature of the CWS, in
+ * feature id order.
+ */
+public final class SimulationResult {
+
+    private final List<FeatureStatistics> statistics;
+    private final long samples;
+    private final double confidence;
+    private final boolean converged;
+
+    SimulationResult(FeatureStatistics[] statistics, long samples, double confidence, boolean converged) {
+        this.statistics = Collections.unmodifiableList(Arrays.asList(statistics));
+        this.samples = samples;
+        this.confidence = confidence;
+        this.converged = converged;
+    }
+
+    public List<FeatureStatistics> getStatistics() {
+        return statistics;
+    }
+
+    public FeatureStatistics getStatistics(int featureId) {
+        return statistics.get(featureId);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the feature is not part of the CWS (matched by identity or name)
+     */
+    public FeatureStatistics getStatistics(Feature feature) {
+        for (FeatureStatistics s : statistics) {
+            if (s.getFeature() == feature) {
+                return s;
+            }
+        }
+        for (FeatureStatistics s : statistics) {
+            if (feature != null && s.getFeature() != null && s.getFeature().getName() != null
+                    && s.getFeature().getName().equals(feature.getName())) {
+                return s;
+            }
+        }
+        throw new IllegalArgumentException("Feature not in the CWS: " + (feature == null ? null : feature.getName()));
+    }
+
+    /**
+     * @return the number of executions sampled
+     */
+    public long getSamples() {
+        return samples;
+    }
+
+    public double getConfidence() {
+        return confidence;
+    }
+
+    /**
+     * @return true if sampling stopped because every interval was within the precision, false if it
+     * stopped at the sample limit or because the solve context asked it to
+     */
+    public boolean isConverged() {
+        return converged;
+    }
+
+    @Override
+    public String toString() {
+        return "SimulationResult(samples=" + samples + ", confidence=" + confidence + ", converged=" + converged
+                + ", statistics=" + statistics + ")";
+    }
+}
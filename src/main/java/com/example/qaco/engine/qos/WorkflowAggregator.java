@@ -0,0 +1,422 @@
+package com.example.qaco.engine.qos;
+
+import com.example.qaco.domain.problem.AggregateDomainType;
+import com.example.qaco.engine.AggregationFunction;
+import com.example.qaco.engine.CompiledQACOProblem;
+import com.example.qaco.engine.PartialAssignment;
+import com.example.qaco.engine.graph.GraphIndex;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregates the QoS of an assignment over the workflow of the CompositeWebService.
+ * <p>
+ * The regions of the Graph (see {@link CompiledQACOProblem#graphIndex()}) are reduced once into an aggregation tree whose inner nodes are SEQUENCE, FORK
+ * (PARALLEL_GATE split/join), BRANCH (EXCLUSIVE_GATE split/join, weighted by the branch
+ * probabilities) and LOOP (a back edge, repeated 1 / (1 - p) times where p is the probability
+ * of taking the back edge), and whose leaves are the ACTIVITY nodes (matched to tasks by label).
+ * How each feature combines in each construct comes from the Optimization's AggregateDomains
+ * (see {@link CompiledQACOProblem#aggregation(AggregateDomainType, int)}):
+ * - SEQUENCE / FORK fold their children with the function.
+ * - BRANCH takes the min / max of its branches for MIN / MAX, and the probability-weighted
+ *   expectation otherwise.
+ * - LOOP multiplies its body by the iterations for SUM, raises it to their power for PRODUCT and
+ *   keeps it as is otherwise.
+ * Without a graph the tree is a single SEQUENCE of all tasks; tasks that do not appear in the
+ * graph are appended to the root sequence.
+ * <p>
+ * Branch probabilities are read from {@code Graph.probabilities} as described in {@link GraphIndex}.
+ * <p>
+ * {@link #score(int[])} is the weighted sum of the aggregated preference features; engines
+ * minimise it, so a negative weight asks for a feature to be maximised. Instances are immutable;
+ * use {@link #newEvaluation()} for per-thread incremental evaluation.
+ */
+public final class WorkflowAggregator {
+
+    static final int LEAF = 0;
+    static final int SEQUENCE = 1;
+    static final int FORK = 2;
+    static final int BRANCH = 3;
+    static final int LOOP = 4;
+
+    private final CompiledQACOProblem compiled;
+    private final int featureCount;
+
+    // The aggregation tree, children in CSR form
+    final int[] kind;
+    final int[] leafTask;
+    final int[] parent;
+    final int[] childStart;
+    final int[] children;
+    final double[] childWeight;
+    final double[] iterations;
+    final int root;
+    final int[][] leavesOfTask;
+
+    // functions[kind][feature], only meaningful for inner nodes
+    private final AggregationFunction[][] functions;
+    private final double[][] qos;
+    private final boolean[] monotone;
+    private final int[] preferenceFeatures;
+    private final double[] preferenceWeights;
+
+    private WorkflowAggregator(CompiledQACOProblem compiled, TreeNode tree) {
+        this.compiled = compiled;
+        this.featureCount = compiled.featureCount();
+
+        List<TreeNode> order = new ArrayList<>();
+        flatten(tree, order);
+        int n = order.size();
+        Map<TreeNode, Integer> ids = new IdentityHashMap<>(2 * n);
+        int edgeCount = 0;
+        for (int i = 0; i < n; i++) {
+            ids.put(order.get(i), i);
+            edgeCount += order.get(i).children.size();
+        }
+        this.kind = new int[n];
+        this.leafTask = new int[n];
+        this.parent = new int[n];
+        this.childStart = new int[n + 1];
+        this.children = new int[edgeCount];
+        this.childWeight = new double[edgeCount];
+        this.iterations = new double[n];
+        int[] leafCounts = new int[compiled.taskCount()];
+        int e = 0;
+        for (int i = 0; i < n; i++) {
+            TreeNode node = order.get(i);
+            kind[i] = node.kind;
+            leafTask[i] = node.task;
+            iterations[i] = node.iterations;
+            childStart[i] = e;
+            for (int c = 0; c < node.children.size(); c++) {
+                int child = ids.get(node.children.get(c));
+                children[e] = child;
+                childWeight[e] = node.weights.get(c);
+                parent[child] = i;
+                e++;
+            }
+            if (node.kind == LEAF) {
+                leafCounts[node.task]++;
+            }
+        }
+        childStart[n] = e;
+        this.root = 0;
+        parent[root] = -1;
+        this.leavesOfTask = new int[compiled.taskCount()][];
+        for (int t = 0; t < leavesOfTask.length; t++) {
+            leavesOfTask[t] = new int[leafCounts[t]];
+            leafCounts[t] = 0;
+        }
+        for (int i = 0; i < n; i++) {
+            if (kind[i] == LEAF) {
+                leavesOfTask[leafTask[i]][leafCounts[leafTask[i]]++] = i;
+            }
+        }
+
+        this.functions = new AggregationFunction[LOOP + 1][featureCount];
+        for (int f = 0; f < featureCount; f++) {
+            functions[SEQUENCE][f] = compiled.aggregation(AggregateDomainType.SEQUENCE, f);
+            functions[FORK][f] = compiled.aggregation(AggregateDomainType.FORK, f);
+            functions[BRANCH][f] = compiled.aggregation(AggregateDomainType.BRANCH, f);
+            functions[LOOP][f] = compiled.aggregation(AggregateDomainType.LOOP, f);
+        }
+        this.qos = new double[featureCount][];
+        for (int f = 0; f < featureCount; f++) {
+            qos[f] = compiled.qosRow(f);
+        }
+        // Every construct is non-decreasing in its children, except products of negative values
+        this.monotone = new boolean[featureCount];
+        for (int f = 0; f < featureCount; f++) {
+            boolean product = false;
+            for (int k = SEQUENCE; k <= LOOP; k++) {
+                product |= functions[k][f] == AggregationFunction.PRODUCT;
+            }
+            boolean negative = false;
+            for (double value : qos[f]) {
+                negative |= value < 0.0;
+            }
+            monotone[f] = !(product && negative);
+        }
+        this.preferenceFeatures = new int[compiled.preferenceCount()];
+        this.preferenceWeights = new double[compiled.preferenceCount()];
+        for (int p = 0; p < preferenceFeatures.length; p++) {
+            preferenceFeatures[p] = compiled.preferenceFeature(p);
+            preferenceWeights[p] = compiled.preferenceWeight(p);
+        }
+    }
+
+    /**
+     * Reduce the regions of the workflow graph of the compiled problem into an aggregation tree.
+     */
+    public static WorkflowAggregator of(CompiledQACOProblem compiled) {
+        GraphIndex index = compiled.graphIndex();
+        TreeNode tree = index == null ? new TreeNode(SEQUENCE) : reduce(compiled, index);
+
+        boolean[] present = new boolean[compiled.taskCount()];
+        markTasks(tree, present);
+        TreeNode rootNode = tree.kind == SEQUENCE ? tree : wrap(tree);
+        for (int t = 0; t < present.length; t++) {
+            if (!present[t]) {
+                rootNode.add(TreeNode.leaf(t), 1.0);
+            }
+        }
+        return new WorkflowAggregator(compiled, rootNode);
+    }
+
+    private static TreeNode wrap(TreeNode node) {
+        TreeNode sequence = new TreeNode(SEQUENCE);
+        sequence.add(node, 1.0);
+        return sequence;
+    }
+
+    private static void markTasks(TreeNode node, boolean[] present) {
+        if (node.kind == LEAF) {
+            present[node.task] = true;
+        }
+        for (TreeNode child : node.children) {
+            markTasks(child, present);
+        }
+    }
+
+    private static void flatten(TreeNode node, List<TreeNode> order) {
+        order.add(node);
+        for (TreeNode child : node.children) {
+            flatten(child, order);
+        }
+    }
+
+    public CompiledQACOProblem getCompiledProblem() {
+        return compiled;
+    }
+
+    public int nodeCount() {
+        return kind.length;
+    }
+
+    /**
+     * @return the feature aggregated over the whole workflow for the assignment
+     */
+    public double aggregate(int feature, int[] assignment) {
+        return evaluate(root, feature, assignment);
+    }
+
+    /**
+     * @return the weighted sum of the aggregated preference features (lower is better)
+     */
+    public double score(int[] assignment) {
+        double score = 0.0;
+        for (int p = 0; p < preferenceFeatures.length; p++) {
+            score += preferenceWeights[p] * evaluate(root, preferenceFeatures[p], assignment);
+        }
+        return score;
+    }
+
+    /**
+     * @return true if the aggregate of the feature is non-decreasing in the value of every task, so
+     * evaluating the completions of a {@link PartialAssignment} bounds it
+     */
+    public boolean isMonotone(int feature) {
+        return monotone[feature];
+    }
+
+    /**
+     * @return a lower bound of {@link #score(int[])} over every completion of the partial
+     * assignment, or negative infinity if some preference feature is not monotone
+     */
+    public double lowerBound(PartialAssignment partial) {
+        double bound = 0.0;
+        for (int p = 0; p < preferenceFeatures.length; p++) {
+            int feature = preferenceFeatures[p];
+            if (!monotone[feature]) {
+                return Double.NEGATIVE_INFINITY;
+            }
+            double weight = preferenceWeights[p];
+            int[] completion = weight >= 0.0 ? partial.lowerCompletion(feature) : partial.upperCompletion(feature);
+            bound += weight * evaluate(root, feature, completion);
+        }
+        return bound;
+    }
+
+    /**
+     * @return a fresh mutable evaluation for incremental (single-task) updates
+     */
+    public WorkflowEvaluation newEvaluation() {
+        return new WorkflowEvaluation(this);
+    }
+
+    int featureCount() {
+        return featureCount;
+    }
+
+    int preferenceCount() {
+        return preferenceFeatures.length;
+    }
+
+    int preferenceFeature(int p) {
+        return preferenceFeatures[p];
+    }
+
+    double preferenceWeight(int p) {
+        return preferenceWeights[p];
+    }
+
+    double leafValue(int feature, int service) {
+        return qos[feature][service];
+    }
+
+    /**
+     * @return how the feature combines at an inner node
+     */
+    AggregationFunction function(int node, int feature) {
+        return functions[kind[node]][feature];
+    }
+
+    private double evaluate(int node, int feature, int[] assignment) {
+        int k = kind[node];
+        if (k == LEAF) {
+            return qos[feature][assignment[leafTask[node]]];
+        }
+        int from = childStart[node];
+        int to = childStart[node + 1];
+        AggregationFunction function = functions[k][feature];
+        if (from == to) {
+            return emptyValue(function);
+        }
+        if (k == LOOP) {
+            return repeat(function, evaluate(children[from], feature, assignment), iterations[node]);
+        }
+        if (k == BRANCH && function != AggregationFunction.MIN && function != AggregationFunction.MAX) {
+            double expected = 0.0;
+            for (int e = from; e < to; e++) {
+                expected += childWeight[e] * evaluate(children[e], feature, assignment);
+            }
+            return expected;
+        }
+        double acc = function.identity();
+        for (int e = from; e < to; e++) {
+            acc = function.accumulate(acc, evaluate(children[e], feature, assignment));
+        }
+        return function.finish(acc, to - from);
+    }
+
+    /**
+     * Recompute an inner node from the cached values of its children ({@code values[node * F + f]}).
+     */
+    double combine(int node, int feature, double[] values) {
+        int k = kind[node];
+        int from = childStart[node];
+        int to = childStart[node + 1];
+        AggregationFunction function = functions[k][feature];
+        if (from == to) {
+            return emptyValue(function);
+        }
+        if (k == LOOP) {
+            return repeat(function, values[children[from] * featureCount + feature], iterations[node]);
+        }
+        if (k == BRANCH && function != AggregationFunction.MIN && function != AggregationFunction.MAX) {
+            double expected = 0.0;
+            for (int e = from; e < to; e++) {
+                expected += childWeight[e] * values[children[e] * featureCount + feature];
+            }
+            return expected;
+        }
+        double acc = function.identity();
+        for (int e = from; e < to; e++) {
+            acc = function.accumulate(acc, values[children[e] * featureCount + feature]);
+        }
+        return function.finish(acc, to - from);
+    }
+
+    static double emptyValue(AggregationFunction function) {
+        return function == AggregationFunction.PRODUCT ? 1.0 : 0.0;
+    }
+
+    private static double repeat(AggregationFunction function, double body, double times) {
+        switch (function) {
+            case SUM:
+                return body * times;
+            case PRODUCT:
+                return Math.pow(body, times);
+            default:
+                return body;
+        }
+    }
+
+    /**
+     * Mutable tree built while reducing the graph.
+     */
+    static final class TreeNode {
+        final int kind;
+        int task = -1;
+        double iterations = 1.0;
+        final List<TreeNode> children = new ArrayList<>();
+        final List<Double> weights = new ArrayList<>();
+
+        TreeNode(int kind) {
+            this.kind = kind;
+        }
+
+        static TreeNode leaf(int task) {
+            TreeNode node = new TreeNode(LEAF);
+            node.task = task;
+            return node;
+        }
+
+        void add(TreeNode child, double weight) {
+            if (kind == SEQUENCE && child.kind == SEQUENCE) {
+                // Flatten nested sequences
+                children.addAll(child.children);
+                weights.addAll(child.weights);
+            } else {
+                children.add(child);
+                weights.add(weight);
+            }
+        }
+
+        TreeNode simplify() {
+            return kind == SEQUENCE && children.size() == 1 ? children.get(0) : this;
+        }
+    }
+
+    /**
+     * Converts the regions of the graph into a TreeNode; ACTIVITY nodes that match no task are dropped.
+     */
+    private static TreeNode reduce(CompiledQACOProblem compiled, GraphIndex index) {
+        Map<String, Integer> tasksByName = new HashMap<>();
+        for (int t = 0; t < compiled.taskCount(); t++) {
+            tasksByName.putIfAbsent(compiled.task(t).getName(), t);
+        }
+        return reduce(index, index.root(), tasksByName);
+    }
+
+    private static TreeNode reduce(GraphIndex index, GraphIndex.Region region, Map<String, Integer> tasksByName) {
+        List<GraphIndex.Region> regions = region.getChildren();
+        switch (region.getKind()) {
+            case ACTIVITY:
+                Integer task = tasksByName.get(index.node(region.getEntry()).getLabel());
+                return task == null ? new TreeNode(SEQUENCE) : TreeNode.leaf(task);
+            case BRANCH:
+            case FORK:
+                TreeNode split = new TreeNode(region.getKind() == GraphIndex.Region.Kind.BRANCH ? BRANCH : FORK);
+                for (int i = 0; i < regions.size(); i++) {
+                    split.add(reduce(index, regions.get(i), tasksByName), region.getProbability(i));
+                }
+                return split;
+            case LOOP:
+                TreeNode loop = new TreeNode(LOOP);
+                loop.iterations = region.getIterations();
+                loop.add(reduce(index, regions.get(0), tasksByName), 1.0);
+                return loop;
+            default:
+                TreeNode sequence = new TreeNode(SEQUENCE);
+                for (GraphIndex.Region child : regions) {
+                    sequence.add(reduce(index, child, tasksByName), 1.0);
+                }
+                return sequence.simplify();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.qaco.engine.qos;
+
+/**
+ * A mutable, incrementally maintained evaluation of one assignment against a
+ * {@link WorkflowAggregator}.
+ * <p>
+ * The aggregated value of every feature is cached at every node of the aggregation tree. Changing
+ * the service of one task ({@link #set(int, int)}) only recomputes the nodes on the path from that
+ * task's leaves to the root, which is what neighbourhood moves in local search need.
+ * Not thread-safe: use one instance per thread.
+ */
+public final class WorkflowEvaluation {
+
+    private final WorkflowAggregator aggregator;
+    private final int featureCount;
+    private final double[] values;
+    private final int[] assignment;
+
+    WorkflowEvaluation(WorkflowAggregator aggregator) {
+        this.aggregator = aggregator;
+        this.featureCount = aggregator.featureCount();
+        this.values = new double[aggregator.nodeCount() * featureCount];
+        this.assignment = new int[aggregator.getCompiledProblem().taskCount()];
+    }
+
+    /**
+     * Evaluate a whole assignment from scratch.
+     */
+    public void reset(int[] newAssignment) {
+        System.arraycopy(newAssignment, 0, assignment, 0, assignment.length);
+        // Children always have higher ids than their parent, so a reverse sweep is bottom-up.
+        for (int node = aggregator.nodeCount() - 1; node >= 0; node--) {
+            recompute(node);
+        }
+    }
+
+    /**
+     * Bind {@code task} to {@code service} and update the aggregates along the path to the root.
+     */
+    public void set(int task, int service) {
+        if (assignment[task] == service) {
+            return;
+        }
+        assignment[task] = service;
+        for (int leaf : aggregator.leavesOfTask[task]) {
+            recompute(leaf);
+            for (int node = aggregator.parent[leaf]; node >= 0; node = aggregator.parent[node]) {
+                recompute(node);
+            }
+        }
+    }
+
+    private void recompute(int node) {
+        int base = node * featureCount;
+        if (aggregator.kind[node] == WorkflowAggregator.LEAF) {
+            int service = assignment[aggregator.leafTask[node]];
+            for (int f = 0; f < featureCount; f++) {
+                values[base + f] = aggregator.leafValue(f, service);
+            }
+        } else {
+            for (int f = 0; f < featureCount; f++) {
+                values[base + f] = aggregator.combine(node, f, values);
+            }
+        }
+    }
+
+    /**
+     * @return the feature aggregated over the whole workflow
+     */
+    public double value(int feature) {
+        return values[aggregator.root * featureCount + feature];
+    }
+
+    /**
+     * @return the cached value of the feature at a node of the aggregation tree
+     */
+    double nodeValue(int node, int feature) {
+        return values[node * featureCount + feature];
+    }
+
+    /**
+     * @return the weighted preference score of the current assignment (lower is better)
+     */
+    public double score() {
+        double score = 0.0;
+        for (int p = 0; p < aggregator.preferenceCount(); p++) {
+            score += aggregator.preferenceWeight(p) * value(aggregator.preferenceFeature(p));
+        }
+        return score;
+    }
+
+    /**
+     * @return the current assignment (shared, do not modify; use {@link #set(int, int)})
+     */
+    public int[] assignment() {
+        return assignment;
+    }
+
+    public WorkflowAggregator getAggregator() {
+        return aggregator;
+    }
+}
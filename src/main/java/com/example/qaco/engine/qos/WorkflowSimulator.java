@@ -0,0 +1,477 @@
+package com.example.qaco.engine.qos;
+
+import com.example.qaco.domain.QACOProblem;
+import com.example.qaco.domain.binding.Binding;
+import com.example.qaco.engine.AggregationFunction;
+import com.example.qaco.engine.CompiledQACOProblem;
+import com.example.qaco.engine.ParallelFor;
+import com.example.qaco.engine.SolveContext;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Monte Carlo simulation of the QoS of one assignment over the probabilistic workflow: where
+ * {@link WorkflowAggregator} computes expected values, this samples executions of the workflow and
+ * estimates the distribution of every feature (mean, percentiles and their confidence intervals,
+ * see {@link FeatureStatistics}).
+ * <p>
+ * An execution walks the aggregation tree of the WorkflowAggregator: a BRANCH takes one branch,
+ * drawn with the branch probabilities, and a LOOP runs its body a geometric number of times
+ * (at least once, continuing with the back edge probability p, so 1 / (1 - p) times on average),
+ * each iteration sampling its own branches. The values are combined with the same aggregation
+ * functions as the aggregator; only the BRANCH function is not used, since an execution takes a
+ * single branch. Subtrees without branches or loops always aggregate to the same value, which is
+ * computed once.
+ * <p>
+ * Samples are drawn in blocks of {@value #BLOCK} executions processed in parallel, each block with
+ * its own {@link SplittableRandom} split from the seed in block order, so a seeded simulation
+ * returns the same result whatever the number of threads. Every thread reuses preallocated
+ * primitive buffers, so sampling does not allocate. Sampling starts with the minimum number of
+ * samples and doubles it until every interval is within the relative precision of its estimate,
+ * the maximum number of samples is reached or the current {@link SolveContext} asks to stop. The
+ * samples are kept in memory to compute the percentiles, 8 bytes per sample and feature.
+ */
+public final class WorkflowSimulator {
+
+    /**
+     * Executions sampled with one random generator.
+     */
+    public static final int BLOCK = 4096;
+
+    private Long seed;
+    private int minSamples = 10_000;
+    private int maxSamples = 1_000_000;
+    private int threads;
+    private double confidence = 0.95;
+    private double precision = 0.005;
+    private double[] levels = {0.5, 0.9, 0.95, 0.99};
+
+    /**
+     * A simulator with a random seed.
+     */
+    public WorkflowSimulator() {
+    }
+
+    public WorkflowSimulator(long seed) {
+        this.seed = seed;
+    }
+
+    public WorkflowSimulator seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * @param min samples drawn before checking convergence
+     * @param max samples drawn at most
+     */
+    public WorkflowSimulator samples(int min, int max) {
+        if (min <= 0 || max < min) {
+            throw new IllegalArgumentException("Expected 0 < min <= max samples: " + min + ", " + max);
+        }
+        this.minSamples = min;
+        this.maxSamples = max;
+        return this;
+    }
+
+    /**
+     * @param threads parallelism, or 0 for the common pool
+     */
+    public WorkflowSimulator threads(int threads) {
+        if (threads < 0) {
+            throw new IllegalArgumentException("Threads cannot be negative: " + threads);
+        }
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * @param confidence level of the intervals, e.g. 0.95
+     */
+    public WorkflowSimulator confidence(double confidence) {
+        if (!(confidence > 0.0 && confidence < 1.0)) {
+            throw new IllegalArgumentException("Confidence must be between 0 and 1: " + confidence);
+        }
+        this.confidence = confidence;
+        return this;
+    }
+
+    /**
+     * @param precision the largest half-width of an interval relative to its estimate for the
+     *                  simulation to have converged, e.g. 0.005 for +/-0.5%
+     */
+    public WorkflowSimulator precision(double precision) {
+        if (!(precision > 0.0)) {
+            throw new IllegalArgumentException("Precision must be positive: " + precision);
+        }
+        this.precision = precision;
+        return this;
+    }
+
+    /**
+     * @param levels the percentiles to estimate, in (0, 1), e.g. 0.95 for p95
+     */
+    public WorkflowSimulator percentiles(double... levels) {
+        for (double level : levels) {
+            if (!(level > 0.0 && level < 1.0)) {
+                throw new IllegalArgumentException("Percentile must be between 0 and 1: " + level);
+            }
+        }
+        this.levels = levels.clone();
+        return this;
+    }
+
+    /**
+     * Simulate a complete binding of the problem.
+     *
+     * @throws IllegalArgumentException if the binding does not bind every task to a service of the CWS
+     */
+    public SimulationResult simulate(QACOProblem problem, Binding binding) {
+        CompiledQACOProblem compiled = CompiledQACOProblem.compile(problem);
+        return simulate(WorkflowAggregator.of(compiled), compiled.toAssignment(binding));
+    }
+
+    /**
+     * Simulate a complete assignment (service id by task id).
+     *
+     * @throws IllegalArgumentException if the assignment is incomplete
+     */
+    public SimulationResult simulate(WorkflowAggregator aggregator, int[] assignment) {
+        CompiledQACOProblem compiled = aggregator.getCompiledProblem();
+        if (assignment == null || assignment.length != compiled.taskCount()) {
+            throw new IllegalArgumentException("Expected the service of " + compiled.taskCount() + " tasks.");
+        }
+        for (int t = 0; t < assignment.length; t++) {
+            if (assignment[t] < 0 || assignment[t] >= compiled.serviceCount()) {
+                throw new IllegalArgumentException("Task " + compiled.task(t).getName() + " is not bound.");
+            }
+        }
+        Plan plan = new Plan(aggregator, assignment);
+        SolveContext context = SolveContext.current();
+        SplittableRandom root = seed == null ? new SplittableRandom() : new SplittableRandom(seed);
+        double z = normalQuantile(0.5 + confidence / 2);
+        ThreadLocal<Sampler> samplers = ThreadLocal.withInitial(() -> new Sampler(plan));
+
+        double[][] samples = new double[plan.featureCount][];
+        int n = 0;
+        int target = minSamples;
+        FeatureStatistics[] statistics;
+        boolean converged;
+        ForkJoinPool pool = ParallelFor.pool(threads);
+        try {
+            while (true) {
+                for (int f = 0; f < samples.length; f++) {
+                    samples[f] = samples[f] == null ? new double[target] : Arrays.copyOf(samples[f], target);
+                }
+                int from = n;
+                int to = target;
+                SplittableRandom[] randoms = new SplittableRandom[(to - from + BLOCK - 1) / BLOCK];
+                for (int b = 0; b < randoms.length; b++) {
+                    randoms[b] = root.split();
+                }
+                ParallelFor.run(pool, randoms.length, b -> samplers.get().run(randoms[b],
+                        from + b * BLOCK, Math.min(to, from + (b + 1) * BLOCK), samples));
+                n = to;
+
+                statistics = new FeatureStatistics[plan.featureCount];
+                converged = true;
+                for (int f = 0; f < statistics.length; f++) {
+                    statistics[f] = statistics(plan, f, samples[f], n, z);
+                    converged &= isConverged(statistics[f]);
+                }
+                if (converged || n >= maxSamples || context.isStopRequested()) {
+                    break;
+                }
+                target = (int) Math.min(maxSamples, 2L * n);
+            }
+        } finally {
+            ParallelFor.release(pool);
+        }
+        return new SimulationResult(statistics, n, confidence, converged);
+    }
+
+    private FeatureStatistics statistics(Plan plan, int feature, double[] values, int n, double z) {
+        double sum = 0.0;
+        for (int i = 0; i < n; i++) {
+            sum += values[i];
+        }
+        double mean = sum / n;
+        double squares = 0.0;
+        for (int i = 0; i < n; i++) {
+            double d = values[i] - mean;
+            squares += d * d;
+        }
+        double sd = n > 1 ? Math.sqrt(squares / (n - 1)) : 0.0;
+        double halfWidth = z * sd / Math.sqrt(n);
+
+        double[] sorted = Arrays.copyOf(values, n);
+        Arrays.parallelSort(sorted);
+        double[] percentiles = new double[levels.length];
+        double[] lower = new double[levels.length];
+        double[] upper = new double[levels.length];
+        for (int i = 0; i < levels.length; i++) {
+            double q = levels[i];
+            double h = (n - 1) * q;
+            int k = (int) Math.floor(h);
+            percentiles[i] = k + 1 < n ? sorted[k] + (h - k) * (sorted[k + 1] - sorted[k]) : sorted[n - 1];
+            // Ranks (1-based) of the order statistics bounding the percentile
+            double spread = z * Math.sqrt(n * q * (1 - q));
+            int low = (int) Math.max(1, Math.min(n, Math.floor(n * q - spread)));
+            int high = (int) Math.max(1, Math.min(n, Math.ceil(n * q + spread)));
+            lower[i] = sorted[low - 1];
+            upper[i] = sorted[high - 1];
+        }
+        return new FeatureStatistics(plan.compiled.feature(feature), plan.expected[feature], mean, sd,
+                mean - halfWidth, mean + halfWidth, sorted[0], sorted[n - 1], levels.clone(),
+                percentiles, lower, upper);
+    }
+
+    private boolean isConverged(FeatureStatistics s) {
+        if (!withinPrecision(s.getMean(), s.getMeanLower(), s.getMeanUpper())) {
+            return false;
+        }
+        for (double level : s.getLevels()) {
+            if (!withinPrecision(s.getPercentile(level), s.getPercentileLower(level), s.getPercentileUpper(level))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean withinPrecision(double estimate, double lower, double upper) {
+        return upper - lower <= 2 * precision * Math.abs(estimate);
+    }
+
+    /**
+     * Inverse of the standard normal distribution function (Acklam's rational approximation,
+     * relative error below 1.2e-9).
+     */
+    static double normalQuantile(double p) {
+        final double[] a = {-3.969683028665376e+01, 2.209460984245205e+02, -2.759285104469687e+02,
+                1.383577518672690e+02, -3.066479806614716e+01, 2.506628277459239e+00};
+        final double[] b = {-5.447609879822406e+01, 1.615858368580409e+02, -1.556989798598866e+02,
+                6.680131188771972e+01, -1.328068155288572e+01};
+        final double[] c = {-7.784894002430293e-03, -3.223964580411365e-01, -2.400758277161838e+00,
+                -2.549732539343734e+00, 4.374664141464968e+00, 2.938163982698783e+00};
+        final double[] d = {7.784695709041462e-03, 3.224671290700398e-01, 2.445134137142996e+00,
+                3.754408661907416e+00};
+        if (p < 0.02425) {
+            double q = Math.sqrt(-2 * Math.log(p));
+            return (((((c[0] * q + c[1]) * q + c[2]) * q + c[3]) * q + c[4]) * q + c[5])
+                    / ((((d[0] * q + d[1]) * q + d[2]) * q + d[3]) * q + 1);
+        }
+        if (p > 1 - 0.02425) {
+            return -normalQuantile(1 - p);
+        }
+        double q = p - 0.5;
+        double r = q * q;
+        return (((((a[0] * r + a[1]) * r + a[2]) * r + a[3]) * r + a[4]) * r + a[5]) * q
+                / (((((b[0] * r + b[1]) * r + b[2]) * r + b[3]) * r + b[4]) * r + 1);
+    }
+
+    /**
+     * The aggregation tree prepared for one assignment.
+     */
+    private static final class Plan {
+        final CompiledQACOProblem compiled;
+        final int featureCount;
+        final int root;
+        final int[] kind;
+        final int[] childStart;
+        final int[] children;
+        // Cumulative branch probabilities, by child edge
+        final double[] cumulative;
+        // Probability of running a loop body once more
+        final double[] again;
+        // Whether the value of a node varies between executions
+        final boolean[] random;
+        // values[node * F + f] of the nodes that do not vary
+        final double[] fixed;
+        // functions[node * F + f] of the inner nodes
+        final AggregationFunction[] functions;
+        final double[] expected;
+        final int depth;
+
+        Plan(WorkflowAggregator aggregator, int[] assignment) {
+            this.compiled = aggregator.getCompiledProblem();
+            this.featureCount = compiled.featureCount();
+            this.root = aggregator.root;
+            this.kind = aggregator.kind;
+            this.childStart = aggregator.childStart;
+            this.children = aggregator.children;
+            int n = aggregator.nodeCount();
+
+            WorkflowEvaluation evaluation = aggregator.newEvaluation();
+            evaluation.reset(assignment);
+            this.fixed = new double[n * featureCount];
+            this.functions = new AggregationFunction[n * featureCount];
+            for (int node = 0; node < n; node++) {
+                for (int f = 0; f < featureCount; f++) {
+                    fixed[node * featureCount + f] = evaluation.nodeValue(node, f);
+                    if (kind[node] != WorkflowAggregator.LEAF) {
+                        functions[node * featureCount + f] = aggregator.function(node, f);
+                    }
+                }
+            }
+            this.expected = new double[featureCount];
+            for (int f = 0; f < featureCount; f++) {
+                expected[f] = evaluation.value(f);
+            }
+
+            this.cumulative = new double[children.length];
+            this.again = new double[n];
+            this.random = new boolean[n];
+            // Children have higher ids than their parent, so a reverse sweep is bottom-up
+            for (int node = n - 1; node >= 0; node--) {
+                int from = childStart[node];
+                int to = childStart[node + 1];
+                boolean varies = false;
+                for (int e = from; e < to; e++) {
+                    varies |= random[children[e]];
+                }
+                if (kind[node] == WorkflowAggregator.BRANCH && to - from > 1) {
+                    double total = 0.0;
+                    for (int e = from; e < to; e++) {
+                        total += aggregator.childWeight[e];
+                    }
+                    double sum = 0.0;
+                    for (int e = from; e < to; e++) {
+                        sum += total > 0 ? aggregator.childWeight[e] / total : 1.0 / (to - from);
+                        cumulative[e] = sum;
+                    }
+                    varies = true;
+                } else if (kind[node] == WorkflowAggregator.LOOP && from < to) {
+                    again[node] = 1.0 - 1.0 / aggregator.iterations[node];
+                    varies |= again[node] > 0.0;
+                }
+                random[node] = varies;
+            }
+
+            int[] depths = new int[n];
+            int max = 0;
+            for (int node = 0; node < n; node++) {
+                for (int e = childStart[node]; e < childStart[node + 1]; e++) {
+                    depths[children[e]] = depths[node] + 1;
+                    max = Math.max(max, depths[children[e]]);
+                }
+            }
+            this.depth = max;
+        }
+    }
+
+    /**
+     * Samples executions with buffers of one value and one accumulator per feature and tree depth;
+     * one per thread.
+     */
+    private static final class Sampler {
+        private final Plan plan;
+        private final int featureCount;
+        private final double[] values;
+        private final double[] accumulators;
+
+        Sampler(Plan plan) {
+            this.plan = plan;
+            this.featureCount = plan.featureCount;
+            this.values = new double[(plan.depth + 1) * featureCount];
+            this.accumulators = new double[(plan.depth + 1) * featureCount];
+        }
+
+        void run(SplittableRandom random, int from, int to, double[][] samples) {
+            for (int i = from; i < to; i++) {
+                sample(plan.root, 0, random);
+                for (int f = 0; f < featureCount; f++) {
+                    samples[f][i] = values[f];
+                }
+            }
+        }
+
+        /**
+         * Sample the value of every feature at a node into {@code values[depth * F ..]}.
+         */
+        private void sample(int node, int depth, SplittableRandom random) {
+            int base = depth * featureCount;
+            if (!plan.random[node]) {
+                System.arraycopy(plan.fixed, node * featureCount, values, base, featureCount);
+                return;
+            }
+            int from = plan.childStart[node];
+            int to = plan.childStart[node + 1];
+            int kind = plan.kind[node];
+            if (kind == WorkflowAggregator.BRANCH) {
+                double u = random.nextDouble();
+                int e = from;
+                while (e < to - 1 && u >= plan.cumulative[e]) {
+                    e++;
+                }
+                sample(plan.children[e], depth, random);
+                return;
+            }
+
+            int functionBase = node * featureCount;
+            int count;
+            if (kind == WorkflowAggregator.LOOP) {
+                int body = plan.children[from];
+                count = iterations(plan.again[node], random);
+                if (!plan.random[body]) {
+                    for (int f = 0; f < featureCount; f++) {
+                        values[base + f] = repeat(plan.functions[functionBase + f],
+                                plan.fixed[body * featureCount + f], count);
+                    }
+                    return;
+                }
+                for (int f = 0; f < featureCount; f++) {
+                    accumulators[base + f] = plan.functions[functionBase + f].identity();
+                }
+                for (int i = 0; i < count; i++) {
+                    accumulate(node, body, depth, random);
+                }
+            } else {
+                for (int f = 0; f < featureCount; f++) {
+                    accumulators[base + f] = plan.functions[functionBase + f].identity();
+                }
+                for (int e = from; e < to; e++) {
+                    accumulate(node, plan.children[e], depth, random);
+                }
+                count = to - from;
+            }
+            for (int f = 0; f < featureCount; f++) {
+                values[base + f] = plan.functions[functionBase + f].finish(accumulators[base + f], count);
+            }
+        }
+
+        private void accumulate(int node, int child, int depth, SplittableRandom random) {
+            sample(child, depth + 1, random);
+            int base = depth * featureCount;
+            int childBase = base + featureCount;
+            int functionBase = node * featureCount;
+            for (int f = 0; f < featureCount; f++) {
+                accumulators[base + f] = plan.functions[functionBase + f]
+                        .accumulate(accumulators[base + f], values[childBase + f]);
+            }
+        }
+
+        /**
+         * @return 1 + a geometric number of repetitions, each taken with probability {@code again}
+         */
+        private static int iterations(double again, SplittableRandom random) {
+            if (again <= 0.0) {
+                return 1;
+            }
+            double repetitions = Math.floor(Math.log(1.0 - random.nextDouble()) / Math.log(again));
+            return (int) Math.min(Integer.MAX_VALUE - 1, repetitions) + 1;
+        }
+
+        private static double repeat(AggregationFunction function, double body, int times) {
+            switch (function) {
+                case SUM:
+                    return body * times;
+                case PRODUCT:
+                    return Math.pow(body, times);
+                default:
+                    return body;
+            }
+        }
+    }
+}
@@ -0,0 +1,783 @@
+package com.example.qaco.engine.reduction;
+
+import com.example.qaco.domain.cws.Task;
+import com.example.qaco.domain.problem.Problem;
+import com.example.qaco.domain.problem.constraints.BindingConstraint;
+import com.example.qaco.domain.problem.constraints.ComposeConstraint;
+import com.example.qaco.domain.problem.constraints.ComposeConstraintType;
+import com.example.qaco.domain.problem.constraints.ConditionalConstraint;
+import com.example.qaco.domain.problem.constraints.Constraint;
+import com.example.qaco.domain.problem.constraints.FeatureConstraint;
+import com.example.qaco.domain.problem.constraints.GlobalConstraint;
+import com.example.qaco.domain.problem.constraints.LocalConstraint;
+import com.example.qaco.domain.problem.constraints.Operator;
+import com.example.qaco.engine.AggregationFunction;
+import com.example.qaco.engine.CompiledQACOProblem;
+import com.example.qaco.engine.constraints.CompiledConstraint;
+import com.example.qaco.engine.qos.WorkflowAggregator;
+import com.example.qaco.engine.qos.WorkflowEvaluation;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Pre-solve constraint propagation: removes from the candidates of every task the services that
+ * cannot appear in any feasible binding, and detects infeasible problems before any search.
+ * <p>
+ * Only constraints that always have to hold are propagated: the Problem's constraints, the
+ * conditions of AND ComposeConstraints and ConditionalConstraints without a condition. OR and
+ * conditional constraints are left to the engines.
+ * - Global- and LocalConstraints get bounds consistency. Each side of the comparison (the
+ *   workflow aggregate, an aggregate over tasks, the value of a single task or a constant) is
+ *   bracketed using the lowest and highest value of each task's remaining candidates. A
+ *   candidate is removed when, with its task bound to it, its side can no longer satisfy the
+ *   comparison against the other. Only monotone aggregations are pruned (SUM, AVG, MIN, MAX,
+ *   PRODUCT of non-negative values, and the workflow aggregates
+ *   {@link WorkflowAggregator#isMonotone(int)} accepts); the others are left as they are.
+ * - BindingConstraints get arc consistency on providers. For EQUALS a candidate is kept only if
+ *   every other listed task still has a candidate of its provider. For NOT_EQUALS, a task left
+ *   with a single provider removes it from the others, and the constraint fails outright when the
+ *   tasks have fewer providers between them than there are tasks.
+ * <p>
+ * Propagators run from a worklist until a fixpoint: whenever the candidates of a task shrink, the
+ * propagators over that task are scheduled again. As soon as one fails or a task has no candidate
+ * left, the problem is infeasible and every task is left without candidates, so engines return
+ * {@code Optional.empty()} right away (see {@link CompiledQACOProblem#hasEmptyDomain()}).
+ * Removed candidates are never part of a feasible binding, so no optimal binding is lost.
+ */
+public final class ConstraintPropagation {
+
+    /**
+     * Solver config key enabling the propagation in {@code AbstractQACOEngine.compile} (true by default).
+     */
+    public static final String PROPAGATION = "propagation";
+
+    private final CompiledQACOProblem compiled;
+    private final int[][] domains;
+    private final int[] allTasks;
+    private final List<Propagator> propagators = new ArrayList<>();
+    private WorkflowAggregator aggregator;
+    private int providerCount;
+
+    // Worklist state
+    private int[][] watchers;
+    private final Deque<Propagator> queue = new ArrayDeque<>();
+
+    private ConstraintPropagation(CompiledQACOProblem compiled) {
+        this.compiled = compiled;
+        this.domains = new int[compiled.taskCount()][];
+        this.allTasks = new int[compiled.taskCount()];
+        for (int t = 0; t < domains.length; t++) {
+            domains[t] = compiled.candidates(t);
+            allTasks[t] = t;
+        }
+        for (int s = 0; s < compiled.serviceCount(); s++) {
+            providerCount = Math.max(providerCount, compiled.provider(s) + 1);
+        }
+        Problem problem = compiled.getSource() == null ? null : compiled.getSource().getProblem();
+        if (problem != null && problem.getConstraints() != null) {
+            for (Constraint constraint : problem.getConstraints()) {
+                collect(constraint);
+            }
+        }
+    }
+
+    /**
+     * @return the problem restricted to the candidates that survive propagation, with no
+     * candidate at all if it is infeasible
+     */
+    public static CompiledQACOProblem reduce(CompiledQACOProblem compiled) {
+        return compiled.withCandidates(domains(compiled));
+    }
+
+    /**
+     * @return the remaining candidates of every task (service ids in their original order), indexed
+     * by task id; all empty if the problem is infeasible
+     */
+    public static int[][] domains(CompiledQACOProblem compiled) {
+        ConstraintPropagation propagation = new ConstraintPropagation(compiled);
+        if (!propagation.run()) {
+            int[][] none = new int[compiled.taskCount()][];
+            Arrays.fill(none, new int[0]);
+            return none;
+        }
+        return propagation.domains;
+    }
+
+    // ---------------------------------------------------------------- fixpoint
+
+    private boolean run() {
+        for (int[] domain : domains) {
+            if (domain.length == 0) {
+                return false;
+            }
+        }
+        int[] counts = new int[domains.length];
+        for (Propagator propagator : propagators) {
+            for (int t : propagator.tasks) {
+                counts[t]++;
+            }
+        }
+        watchers = new int[domains.length][];
+        for (int t = 0; t < domains.length; t++) {
+            watchers[t] = new int[counts[t]];
+            counts[t] = 0;
+        }
+        for (int p = 0; p < propagators.size(); p++) {
+            for (int t : propagators.get(p).tasks) {
+                watchers[t][counts[t]++] = p;
+            }
+        }
+        for (Propagator propagator : propagators) {
+            schedule(propagator);
+        }
+        while (!queue.isEmpty()) {
+            Propagator propagator = queue.poll();
+            propagator.queued = false;
+            if (!propagator.propagate()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void schedule(Propagator propagator) {
+        if (!propagator.queued) {
+            propagator.queued = true;
+            queue.add(propagator);
+        }
+    }
+
+    /**
+     * Replace the candidates of a task by the first {@code size} of {@code kept} and schedule the
+     * propagators watching it if they changed.
+     *
+     * @return false if the task has no candidate left
+     */
+    private boolean narrow(int task, int[] kept, int size) {
+        if (size == domains[task].length) {
+            return true;
+        }
+        domains[task] = Arrays.copyOf(kept, size);
+        for (int p : watchers[task]) {
+            schedule(propagators.get(p));
+        }
+        return size > 0;
+    }
+
+    // ---------------------------------------------------------------- constraints
+
+    private void collect(Constraint constraint) {
+        if (constraint instanceof GlobalConstraint) {
+            GlobalConstraint gc = (GlobalConstraint) constraint;
+            int feature = compiled.featureId(gc.getInputFeature());
+            if (gc.getOperator() != null && gc.getValue() != null && feature >= 0) {
+                add(new Comparison(new WorkflowSide(feature), gc.getOperator(), new ConstantSide(gc.getValue())));
+            }
+        } else if (constraint instanceof LocalConstraint) {
+            collectLocal((LocalConstraint) constraint);
+        } else if (constraint instanceof ComposeConstraint) {
+            ComposeConstraint cc = (ComposeConstraint) constraint;
+            if (cc.getType() != ComposeConstraintType.OR && cc.getConditions() != null) {
+                for (Constraint condition : cc.getConditions()) {
+                    collect(condition);
+                }
+            }
+        } else if (constraint instanceof ConditionalConstraint) {
+            ConditionalConstraint cond = (ConditionalConstraint) constraint;
+            if (cond.getCondition() == null && cond.getThen() != null) {
+                collect(cond.getThen());
+            }
+        } else if (constraint instanceof BindingConstraint) {
+            BindingConstraint bc = (BindingConstraint) constraint;
+            int[] tasks = distinct(tasks(bc.getProviders()));
+            if (tasks != null && tasks.length >= 2) {
+                if (bc.getOperator() == Operator.EQUALS) {
+                    add(new SameProvider(tasks));
+                } else if (bc.getOperator() == Operator.NOT_EQUALS) {
+                    add(new DifferentProviders(tasks));
+                }
+            }
+        }
+    }
+
+    /**
+     * Same reading of a LocalConstraint as {@code ConstraintCompiler}: an input with an aggregator
+     * is compared once, otherwise every listed task is compared on its own, against the output
+     * feature (SUM by default) or the value.
+     */
+    private void collectLocal(LocalConstraint lc) {
+        FeatureConstraint input = lc.getInputFeature();
+        if (lc.getOperator() == null || input == null) {
+            return;
+        }
+        Side right;
+        if (lc.getOutputFeature() != null) {
+            right = aggregate(lc.getOutputFeature(), AggregationFunction.SUM);
+        } else if (lc.getValue() != null) {
+            right = new ConstantSide(lc.getValue());
+        } else {
+            return;
+        }
+        if (right == null) {
+            return;
+        }
+        if (input.getAggregator() != null) {
+            Side left = aggregate(input, null);
+            if (left != null) {
+                add(new Comparison(left, lc.getOperator(), right));
+            }
+            return;
+        }
+        int feature = compiled.featureId(input.getFeature());
+        int[] tasks = tasks(input.getTasks());
+        if (feature < 0 || tasks == null) {
+            return;
+        }
+        for (int t : tasks) {
+            add(new Comparison(new TaskSide(new int[]{t}, feature, AggregationFunction.SUM), lc.getOperator(), right));
+        }
+    }
+
+    private Side aggregate(FeatureConstraint fc, AggregationFunction fallback) {
+        int feature = compiled.featureId(fc.getFeature());
+        int[] tasks = tasks(fc.getTasks());
+        if (feature < 0 || tasks == null) {
+            return null;
+        }
+        AggregationFunction function = fc.getAggregator() == null
+                ? fallback : AggregationFunction.parse(fc.getAggregator().getOperation());
+        return new TaskSide(tasks, feature, function);
+    }
+
+    /**
+     * @return the task ids (all tasks for none), or null if some task is not in the CWS
+     */
+    private int[] tasks(List<Task> tasks) {
+        if (tasks == null || tasks.isEmpty()) {
+            return allTasks;
+        }
+        int[] ids = new int[tasks.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = compiled.taskId(tasks.get(i));
+            if (ids[i] < 0) {
+                return null;
+            }
+        }
+        return ids;
+    }
+
+    private static int[] distinct(int[] tasks) {
+        if (tasks == null) {
+            return null;
+        }
+        Set<Integer> seen = new LinkedHashSet<>();
+        for (int t : tasks) {
+            seen.add(t);
+        }
+        int[] result = new int[seen.size()];
+        int i = 0;
+        for (int t : seen) {
+            result[i++] = t;
+        }
+        return result;
+    }
+
+    private void add(Propagator propagator) {
+        propagators.add(propagator);
+    }
+
+    private WorkflowAggregator aggregator() {
+        if (aggregator == null) {
+            aggregator = WorkflowAggregator.of(compiled);
+        }
+        return aggregator;
+    }
+
+    // ---------------------------------------------------------------- propagators
+
+    private abstract static class Propagator {
+        final int[] tasks;
+        boolean queued;
+
+        Propagator(int[] tasks) {
+            this.tasks = tasks;
+        }
+
+        /**
+         * Narrow the candidates of the tasks.
+         *
+         * @return false if the constraint cannot be satisfied any more
+         */
+        abstract boolean propagate();
+    }
+
+    /**
+     * One side of a comparison, bracketed over the current candidates.
+     */
+    private abstract static class Side {
+        double low;
+        double high;
+
+        abstract int[] tasks();
+
+        /**
+         * Recompute {@link #low} and {@link #high} from the current candidates.
+         */
+        abstract void refresh();
+    }
+
+    private static final class ConstantSide extends Side {
+        ConstantSide(double value) {
+            low = value;
+            high = value;
+        }
+
+        @Override
+        int[] tasks() {
+            return new int[0];
+        }
+
+        @Override
+        void refresh() {
+        }
+    }
+
+    /**
+     * A side aggregating a feature over the candidates of its tasks, whose candidates can be pruned.
+     */
+    private abstract static class FeatureSide extends Side {
+
+        /**
+         * @return true if the side is non-decreasing in the value of each of its tasks, so
+         * {@link #bounds} can be used
+         */
+        abstract boolean prunable();
+
+        /**
+         * @return the values of the feature the side aggregates, indexed by service id
+         */
+        abstract double[] row();
+
+        /**
+         * Bracket the side with {@code task} bound to {@code service} into {@code out}. Only the
+         * lower ({@code out[0]}) or the upper ({@code out[1]}) bound is computed if the other flag
+         * is false; the other is then the bound over all candidates.
+         */
+        abstract void bounds(int task, int service, boolean lower, boolean upper, double[] out);
+    }
+
+    /**
+     * A feature aggregated over a list of tasks. Folds of the lowest and highest values are kept
+     * as prefixes and suffixes, so bounding the side with one task bound is O(1).
+     */
+    private final class TaskSide extends FeatureSide {
+        final int[] tasks;
+        final double[] row;
+        final AggregationFunction function;
+        final boolean monotone;
+        final int[] positions;
+        final double[] prefixLow;
+        final double[] prefixHigh;
+        final double[] suffixLow;
+        final double[] suffixHigh;
+
+        TaskSide(int[] tasks, int feature, AggregationFunction function) {
+            this.tasks = tasks;
+            this.row = compiled.qosRow(feature);
+            this.function = function;
+            boolean negative = false;
+            for (double value : row) {
+                negative |= value < 0.0;
+            }
+            this.positions = new int[compiled.taskCount()];
+            Arrays.fill(positions, -1);
+            boolean repeated = false;
+            for (int i = 0; i < tasks.length; i++) {
+                repeated |= positions[tasks[i]] >= 0;
+                positions[tasks[i]] = i;
+            }
+            // A task listed twice moves two terms at once, which the fold below does not model
+            this.monotone = (function != AggregationFunction.PRODUCT || !negative) && !repeated;
+            this.prefixLow = new double[tasks.length + 1];
+            this.prefixHigh = new double[tasks.length + 1];
+            this.suffixLow = new double[tasks.length + 1];
+            this.suffixHigh = new double[tasks.length + 1];
+        }
+
+        @Override
+        int[] tasks() {
+            return tasks;
+        }
+
+        @Override
+        void refresh() {
+            if (!monotone) {
+                low = Double.NEGATIVE_INFINITY;
+                high = Double.POSITIVE_INFINITY;
+                return;
+            }
+            int n = tasks.length;
+            prefixLow[0] = function.identity();
+            prefixHigh[0] = function.identity();
+            for (int i = 0; i < n; i++) {
+                double min = Double.POSITIVE_INFINITY;
+                double max = Double.NEGATIVE_INFINITY;
+                for (int s : domains[tasks[i]]) {
+                    min = Math.min(min, row[s]);
+                    max = Math.max(max, row[s]);
+                }
+                prefixLow[i + 1] = function.accumulate(prefixLow[i], min);
+                prefixHigh[i + 1] = function.accumulate(prefixHigh[i], max);
+                // The suffixes are filled backwards below from the same extremes
+                suffixLow[i] = min;
+                suffixHigh[i] = max;
+            }
+            suffixLow[n] = function.identity();
+            suffixHigh[n] = function.identity();
+            for (int i = n - 1; i >= 0; i--) {
+                suffixLow[i] = function.accumulate(suffixLow[i + 1], suffixLow[i]);
+                suffixHigh[i] = function.accumulate(suffixHigh[i + 1], suffixHigh[i]);
+            }
+            low = function.finish(prefixLow[n], n);
+            high = function.finish(prefixHigh[n], n);
+        }
+
+        @Override
+        boolean prunable() {
+            return monotone;
+        }
+
+        @Override
+        double[] row() {
+            return row;
+        }
+
+        @Override
+        void bounds(int task, int service, boolean lower, boolean upper, double[] out) {
+            int i = positions[task];
+            double value = row[service];
+            out[0] = !lower ? low : function.finish(
+                    function.accumulate(function.accumulate(prefixLow[i], value), suffixLow[i + 1]), tasks.length);
+            out[1] = !upper ? high : function.finish(
+                    function.accumulate(function.accumulate(prefixHigh[i], value), suffixHigh[i + 1]), tasks.length);
+        }
+    }
+
+    /**
+     * A feature aggregated over the whole workflow, bracketed by evaluating the lowest and the
+     * highest completion incrementally.
+     */
+    private final class WorkflowSide extends FeatureSide {
+        final int feature;
+        final double[] row;
+        final boolean monotone;
+        WorkflowEvaluation lower;
+        WorkflowEvaluation upper;
+        int[] lowest;
+        int[] highest;
+
+        WorkflowSide(int feature) {
+            this.feature = feature;
+            this.row = compiled.qosRow(feature);
+            this.monotone = aggregator().isMonotone(feature);
+        }
+
+        @Override
+        int[] tasks() {
+            return allTasks;
+        }
+
+        @Override
+        void refresh() {
+            if (!monotone) {
+                low = Double.NEGATIVE_INFINITY;
+                high = Double.POSITIVE_INFINITY;
+                return;
+            }
+            if (lower == null) {
+                lower = aggregator().newEvaluation();
+                upper = aggregator().newEvaluation();
+                lowest = new int[domains.length];
+                highest = new int[domains.length];
+            }
+            for (int t = 0; t < domains.length; t++) {
+                int min = domains[t][0];
+                int max = domains[t][0];
+                for (int s : domains[t]) {
+                    if (row[s] < row[min]) {
+                        min = s;
+                    }
+                    if (row[s] > row[max]) {
+                        max = s;
+                    }
+                }
+                lowest[t] = min;
+                highest[t] = max;
+            }
+            lower.reset(lowest);
+            upper.reset(highest);
+            low = lower.value(feature);
+            high = upper.value(feature);
+        }
+
+        @Override
+        boolean prunable() {
+            return monotone;
+        }
+
+        @Override
+        double[] row() {
+            return row;
+        }
+
+        @Override
+        void bounds(int task, int service, boolean needLower, boolean needUpper, double[] out) {
+            if (!needLower || service == lowest[task]) {
+                out[0] = low;
+            } else {
+                lower.set(task, service);
+                out[0] = lower.value(feature);
+                lower.set(task, lowest[task]);
+            }
+            if (!needUpper || service == highest[task]) {
+                out[1] = high;
+            } else {
+                upper.set(task, service);
+                out[1] = upper.value(feature);
+                upper.set(task, highest[task]);
+            }
+        }
+    }
+
+    /**
+     * Bounds consistency on {@code left operator right}.
+     */
+    private final class Comparison extends Propagator {
+        final Side left;
+        final Operator operator;
+        final Side right;
+        final double[] bounds = new double[2];
+        // Satisfied by every completion of the current candidates, hence of any narrower ones
+        boolean entailed;
+
+        Comparison(Side left, Operator operator, Side right) {
+            super(distinct(concat(left.tasks(), right.tasks())));
+            this.left = left;
+            this.operator = operator;
+            this.right = right;
+        }
+
+        @Override
+        boolean propagate() {
+            if (entailed) {
+                return true;
+            }
+            left.refresh();
+            right.refresh();
+            int result = CompiledConstraint.check(operator, left.low, left.high, right.low, right.high);
+            if (result == CompiledConstraint.SATISFIED) {
+                entailed = true;
+                return true;
+            }
+            if (result == CompiledConstraint.VIOLATED) {
+                return false;
+            }
+            return (!(left instanceof FeatureSide) || prune((FeatureSide) left, right, false))
+                    && (!(right instanceof FeatureSide) || prune((FeatureSide) right, left, true));
+        }
+
+        /**
+         * Remove the candidates of the tasks of {@code side} that leave it no way to satisfy the
+         * comparison with the bracket of {@code other} (computed before any removal, which keeps it sound).
+         * <p>
+         * Since the side grows with the value of a candidate, a candidate can only be too high (the
+         * side's lower bound fails the comparison) or too low (its upper bound does), and both are
+         * monotone in the value, except for NOT_EQUALS. The values known to be kept or removed on
+         * each count decide most candidates without bounding the side again.
+         */
+        private boolean prune(FeatureSide side, Side other, boolean mirrored) {
+            if (!side.prunable()) {
+                return true;
+            }
+            boolean less = operator == Operator.LESS_THAN || operator == Operator.LESS_THAN_OR_EQUALS;
+            boolean greater = operator == Operator.GREATER_THAN || operator == Operator.GREATER_THAN_OR_EQUALS;
+            boolean tooHigh = mirrored ? !less : !greater;
+            boolean tooLow = mirrored ? !greater : !less;
+            boolean monotone = operator != Operator.NOT_EQUALS;
+            double[] row = side.row();
+            for (int t : side.tasks()) {
+                int[] domain = domains[t];
+                int[] kept = new int[domain.length];
+                int size = 0;
+                double keptHigh = Double.NEGATIVE_INFINITY;
+                double removedHigh = Double.POSITIVE_INFINITY;
+                double keptLow = Double.POSITIVE_INFINITY;
+                double removedLow = Double.NEGATIVE_INFINITY;
+                for (int s : domain) {
+                    double value = row[s];
+                    boolean removed;
+                    if (!monotone) {
+                        removed = violates(side, other, mirrored, t, s, true, true);
+                    } else {
+                        removed = false;
+                        if (tooHigh) {
+                            if (value >= removedHigh) {
+                                removed = true;
+                            } else if (value > keptHigh) {
+                                removed = violates(side, other, mirrored, t, s, true, false);
+                                if (removed) {
+                                    removedHigh = value;
+                                } else {
+                                    keptHigh = value;
+                                }
+                            }
+                        }
+                        if (!removed && tooLow) {
+                            if (value <= removedLow) {
+                                removed = true;
+                            } else if (value < keptLow) {
+                                removed = violates(side, other, mirrored, t, s, false, true);
+                                if (removed) {
+                                    removedLow = value;
+                                } else {
+                                    keptLow = value;
+                                }
+                            }
+                        }
+                    }
+                    if (!removed) {
+                        kept[size++] = s;
+                    }
+                }
+                if (!narrow(t, kept, size)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean violates(FeatureSide side, Side other, boolean mirrored, int task, int service,
+                                 boolean lower, boolean upper) {
+            side.bounds(task, service, lower, upper, bounds);
+            int result = mirrored
+                    ? CompiledConstraint.check(operator, other.low, other.high, bounds[0], bounds[1])
+                    : CompiledConstraint.check(operator, bounds[0], bounds[1], other.low, other.high);
+            return result == CompiledConstraint.VIOLATED;
+        }
+    }
+
+    /**
+     * BindingConstraint EQUALS: all tasks bound to services of one provider.
+     */
+    private final class SameProvider extends Propagator {
+        SameProvider(int[] tasks) {
+            super(tasks);
+        }
+
+        @Override
+        boolean propagate() {
+            // count[p]: number of tasks with a candidate of provider p
+            int[] count = new int[providerCount];
+            int[] seenBy = new int[providerCount];
+            Arrays.fill(seenBy, -1);
+            for (int i = 0; i < tasks.length; i++) {
+                for (int s : domains[tasks[i]]) {
+                    int p = compiled.provider(s);
+                    if (seenBy[p] != i) {
+                        seenBy[p] = i;
+                        count[p]++;
+                    }
+                }
+            }
+            for (int t : tasks) {
+                int[] domain = domains[t];
+                int[] kept = new int[domain.length];
+                int size = 0;
+                for (int s : domain) {
+                    if (count[compiled.provider(s)] == tasks.length) {
+                        kept[size++] = s;
+                    }
+                }
+                if (!narrow(t, kept, size)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * BindingConstraint NOT_EQUALS: tasks bound to services of pairwise different providers.
+     */
+    private final class DifferentProviders extends Propagator {
+        DifferentProviders(int[] tasks) {
+            super(tasks);
+        }
+
+        @Override
+        boolean propagate() {
+            boolean[] available = new boolean[providerCount];
+            int distinct = 0;
+            for (int t : tasks) {
+                for (int s : domains[t]) {
+                    int p = compiled.provider(s);
+                    if (!available[p]) {
+                        available[p] = true;
+                        distinct++;
+                    }
+                }
+            }
+            if (distinct < tasks.length) {
+                return false;
+            }
+            for (int t : tasks) {
+                int forced = single(domains[t]);
+                if (forced < 0) {
+                    continue;
+                }
+                for (int u : tasks) {
+                    if (u == t) {
+                        continue;
+                    }
+                    int[] domain = domains[u];
+                    int[] kept = new int[domain.length];
+                    int size = 0;
+                    for (int s : domain) {
+                        if (compiled.provider(s) != forced) {
+                            kept[size++] = s;
+                        }
+                    }
+                    if (!narrow(u, kept, size)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @return the provider of every candidate, or -1 if they have several
+         */
+        private int single(int[] domain) {
+            int provider = compiled.provider(domain[0]);
+            for (int s : domain) {
+                if (compiled.provider(s) != provider) {
+                    return -1;
+                }
+            }
+            return provider;
+        }
+    }
+
+    private static int[] concat(int[] a, int[] b) {
+        int[] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+}
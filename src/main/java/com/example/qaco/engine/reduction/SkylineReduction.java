@@ -0,0 +1,261 @@
+package com.example.qaco.engine.reduction;
+
+import com.example.qaco.domain.cws.Feature;
+import com.example.qaco.domain.cws.Task;
+import com.example.qaco.domain.problem.AggregateDomainType;
+import com.example.qaco.domain.problem.Problem;
+import com.example.qaco.domain.problem.constraints.BindingConstraint;
+import com.example.qaco.domain.problem.constraints.ComposeConstraint;
+import com.example.qaco.domain.problem.constraints.ConditionalConstraint;
+import com.example.qaco.domain.problem.constraints.Constraint;
+import com.example.qaco.domain.problem.constraints.FeatureConstraint;
+import com.example.qaco.domain.problem.constraints.GlobalConstraint;
+import com.example.qaco.domain.problem.constraints.LocalConstraint;
+import com.example.qaco.domain.problem.constraints.Operator;
+import com.example.qaco.engine.AggregationFunction;
+import com.example.qaco.engine.CompiledQACOProblem;
+import com.example.qaco.engine.ParallelFor;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Pre-solve reduction that keeps, for every task, only the skyline of its candidates: the
+ * candidates that no other candidate of the task dominates.
+ * <p>
+ * Candidate {@code a} dominates {@code b} when it is at least as good on every relevant feature, so
+ * rebinding a task from {@code b} to {@code a} can neither worsen the score nor break a constraint.
+ * The relevant features and their direction come from the problem:
+ * - a preference with a positive weight asks for lower values, a negative weight for higher ones;
+ *   a weight of 0 asks for nothing, unless every preference is an objective of its own (as for
+ *   {@code ParetoEngine}), in which case it asks for lower values;
+ * - a comparison in a Global- or LocalConstraint prefers the side that satisfies it (lower for
+ *   LESS_THAN, higher for GREATER_THAN), reversed for the output feature of a LocalConstraint and
+ *   inside the condition of a ConditionalConstraint;
+ * - a feature wanted both lower and higher, compared with EQUALS / NOT_EQUALS, or aggregated with
+ *   PRODUCT while having negative values must be equal for a candidate to dominate another.
+ * Tasks listed in a BindingConstraint are only reduced among services of the same provider.
+ * Among equivalent candidates the first one is kept.
+ * <p>
+ * Each task is reduced with the sort-filter-skyline algorithm: candidates are sorted by the sum of
+ * their directed values, so no candidate can be dominated by a later one, and compared against the
+ * skyline found so far only. Tasks are processed in parallel.
+ */
+public final class SkylineReduction {
+
+    /**
+     * Solver config key enabling the reduction in {@code AbstractQACOEngine.compile} (true by default).
+     */
+    public static final String SKYLINE = "skyline";
+
+    static final int IGNORED = 0;
+    static final int MINIMISE = 1;
+    static final int MAXIMISE = 2;
+    static final int FIXED = MINIMISE | MAXIMISE;
+
+    private final CompiledQACOProblem compiled;
+    private final int[] directions;
+    private final boolean[] providerBound;
+    private final boolean[] product;
+
+    private SkylineReduction(CompiledQACOProblem compiled, boolean objectives) {
+        this.compiled = compiled;
+        this.directions = new int[compiled.featureCount()];
+        this.providerBound = new boolean[compiled.taskCount()];
+        this.product = new boolean[compiled.featureCount()];
+        for (int p = 0; p < compiled.preferenceCount(); p++) {
+            double weight = compiled.preferenceWeight(p);
+            if (weight != 0.0 || objectives) {
+                directions[compiled.preferenceFeature(p)] |= weight < 0.0 ? MAXIMISE : MINIMISE;
+            }
+        }
+        Problem problem = compiled.getSource() == null ? null : compiled.getSource().getProblem();
+        if (problem != null && problem.getConstraints() != null) {
+            for (Constraint constraint : problem.getConstraints()) {
+                visit(constraint, false);
+            }
+        }
+        for (int f = 0; f < directions.length; f++) {
+            for (AggregateDomainType type : AggregateDomainType.values()) {
+                product[f] |= compiled.aggregation(type, f) == AggregationFunction.PRODUCT;
+            }
+            if (product[f] && directions[f] != IGNORED) {
+                for (double value : compiled.qosRow(f)) {
+                    if (value < 0.0) {
+                        directions[f] = FIXED;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the problem restricted to the skyline candidates of every task
+     */
+    public static CompiledQACOProblem reduce(CompiledQACOProblem compiled, ForkJoinPool pool) {
+        return reduce(compiled, pool, false);
+    }
+
+    /**
+     * @param objectives true if every preference is an objective of its own, so a weight of 0
+     * still asks for lower values
+     * @return the problem restricted to the skyline candidates of every task
+     */
+    public static CompiledQACOProblem reduce(CompiledQACOProblem compiled, ForkJoinPool pool, boolean objectives) {
+        return compiled.withCandidates(skylines(compiled, pool, objectives));
+    }
+
+    /**
+     * @return the skyline candidates of every task (service ids in their original order), indexed by task id
+     */
+    public static int[][] skylines(CompiledQACOProblem compiled, ForkJoinPool pool) {
+        return skylines(compiled, pool, false);
+    }
+
+    /**
+     * @param objectives true if every preference is an objective of its own (see
+     * {@link #reduce(CompiledQACOProblem, ForkJoinPool, boolean)})
+     * @return the skyline candidates of every task (service ids in their original order), indexed by task id
+     */
+    public static int[][] skylines(CompiledQACOProblem compiled, ForkJoinPool pool, boolean objectives) {
+        SkylineReduction reduction = new SkylineReduction(compiled, objectives);
+        int[][] result = new int[compiled.taskCount()][];
+        ParallelFor.run(pool, result.length, t -> result[t] = reduction.skyline(t));
+        return result;
+    }
+
+    private void visit(Constraint constraint, boolean reversed) {
+        if (constraint instanceof GlobalConstraint) {
+            GlobalConstraint gc = (GlobalConstraint) constraint;
+            mark(gc.getInputFeature(), gc.getOperator(), reversed);
+        } else if (constraint instanceof LocalConstraint) {
+            LocalConstraint lc = (LocalConstraint) constraint;
+            if (lc.getInputFeature() != null) {
+                mark(lc.getInputFeature(), lc.getOperator(), reversed);
+            }
+            if (lc.getOutputFeature() != null) {
+                mark(lc.getOutputFeature(), lc.getOperator(), !reversed);
+            }
+        } else if (constraint instanceof ComposeConstraint) {
+            List<Constraint> conditions = ((ComposeConstraint) constraint).getConditions();
+            if (conditions != null) {
+                for (Constraint condition : conditions) {
+                    visit(condition, reversed);
+                }
+            }
+        } else if (constraint instanceof ConditionalConstraint) {
+            ConditionalConstraint cc = (ConditionalConstraint) constraint;
+            if (cc.getCondition() != null) {
+                visit(cc.getCondition(), !reversed);
+            }
+            if (cc.getThen() != null) {
+                visit(cc.getThen(), reversed);
+            }
+        } else if (constraint instanceof BindingConstraint) {
+            List<Task> tasks = ((BindingConstraint) constraint).getProviders();
+            if (tasks == null || tasks.isEmpty()) {
+                // As in ConstraintCompiler, no providers means every task
+                Arrays.fill(providerBound, true);
+            } else {
+                for (Task task : tasks) {
+                    int t = compiled.taskId(task);
+                    if (t >= 0) {
+                        providerBound[t] = true;
+                    }
+                }
+            }
+        }
+    }
+
+    private void mark(FeatureConstraint fc, Operator operator, boolean reversed) {
+        int f = mark(fc.getFeature(), operator, reversed);
+        if (f >= 0 && fc.getAggregator() != null
+                && AggregationFunction.parse(fc.getAggregator().getOperation()) == AggregationFunction.PRODUCT) {
+            product[f] = true;
+        }
+    }
+
+    private int mark(Feature feature, Operator operator, boolean reversed) {
+        int f = compiled.featureId(feature);
+        if (f < 0) {
+            return f;
+        }
+        int direction;
+        if (operator == Operator.LESS_THAN || operator == Operator.LESS_THAN_OR_EQUALS) {
+            direction = reversed ? MAXIMISE : MINIMISE;
+        } else if (operator == Operator.GREATER_THAN || operator == Operator.GREATER_THAN_OR_EQUALS) {
+            direction = reversed ? MINIMISE : MAXIMISE;
+        } else {
+            direction = FIXED;
+        }
+        directions[f] |= direction;
+        return f;
+    }
+
+    private int[] skyline(int task) {
+        int[] candidates = compiled.candidates(task);
+        int ordered = 0;
+        int fixed = 0;
+        for (int direction : directions) {
+            if (direction == MINIMISE || direction == MAXIMISE) {
+                ordered++;
+            } else if (direction == FIXED) {
+                fixed++;
+            }
+        }
+        // values[candidate][dimension], directed so that lower is better
+        double[][] values = new double[candidates.length][ordered];
+        double[][] equal = new double[candidates.length][fixed];
+        double[] sums = new double[candidates.length];
+        for (int i = 0; i < candidates.length; i++) {
+            int d = 0;
+            int e = 0;
+            for (int f = 0; f < directions.length; f++) {
+                double value = compiled.qos(f, candidates[i]);
+                if (directions[f] == FIXED) {
+                    equal[i][e++] = value;
+                } else if (directions[f] != IGNORED) {
+                    values[i][d] = directions[f] == MINIMISE ? value : -value;
+                    sums[i] += values[i][d++];
+                }
+            }
+        }
+        Integer[] order = new Integer[candidates.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.<Integer>comparingDouble(i -> sums[i]).thenComparingInt(i -> i));
+
+        int[] window = new int[candidates.length];
+        int size = 0;
+        for (int i : order) {
+            boolean dominated = false;
+            for (int w = 0; w < size && !dominated; w++) {
+                int j = window[w];
+                dominated = (!providerBound[task] || compiled.provider(candidates[j]) == compiled.provider(candidates[i]))
+                        && Arrays.equals(equal[j], equal[i]) && noWorse(values[j], values[i]);
+            }
+            if (!dominated) {
+                window[size++] = i;
+            }
+        }
+        int[] kept = Arrays.copyOf(window, size);
+        Arrays.sort(kept);
+        for (int k = 0; k < size; k++) {
+            kept[k] = candidates[kept[k]];
+        }
+        return kept;
+    }
+
+    private static boolean noWorse(double[] a, double[] b) {
+        for (int d = 0; d < a.length; d++) {
+            if (a[d] > b[d]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
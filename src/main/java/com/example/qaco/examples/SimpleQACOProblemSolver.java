@@ -3,9 +3,7 @@ package com.example.qaco.examples;
 import com.example.qaco.domain.QACOProblem;
 import com.example.qaco.domain.binding.Binding;
 import com.example.qaco.domain.binding.BindingMapping;
-import com.example.qaco.domain.binding.BindingSpace;
 import com.example.qaco.domain.cws.CandidateService;
-import com.example.qaco.domain.cws.CompositeWebService;
 import com.example.qaco.domain.cws.Task;
 import com.example.qaco.engine.AbstractQACOEngine;
 
@@ -41,27 +39,4 @@ public class SimpleQACOProblemSolver extends AbstractQACOEngine {
         bindings.add(binding);
         return Optional.of(bindings);
     }
-
-    @Override
-    protected Optional<BindingSpace> getBindingSpace(CompositeWebService cws, Optional<Object> extraConfig) {
-        BindingSpace bindingSpace = new BindingSpace();
-        
-        // Construct a trivial binding space: all candidate services for each task
-        bindingSpace.setBindings(new ArrayList<>());
-        if (cws.getTasks() != null && cws.getCandidateServices() != null) {
-            for (Task task : cws.getTasks()) {
-                Binding binding = new Binding();
-                binding.setBindingMappings(new ArrayList<>());
-                for (CandidateService candidateService : cws.getCandidateServices()) {
-                    BindingMapping mapping = new BindingMapping();
-                    mapping.setTask(task);
-                    mapping.setCandidateService(candidateService);
-                    binding.getBindingMappings().add(mapping);
-                }
-                bindingSpace.getBindings().add(binding);
-            }
-        }
-
-        return Optional.of(bindingSpace);
-    }
 }
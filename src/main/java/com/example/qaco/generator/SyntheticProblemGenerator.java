@@ -0,0 +1,524 @@
+package com.example.qaco.generator;
+
+import com.example.qaco.domain.QACOProblem;
+import com.example.qaco.domain.cws.CandidateService;
+import com.example.qaco.domain.cws.CompositeWebService;
+import com.example.qaco.domain.cws.Feature;
+import com.example.qaco.domain.cws.FeatureValue;
+import com.example.qaco.domain.cws.Task;
+import com.example.qaco.domain.cws.graph.Graph;
+import com.example.qaco.domain.cws.graph.GraphEdge;
+import com.example.qaco.domain.cws.graph.GraphNode;
+import com.example.qaco.domain.cws.graph.GraphNodeType;
+import com.example.qaco.domain.cws.graph.probability.Probability;
+import com.example.qaco.domain.cws.graph.probability.ProbabilityEdge;
+import com.example.qaco.domain.cws.graph.probability.ProbabilityNode;
+import com.example.qaco.domain.problem.AggregateDomain;
+import com.example.qaco.domain.problem.AggregateDomainType;
+import com.example.qaco.domain.problem.AggregatorOperation;
+import com.example.qaco.domain.problem.Optimization;
+import com.example.qaco.domain.problem.Preference;
+import com.example.qaco.domain.problem.Problem;
+import com.example.qaco.domain.problem.constraints.BindingConstraint;
+import com.example.qaco.domain.problem.constraints.ComposeConstraint;
+import com.example.qaco.domain.problem.constraints.ComposeConstraintType;
+import com.example.qaco.domain.problem.constraints.ConditionalConstraint;
+import com.example.qaco.domain.problem.constraints.Constraint;
+import com.example.qaco.domain.problem.constraints.FeatureConstraint;
+import com.example.qaco.domain.problem.constraints.GlobalConstraint;
+import com.example.qaco.domain.problem.constraints.LocalConstraint;
+import com.example.qaco.domain.problem.constraints.Operator;
+import com.example.qaco.engine.CompiledQACOProblem;
+import com.example.qaco.engine.qos.WorkflowAggregator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Generates seeded, synthetic QACOProblems of any size, for benchmarks and tests.
+ * <p>
+ * Every task has its own candidate services, spread over a few providers. The first features are
+ * {@code cost} and {@code time} (minimised, summed along sequences, time taking the max of
+ * parallel branches) and {@code reliability} (maximised, multiplied along sequences, parallel
+ * branches and loop iterations); further features {@code q3, q4...} are minimised sums. The
+ * workflow is a plain sequence, or a sequence of blocks with exclusive and parallel gates, loops,
+ * or all of them (see {@link Shape}).
+ * <p>
+ * Constraints are built around a reference binding drawn at random, whose QoS each threshold
+ * admits with some {@code slack}; every generated problem is thus feasible, and tighter for a
+ * smaller slack. The same settings and seed always generate the same problem.
+ * <p>
+ * Settings are chained: {@code new SyntheticProblemGenerator(42).tasks(50).candidates(20).generate()}.
+ */
+public class SyntheticProblemGenerator {
+
+    /**
+     * Shape of the workflow graph.
+     */
+    public enum Shape {
+        /**
+         * START, the tasks one after the other, END.
+         */
+        SEQUENCE,
+        /**
+         * Blocks of up to three tasks alternately behind an exclusive gate (random branch
+         * probabilities) and a parallel gate.
+         */
+        GATES,
+        /**
+         * Blocks of up to two tasks repeated by a loop (back edge probability 0.2 to 0.6).
+         */
+        LOOPS,
+        /**
+         * Exclusive, parallel and loop blocks in turn.
+         */
+        MIXED
+    }
+
+    private long seed;
+    private int tasks = 10;
+    private int candidates = 10;
+    private int features = 3;
+    private int providers = 5;
+    private int globalConstraints = 1;
+    private int localConstraints = 1;
+    private int composeConstraints = 1;
+    private int conditionalConstraints = 1;
+    private int bindingConstraints = 1;
+    private double slack = 0.05;
+    private Shape shape = Shape.SEQUENCE;
+
+    public SyntheticProblemGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    public SyntheticProblemGenerator seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public SyntheticProblemGenerator tasks(int tasks) {
+        this.tasks = requirePositive(tasks, "tasks");
+        return this;
+    }
+
+    /**
+     * @param candidates candidate services per task
+     */
+    public SyntheticProblemGenerator candidates(int candidates) {
+        this.candidates = requirePositive(candidates, "candidates");
+        return this;
+    }
+
+    /**
+     * @param features number of QoS features (cost, time, reliability, q3...)
+     */
+    public SyntheticProblemGenerator features(int features) {
+        this.features = requirePositive(features, "features");
+        return this;
+    }
+
+    public SyntheticProblemGenerator providers(int providers) {
+        this.providers = requirePositive(providers, "providers");
+        return this;
+    }
+
+    /**
+     * How many constraints of each kind to generate.
+     */
+    public SyntheticProblemGenerator constraints(int global, int local, int compose, int conditional, int binding) {
+        if (global < 0 || local < 0 || compose < 0 || conditional < 0 || binding < 0) {
+            throw new IllegalArgumentException("Constraint counts cannot be negative.");
+        }
+        this.globalConstraints = global;
+        this.localConstraints = local;
+        this.composeConstraints = compose;
+        this.conditionalConstraints = conditional;
+        this.bindingConstraints = binding;
+        return this;
+    }
+
+    /**
+     * @param slack relative margin between the reference binding's QoS and the thresholds
+     */
+    public SyntheticProblemGenerator slack(double slack) {
+        if (slack < 0.0) {
+            throw new IllegalArgumentException("Slack cannot be negative: " + slack);
+        }
+        this.slack = slack;
+        return this;
+    }
+
+    public SyntheticProblemGenerator shape(Shape shape) {
+        if (shape == null) {
+            throw new IllegalArgumentException("Shape cannot be null.");
+        }
+        this.shape = shape;
+        return this;
+    }
+
+    /**
+     * @return a new problem; calling it again returns an equal one
+     */
+    public QACOProblem generate() {
+        return new Build(new SplittableRandom(seed)).problem();
+    }
+
+    private static int requirePositive(int value, String name) {
+        if (value <= 0) {
+            throw new IllegalArgumentException("Generator setting '" + name + "' must be positive: " + value);
+        }
+        return value;
+    }
+
+    /**
+     * State of one generation.
+     */
+    private final class Build {
+        private final SplittableRandom random;
+        private final List<Task> taskList = new ArrayList<>();
+        private final List<CandidateService> services = new ArrayList<>();
+        private final List<Feature> featureList = new ArrayList<>();
+        // value[f][s] and the reference binding, by task
+        private double[][] values;
+        private int[] reference;
+        private CompiledQACOProblem compiled;
+        private WorkflowAggregator aggregator;
+
+        Build(SplittableRandom random) {
+            this.random = random;
+        }
+
+        QACOProblem problem() {
+            for (int t = 0; t < tasks; t++) {
+                Task task = new Task();
+                task.setName("T" + t);
+                taskList.add(task);
+            }
+            for (int t = 0; t < tasks; t++) {
+                for (int k = 0; k < candidates; k++) {
+                    CandidateService service = new CandidateService();
+                    service.setName("S" + t + "_" + k);
+                    service.setProvider("P" + random.nextInt(providers));
+                    service.setTasks(new ArrayList<>(Collections.singletonList(taskList.get(t))));
+                    services.add(service);
+                }
+            }
+            values = new double[features][services.size()];
+            for (int f = 0; f < features; f++) {
+                Feature feature = new Feature();
+                feature.setName(featureName(f));
+                List<FeatureValue> featureValues = new ArrayList<>(services.size());
+                for (int s = 0; s < services.size(); s++) {
+                    values[f][s] = draw(f);
+                    FeatureValue value = new FeatureValue();
+                    value.setService(services.get(s));
+                    value.setValue(values[f][s]);
+                    featureValues.add(value);
+                }
+                feature.setValues(featureValues);
+                featureList.add(feature);
+            }
+
+            CompositeWebService cws = new CompositeWebService();
+            cws.setName("synthetic-" + shape.name().toLowerCase() + "-" + tasks + "x" + candidates);
+            cws.setTasks(taskList);
+            cws.setCandidateServices(services);
+            cws.setFeatures(featureList);
+            cws.setGraph(new GraphBuilder(random).build());
+
+            Problem domainProblem = new Problem();
+            domainProblem.setName(cws.getName());
+            domainProblem.setOptimization(optimization());
+            domainProblem.setConstraints(new ArrayList<Constraint>());
+            QACOProblem problem = new QACOProblem();
+            problem.setCompositeWebService(cws);
+            problem.setProblem(domainProblem);
+
+            // Thresholds are relative to the QoS of a random reference binding
+            compiled = CompiledQACOProblem.compile(problem);
+            aggregator = WorkflowAggregator.of(compiled);
+            reference = new int[tasks];
+            for (int t = 0; t < tasks; t++) {
+                reference[t] = t * candidates + random.nextInt(candidates);
+            }
+            List<Constraint> constraints = domainProblem.getConstraints();
+            for (int i = 0; i < globalConstraints; i++) {
+                constraints.add(global(i % features, true));
+            }
+            for (int i = 0; i < localConstraints; i++) {
+                constraints.add(local(random.nextInt(features), true));
+            }
+            for (int i = 0; i < composeConstraints; i++) {
+                constraints.add(compose());
+            }
+            for (int i = 0; i < conditionalConstraints; i++) {
+                ConditionalConstraint conditional = new ConditionalConstraint();
+                conditional.setCondition(global(random.nextInt(features), false));
+                conditional.setThen(local(random.nextInt(features), true));
+                constraints.add(conditional);
+            }
+            for (int i = 0; i < bindingConstraints && tasks > 1; i++) {
+                constraints.add(binding());
+            }
+            return problem;
+        }
+
+        private String featureName(int f) {
+            switch (f) {
+                case 0:
+                    return "cost";
+                case 1:
+                    return "time";
+                case 2:
+                    return "reliability";
+                default:
+                    return "q" + f;
+            }
+        }
+
+        private double draw(int f) {
+            switch (f) {
+                case 0:
+                    return round(1.0 + 99.0 * random.nextDouble());
+                case 1:
+                    return round(10.0 + 490.0 * random.nextDouble());
+                case 2:
+                    return 0.9 + 0.0999 * random.nextDouble();
+                default:
+                    return round(10.0 * random.nextDouble());
+            }
+        }
+
+        private double round(double value) {
+            return Math.round(value * 100.0) / 100.0;
+        }
+
+        private boolean maximised(int f) {
+            return f == 2;
+        }
+
+        private Optimization optimization() {
+            List<Preference> preferences = new ArrayList<>();
+            for (int f = 0; f < features; f++) {
+                Preference preference = new Preference();
+                preference.setFeature(featureList.get(f));
+                preference.setWeight(f == 0 ? 1.0 : f == 1 ? 0.1 : f == 2 ? -100.0 : 0.5);
+                preferences.add(preference);
+            }
+            Optimization optimization = new Optimization();
+            optimization.setPreferences(preferences);
+            optimization.setAggregateDomains(new ArrayList<AggregateDomain>());
+            if (features > 2) {
+                for (AggregateDomainType type : new AggregateDomainType[]{
+                        AggregateDomainType.SEQUENCE, AggregateDomainType.FORK, AggregateDomainType.LOOP}) {
+                    AggregatorOperation product = new AggregatorOperation();
+                    product.setOperation("PRODUCT");
+                    product.setFeatures(new ArrayList<>(Collections.singletonList(featureList.get(2))));
+                    AggregateDomain domain = new AggregateDomain();
+                    domain.setAggregateDomainType(type);
+                    domain.setAggregatorOperation(new ArrayList<>(Collections.singletonList(product)));
+                    optimization.getAggregateDomains().add(domain);
+                }
+            }
+            return optimization;
+        }
+
+        /**
+         * A bound on the aggregated feature; the reference binding satisfies it if {@code admit}.
+         */
+        private GlobalConstraint global(int f, boolean admit) {
+            double value = aggregator.aggregate(f, reference);
+            double margin = Math.abs(value) * (admit ? slack : -random.nextDouble() * 0.5);
+            GlobalConstraint constraint = new GlobalConstraint();
+            constraint.setInputFeature(featureList.get(f));
+            if (maximised(f)) {
+                constraint.setOperator(Operator.GREATER_THAN_OR_EQUALS);
+                constraint.setValue(value - margin);
+            } else {
+                constraint.setOperator(Operator.LESS_THAN_OR_EQUALS);
+                constraint.setValue(value + margin);
+            }
+            return constraint;
+        }
+
+        /**
+         * A bound on the feature of every task of a random subset of one to three tasks; the
+         * reference binding satisfies it if {@code admit}, and may not otherwise.
+         */
+        private LocalConstraint local(int f, boolean admit) {
+            List<Task> subset = new ArrayList<>();
+            double worst = maximised(f) ? Double.POSITIVE_INFINITY : Double.NEGATIVE_INFINITY;
+            int size = Math.min(tasks, 1 + random.nextInt(3));
+            for (int i = 0; i < size; i++) {
+                int t = random.nextInt(tasks);
+                if (!subset.contains(taskList.get(t))) {
+                    subset.add(taskList.get(t));
+                    double value = values[f][reference[t]];
+                    worst = maximised(f) ? Math.min(worst, value) : Math.max(worst, value);
+                }
+            }
+            double margin = Math.abs(worst) * (admit ? slack + 1e-9 : -random.nextDouble() * 0.5);
+            FeatureConstraint input = new FeatureConstraint();
+            input.setFeature(featureList.get(f));
+            input.setTasks(subset);
+            LocalConstraint constraint = new LocalConstraint();
+            constraint.setInputFeature(input);
+            if (maximised(f)) {
+                constraint.setOperator(Operator.GREATER_THAN);
+                constraint.setValue(worst - margin);
+            } else {
+                constraint.setOperator(Operator.LESS_THAN);
+                constraint.setValue(worst + margin);
+            }
+            return constraint;
+        }
+
+        /**
+         * AND of two admitting local constraints, or OR of a random one and an admitting one.
+         */
+        private ComposeConstraint compose() {
+            ComposeConstraint constraint = new ComposeConstraint();
+            boolean or = random.nextBoolean();
+            constraint.setType(or ? ComposeConstraintType.OR : ComposeConstraintType.AND);
+            constraint.setConditions(new ArrayList<Constraint>(Arrays.asList(
+                    local(random.nextInt(features), !or), local(random.nextInt(features), true))));
+            return constraint;
+        }
+
+        /**
+         * Two random tasks on the same or different providers, as in the reference binding.
+         */
+        private BindingConstraint binding() {
+            int first = random.nextInt(tasks);
+            int second = (first + 1 + random.nextInt(tasks - 1)) % tasks;
+            boolean same = services.get(reference[first]).getProvider()
+                    .equals(services.get(reference[second]).getProvider());
+            BindingConstraint constraint = new BindingConstraint();
+            constraint.setProviders(new ArrayList<>(Arrays.asList(taskList.get(first), taskList.get(second))));
+            constraint.setOperator(same ? Operator.EQUALS : Operator.NOT_EQUALS);
+            return constraint;
+        }
+
+        /**
+         * Builds the workflow graph; exclusive gates with several outgoing edges get a
+         * ProbabilityNode each, in node order.
+         */
+        private final class GraphBuilder {
+            private final SplittableRandom random;
+            private final List<GraphNode> nodes = new ArrayList<>();
+            private final List<GraphEdge> edges = new ArrayList<>();
+            private final List<ProbabilityNode> probabilities = new ArrayList<>();
+            private int gates;
+
+            GraphBuilder(SplittableRandom random) {
+                this.random = random;
+            }
+
+            Graph build() {
+                GraphNode last = node("start", GraphNodeType.START);
+                int t = 0;
+                int block = 0;
+                while (t < tasks) {
+                    Shape kind = shape == Shape.MIXED
+                            ? new Shape[]{Shape.GATES, Shape.GATES, Shape.LOOPS}[block % 3] : shape;
+                    if (kind == Shape.SEQUENCE) {
+                        last = activity(last, t++);
+                    } else if (kind == Shape.LOOPS) {
+                        int size = Math.min(2, tasks - t);
+                        GraphNode header = node("loop" + gates++, GraphNodeType.EXCLUSIVE_GATE);
+                        edge(last, header);
+                        GraphNode body = header;
+                        for (int i = 0; i < size; i++) {
+                            body = activity(body, t++);
+                        }
+                        GraphNode latch = node("latch" + gates++, GraphNodeType.EXCLUSIVE_GATE);
+                        edge(body, latch);
+                        // Back edge first: its probability comes first
+                        edge(latch, header);
+                        double back = 0.2 + 0.4 * random.nextDouble();
+                        probability(back, 1.0 - back);
+                        last = latch;
+                    } else {
+                        int size = Math.min(3, tasks - t);
+                        boolean exclusive = shape == Shape.MIXED ? block % 3 == 0 : block % 2 == 0;
+                        if (size == 1) {
+                            last = activity(last, t++);
+                        } else {
+                            GraphNodeType type = exclusive ? GraphNodeType.EXCLUSIVE_GATE : GraphNodeType.PARALLEL_GATE;
+                            GraphNode split = node("split" + gates, type);
+                            GraphNode join = node("join" + gates++, type);
+                            edge(last, split);
+                            double[] weights = new double[size];
+                            double total = 0.0;
+                            for (int i = 0; i < size; i++) {
+                                GraphNode task = node(taskList.get(t).getName(), GraphNodeType.ACTIVITY);
+                                t++;
+                                edge(split, task);
+                                edge(task, join);
+                                weights[i] = 0.1 + random.nextDouble();
+                                total += weights[i];
+                            }
+                            if (exclusive) {
+                                for (int i = 0; i < size; i++) {
+                                    weights[i] /= total;
+                                }
+                                probability(weights);
+                            }
+                            // The join must come after the branches in node order
+                            nodes.remove(join);
+                            nodes.add(join);
+                            last = join;
+                        }
+                    }
+                    block++;
+                }
+                edge(last, node("end", GraphNodeType.END));
+
+                Probability probability = new Probability();
+                probability.setNodes(probabilities);
+                Graph graph = new Graph();
+                graph.setNodes(nodes);
+                graph.setEdges(edges);
+                graph.setProbabilities(new ArrayList<>(Collections.singletonList(probability)));
+                return graph;
+            }
+
+            private GraphNode activity(GraphNode previous, int task) {
+                GraphNode node = node(taskList.get(task).getName(), GraphNodeType.ACTIVITY);
+                edge(previous, node);
+                return node;
+            }
+
+            private GraphNode node(String label, GraphNodeType type) {
+                GraphNode node = new GraphNode();
+                node.setLabel(label);
+                node.setType(type);
+                nodes.add(node);
+                return node;
+            }
+
+            private void edge(GraphNode source, GraphNode target) {
+                GraphEdge edge = new GraphEdge();
+                edge.setSource(source);
+                edge.setTarget(target);
+                edges.add(edge);
+            }
+
+            private void probability(double... values) {
+                List<ProbabilityEdge> probabilityEdges = new ArrayList<>(values.length);
+                for (double value : values) {
+                    ProbabilityEdge edge = new ProbabilityEdge();
+                    edge.setValue(value);
+                    probabilityEdges.add(edge);
+                }
+                ProbabilityNode node = new ProbabilityNode();
+                node.setEdges(probabilityEdges);
+                probabilities.add(node);
+            }
+        }
+    }
+}
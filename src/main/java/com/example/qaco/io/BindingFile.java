@@ -0,0 +1,603 @@
+package com.example.qaco.io;
+
+import com.example.qaco.domain.QACOProblem;
+import com.example.qaco.domain.binding.Binding;
+import com.example.qaco.domain.binding.BindingMapping;
+import com.example.qaco.domain.cws.CandidateService;
+import com.example.qaco.domain.cws.CompositeWebService;
+import com.example.qaco.domain.cws.Task;
+import com.example.qaco.engine.CompiledQACOProblem;
+import com.example.qaco.engine.LazyBindingSpace;
+import com.example.qaco.engine.qos.WorkflowAggregator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A file of bindings stored as packed arrays of service ids, read through memory-mapped buffers.
+ * <p>
+ * The header holds the dictionaries of the CWS the bindings belong to (tasks, and services with
+ * their provider and tasks, in CWS order) and optional objective names. Each binding is then a
+ * fixed-size record: one double per objective, followed by the service id of each task in 1, 2
+ * or 4 bytes, depending on how many services there are (all ones for an unbound task). A binding
+ * of 50 tasks over fewer than 255 services takes 50 bytes.
+ * <p>
+ * Files are written sequentially through a {@link Writer} and read by random access: the records
+ * are mapped in chunks of up to 1 GiB and decoded in place, so a reader can page through or scan
+ * (in parallel) billions of bindings without loading them onto the heap. Readers are thread-safe.
+ * Closing a reader closes its channel; the mappings are released when they are garbage collected.
+ * <p>
+ * Typical uses are feasible binding spaces ({@link #write(Path, LazyBindingSpace)}, or a
+ * filtered stream through a Writer) and Pareto archives ({@link #writeArchive(Path, QACOProblem, List)}),
+ * kept between runs.
+ */
+public final class BindingFile implements Closeable {
+
+    private static final byte[] MAGIC = "QACOBNDS".getBytes(StandardCharsets.US_ASCII);
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 48;
+    private static final int RECORD_COUNT_OFFSET = 32;
+    private static final long CHUNK_BYTES = 1L << 30;
+
+    private final FileChannel channel;
+    private final CompositeWebService dictionary;
+    private final CompiledQACOProblem compiled;
+    private final List<String> objectives;
+    private final int taskCount;
+    private final int idWidth;
+    private final int recordSize;
+    private final int idOffset;
+    private final long size;
+    private final long chunkRecords;
+    private final MappedByteBuffer[] chunks;
+
+    private BindingFile(FileChannel channel) throws IOException {
+        this.channel = channel;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, header, 0);
+        header.flip();
+        byte[] magic = new byte[MAGIC.length];
+        header.get(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IllegalArgumentException("Not a binding file.");
+        }
+        int version = header.getInt();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported binding file version: " + version);
+        }
+        this.idWidth = header.getInt();
+        this.taskCount = header.getInt();
+        int serviceCount = header.getInt();
+        int objectiveCount = header.getInt();
+        header.getInt();
+        this.size = header.getLong();
+        long dataOffset = header.getLong();
+        if (idWidth != 1 && idWidth != 2 && idWidth != 4 || taskCount < 0 || serviceCount < 0
+                || objectiveCount < 0 || size < 0 || dataOffset < HEADER_SIZE) {
+            throw new IllegalArgumentException("Corrupt binding file header.");
+        }
+
+        ByteBuffer dictionaries = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, dataOffset - HEADER_SIZE)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        List<Task> tasks = new ArrayList<>(taskCount);
+        for (int t = 0; t < taskCount; t++) {
+            Task task = new Task();
+            task.setName(getString(dictionaries));
+            task.setDescription(getString(dictionaries));
+            tasks.add(task);
+        }
+        List<CandidateService> services = new ArrayList<>(serviceCount);
+        for (int s = 0; s < serviceCount; s++) {
+            CandidateService service = new CandidateService();
+            service.setName(getString(dictionaries));
+            service.setDescription(getString(dictionaries));
+            service.setProvider(getString(dictionaries));
+            int declared = dictionaries.getInt();
+            if (declared >= 0) {
+                List<Task> serviceTasks = new ArrayList<>(declared);
+                for (int i = 0; i < declared; i++) {
+                    serviceTasks.add(tasks.get(dictionaries.getInt()));
+                }
+                service.setTasks(serviceTasks);
+            }
+            services.add(service);
+        }
+        List<String> names = new ArrayList<>(objectiveCount);
+        for (int k = 0; k < objectiveCount; k++) {
+            names.add(getString(dictionaries));
+        }
+        this.objectives = Collections.unmodifiableList(names);
+        this.dictionary = new CompositeWebService();
+        dictionary.setTasks(tasks);
+        dictionary.setCandidateServices(services);
+        this.compiled = CompiledQACOProblem.compile(dictionary);
+
+        this.idOffset = 8 * objectiveCount;
+        this.recordSize = Math.max(1, idOffset + idWidth * taskCount);
+        if (channel.size() < dataOffset + size * recordSize) {
+            throw new IllegalArgumentException("Binding file is truncated.");
+        }
+        this.chunkRecords = Math.max(1, CHUNK_BYTES / recordSize);
+        int chunkCount = (int) ((size + chunkRecords - 1) / chunkRecords);
+        this.chunks = new MappedByteBuffer[chunkCount];
+        for (int c = 0; c < chunkCount; c++) {
+            long first = c * chunkRecords;
+            long records = Math.min(chunkRecords, size - first);
+            chunks[c] = channel.map(FileChannel.MapMode.READ_ONLY, dataOffset + first * recordSize, records * recordSize);
+            chunks[c].order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    /**
+     * Open a binding file for reading.
+     *
+     * @throws IllegalArgumentException if the file is not a (complete) binding file
+     */
+    public static BindingFile open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new BindingFile(channel);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            channel.close();
+            throw new IllegalArgumentException("Corrupt binding file dictionaries.", e);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Create a binding file for bindings of the CWS, replacing any file at the path.
+     *
+     * @param objectives names of the values stored with each binding (none for a plain binding space)
+     */
+    public static Writer create(Path path, CompositeWebService cws, String... objectives) throws IOException {
+        return new Writer(path, cws, objectives);
+    }
+
+    /**
+     * Write every binding of a lazy binding space, straight from its assignments.
+     *
+     * @return how many bindings were written
+     */
+    public static long write(Path path, LazyBindingSpace space) throws IOException {
+        CompiledQACOProblem compiled = space.getCompiledProblem();
+        try (Writer writer = create(path, compiled.getCompositeWebService())) {
+            Iterator<int[]> assignments = space.assignments(false).iterator();
+            while (assignments.hasNext()) {
+                writer.append(assignments.next());
+            }
+            return writer.size();
+        }
+    }
+
+    /**
+     * Write a Pareto archive: each binding with the aggregated value of every preference feature
+     * of the problem, named after the feature.
+     *
+     * @return how many bindings were written
+     */
+    public static long writeArchive(Path path, QACOProblem problem, List<Binding> bindings) throws IOException {
+        CompiledQACOProblem compiled = CompiledQACOProblem.compile(problem);
+        WorkflowAggregator aggregator = WorkflowAggregator.of(compiled);
+        String[] names = new String[compiled.preferenceCount()];
+        for (int p = 0; p < names.length; p++) {
+            names[p] = compiled.feature(compiled.preferenceFeature(p)).getName();
+        }
+        double[] values = new double[names.length];
+        try (Writer writer = create(path, compiled.getCompositeWebService(), names)) {
+            for (Binding binding : bindings) {
+                int[] assignment = compiled.toAssignment(binding);
+                for (int p = 0; p < values.length; p++) {
+                    values[p] = aggregator.aggregate(compiled.preferenceFeature(p), assignment);
+                }
+                writer.append(assignment, values);
+            }
+            return writer.size();
+        }
+    }
+
+    /**
+     * @return how many bindings the file holds
+     */
+    public long size() {
+        return size;
+    }
+
+    public int taskCount() {
+        return taskCount;
+    }
+
+    public List<String> getObjectives() {
+        return objectives;
+    }
+
+    /**
+     * @return a CWS holding the tasks and services of the header, in file id order; the Bindings
+     * of this file refer to these instances
+     */
+    public CompositeWebService getCompositeWebService() {
+        return dictionary;
+    }
+
+    /**
+     * @return the service id bound to the task by the binding, -1 if the task is unbound
+     */
+    public int service(long index, int task) {
+        if (task < 0 || task >= taskCount) {
+            throw new IndexOutOfBoundsException("Task " + task + " of " + taskCount);
+        }
+        ByteBuffer chunk = chunk(index);
+        return id(chunk, offset(index) + idOffset + task * idWidth);
+    }
+
+    /**
+     * Decode a binding into {@code out} (of length {@link #taskCount()}).
+     *
+     * @return out
+     */
+    public int[] assignment(long index, int[] out) {
+        ByteBuffer chunk = chunk(index);
+        int at = offset(index) + idOffset;
+        for (int t = 0; t < taskCount; t++, at += idWidth) {
+            out[t] = id(chunk, at);
+        }
+        return out;
+    }
+
+    public double objective(long index, int objective) {
+        if (objective < 0 || objective >= objectives.size()) {
+            throw new IndexOutOfBoundsException("Objective " + objective + " of " + objectives.size());
+        }
+        return chunk(index).getDouble(offset(index) + 8 * objective);
+    }
+
+    /**
+     * @return the binding, over the instances of {@link #getCompositeWebService()}
+     */
+    public Binding get(long index) {
+        int[] assignment = assignment(index, new int[taskCount]);
+        for (int s : assignment) {
+            if (s < 0) {
+                List<BindingMapping> mappings = new ArrayList<>(taskCount);
+                for (int t = 0; t < taskCount; t++) {
+                    if (assignment[t] >= 0) {
+                        BindingMapping mapping = new BindingMapping();
+                        mapping.setTask(compiled.task(t));
+                        mapping.setCandidateService(compiled.service(assignment[t]));
+                        mappings.add(mapping);
+                    }
+                }
+                Binding binding = new Binding();
+                binding.setBindingMappings(mappings);
+                return binding;
+            }
+        }
+        return compiled.toBinding(assignment);
+    }
+
+    /**
+     * Decode the bindings {@code from} (inclusive) to {@code to} (exclusive) in order, passing
+     * each to the action with its index. The array is reused between calls.
+     */
+    public void scan(long from, long to, ObjLongConsumer<int[]> action) {
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException("Range [" + from + ", " + to + ") of " + size);
+        }
+        int[] assignment = new int[taskCount];
+        for (long i = from; i < to; i++) {
+            action.accept(assignment(i, assignment), i);
+        }
+    }
+
+    /**
+     * Stream the assignments, each a fresh array; a parallel stream splits the file by ranges.
+     */
+    public Stream<int[]> assignments(boolean parallel) {
+        return StreamSupport.stream(new RangeSpliterator(0, size), parallel);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private ByteBuffer chunk(long index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Binding " + index + " of " + size);
+        }
+        return chunks[(int) (index / chunkRecords)];
+    }
+
+    private int offset(long index) {
+        return (int) (index % chunkRecords) * recordSize;
+    }
+
+    private int id(ByteBuffer chunk, int at) {
+        switch (idWidth) {
+            case 1:
+                int b = chunk.get(at) & 0xFF;
+                return b == 0xFF ? -1 : b;
+            case 2:
+                int s = chunk.getShort(at) & 0xFFFF;
+                return s == 0xFFFF ? -1 : s;
+            default:
+                return chunk.getInt(at);
+        }
+    }
+
+    private static int idWidth(int serviceCount) {
+        // The largest value of each width marks an unbound task
+        return serviceCount < 0xFF ? 1 : serviceCount < 0xFFFF ? 2 : 4;
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IllegalArgumentException("Not a binding file: too short.");
+            }
+        }
+    }
+
+    private final class RangeSpliterator implements Spliterator<int[]> {
+        private long next;
+        private final long end;
+
+        RangeSpliterator(long next, long end) {
+            this.next = next;
+            this.end = end;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super int[]> action) {
+            if (next >= end) {
+                return false;
+            }
+            action.accept(assignment(next++, new int[taskCount]));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super int[]> action) {
+            for (; next < end; next++) {
+                action.accept(assignment(next, new int[taskCount]));
+            }
+        }
+
+        @Override
+        public Spliterator<int[]> trySplit() {
+            long mid = next + (end - next) / 2;
+            if (mid <= next) {
+                return null;
+            }
+            Spliterator<int[]> prefix = new RangeSpliterator(next, mid);
+            next = mid;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return end - next;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+        }
+    }
+
+    /**
+     * Appends bindings to a new binding file; the file is complete once closed.
+     */
+    public static final class Writer implements Closeable {
+        private static final int BUFFER_BYTES = 1 << 20;
+
+        private final FileChannel channel;
+        private final CompiledQACOProblem compiled;
+        private final int taskCount;
+        private final int serviceCount;
+        private final int objectiveCount;
+        private final int idWidth;
+        private final int recordSize;
+        private final ByteBuffer buffer;
+        private long size;
+        private boolean closed;
+
+        private Writer(Path path, CompositeWebService cws, String[] objectives) throws IOException {
+            if (cws == null) {
+                throw new IllegalArgumentException("CompositeWebService cannot be null.");
+            }
+            this.compiled = CompiledQACOProblem.compile(cws);
+            this.taskCount = compiled.taskCount();
+            this.serviceCount = compiled.serviceCount();
+            this.objectiveCount = objectives.length;
+            this.idWidth = idWidth(serviceCount);
+            this.recordSize = Math.max(1, 8 * objectiveCount + idWidth * taskCount);
+            this.buffer = ByteBuffer.allocateDirect(Math.max(recordSize, BUFFER_BYTES / recordSize * recordSize))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+
+            List<byte[]> strings = new ArrayList<>();
+            int dictionaryBytes = 0;
+            for (int t = 0; t < taskCount; t++) {
+                dictionaryBytes += add(strings, compiled.task(t).getName()) + add(strings, compiled.task(t).getDescription());
+            }
+            for (int s = 0; s < serviceCount; s++) {
+                CandidateService service = compiled.service(s);
+                dictionaryBytes += add(strings, service.getName()) + add(strings, service.getDescription())
+                        + add(strings, service.getProvider())
+                        + 4 + (service.getTasks() == null ? 0 : 4 * service.getTasks().size());
+            }
+            for (String objective : objectives) {
+                dictionaryBytes += add(strings, objective);
+            }
+            long dataOffset = (HEADER_SIZE + dictionaryBytes + 7) & ~7L;
+
+            ByteBuffer header = ByteBuffer.allocate((int) dataOffset).order(ByteOrder.LITTLE_ENDIAN);
+            header.put(MAGIC).putInt(VERSION).putInt(idWidth).putInt(taskCount).putInt(serviceCount)
+                    .putInt(objectiveCount).putInt(0).putLong(0L).putLong(dataOffset);
+            Iterator<byte[]> next = strings.iterator();
+            for (int t = 0; t < taskCount; t++) {
+                putString(header, next.next());
+                putString(header, next.next());
+            }
+            for (int s = 0; s < serviceCount; s++) {
+                putString(header, next.next());
+                putString(header, next.next());
+                putString(header, next.next());
+                List<Task> tasks = compiled.service(s).getTasks();
+                if (tasks == null) {
+                    header.putInt(-1);
+                } else {
+                    header.putInt(tasks.size());
+                    for (Task task : tasks) {
+                        int t = compiled.taskId(task);
+                        if (t < 0) {
+                            throw new IllegalArgumentException("CandidateService refers to a Task not in the CWS: "
+                                    + compiled.service(s).getName());
+                        }
+                        header.putInt(t);
+                    }
+                }
+            }
+            for (int k = 0; k < objectiveCount; k++) {
+                putString(header, next.next());
+            }
+            header.position(0);
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            try {
+                writeFully(header, 0);
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Append an assignment (task id -> service id, -1 for an unbound task) with its objective
+         * values.
+         */
+        public Writer append(int[] assignment, double... objectives) throws IOException {
+            if (closed) {
+                throw new IllegalStateException("Binding file writer is closed.");
+            }
+            if (assignment.length != taskCount || objectives.length != objectiveCount) {
+                throw new IllegalArgumentException("Expected " + taskCount + " services and " + objectiveCount
+                        + " objectives, got " + assignment.length + " and " + objectives.length + ".");
+            }
+            if (buffer.remaining() < recordSize) {
+                flush();
+            }
+            for (double objective : objectives) {
+                buffer.putDouble(objective);
+            }
+            for (int s : assignment) {
+                if (s < -1 || s >= serviceCount) {
+                    throw new IllegalArgumentException("Service id out of range: " + s);
+                }
+                if (idWidth == 1) {
+                    buffer.put((byte) s);
+                } else if (idWidth == 2) {
+                    buffer.putShort((short) s);
+                } else {
+                    buffer.putInt(s);
+                }
+            }
+            if (recordSize > 8 * objectiveCount + idWidth * taskCount) {
+                // Empty records still take a byte, so the count matches the file size
+                buffer.put((byte) 0);
+            }
+            size++;
+            return this;
+        }
+
+        /**
+         * Append a binding of the CWS (matched by instance or name) with its objective values.
+         */
+        public Writer append(Binding binding, double... objectives) throws IOException {
+            return append(compiled.toAssignment(binding), objectives);
+        }
+
+        /**
+         * @return how many bindings were appended
+         */
+        public long size() {
+            return size;
+        }
+
+        /**
+         * Write the remaining records and the binding count, and close the file.
+         */
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                flush();
+                ByteBuffer count = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(0, size);
+                writeFully(count, RECORD_COUNT_OFFSET);
+                channel.force(false);
+            } finally {
+                channel.close();
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            writeFully(buffer, channel.size());
+            buffer.clear();
+        }
+
+        private void writeFully(ByteBuffer source, long position) throws IOException {
+            long at = position;
+            while (source.hasRemaining()) {
+                at += channel.write(source, at);
+            }
+        }
+
+        private static int add(List<byte[]> strings, String value) {
+            byte[] bytes = value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+            strings.add(bytes);
+            return 4 + (bytes == null ? 0 : bytes.length);
+        }
+
+        private static void putString(ByteBuffer buffer, byte[] bytes) {
+            if (bytes == null) {
+                buffer.putInt(-1);
+            } else {
+                buffer.putInt(bytes.length).put(bytes);
+            }
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.qaco.io;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Writes a JSON document token by token, with no intermediate tree.
+ * <p>
+ * Commas and colons are inserted from the nesting state; misuse (a value where a name is expected,
+ * unbalanced ends, a second top-level value) throws an IllegalStateException. Output is compact and
+ * not buffered by this class.
+ */
+final class JsonWriter {
+
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_ARRAY = 2;
+    private static final int NONEMPTY_ARRAY = 3;
+    private static final int EMPTY_OBJECT = 4;
+    private static final int DANGLING_NAME = 5;
+    private static final int NONEMPTY_OBJECT = 6;
+
+    private final Writer out;
+    private int[] stack = new int[32];
+    private int depth;
+
+    JsonWriter(Writer out) {
+        this.out = out;
+        stack[depth++] = EMPTY_DOCUMENT;
+    }
+
+    JsonWriter beginObject() throws IOException {
+        beforeValue();
+        push(EMPTY_OBJECT);
+        out.write('{');
+        return this;
+    }
+
+    JsonWriter endObject() throws IOException {
+        int top = stack[depth - 1];
+        if (top != EMPTY_OBJECT && top != NONEMPTY_OBJECT) {
+            throw new IllegalStateException("JSON object end outside of an object, or after a name.");
+        }
+        depth--;
+        out.write('}');
+        return this;
+    }
+
+    JsonWriter beginArray() throws IOException {
+        beforeValue();
+        push(EMPTY_ARRAY);
+        out.write('[');
+        return this;
+    }
+
+    JsonWriter endArray() throws IOException {
+        int top = stack[depth - 1];
+        if (top != EMPTY_ARRAY && top != NONEMPTY_ARRAY) {
+            throw new IllegalStateException("JSON array end outside of an array.");
+        }
+        depth--;
+        out.write(']');
+        return this;
+    }
+
+    JsonWriter name(String name) throws IOException {
+        int top = stack[depth - 1];
+        if (top == NONEMPTY_OBJECT) {
+            out.write(',');
+        } else if (top != EMPTY_OBJECT) {
+            throw new IllegalStateException("JSON name outside of an object: " + name);
+        }
+        stack[depth - 1] = DANGLING_NAME;
+        string(name);
+        out.write(':');
+        return this;
+    }
+
+    JsonWriter value(String value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        beforeValue();
+        string(value);
+        return this;
+    }
+
+    JsonWriter value(long value) throws IOException {
+        beforeValue();
+        out.write(Long.toString(value));
+        return this;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the value is NaN or infinite, which JSON cannot represent
+     */
+    JsonWriter value(double value) throws IOException {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException("JSON cannot represent the number " + value);
+        }
+        beforeValue();
+        out.write(Double.toString(value));
+        return this;
+    }
+
+    JsonWriter value(Double value) throws IOException {
+        return value == null ? nullValue() : value(value.doubleValue());
+    }
+
+    JsonWriter value(boolean value) throws IOException {
+        beforeValue();
+        out.write(value ? "true" : "false");
+        return this;
+    }
+
+    JsonWriter nullValue() throws IOException {
+        beforeValue();
+        out.write("null");
+        return this;
+    }
+
+    void flush() throws IOException {
+        out.flush();
+    }
+
+    private void beforeValue() throws IOException {
+        switch (stack[depth - 1]) {
+            case EMPTY_DOCUMENT:
+                stack[depth - 1] = NONEMPTY_DOCUMENT;
+                return;
+            case EMPTY_ARRAY:
+                stack[depth - 1] = NONEMPTY_ARRAY;
+                return;
+            case NONEMPTY_ARRAY:
+                out.write(',');
+                return;
+            case DANGLING_NAME:
+                stack[depth - 1] = NONEMPTY_OBJECT;
+                return;
+            case NONEMPTY_DOCUMENT:
+                throw new IllegalStateException("A JSON document has a single top-level value.");
+            default:
+                throw new IllegalStateException("JSON value in an object without a name.");
+        }
+    }
+
+    private void push(int state) {
+        if (depth == stack.length) {
+            stack = Arrays.copyOf(stack, 2 * depth);
+        }
+        stack[depth++] = state;
+    }
+
+    private void string(String value) throws IOException {
+        out.write('"');
+        int start = 0;
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            String escape;
+            if (c == '"') {
+                escape = "\\\"";
+            } else if (c == '\\') {
+                escape = "\\\\";
+            } else if (c == '\n') {
+                escape = "\\n";
+            } else if (c == '\r') {
+                escape = "\\r";
+            } else if (c == '\t') {
+                escape = "\\t";
+            } else if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+                escape = String.format("\\u%04x", (int) c);
+            } else {
+                continue;
+            }
+            if (start < i) {
+                out.write(value, start, i - start);
+            }
+            out.write(escape);
+            start = i + 1;
+        }
+        if (start < length) {
+            out.write(value, start, length - start);
+        }
+        out.write('"');
+    }
+}
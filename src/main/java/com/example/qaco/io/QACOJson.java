@@ -0,0 +1,1442 @@
+package com.example.qaco.io;
+
+import com.example.qaco.domain.QACOProblem;
+import com.example.qaco.domain.binding.Binding;
+import com.example.qaco.domain.binding.BindingMapping;
+import com.example.qaco.domain.binding.BindingSpace;
+import com.example.qaco.domain.cws.CandidateService;
+import com.example.qaco.domain.cws.CompositeWebService;
+import com.example.qaco.domain.cws.Feature;
+import com.example.qaco.domain.cws.FeatureValue;
+import com.example.qaco.domain.cws.Task;
+import com.example.qaco.domain.cws.graph.Graph;
+import com.example.qaco.domain.cws.graph.GraphEdge;
+import com.example.qaco.domain.cws.graph.GraphNode;
+import com.example.qaco.domain.cws.graph.GraphNodeType;
+import com.example.qaco.domain.cws.graph.probability.Probability;
+import com.example.qaco.domain.cws.graph.probability.ProbabilityEdge;
+import com.example.qaco.domain.cws.graph.probability.ProbabilityNode;
+import com.example.qaco.domain.cws.qos.QoSSnapshot;
+import com.example.qaco.domain.problem.AggregateDomain;
+import com.example.qaco.domain.problem.AggregateDomainType;
+import com.example.qaco.domain.problem.AggregatorOperation;
+import com.example.qaco.domain.problem.Optimization;
+import com.example.qaco.domain.problem.Preference;
+import com.example.qaco.domain.problem.Problem;
+import com.example.qaco.domain.problem.constraints.BindingConstraint;
+import com.example.qaco.domain.problem.constraints.ComposeConstraint;
+import com.example.qaco.domain.problem.constraints.ComposeConstraintType;
+import com.example.qaco.domain.problem.constraints.ConditionalConstraint;
+import com.example.qaco.domain.problem.constraints.Constraint;
+import com.example.qaco.domain.problem.constraints.FeatureConstraint;
+import com.example.qaco.domain.problem.constraints.GlobalConstraint;
+import com.example.qaco.domain.problem.constraints.LocalConstraint;
+import com.example.qaco.domain.problem.constraints.Operator;
+import com.example.qaco.engine.CompiledQACOProblem;
+import com.example.qaco.engine.LazyBindingSpace;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Streaming JSON reader and writer for QACOProblems and binding spaces, in which every Task,
+ * CandidateService, Feature and GraphNode is written once and referred to by its index elsewhere.
+ * <p>
+ * The plain JSON form of the domain model repeats a whole CandidateService in every FeatureValue,
+ * and a whole Task and CandidateService in every BindingMapping. Here they are written once, in
+ * the tables of the CompositeWebService ({@code tasks}, {@code candidateServices},
+ * {@code features}, {@code graph.nodes}), and FeatureValues, constraints, edges and bindings hold
+ * indices into those tables. Reading resolves every index to the same instance, so the
+ * identity-based checks of the validator and the engines hold for a problem read back. Fields
+ * that are null are left out; constraints are written inline. The values of a {@code QoSStore}
+ * are written as inline FeatureValues of the current snapshot, and read back as such.
+ * <p>
+ * A binding space is written as the tasks and services of its CWS followed by one array per
+ * binding, giving the service index of each task ({@code null} for an unbound task). Bindings
+ * are written as they come from an iterator or a {@link LazyBindingSpace}, and can be read one
+ * at a time, so large binding spaces never have to be held in memory.
+ * <p>
+ * Everything is read and written token by token, without reflection or an intermediate tree.
+ * Malformed documents and dangling references throw an IllegalArgumentException; I/O errors
+ * propagate. Readers and writers are not closed.
+ */
+public final class QACOJson {
+
+    public static final String PROBLEM_FORMAT = "qaco-problem";
+    public static final String BINDINGS_FORMAT = "qaco-bindings";
+    public static final int VERSION = 1;
+
+    private QACOJson() {
+    }
+
+    /**
+     * Write the problem as a {@code qaco-problem} document.
+     *
+     * @throws IllegalArgumentException if something refers to a Task, CandidateService, Feature
+     *                                  or GraphNode that is not in the CWS (by instance or name)
+     */
+    public static void writeProblem(QACOProblem problem, Writer out) throws IOException {
+        if (problem == null) {
+            throw new IllegalArgumentException("QACOProblem cannot be null.");
+        }
+        JsonWriter json = new JsonWriter(new BufferedWriter(out));
+        json.beginObject();
+        json.name("format").value(PROBLEM_FORMAT);
+        json.name("version").value(VERSION);
+        CompositeWebService cws = problem.getCompositeWebService();
+        Refs refs = new Refs(cws);
+        if (cws != null) {
+            json.name("compositeWebService");
+            writeCws(json, cws, refs);
+        }
+        if (problem.getProblem() != null) {
+            json.name("problem");
+            writeProblem(json, problem.getProblem(), refs);
+        }
+        json.endObject();
+        json.flush();
+    }
+
+    /**
+     * Read a {@code qaco-problem} document.
+     *
+     * @throws IllegalArgumentException if the document is malformed or an index refers to no
+     *                                  element of its table
+     */
+    public static QACOProblem readProblem(Reader in) throws IOException {
+        return new ProblemReader(new JsonReader(in)).read();
+    }
+
+    /**
+     * Write the bindings of a CWS as a {@code qaco-bindings} document, one at a time.
+     *
+     * @return how many bindings were written
+     * @throws IllegalArgumentException if a binding refers to a Task or CandidateService that is
+     *                                  not in the CWS, or binds a task twice
+     */
+    public static long writeBindings(CompositeWebService cws, Iterator<? extends Binding> bindings, Writer out)
+            throws IOException {
+        if (cws == null) {
+            throw new IllegalArgumentException("CompositeWebService cannot be null.");
+        }
+        Refs refs = new Refs(cws);
+        JsonWriter json = new JsonWriter(new BufferedWriter(out));
+        beginBindings(json, cws, refs);
+        int[] row = new int[refs.tasks.size()];
+        long count = 0;
+        while (bindings.hasNext()) {
+            Binding binding = bindings.next();
+            Arrays.fill(row, -1);
+            if (binding != null && binding.getBindingMappings() != null) {
+                for (BindingMapping mapping : binding.getBindingMappings()) {
+                    int t = refs.tasks.indexOf(mapping.getTask());
+                    if (t < 0) {
+                        throw new IllegalArgumentException("BindingMapping has no Task.");
+                    }
+                    if (row[t] >= 0) {
+                        throw new IllegalArgumentException("Binding maps Task twice: " + mapping.getTask().getName());
+                    }
+                    row[t] = refs.services.indexOf(mapping.getCandidateService());
+                }
+            }
+            writeRow(json, row);
+            count++;
+        }
+        endBindings(json);
+        return count;
+    }
+
+    /**
+     * Write a BindingSpace of the CWS as a {@code qaco-bindings} document.
+     *
+     * @return how many bindings were written
+     */
+    public static long writeBindingSpace(CompositeWebService cws, BindingSpace space, Writer out) throws IOException {
+        List<Binding> bindings = space == null || space.getBindings() == null
+                ? Collections.<Binding>emptyList() : space.getBindings();
+        return writeBindings(cws, bindings.iterator(), out);
+    }
+
+    /**
+     * Write every binding of a lazy binding space as a {@code qaco-bindings} document, straight
+     * from its assignments: no Binding is built.
+     *
+     * @return how many bindings were written
+     */
+    public static long writeBindingSpace(LazyBindingSpace space, Writer out) throws IOException {
+        CompiledQACOProblem compiled = space.getCompiledProblem();
+        CompositeWebService cws = compiled.getCompositeWebService();
+        JsonWriter json = new JsonWriter(new BufferedWriter(out));
+        // Compiled ids are the indices in the CWS lists
+        beginBindings(json, cws, new Refs(cws));
+        long count = 0;
+        Iterator<int[]> assignments = space.assignments(false).iterator();
+        while (assignments.hasNext()) {
+            writeRow(json, assignments.next());
+            count++;
+        }
+        endBindings(json);
+        return count;
+    }
+
+    /**
+     * Read a {@code qaco-bindings} document into a BindingSpace.
+     *
+     * @param cws the CWS whose Tasks and CandidateServices (matched by name) the bindings should
+     *            use, or null to use the ones written in the document
+     */
+    public static BindingSpace readBindingSpace(Reader in, CompositeWebService cws) throws IOException {
+        List<Binding> bindings = new ArrayList<>();
+        readBindings(in, cws, bindings::add);
+        BindingSpace space = new BindingSpace();
+        space.setBindings(bindings);
+        return space;
+    }
+
+    /**
+     * Read a {@code qaco-bindings} document, passing each binding to the action as soon as it is
+     * read.
+     *
+     * @param cws the CWS whose Tasks and CandidateServices (matched by name) the bindings should
+     *            use, or null to use the ones written in the document
+     * @return how many bindings were read
+     * @throws IllegalArgumentException if the document is malformed, or a task or service is not
+     *                                  in the given CWS
+     */
+    public static long readBindings(Reader in, CompositeWebService cws, Consumer<? super Binding> action)
+            throws IOException {
+        JsonReader json = new JsonReader(in);
+        ProblemReader tables = new ProblemReader(json);
+        List<Task> tasks = null;
+        List<CandidateService> services = null;
+        long count = 0;
+        json.beginObject();
+        while (json.hasNext()) {
+            String name = json.nextName();
+            switch (name) {
+                case "format":
+                    checkFormat(json, BINDINGS_FORMAT);
+                    break;
+                case "tasks":
+                    tasks = resolve(tables.readTasks(), cws == null ? null : cws.getTasks(), Task::getName, "Task");
+                    break;
+                case "candidateServices":
+                    services = resolve(tables.readServices(), cws == null ? null : cws.getCandidateServices(),
+                            CandidateService::getName, "CandidateService");
+                    break;
+                case "bindings":
+                    if (tasks == null || services == null) {
+                        throw json.syntaxError("'bindings' must come after 'tasks' and 'candidateServices'");
+                    }
+                    // Services may refer to tasks past the table
+                    tables.tasks.list();
+                    json.beginArray();
+                    while (json.hasNext()) {
+                        action.accept(readRow(json, tasks, services));
+                        count++;
+                    }
+                    json.endArray();
+                    break;
+                default:
+                    json.skipValue();
+            }
+        }
+        json.endObject();
+        json.peek();
+        return count;
+    }
+
+    // ---------------------------------------------------------------- writing
+
+    private static void writeCws(JsonWriter json, CompositeWebService cws, Refs refs) throws IOException {
+        json.beginObject();
+        string(json, "name", cws.getName());
+        string(json, "description", cws.getDescription());
+        if (cws.getTasks() != null) {
+            json.name("tasks").beginArray();
+            for (Task task : cws.getTasks()) {
+                writeTask(json, task);
+            }
+            json.endArray();
+        }
+        if (cws.getCandidateServices() != null) {
+            json.name("candidateServices").beginArray();
+            for (CandidateService service : cws.getCandidateServices()) {
+                writeService(json, service, refs);
+            }
+            json.endArray();
+        }
+        if (cws.getFeatures() != null) {
+            QoSSnapshot snapshot = cws.getQosStore() == null ? null : cws.getQosStore().snapshot();
+            json.name("features").beginArray();
+            for (Feature feature : cws.getFeatures()) {
+                if (feature == null) {
+                    json.nullValue();
+                    continue;
+                }
+                json.beginObject();
+                string(json, "name", feature.getName());
+                string(json, "description", feature.getDescription());
+                if (snapshot != null && snapshot.hasColumn(feature.getName())) {
+                    writeStoredValues(json, cws, feature, snapshot, refs);
+                } else if (feature.getValues() != null) {
+                    json.name("values").beginArray();
+                    for (FeatureValue value : feature.getValues()) {
+                        if (value == null) {
+                            json.nullValue();
+                        } else {
+                            json.beginArray();
+                            ref(json, refs.services.indexOf(value.getService()));
+                            json.value(value.getValue());
+                            json.endArray();
+                        }
+                    }
+                    json.endArray();
+                }
+                json.endObject();
+            }
+            json.endArray();
+        }
+        if (cws.getGraph() != null) {
+            json.name("graph");
+            writeGraph(json, cws.getGraph());
+        }
+        json.endObject();
+    }
+
+    /**
+     * Write the values of a feature held in a QoSStore as inline values, merged with the inline
+     * values of the services the store has no value for.
+     */
+    private static void writeStoredValues(JsonWriter json, CompositeWebService cws, Feature feature,
+                                          QoSSnapshot snapshot, Refs refs) throws IOException {
+        List<CandidateService> services = cws.getCandidateServices() == null
+                ? Collections.<CandidateService>emptyList() : cws.getCandidateServices();
+        double[] values = new double[services.size()];
+        Arrays.fill(values, Double.NaN);
+        if (feature.getValues() != null) {
+            for (FeatureValue value : feature.getValues()) {
+                int index = value == null || value.getValue() == null ? -1 : refs.services.indexOf(value.getService());
+                if (index >= 0) {
+                    values[index] = value.getValue();
+                }
+            }
+        }
+        for (int i = 0; i < values.length; i++) {
+            double stored = snapshot.value(feature.getName(), services.get(i).getName());
+            if (!Double.isNaN(stored)) {
+                values[i] = stored;
+            }
+        }
+        json.name("values").beginArray();
+        for (int i = 0; i < values.length; i++) {
+            if (!Double.isNaN(values[i])) {
+                json.beginArray();
+                ref(json, i);
+                json.value(values[i]);
+                json.endArray();
+            }
+        }
+        json.endArray();
+    }
+
+    private static void writeTask(JsonWriter json, Task task) throws IOException {
+        if (task == null) {
+            json.nullValue();
+            return;
+        }
+        json.beginObject();
+        string(json, "name", task.getName());
+        string(json, "description", task.getDescription());
+        json.endObject();
+    }
+
+    private static void writeService(JsonWriter json, CandidateService service, Refs refs) throws IOException {
+        if (service == null) {
+            json.nullValue();
+            return;
+        }
+        json.beginObject();
+        string(json, "name", service.getName());
+        string(json, "description", service.getDescription());
+        string(json, "provider", service.getProvider());
+        if (service.getTasks() != null) {
+            json.name("tasks");
+            refs(json, service.getTasks(), refs.tasks);
+        }
+        json.endObject();
+    }
+
+    private static void writeGraph(JsonWriter json, Graph graph) throws IOException {
+        Index<GraphNode> nodes = new Index<>("GraphNode", graph.getNodes(), GraphNode::getLabel);
+        json.beginObject();
+        if (graph.getNodes() != null) {
+            json.name("nodes").beginArray();
+            for (GraphNode node : graph.getNodes()) {
+                if (node == null) {
+                    json.nullValue();
+                    continue;
+                }
+                json.beginObject();
+                string(json, "label", node.getLabel());
+                if (node.getType() != null) {
+                    json.name("type").value(node.getType().name());
+                }
+                json.endObject();
+            }
+            json.endArray();
+        }
+        if (graph.getEdges() != null) {
+            json.name("edges").beginArray();
+            for (GraphEdge edge : graph.getEdges()) {
+                if (edge == null) {
+                    json.nullValue();
+                    continue;
+                }
+                json.beginObject();
+                if (edge.getSource() != null) {
+                    json.name("source").value(nodes.indexOf(edge.getSource()));
+                }
+                if (edge.getTarget() != null) {
+                    json.name("target").value(nodes.indexOf(edge.getTarget()));
+                }
+                string(json, "label", edge.getLabel());
+                json.endObject();
+            }
+            json.endArray();
+        }
+        if (graph.getProbabilities() != null) {
+            json.name("probabilities").beginArray();
+            for (Probability probability : graph.getProbabilities()) {
+                if (probability == null || probability.getNodes() == null) {
+                    json.nullValue();
+                    continue;
+                }
+                json.beginArray();
+                for (ProbabilityNode node : probability.getNodes()) {
+                    if (node == null || node.getEdges() == null) {
+                        json.nullValue();
+                        continue;
+                    }
+                    json.beginArray();
+                    for (ProbabilityEdge edge : node.getEdges()) {
+                        if (edge == null) {
+                            json.nullValue();
+                        } else {
+                            json.value(edge.getValue());
+                        }
+                    }
+                    json.endArray();
+                }
+                json.endArray();
+            }
+            json.endArray();
+        }
+        json.endObject();
+    }
+
+    private static void writeProblem(JsonWriter json, Problem problem, Refs refs) throws IOException {
+        json.beginObject();
+        string(json, "name", problem.getName());
+        string(json, "description", problem.getDescription());
+        Optimization optimization = problem.getOptimization();
+        if (optimization != null) {
+            json.name("optimization").beginObject();
+            if (optimization.getPreferences() != null) {
+                json.name("preferences").beginArray();
+                for (Preference preference : optimization.getPreferences()) {
+                    if (preference == null) {
+                        json.nullValue();
+                        continue;
+                    }
+                    json.beginObject();
+                    if (preference.getFeature() != null) {
+                        json.name("feature").value(refs.features.indexOf(preference.getFeature()));
+                    }
+                    if (preference.getWeight() != null) {
+                        json.name("weight").value(preference.getWeight());
+                    }
+                    json.endObject();
+                }
+                json.endArray();
+            }
+            if (optimization.getAggregateDomains() != null) {
+                json.name("aggregateDomains").beginArray();
+                for (AggregateDomain domain : optimization.getAggregateDomains()) {
+                    if (domain == null) {
+                        json.nullValue();
+                        continue;
+                    }
+                    json.beginObject();
+                    if (domain.getAggregateDomainType() != null) {
+                        json.name("aggregateDomainType").value(domain.getAggregateDomainType().name());
+                    }
+                    if (domain.getAggregatorOperation() != null) {
+                        json.name("aggregatorOperation").beginArray();
+                        for (AggregatorOperation operation : domain.getAggregatorOperation()) {
+                            writeOperation(json, operation, refs);
+                        }
+                        json.endArray();
+                    }
+                    json.endObject();
+                }
+                json.endArray();
+            }
+            json.endObject();
+        }
+        if (problem.getConstraints() != null) {
+            json.name("constraints").beginArray();
+            for (Constraint constraint : problem.getConstraints()) {
+                writeConstraint(json, constraint, refs);
+            }
+            json.endArray();
+        }
+        json.endObject();
+    }
+
+    private static void writeOperation(JsonWriter json, AggregatorOperation operation, Refs refs) throws IOException {
+        if (operation == null) {
+            json.nullValue();
+            return;
+        }
+        json.beginObject();
+        string(json, "operation", operation.getOperation());
+        if (operation.getFeatures() != null) {
+            json.name("features");
+            refs(json, operation.getFeatures(), refs.features);
+        }
+        json.endObject();
+    }
+
+    private static void writeConstraint(JsonWriter json, Constraint constraint, Refs refs) throws IOException {
+        if (constraint == null) {
+            json.nullValue();
+            return;
+        }
+        json.beginObject();
+        if (constraint instanceof GlobalConstraint) {
+            GlobalConstraint gc = (GlobalConstraint) constraint;
+            json.name("kind").value("Global");
+            if (gc.getInputFeature() != null) {
+                json.name("inputFeature").value(refs.features.indexOf(gc.getInputFeature()));
+            }
+            operator(json, gc.getOperator());
+            if (gc.getValue() != null) {
+                json.name("value").value(gc.getValue());
+            }
+        } else if (constraint instanceof LocalConstraint) {
+            LocalConstraint lc = (LocalConstraint) constraint;
+            json.name("kind").value("Local");
+            if (lc.getInputFeature() != null) {
+                json.name("inputFeature");
+                writeFeatureConstraint(json, lc.getInputFeature(), refs);
+            }
+            operator(json, lc.getOperator());
+            if (lc.getValue() != null) {
+                json.name("value").value(lc.getValue());
+            }
+            if (lc.getOutputFeature() != null) {
+                json.name("outputFeature");
+                writeFeatureConstraint(json, lc.getOutputFeature(), refs);
+            }
+        } else if (constraint instanceof ComposeConstraint) {
+            ComposeConstraint cc = (ComposeConstraint) constraint;
+            json.name("kind").value("Compose");
+            if (cc.getType() != null) {
+                json.name("type").value(cc.getType().name());
+            }
+            if (cc.getConditions() != null) {
+                json.name("conditions").beginArray();
+                for (Constraint condition : cc.getConditions()) {
+                    writeConstraint(json, condition, refs);
+                }
+                json.endArray();
+            }
+        } else if (constraint instanceof ConditionalConstraint) {
+            ConditionalConstraint cc = (ConditionalConstraint) constraint;
+            json.name("kind").value("Conditional");
+            if (cc.getCondition() != null) {
+                json.name("condition");
+                writeConstraint(json, cc.getCondition(), refs);
+            }
+            if (cc.getThen() != null) {
+                json.name("then");
+                writeConstraint(json, cc.getThen(), refs);
+            }
+        } else if (constraint instanceof BindingConstraint) {
+            BindingConstraint bc = (BindingConstraint) constraint;
+            json.name("kind").value("Binding");
+            if (bc.getProviders() != null) {
+                json.name("providers");
+                refs(json, bc.getProviders(), refs.tasks);
+            }
+            operator(json, bc.getOperator());
+        } else {
+            throw new IllegalArgumentException("Unsupported constraint type: " + constraint.getClass().getName());
+        }
+        json.endObject();
+    }
+
+    private static void writeFeatureConstraint(JsonWriter json, FeatureConstraint fc, Refs refs) throws IOException {
+        json.beginObject();
+        if (fc.getFeature() != null) {
+            json.name("feature").value(refs.features.indexOf(fc.getFeature()));
+        }
+        if (fc.getTasks() != null) {
+            json.name("tasks");
+            refs(json, fc.getTasks(), refs.tasks);
+        }
+        if (fc.getAggregator() != null) {
+            json.name("aggregator");
+            writeOperation(json, fc.getAggregator(), refs);
+        }
+        json.endObject();
+    }
+
+    private static void operator(JsonWriter json, Operator operator) throws IOException {
+        if (operator != null) {
+            json.name("operator").value(operator.name());
+        }
+    }
+
+    private static void string(JsonWriter json, String name, String value) throws IOException {
+        if (value != null) {
+            json.name(name).value(value);
+        }
+    }
+
+    private static <T> void refs(JsonWriter json, List<T> items, Index<T> index) throws IOException {
+        json.beginArray();
+        for (T item : items) {
+            ref(json, index.indexOf(item));
+        }
+        json.endArray();
+    }
+
+    private static void ref(JsonWriter json, int index) throws IOException {
+        if (index < 0) {
+            json.nullValue();
+        } else {
+            json.value(index);
+        }
+    }
+
+    private static void beginBindings(JsonWriter json, CompositeWebService cws, Refs refs) throws IOException {
+        json.beginObject();
+        json.name("format").value(BINDINGS_FORMAT);
+        json.name("version").value(VERSION);
+        json.name("tasks").beginArray();
+        for (Task task : refs.tasks.items) {
+            writeTask(json, task);
+        }
+        json.endArray();
+        json.name("candidateServices").beginArray();
+        for (CandidateService service : refs.services.items) {
+            writeService(json, service, refs);
+        }
+        json.endArray();
+        json.name("bindings").beginArray();
+    }
+
+    private static void writeRow(JsonWriter json, int[] row) throws IOException {
+        json.beginArray();
+        for (int service : row) {
+            ref(json, service);
+        }
+        json.endArray();
+    }
+
+    private static void endBindings(JsonWriter json) throws IOException {
+        json.endArray();
+        json.endObject();
+        json.flush();
+    }
+
+    /**
+     * Indices of the elements of a CWS list, by instance and then by name.
+     */
+    private static final class Index<T> {
+        private final String what;
+        private final List<T> items;
+        private final Function<T, String> name;
+        private final Map<Object, Integer> byInstance;
+        private final Map<String, Integer> byName;
+
+        Index(String what, List<T> items, Function<T, String> name) {
+            this.what = what;
+            this.items = items == null ? Collections.<T>emptyList() : items;
+            this.name = name;
+            this.byInstance = new IdentityHashMap<>(2 * this.items.size());
+            this.byName = new HashMap<>(2 * this.items.size());
+            for (int i = 0; i < this.items.size(); i++) {
+                T item = this.items.get(i);
+                if (item != null) {
+                    byInstance.putIfAbsent(item, i);
+                    String key = name.apply(item);
+                    if (key != null) {
+                        byName.putIfAbsent(key, i);
+                    }
+                }
+            }
+        }
+
+        int size() {
+            return items.size();
+        }
+
+        /**
+         * @return the index of the item, -1 for null
+         * @throws IllegalArgumentException if it is not in the list
+         */
+        int indexOf(T item) {
+            if (item == null) {
+                return -1;
+            }
+            Integer index = byInstance.get(item);
+            if (index == null) {
+                String key = name.apply(item);
+                index = key == null ? null : byName.get(key);
+            }
+            if (index == null) {
+                throw new IllegalArgumentException(what + " is not in the CWS: " + name.apply(item));
+            }
+            return index;
+        }
+    }
+
+    private static final class Refs {
+        final Index<Task> tasks;
+        final Index<CandidateService> services;
+        final Index<Feature> features;
+
+        Refs(CompositeWebService cws) {
+            tasks = new Index<>("Task", cws == null ? null : cws.getTasks(), Task::getName);
+            services = new Index<>("CandidateService", cws == null ? null : cws.getCandidateServices(),
+                    CandidateService::getName);
+            features = new Index<>("Feature", cws == null ? null : cws.getFeatures(), Feature::getName);
+        }
+    }
+
+    // ---------------------------------------------------------------- reading
+
+    private static void checkFormat(JsonReader json, String expected) throws IOException {
+        String format = json.nextString();
+        if (!expected.equals(format)) {
+            throw new IllegalArgumentException("Expected a " + expected + " document, found: " + format);
+        }
+    }
+
+    /**
+     * Map the elements read from a document to the same-named ones of a CWS, if there is one.
+     */
+    private static <T> List<T> resolve(List<T> read, List<T> existing, Function<T, String> name, String what) {
+        if (existing == null) {
+            return read;
+        }
+        Map<String, T> byName = new HashMap<>(2 * existing.size());
+        for (T item : existing) {
+            if (item != null) {
+                byName.putIfAbsent(name.apply(item), item);
+            }
+        }
+        List<T> resolved = new ArrayList<>(read.size());
+        for (T item : read) {
+            T match = item == null ? null : byName.get(name.apply(item));
+            if (item != null && match == null) {
+                throw new IllegalArgumentException(what + " is not in the CWS: " + name.apply(item));
+            }
+            resolved.add(match);
+        }
+        return resolved;
+    }
+
+    private static Binding readRow(JsonReader json, List<Task> tasks, List<CandidateService> services)
+            throws IOException {
+        List<BindingMapping> mappings = new ArrayList<>(tasks.size());
+        json.beginArray();
+        for (int t = 0; json.hasNext(); t++) {
+            if (json.skipNull()) {
+                continue;
+            }
+            int s = json.nextInt();
+            if (t >= tasks.size() || s < 0 || s >= services.size()) {
+                throw json.syntaxError("binding refers to no task or service (task " + t + ", service " + s + ")");
+            }
+            BindingMapping mapping = new BindingMapping();
+            mapping.setTask(tasks.get(t));
+            mapping.setCandidateService(services.get(s));
+            mappings.add(mapping);
+        }
+        json.endArray();
+        Binding binding = new Binding();
+        binding.setBindingMappings(mappings);
+        return binding;
+    }
+
+    /**
+     * Elements referred to by index, created on first reference so tables can come in any order.
+     */
+    private static final class Table<T> {
+        private final String what;
+        private final Supplier<T> factory;
+        private final List<T> items = new ArrayList<>();
+        private int defined;
+        private boolean present;
+
+        Table(String what, Supplier<T> factory) {
+            this.what = what;
+            this.factory = factory;
+        }
+
+        T get(int index) {
+            if (index < 0) {
+                throw new IllegalArgumentException("Negative " + what + " index: " + index);
+            }
+            while (items.size() <= index) {
+                items.add(factory.get());
+            }
+            return items.get(index);
+        }
+
+        /**
+         * @return the next element of the table, to be filled in
+         */
+        T define() {
+            present = true;
+            return get(defined++);
+        }
+
+        void defineNull() {
+            present = true;
+            get(defined);
+            items.set(defined++, null);
+        }
+
+        /**
+         * @return the elements, or null if the table was not in the document
+         * @throws IllegalArgumentException if an index refers past the end of the table
+         */
+        List<T> list() {
+            if (items.size() > defined) {
+                throw new IllegalArgumentException(what + " " + defined + " is referred to but not defined"
+                        + (present ? "." : " (no table)."));
+            }
+            return present ? items : null;
+        }
+    }
+
+    private static final class ProblemReader {
+        private final JsonReader json;
+        private final Table<Task> tasks = new Table<>("Task", Task::new);
+        private final Table<CandidateService> services = new Table<>("CandidateService", CandidateService::new);
+        private final Table<Feature> features = new Table<>("Feature", Feature::new);
+
+        ProblemReader(JsonReader json) {
+            this.json = json;
+        }
+
+        QACOProblem read() throws IOException {
+            QACOProblem problem = new QACOProblem();
+            CompositeWebService cws = null;
+            json.beginObject();
+            while (json.hasNext()) {
+                String name = json.nextName();
+                switch (name) {
+                    case "format":
+                        checkFormat(json, PROBLEM_FORMAT);
+                        break;
+                    case "compositeWebService":
+                        cws = json.skipNull() ? null : readCws();
+                        break;
+                    case "problem":
+                        problem.setProblem(json.skipNull() ? null : readProblem());
+                        break;
+                    default:
+                        json.skipValue();
+                }
+            }
+            json.endObject();
+            json.peek();
+            List<Task> taskList = tasks.list();
+            List<CandidateService> serviceList = services.list();
+            List<Feature> featureList = features.list();
+            if (cws == null && (taskList != null || serviceList != null || featureList != null)) {
+                throw new IllegalArgumentException("References to a CompositeWebService that is not in the document.");
+            }
+            if (cws != null) {
+                cws.setTasks(taskList);
+                cws.setCandidateServices(serviceList);
+                cws.setFeatures(featureList);
+            }
+            problem.setCompositeWebService(cws);
+            return problem;
+        }
+
+        List<Task> readTasks() throws IOException {
+            json.beginArray();
+            while (json.hasNext()) {
+                if (json.skipNull()) {
+                    tasks.defineNull();
+                    continue;
+                }
+                Task task = tasks.define();
+                json.beginObject();
+                while (json.hasNext()) {
+                    switch (json.nextName()) {
+                        case "name":
+                            task.setName(json.nextString());
+                            break;
+                        case "description":
+                            task.setDescription(json.nextString());
+                            break;
+                        default:
+                            json.skipValue();
+                    }
+                }
+                json.endObject();
+            }
+            json.endArray();
+            tasks.present = true;
+            return tasks.list();
+        }
+
+        List<CandidateService> readServices() throws IOException {
+            json.beginArray();
+            while (json.hasNext()) {
+                if (json.skipNull()) {
+                    services.defineNull();
+                    continue;
+                }
+                CandidateService service = services.define();
+                json.beginObject();
+                while (json.hasNext()) {
+                    switch (json.nextName()) {
+                        case "name":
+                            service.setName(json.nextString());
+                            break;
+                        case "description":
+                            service.setDescription(json.nextString());
+                            break;
+                        case "provider":
+                            service.setProvider(json.nextString());
+                            break;
+                        case "tasks":
+                            service.setTasks(refs(tasks));
+                            break;
+                        default:
+                            json.skipValue();
+                    }
+                }
+                json.endObject();
+            }
+            json.endArray();
+            services.present = true;
+            return services.list();
+        }
+
+        private CompositeWebService readCws() throws IOException {
+            CompositeWebService cws = new CompositeWebService();
+            json.beginObject();
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "name":
+                        cws.setName(json.nextString());
+                        break;
+                    case "description":
+                        cws.setDescription(json.nextString());
+                        break;
+                    case "tasks":
+                        readTasks();
+                        break;
+                    case "candidateServices":
+                        readServices();
+                        break;
+                    case "features":
+                        readFeatures();
+                        break;
+                    case "graph":
+                        cws.setGraph(json.skipNull() ? null : readGraph());
+                        break;
+                    default:
+                        json.skipValue();
+                }
+            }
+            json.endObject();
+            return cws;
+        }
+
+        private void readFeatures() throws IOException {
+            json.beginArray();
+            while (json.hasNext()) {
+                if (json.skipNull()) {
+                    features.defineNull();
+                    continue;
+                }
+                Feature feature = features.define();
+                json.beginObject();
+                while (json.hasNext()) {
+                    switch (json.nextName()) {
+                        case "name":
+                            feature.setName(json.nextString());
+                            break;
+                        case "description":
+                            feature.setDescription(json.nextString());
+                            break;
+                        case "values":
+                            feature.setValues(readValues());
+                            break;
+                        default:
+                            json.skipValue();
+                    }
+                }
+                json.endObject();
+            }
+            json.endArray();
+            features.present = true;
+        }
+
+        private List<FeatureValue> readValues() throws IOException {
+            if (json.skipNull()) {
+                return null;
+            }
+            List<FeatureValue> values = new ArrayList<>();
+            json.beginArray();
+            while (json.hasNext()) {
+                if (json.skipNull()) {
+                    values.add(null);
+                    continue;
+                }
+                FeatureValue value = new FeatureValue();
+                json.beginArray();
+                value.setService(ref(services));
+                value.setValue(json.nextNullableDouble());
+                json.endArray();
+                values.add(value);
+            }
+            json.endArray();
+            return values;
+        }
+
+        private Graph readGraph() throws IOException {
+            Graph graph = new Graph();
+            Table<GraphNode> nodes = new Table<>("GraphNode", GraphNode::new);
+            json.beginObject();
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "nodes":
+                        json.beginArray();
+                        while (json.hasNext()) {
+                            if (json.skipNull()) {
+                                nodes.defineNull();
+                                continue;
+                            }
+                            GraphNode node = nodes.define();
+                            json.beginObject();
+                            while (json.hasNext()) {
+                                switch (json.nextName()) {
+                                    case "label":
+                                        node.setLabel(json.nextString());
+                                        break;
+                                    case "type":
+                                        node.setType(constant(GraphNodeType.class, json.nextString()));
+                                        break;
+                                    default:
+                                        json.skipValue();
+                                }
+                            }
+                            json.endObject();
+                        }
+                        json.endArray();
+                        nodes.present = true;
+                        break;
+                    case "edges":
+                        graph.setEdges(readEdges(nodes));
+                        break;
+                    case "probabilities":
+                        graph.setProbabilities(readProbabilities());
+                        break;
+                    default:
+                        json.skipValue();
+                }
+            }
+            json.endObject();
+            graph.setNodes(nodes.list());
+            return graph;
+        }
+
+        private List<GraphEdge> readEdges(Table<GraphNode> nodes) throws IOException {
+            List<GraphEdge> edges = new ArrayList<>();
+            json.beginArray();
+            while (json.hasNext()) {
+                if (json.skipNull()) {
+                    edges.add(null);
+                    continue;
+                }
+                GraphEdge edge = new GraphEdge();
+                json.beginObject();
+                while (json.hasNext()) {
+                    switch (json.nextName()) {
+                        case "source":
+                            edge.setSource(ref(nodes));
+                            break;
+                        case "target":
+                            edge.setTarget(ref(nodes));
+                            break;
+                        case "label":
+                            edge.setLabel(json.nextString());
+                            break;
+                        default:
+                            json.skipValue();
+                    }
+                }
+                json.endObject();
+                edges.add(edge);
+            }
+            json.endArray();
+            return edges;
+        }
+
+        private List<Probability> readProbabilities() throws IOException {
+            List<Probability> probabilities = new ArrayList<>();
+            json.beginArray();
+            while (json.hasNext()) {
+                Probability probability = null;
+                if (!json.skipNull()) {
+                    probability = new Probability();
+                    List<ProbabilityNode> nodes = new ArrayList<>();
+                    json.beginArray();
+                    while (json.hasNext()) {
+                        ProbabilityNode node = new ProbabilityNode();
+                        if (!json.skipNull()) {
+                            List<ProbabilityEdge> edges = new ArrayList<>();
+                            json.beginArray();
+                            while (json.hasNext()) {
+                                ProbabilityEdge edge = null;
+                                if (!json.skipNull()) {
+                                    edge = new ProbabilityEdge();
+                                    edge.setValue(json.nextDouble());
+                                }
+                                edges.add(edge);
+                            }
+                            json.endArray();
+                            node.setEdges(edges);
+                        }
+                        nodes.add(node);
+                    }
+                    json.endArray();
+                    probability.setNodes(nodes);
+                }
+                probabilities.add(probability);
+            }
+            json.endArray();
+            return probabilities;
+        }
+
+        private Problem readProblem() throws IOException {
+            Problem problem = new Problem();
+            json.beginObject();
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "name":
+                        problem.setName(json.nextString());
+                        break;
+                    case "description":
+                        problem.setDescription(json.nextString());
+                        break;
+                    case "optimization":
+                        problem.setOptimization(json.skipNull() ? null : readOptimization());
+                        break;
+                    case "constraints":
+                        if (json.skipNull()) {
+                            break;
+                        }
+                        List<Constraint> constraints = new ArrayList<>();
+                        json.beginArray();
+                        while (json.hasNext()) {
+                            constraints.add(readConstraint());
+                        }
+                        json.endArray();
+                        problem.setConstraints(constraints);
+                        break;
+                    default:
+                        json.skipValue();
+                }
+            }
+            json.endObject();
+            return problem;
+        }
+
+        private Optimization readOptimization() throws IOException {
+            Optimization optimization = new Optimization();
+            json.beginObject();
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "preferences":
+                        if (json.skipNull()) {
+                            break;
+                        }
+                        List<Preference> preferences = new ArrayList<>();
+                        json.beginArray();
+                        while (json.hasNext()) {
+                            Preference preference = null;
+                            if (!json.skipNull()) {
+                                preference = new Preference();
+                                json.beginObject();
+                                while (json.hasNext()) {
+                                    switch (json.nextName()) {
+                                        case "feature":
+                                            preference.setFeature(ref(features));
+                                            break;
+                                        case "weight":
+                                            preference.setWeight(json.nextNullableDouble());
+                                            break;
+                                        default:
+                                            json.skipValue();
+                                    }
+                                }
+                                json.endObject();
+                            }
+                            preferences.add(preference);
+                        }
+                        json.endArray();
+                        optimization.setPreferences(preferences);
+                        break;
+                    case "aggregateDomains":
+                        if (json.skipNull()) {
+                            break;
+                        }
+                        List<AggregateDomain> domains = new ArrayList<>();
+                        json.beginArray();
+                        while (json.hasNext()) {
+                            domains.add(json.skipNull() ? null : readDomain());
+                        }
+                        json.endArray();
+                        optimization.setAggregateDomains(domains);
+                        break;
+                    default:
+                        json.skipValue();
+                }
+            }
+            json.endObject();
+            return optimization;
+        }
+
+        private AggregateDomain readDomain() throws IOException {
+            AggregateDomain domain = new AggregateDomain();
+            json.beginObject();
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "aggregateDomainType":
+                        domain.setAggregateDomainType(constant(AggregateDomainType.class, json.nextString()));
+                        break;
+                    case "aggregatorOperation":
+                        if (json.skipNull()) {
+                            break;
+                        }
+                        List<AggregatorOperation> operations = new ArrayList<>();
+                        json.beginArray();
+                        while (json.hasNext()) {
+                            operations.add(readOperation());
+                        }
+                        json.endArray();
+                        domain.setAggregatorOperation(operations);
+                        break;
+                    default:
+                        json.skipValue();
+                }
+            }
+            json.endObject();
+            return domain;
+        }
+
+        private AggregatorOperation readOperation() throws IOException {
+            if (json.skipNull()) {
+                return null;
+            }
+            AggregatorOperation operation = new AggregatorOperation();
+            json.beginObject();
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "operation":
+                        operation.setOperation(json.nextString());
+                        break;
+                    case "features":
+                        operation.setFeatures(refs(features));
+                        break;
+                    default:
+                        json.skipValue();
+                }
+            }
+            json.endObject();
+            return operation;
+        }
+
+        /**
+         * Fields are read in any order and the constraint is built from its kind at the end.
+         */
+        private Constraint readConstraint() throws IOException {
+            if (json.skipNull()) {
+                return null;
+            }
+            String kind = null;
+            Feature feature = null;
+            FeatureConstraint input = null;
+            FeatureConstraint output = null;
+            Operator operator = null;
+            Double value = null;
+            ComposeConstraintType type = null;
+            List<Constraint> conditions = null;
+            Constraint condition = null;
+            Constraint then = null;
+            List<Task> providers = null;
+            json.beginObject();
+            while (json.hasNext()) {
+                String name = json.nextName();
+                switch (name) {
+                    case "kind":
+                        kind = json.nextString();
+                        break;
+                    case "inputFeature":
+                        // A feature index for a global constraint, a FeatureConstraint for a local one
+                        if (json.peek() == JsonReader.Token.NUMBER) {
+                            feature = ref(features);
+                        } else {
+                            input = readFeatureConstraint();
+                        }
+                        break;
+                    case "outputFeature":
+                        output = readFeatureConstraint();
+                        break;
+                    case "operator":
+                        operator = constant(Operator.class, json.nextString());
+                        break;
+                    case "value":
+                        value = json.nextNullableDouble();
+                        break;
+                    case "type":
+                        type = constant(ComposeConstraintType.class, json.nextString());
+                        break;
+                    case "conditions":
+                        if (json.skipNull()) {
+                            break;
+                        }
+                        conditions = new ArrayList<>();
+                        json.beginArray();
+                        while (json.hasNext()) {
+                            conditions.add(readConstraint());
+                        }
+                        json.endArray();
+                        break;
+                    case "condition":
+                        condition = readConstraint();
+                        break;
+                    case "then":
+                        then = readConstraint();
+                        break;
+                    case "providers":
+                        providers = refs(tasks);
+                        break;
+                    default:
+                        json.skipValue();
+                }
+            }
+            json.endObject();
+            if ("Global".equals(kind)) {
+                GlobalConstraint constraint = new GlobalConstraint();
+                constraint.setInputFeature(feature);
+                constraint.setOperator(operator);
+                constraint.setValue(value);
+                return constraint;
+            } else if ("Local".equals(kind)) {
+                LocalConstraint constraint = new LocalConstraint();
+                constraint.setInputFeature(input);
+                constraint.setOperator(operator);
+                constraint.setValue(value);
+                constraint.setOutputFeature(output);
+                return constraint;
+            } else if ("Compose".equals(kind)) {
+                ComposeConstraint constraint = new ComposeConstraint();
+                constraint.setType(type);
+                constraint.setConditions(conditions);
+                return constraint;
+            } else if ("Conditional".equals(kind)) {
+                ConditionalConstraint constraint = new ConditionalConstraint();
+                constraint.setCondition(condition);
+                constraint.setThen(then);
+                return constraint;
+            } else if ("Binding".equals(kind)) {
+                BindingConstraint constraint = new BindingConstraint();
+                constraint.setProviders(providers);
+                constraint.setOperator(operator);
+                return constraint;
+            }
+            throw json.syntaxError("unknown constraint kind: " + kind);
+        }
+
+        private FeatureConstraint readFeatureConstraint() throws IOException {
+            if (json.skipNull()) {
+                return null;
+            }
+            FeatureConstraint fc = new FeatureConstraint();
+            json.beginObject();
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "feature":
+                        fc.setFeature(ref(features));
+                        break;
+                    case "tasks":
+                        fc.setTasks(refs(tasks));
+                        break;
+                    case "aggregator":
+                        fc.setAggregator(readOperation());
+                        break;
+                    default:
+                        json.skipValue();
+                }
+            }
+            json.endObject();
+            return fc;
+        }
+
+        private <T> T ref(Table<T> table) throws IOException {
+            return json.skipNull() ? null : table.get(json.nextInt());
+        }
+
+        private <T> List<T> refs(Table<T> table) throws IOException {
+            if (json.skipNull()) {
+                return null;
+            }
+            List<T> items = new ArrayList<>();
+            json.beginArray();
+            while (json.hasNext()) {
+                items.add(ref(table));
+            }
+            json.endArray();
+            return items;
+        }
+
+        private <E extends Enum<E>> E constant(Class<E> type, String name) {
+            if (name == null) {
+                return null;
+            }
+            try {
+                return Enum.valueOf(type, name);
+            } catch (IllegalArgumentException e) {
+                throw json.syntaxError("unknown " + type.getSimpleName() + ": " + name);
+            }
+        }
+    }
+}
@@ -1,5 +0,0 @@
-package com.example.qaco;
-
-public class QACOTest {
-    
-}
@@ -0,0 +1,236 @@
+package com.example.qaco;
+
+import com.example.qaco.domain.QACOProblem;
+import com.example.qaco.domain.binding.Binding;
+import com.example.qaco.domain.cws.CandidateService;
+import com.example.qaco.domain.cws.CompositeWebService;
+import com.example.qaco.domain.cws.Feature;
+import com.example.qaco.domain.cws.FeatureValue;
+import com.example.qaco.domain.cws.Task;
+import com.example.qaco.domain.cws.graph.Graph;
+import com.example.qaco.domain.cws.graph.GraphEdge;
+import com.example.qaco.domain.cws.graph.GraphNode;
+import com.example.qaco.domain.cws.graph.GraphNodeType;
+import com.example.qaco.domain.cws.graph.probability.Probability;
+import com.example.qaco.domain.cws.graph.probability.ProbabilityEdge;
+import com.example.qaco.domain.cws.graph.probability.ProbabilityNode;
+import com.example.qaco.domain.problem.Optimization;
+import com.example.qaco.domain.problem.Preference;
+import com.example.qaco.domain.problem.Problem;
+import com.example.qaco.domain.problem.constraints.BindingConstraint;
+import com.example.qaco.domain.problem.constraints.ComposeConstraint;
+import com.example.qaco.domain.problem.constraints.ComposeConstraintType;
+import com.example.qaco.domain.problem.constraints.Constraint;
+import com.example.qaco.domain.problem.constraints.FeatureConstraint;
+import com.example.qaco.domain.problem.constraints.GlobalConstraint;
+import com.example.qaco.domain.problem.constraints.LocalConstraint;
+import com.example.qaco.domain.problem.constraints.Operator;
+import com.example.qaco.engine.CompiledQACOProblem;
+import com.example.qaco.engine.LazyBindingSpace;
+import com.example.qaco.engine.constraints.CompiledConstraint;
+import com.example.qaco.engine.constraints.ConstraintCompiler;
+import com.example.qaco.engine.qos.WorkflowAggregator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Problems and domain builders shared by the tests, and a brute-force reference solver.
+ */
+public final class TestProblems {
+
+    private TestProblems() {
+    }
+
+    /**
+     * Three tasks in sequence with two features (cost, time). G declares no tasks, so it can
+     * serve any of them.
+     */
+    public static QACOProblem sampleProblem() {
+        Task a = task("A");
+        Task b = task("B");
+        Task c = task("C");
+
+        CandidateService a1 = service("A1", "p1", a);
+        CandidateService a2 = service("A2", "p2", a);
+        CandidateService b1 = service("B1", "p1", b);
+        CandidateService c1 = service("C1", "p3", c);
+        CandidateService g = service("G", "p2");
+
+        Feature cost = feature("cost", new CandidateService[]{a1, a2, b1, c1, g}, new double[]{5, 7, 3, 4, 9});
+        Feature time = feature("time", new CandidateService[]{a1, a2, b1, c1}, new double[]{20, 10, 15, 30});
+
+        CompositeWebService cws = new CompositeWebService();
+        cws.setName("sample");
+        cws.setTasks(Arrays.asList(a, b, c));
+        cws.setCandidateServices(Arrays.asList(a1, a2, b1, c1, g));
+        cws.setFeatures(Arrays.asList(cost, time));
+
+        Preference preference = new Preference();
+        preference.setFeature(cost);
+        preference.setWeight(1.0);
+        Optimization optimization = new Optimization();
+        optimization.setPreferences(new ArrayList<>(Collections.singletonList(preference)));
+
+        Problem domainProblem = new Problem();
+        domainProblem.setName("sample");
+        domainProblem.setOptimization(optimization);
+        domainProblem.setConstraints(new ArrayList<>());
+
+        QACOProblem problem = new QACOProblem();
+        problem.setCompositeWebService(cws);
+        problem.setProblem(domainProblem);
+        return problem;
+    }
+
+    /**
+     * The sample problem with a cost budget and an either/or between per-task time limits and
+     * A and B using different providers.
+     */
+    public static QACOProblem constrainedProblem() {
+        QACOProblem problem = sampleProblem();
+        Feature cost = problem.getCompositeWebService().getFeatures().get(0);
+        Feature time = problem.getCompositeWebService().getFeatures().get(1);
+        List<Task> tasks = problem.getCompositeWebService().getTasks();
+
+        GlobalConstraint budget = new GlobalConstraint();
+        budget.setInputFeature(cost);
+        budget.setOperator(Operator.LESS_THAN_OR_EQUALS);
+        budget.setValue(15.0);
+
+        FeatureConstraint everyTaskTime = new FeatureConstraint();
+        everyTaskTime.setFeature(time);
+        LocalConstraint fastEnough = new LocalConstraint();
+        fastEnough.setInputFeature(everyTaskTime);
+        fastEnough.setOperator(Operator.LESS_THAN);
+        fastEnough.setValue(25.0);
+
+        BindingConstraint differentProviders = new BindingConstraint();
+        differentProviders.setProviders(Arrays.asList(tasks.get(0), tasks.get(1)));
+        differentProviders.setOperator(Operator.NOT_EQUALS);
+
+        ComposeConstraint either = new ComposeConstraint();
+        either.setType(ComposeConstraintType.OR);
+        either.setConditions(Arrays.<Constraint>asList(fastEnough, differentProviders));
+
+        problem.getProblem().setConstraints(new ArrayList<>(Arrays.<Constraint>asList(budget, either)));
+        return problem;
+    }
+
+    /**
+     * START -> A -> xor(0.7: B, 0.3: C) -> END, over the tasks of the sample problem.
+     */
+    public static Graph branchGraph() {
+        GraphNode start = node("start", GraphNodeType.START);
+        GraphNode a = node("A", GraphNodeType.ACTIVITY);
+        GraphNode split = node("split", GraphNodeType.EXCLUSIVE_GATE);
+        GraphNode b = node("B", GraphNodeType.ACTIVITY);
+        GraphNode c = node("C", GraphNodeType.ACTIVITY);
+        GraphNode join = node("join", GraphNodeType.EXCLUSIVE_GATE);
+        GraphNode end = node("end", GraphNodeType.END);
+        return graph(Arrays.asList(start, a, split, b, c, join, end),
+                Arrays.asList(edge(start, a), edge(a, split), edge(split, b), edge(split, c),
+                        edge(b, join), edge(c, join), edge(join, end)),
+                0.7, 0.3);
+    }
+
+    /**
+     * START -> header -> A -> latch -(repeat)-> header, latch -> END: B and C are not in the graph.
+     */
+    public static Graph loopGraph(double repeat) {
+        GraphNode start = node("start", GraphNodeType.START);
+        GraphNode header = node("header", GraphNodeType.EXCLUSIVE_GATE);
+        GraphNode a = node("A", GraphNodeType.ACTIVITY);
+        GraphNode latch = node("latch", GraphNodeType.EXCLUSIVE_GATE);
+        GraphNode end = node("end", GraphNodeType.END);
+        return graph(Arrays.asList(start, header, a, latch, end),
+                Arrays.asList(edge(start, header), edge(header, a), edge(a, latch), edge(latch, header),
+                        edge(latch, end)),
+                repeat, 1.0 - repeat);
+    }
+
+    public static double score(QACOProblem problem, Binding binding) {
+        CompiledQACOProblem compiled = CompiledQACOProblem.compile(problem);
+        return WorkflowAggregator.of(compiled).score(compiled.toAssignment(binding));
+    }
+
+    /**
+     * @return the best score of a feasible binding, found by enumerating them all, or NaN if
+     * there is none
+     */
+    public static double bruteForceOptimum(QACOProblem problem) {
+        CompiledQACOProblem compiled = CompiledQACOProblem.compile(problem);
+        WorkflowAggregator aggregator = WorkflowAggregator.of(compiled);
+        CompiledConstraint constraint = ConstraintCompiler.compile(compiled, aggregator);
+        return new LazyBindingSpace(compiled).assignments(false)
+                .filter(constraint::test)
+                .mapToDouble(aggregator::score)
+                .min().orElse(Double.NaN);
+    }
+
+    public static GraphNode node(String label, GraphNodeType type) {
+        GraphNode node = new GraphNode();
+        node.setLabel(label);
+        node.setType(type);
+        return node;
+    }
+
+    public static GraphEdge edge(GraphNode source, GraphNode target) {
+        GraphEdge edge = new GraphEdge();
+        edge.setSource(source);
+        edge.setTarget(target);
+        return edge;
+    }
+
+    /**
+     * A graph whose only exclusive split has the given branch probabilities.
+     */
+    public static Graph graph(List<GraphNode> nodes, List<GraphEdge> edges, double... branchProbabilities) {
+        List<ProbabilityEdge> probabilityEdges = new ArrayList<>();
+        for (double p : branchProbabilities) {
+            ProbabilityEdge probabilityEdge = new ProbabilityEdge();
+            probabilityEdge.setValue(p);
+            probabilityEdges.add(probabilityEdge);
+        }
+        ProbabilityNode probabilityNode = new ProbabilityNode();
+        probabilityNode.setEdges(probabilityEdges);
+        Probability probability = new Probability();
+        probability.setNodes(Collections.singletonList(probabilityNode));
+
+        Graph graph = new Graph();
+        graph.setNodes(nodes);
+        graph.setEdges(edges);
+        graph.setProbabilities(Collections.singletonList(probability));
+        return graph;
+    }
+
+    public static Task task(String name) {
+        Task task = new Task();
+        task.setName(name);
+        return task;
+    }
+
+    public static CandidateService service(String name, String provider, Task... tasks) {
+        CandidateService service = new CandidateService();
+        service.setName(name);
+        service.setProvider(provider);
+        service.setTasks(tasks.length == 0 ? null : Arrays.asList(tasks));
+        return service;
+    }
+
+    public static Feature feature(String name, CandidateService[] services, double[] values) {
+        List<FeatureValue> featureValues = new ArrayList<>();
+        for (int i = 0; i < services.length; i++) {
+            FeatureValue value = new FeatureValue();
+            value.setService(services[i]);
+            value.setValue(values[i]);
+            featureValues.add(value);
+        }
+        Feature feature = new Feature();
+        feature.setName(name);
+        feature.setValues(featureValues);
+        return feature;
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.qaco.domain.cws.qos;
+
+import com.example.qaco.domain.QACOProblem;
+import com.example.qaco.domain.cws.CompositeWebService;
+import com.example.qaco.domain.cws.Feature;
+import com.example.qaco.engine.CompiledQACOProblem;
+import com.example.qaco.engine.ProblemFingerprint;
+import com.example.qaco.engine.incremental.ProblemDelta;
+import com.example.qaco.io.QACOJson;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static com.example.qaco.TestProblems.sampleProblem;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+public class QoSStoreTest {
+
+    @Test
+    public void storedValuesCompileLikeInlineValues() {
+        QACOProblem problem = sampleProblem();
+        CompiledQACOProblem inline = CompiledQACOProblem.compile(problem);
+        ProblemFingerprint inlineFingerprint = ProblemFingerprint.of(problem);
+
+        moveToStore(problem);
+        CompiledQACOProblem stored = CompiledQACOProblem.compile(problem);
+        for (int f = 0; f < inline.featureCount(); f++) {
+            assertArrayEquals(inline.qosRow(f), stored.qosRow(f), 0.0);
+        }
+        assertNotEquals(inlineFingerprint, ProblemFingerprint.of(problem));
+    }
+
+    @Test
+    public void anUpdateIsANewVersionAndOldSnapshotsStay() {
+        QACOProblem problem = sampleProblem();
+        CompiledQACOProblem inline = CompiledQACOProblem.compile(problem);
+        QoSStore store = moveToStore(problem);
+        CompiledQACOProblem stored = CompiledQACOProblem.compile(problem);
+        CompositeWebService cws = problem.getCompositeWebService();
+        String cost = cws.getFeatures().get(0).getName();
+        String service = cws.getCandidateServices().get(0).getName();
+
+        QoSSnapshot before = store.snapshot();
+        ProblemFingerprint beforeFingerprint = ProblemFingerprint.of(problem);
+        store.update().set(cost, service, 99.0).commit();
+        assertEquals(before.getVersion() + 1, store.version());
+        assertEquals(inline.qos(0, 0), before.value(cost, service), 0.0);
+        // A solve compiled before the update keeps its snapshot
+        assertEquals(before, stored.getQoSSnapshot());
+        assertEquals(inline.qos(0, 0), stored.qos(0, 0), 0.0);
+        assertEquals(99.0, CompiledQACOProblem.compile(problem).qos(0, 0), 0.0);
+        assertNotEquals(beforeFingerprint, ProblemFingerprint.of(problem));
+        assertEquals(99.0, store.snapshot().column(cost).get(0), 0.0);
+    }
+
+    @Test
+    public void deltasWriteToTheStoreAndJsonWritesValuesInline() throws Exception {
+        QACOProblem problem = sampleProblem();
+        CompiledQACOProblem inline = CompiledQACOProblem.compile(problem);
+        QoSStore store = moveToStore(problem);
+        CompositeWebService cws = problem.getCompositeWebService();
+        String cost = cws.getFeatures().get(0).getName();
+        String service = cws.getCandidateServices().get(0).getName();
+
+        new ProblemDelta().setValue(cost, service, 42.0).applyTo(problem);
+        assertEquals(42.0, store.snapshot().value(cost, service), 0.0);
+        assertNull(cws.getFeatures().get(0).getValues());
+
+        StringWriter json = new StringWriter();
+        QACOJson.writeProblem(problem, json);
+        CompiledQACOProblem readBack = CompiledQACOProblem.compile(QACOJson.readProblem(new StringReader(json.toString())));
+        assertEquals(42.0, readBack.qos(0, 0), 0.0);
+        assertArrayEquals(inline.qosRow(1), readBack.qosRow(1), 0.0);
+    }
+
+    private static QoSStore moveToStore(QACOProblem problem) {
+        CompositeWebService cws = problem.getCompositeWebService();
+        QoSStore store = QoSStore.of(cws);
+        cws.setQosStore(store);
+        for (Feature feature : cws.getFeatures()) {
+            feature.setValues(null);
+        }
+        return store;
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.qaco.engine;
+
+import com.example.qaco.domain.QACOProblem;
+import com.example.qaco.domain.binding.Binding;
+import com.example.qaco.domain.cws.CandidateService;
+import com.example.qaco.domain.cws.CompositeWebService;
+import com.example.qaco.domain.problem.Optimization;
+import com.example.qaco.domain.problem.Preference;
+import com.example.qaco.domain.problem.Problem;
+import com.example.qaco.engine.cache.CachingQACOEngine;
+import com.example.qaco.engine.exact.BranchAndBoundEngine;
+import com.example.qaco.engine.portfolio.PortfolioEngine;
+import com.example.qaco.generator.SyntheticProblemGenerator;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static com.example.qaco.TestProblems.feature;
+import static com.example.qaco.TestProblems.score;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AbstractQACOEngineTest {
+
+    @Test
+    public void solveBatchMatchesIndividualSolves() {
+        List<QACOProblem> problems = variants(6);
+        BranchAndBoundEngine engine = new BranchAndBoundEngine();
+        List<BatchResult> results = engine.solveBatch(problems, Optional.empty());
+        assertEquals(problems.size(), results.size());
+        for (int i = 0; i < problems.size(); i++) {
+            QACOProblem problem = problems.get(i);
+            assertTrue(results.get(i).isSuccess());
+            Optional<List<Binding>> expected = engine.solve(problem, Optional.empty());
+            assertEquals(expected.isPresent(), results.get(i).getResult().isPresent());
+            if (expected.isPresent()) {
+                assertEquals(score(problem, expected.get().get(0)),
+                        score(problem, results.get(i).getResult().get().get(0)), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void solveBatchIsolatesInvalidEntries() {
+        List<QACOProblem> problems = variants(4);
+        // A Feature foreign to the CWS, and a missing problem, fail only their own entries
+        problems.get(2).getProblem().getOptimization().getPreferences().get(0).setFeature(feature("foreign",
+                new CandidateService[0], new double[0]));
+        problems.add(1, null);
+
+        List<BatchResult> results = new BranchAndBoundEngine().solveBatch(problems, Optional.empty());
+        assertEquals(5, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            boolean invalid = i == 1 || i == 3;
+            assertEquals(!invalid, results.get(i).isSuccess());
+            if (invalid) {
+                assertTrue(results.get(i).getError() instanceof IllegalArgumentException);
+            }
+        }
+
+        // The interface default solves each problem on its own, in order too
+        List<BatchResult> cached = new CachingQACOEngine(new BranchAndBoundEngine()).solveBatch(problems, Optional.empty());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(results.get(i).isSuccess(), cached.get(i).isSuccess());
+        }
+    }
+
+    @Test
+    public void opaqueConfigsReachTheEnginesUnchanged() {
+        List<QACOProblem> problems = variants(2);
+        Object opaque = new Object();
+        List<Object> configs = Collections.synchronizedList(new ArrayList<>());
+        List<ValidationLevel> levels = Collections.synchronizedList(new ArrayList<ValidationLevel>());
+        BranchAndBoundEngine recording = new BranchAndBoundEngine() {
+            @Override
+            protected Optional<List<Binding>> doSolve(QACOProblem problem, Optional<Object> extraConfig) {
+                configs.add(extraConfig.orElse(null));
+                return super.doSolve(problem, extraConfig);
+            }
+
+            @Override
+            protected void validateInput(QACOProblem problem, ValidationLevel level) {
+                levels.add(level);
+                super.validateInput(problem, level);
+            }
+        };
+        recording.solveBatch(problems, Optional.of(opaque));
+        new PortfolioEngine(Collections.<AbstractQACOEngine>singletonList(recording))
+                .solve(problems.get(0), Optional.of(opaque));
+        assertEquals(Arrays.asList(opaque, opaque, opaque), configs);
+        // The batch and the portfolio validated the problems already
+        assertEquals(Collections.nCopies(3, ValidationLevel.TRUSTED), levels);
+    }
+
+    @Test
+    public void solveBatchRejectsANullBatch() {
+        try {
+            new BranchAndBoundEngine().solveBatch(null, Optional.empty());
+            fail("A null batch is invalid.");
+        } catch (IllegalArgumentException expected) {
+            // unlike a null entry, nothing to isolate
+        }
+        assertTrue(new BranchAndBoundEngine().solveBatch(Collections.<QACOProblem>emptyList(), Optional.empty())
+                .isEmpty());
+    }
+
+    /**
+     * Problems on one shared CWS that differ only in their preference weights.
+     */
+    private static List<QACOProblem> variants(int count) {
+        QACOProblem base = new SyntheticProblemGenerator(11).tasks(8).candidates(6).generate();
+        CompositeWebService cws = base.getCompositeWebService();
+        List<QACOProblem> problems = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            List<Preference> preferences = new ArrayList<>();
+            for (Preference shared : base.getProblem().getOptimization().getPreferences()) {
+                Preference preference = new Preference();
+                preference.setFeature(shared.getFeature());
+                preference.setWeight(preferences.size() == i % 2 ? 1.0 + i : 1.0);
+                preferences.add(preference);
+            }
+            Optimization optimization = new Optimization();
+            optimization.setPreferences(preferences);
+            optimization.setAggregateDomains(base.getProblem().getOptimization().getAggregateDomains());
+            Problem variant = new Problem();
+            variant.setName("customer-" + i);
+            variant.setOptimization(optimization);
+            variant.setConstraints(base.getProblem().getConstraints());
+            QACOProblem problem = new QACOProblem();
+            problem.setCompositeWebService(cws);
+            problem.setProblem(variant);
+            problems.add(problem);
+        }
+        return problems;
+    }
+}
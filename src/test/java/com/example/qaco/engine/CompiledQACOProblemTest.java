@@ -0,0 +1,103 @@
+package com.example.qaco.engine;
+
+import com.example.qaco.domain.QACOProblem;
+import com.example.qaco.domain.binding.Binding;
+import com.example.qaco.domain.cws.Task;
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static com.example.qaco.TestProblems.branchGraph;
+import static com.example.qaco.TestProblems.constrainedProblem;
+import static com.example.qaco.TestProblems.sampleProblem;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CompiledQACOProblemTest {
+
+    @Test
+    public void indexesTasksServicesAndFeatures() {
+        CompiledQACOProblem compiled = CompiledQACOProblem.compile(sampleProblem());
+
+        assertEquals(3, compiled.taskCount());
+        assertEquals(5, compiled.serviceCount());
+        assertEquals(2, compiled.featureCount());
+
+        // A1, A2 and the generic service G for task A; B1 and G for B; C1 and G for C
+        assertArrayEquals(new int[]{0, 1, 4}, compiled.candidates(0));
+        assertArrayEquals(new int[]{2, 4}, compiled.candidates(1));
+        assertArrayEquals(new int[]{3, 4}, compiled.candidates(2));
+
+        assertEquals(7.0, compiled.qos(0, 1), 0.0);
+        // G has no time value
+        assertEquals(0.0, compiled.qos(1, 4), 0.0);
+        assertEquals(1, compiled.preferenceCount());
+        assertEquals(0, compiled.preferenceFeature(0));
+    }
+
+    @Test
+    public void resolvesEqualInstancesByName() {
+        CompiledQACOProblem compiled = CompiledQACOProblem.compile(sampleProblem());
+        Task copy = new Task();
+        copy.setName("B");
+        assertEquals(1, compiled.taskId(copy));
+        Task unknown = new Task();
+        unknown.setName("Z");
+        assertEquals(-1, compiled.taskId(unknown));
+    }
+
+    @Test
+    public void convertsBetweenBindingsAndAssignments() {
+        CompiledQACOProblem compiled = CompiledQACOProblem.compile(sampleProblem());
+        Binding binding = compiled.toBinding(new int[]{1, 2, 4});
+        assertArrayEquals(new int[]{1, 2, 4}, compiled.toAssignment(binding));
+        assertSame(compiled.service(4), binding.getBindingMappings().get(2).getCandidateService());
+    }
+
+    @Test
+    public void trustedBindingsEqualPlainOnesUntilChanged() {
+        CompiledQACOProblem compiled = CompiledQACOProblem.compile(constrainedProblem());
+        int[] assignment = {0, 2, 3};
+        Binding trusted = compiled.toBinding(assignment);
+        assertTrue(((TrustedBinding) trusted).isTrusted());
+        Binding plain = new Binding();
+        plain.setBindingMappings(new ArrayList<>(trusted.getBindingMappings()));
+        assertEquals(plain, trusted);
+        assertArrayEquals(assignment, compiled.toAssignment(plain));
+        trusted.setBindingMappings(plain.getBindingMappings());
+        assertFalse(((TrustedBinding) trusted).isTrusted());
+    }
+
+    @Test
+    public void problemViewsShareEverythingCompiledFromTheCws() {
+        QACOProblem problem = sampleProblem();
+        problem.getCompositeWebService().setGraph(branchGraph());
+        CompiledQACOProblem compiledCws = CompiledQACOProblem.compile(problem.getCompositeWebService());
+        CompiledQACOProblem variant = compiledCws.withProblem(problem);
+        assertSame(compiledCws.qosRow(0), variant.qosRow(0));
+        assertSame(compiledCws.candidates(0), variant.candidates(0));
+        assertSame(compiledCws.graphIndex(), variant.graphIndex());
+        assertEquals(1, variant.preferenceCount());
+
+        CompiledQACOProblem compiled = CompiledQACOProblem.compile(problem);
+        assertEquals(7, compiled.graphIndex().nodeCount());
+        assertSame(compiled.graphIndex(), compiled.withCandidates(new int[][]{{0}, {2}, {3}}).graphIndex());
+        assertNull(CompiledQACOProblem.compile(sampleProblem()).graphIndex());
+    }
+
+    @Test
+    public void problemViewsRequireTheSameCws() {
+        CompiledQACOProblem compiledCws = CompiledQACOProblem.compile(sampleProblem().getCompositeWebService());
+        try {
+            compiledCws.withProblem(sampleProblem());
+            fail("The problem has another CWS.");
+        } catch (IllegalArgumentException expected) {
+            // not shared
+        }
+    }
+}
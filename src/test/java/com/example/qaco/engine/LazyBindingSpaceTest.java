@@ -0,0 +1,80 @@
+package com.example.qaco.engine;
+
+import com.example.qaco.domain.QACOProblem;
+import com.example.qaco.domain.cws.CompositeWebService;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static com.example.qaco.TestProblems.sampleProblem;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LazyBindingSpaceTest {
+
+    @Test
+    public void enumeratesTheCandidateProduct() {
+        LazyBindingSpace space = new LazyBindingSpace(CompiledQACOProblem.compile(sampleProblem().getCompositeWebService()));
+
+        assertEquals(12L, space.sizeAsLong());
+        assertEquals(12L, space.stream().count());
+        Set<List<Integer>> distinct = space.assignments(true)
+                .map(a -> Arrays.asList(a[0], a[1], a[2]))
+                .collect(Collectors.toSet());
+        assertEquals(12, distinct.size());
+        assertEquals(12L, space.stream().spliterator().getExactSizeIfKnown());
+    }
+
+    @Test
+    public void decodesPositionsWithTheLastTaskVaryingFastest() {
+        LazyBindingSpace space = new LazyBindingSpace(CompiledQACOProblem.compile(sampleProblem().getCompositeWebService()));
+        int[] assignment = new int[3];
+        space.assignmentAt(0, assignment);
+        assertArrayEquals(new int[]{0, 2, 3}, assignment);
+        space.assignmentAt(1, assignment);
+        assertArrayEquals(new int[]{0, 2, 4}, assignment);
+        space.assignmentAt(11, assignment);
+        assertArrayEquals(new int[]{4, 4, 4}, assignment);
+        assertEquals(space.get(7), space.stream().skip(7).findFirst().get());
+    }
+
+    @Test
+    public void rejectsPositionsOutsideTheSpace() {
+        LazyBindingSpace space = new LazyBindingSpace(CompiledQACOProblem.compile(sampleProblem().getCompositeWebService()));
+        int[] assignment = new int[3];
+        for (long index : new long[]{12, -1, Long.MAX_VALUE}) {
+            try {
+                space.assignmentAt(index, assignment);
+                fail("There are only 12 bindings: " + index);
+            } catch (IndexOutOfBoundsException expected) {
+                // not a binding
+            }
+        }
+    }
+
+    @Test
+    public void isEmptyWhenATaskHasNoCandidate() {
+        QACOProblem problem = sampleProblem();
+        // C1 and G now only serve A: C has no candidates
+        CompositeWebService cws = problem.getCompositeWebService();
+        cws.getCandidateServices().get(3).setTasks(Collections.singletonList(cws.getTasks().get(0)));
+        cws.getCandidateServices().get(4).setTasks(Collections.singletonList(cws.getTasks().get(0)));
+        LazyBindingSpace empty = new LazyBindingSpace(CompiledQACOProblem.compile(cws));
+
+        assertTrue(empty.isEmpty());
+        assertEquals(0L, empty.sizeAsLong());
+        assertEquals(0L, empty.stream().count());
+        try {
+            empty.assignmentAt(0, new int[3]);
+            fail("A task without candidates has no binding.");
+        } catch (IndexOutOfBoundsException expected) {
+            // not an ArithmeticException
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.qaco.engine;
+
+import com.example.qaco.domain.QACOProblem;
+import com.example.qaco.domain.problem.constraints.GlobalConstraint;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static com.example.qaco.TestProblems.constrainedProblem;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class ProblemFingerprintTest {
+
+    @Test
+    public void ignoresTheOrderOfTasksServicesAndConstraints() {
+        QACOProblem reordered = constrainedProblem();
+        Collections.reverse(reordered.getCompositeWebService().getTasks());
+        Collections.reverse(reordered.getCompositeWebService().getCandidateServices());
+        Collections.reverse(reordered.getProblem().getConstraints());
+        assertEquals(ProblemFingerprint.of(constrainedProblem()), ProblemFingerprint.of(reordered));
+    }
+
+    @Test
+    public void changesWithThresholdsAndValues() {
+        QACOProblem problem = constrainedProblem();
+        ProblemFingerprint before = ProblemFingerprint.of(problem);
+        ((GlobalConstraint) problem.getProblem().getConstraints().get(0)).setValue(16.0);
+        ProblemFingerprint threshold = ProblemFingerprint.of(problem);
+        assertNotEquals(before, threshold);
+        problem.getCompositeWebService().getFeatures().get(0).getValues().get(0).setValue(6.0);
+        assertNotEquals(threshold, ProblemFingerprint.of(problem));
+    }
+}
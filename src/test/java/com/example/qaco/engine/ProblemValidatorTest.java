@@ -0,0 +1,74 @@
+package com.example.qaco.engine;
+
+import com.example.qaco.domain.QACOProblem;
+import com.example.qaco.domain.cws.CandidateService;
+import com.example.qaco.domain.cws.Feature;
+import com.example.qaco.domain.cws.graph.GraphNode;
+import com.example.qaco.domain.cws.graph.GraphNodeType;
+import com.example.qaco.domain.problem.constraints.GlobalConstraint;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static com.example.qaco.TestProblems.constrainedProblem;
+import static com.example.qaco.TestProblems.edge;
+import static com.example.qaco.TestProblems.feature;
+import static com.example.qaco.TestProblems.graph;
+import static com.example.qaco.TestProblems.node;
+import static com.example.qaco.TestProblems.sampleProblem;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ProblemValidatorTest {
+
+    @Test
+    public void danglingFeatureReferencesAreOnlyAFullValidationError() {
+        QACOProblem dangling = constrainedProblem();
+        Feature latency = feature("latency", new CandidateService[0], new double[0]);
+        ((GlobalConstraint) dangling.getProblem().getConstraints().get(0)).setInputFeature(latency);
+        ProblemValidator validator = new ProblemValidator();
+        validator.validate(dangling, ValidationLevel.TRUSTED);
+        validator.validate(dangling, ValidationLevel.STRUCTURAL);
+        try {
+            validator.validate(dangling, ValidationLevel.FULL);
+            fail("The dangling reference was not detected");
+        } catch (IllegalArgumentException expected) {
+            assertTrue(expected.getMessage().contains("latency"));
+        }
+    }
+
+    @Test
+    public void evenTrustedProblemsNeedACwsAndAProblem() {
+        QACOProblem noCws = sampleProblem();
+        noCws.setCompositeWebService(null);
+        QACOProblem noProblem = sampleProblem();
+        noProblem.setProblem(null);
+        ProblemValidator validator = new ProblemValidator();
+        for (QACOProblem problem : Arrays.asList(null, noCws, noProblem)) {
+            try {
+                validator.validate(problem, ValidationLevel.TRUSTED);
+                fail("Incomplete problem accepted");
+            } catch (IllegalArgumentException expected) {
+                // checked at every level
+            }
+        }
+    }
+
+    @Test
+    public void rejectsMalformedGraphs() {
+        GraphNode start = node("start", GraphNodeType.START);
+        GraphNode a = node("A", GraphNodeType.ACTIVITY);
+        GraphNode orphan = node("orphan", GraphNodeType.ACTIVITY);
+        GraphNode end = node("end", GraphNodeType.END);
+        QACOProblem problem = sampleProblem();
+        // unreachable from START
+        problem.getCompositeWebService().setGraph(graph(Arrays.asList(start, a, orphan, end),
+                Arrays.asList(edge(start, a), edge(a, end), edge(orphan, end))));
+        try {
+            new ProblemValidator().validate(problem, ValidationLevel.STRUCTURAL);
+            fail("Malformed graph validated");
+        } catch (IllegalArgumentException expected) {
+            // rejected up front
+        }
+    }
+}
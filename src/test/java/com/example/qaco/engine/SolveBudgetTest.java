@@ -0,0 +1,49 @@
+package com.example.qaco.engine;
+
+import com.example.qaco.domain.QACOProblem;
+import com.example.qaco.domain.binding.Binding;
+import com.example.qaco.engine.genetic.GeneticEngine;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.example.qaco.TestProblems.constrainedProblem;
+import static com.example.qaco.TestProblems.score;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SolveBudgetTest {
+
+    @Test
+    public void budgetedSolvesPublishStrictlyImprovingBindings() {
+        QACOProblem problem = constrainedProblem();
+        Map<String, Object> config = new HashMap<>();
+        config.put(GeneticEngine.SEED, 7L);
+        config.put(GeneticEngine.POPULATION, 20);
+        config.put(GeneticEngine.GENERATIONS, 1_000_000);
+
+        List<Double> published = new ArrayList<>();
+        Optional<List<Binding>> result = new GeneticEngine().solve(problem, Optional.<Object>of(config),
+                SolveBudget.millis(100), (binding, score, context) -> published.add(score));
+        assertFalse(published.isEmpty());
+        for (int i = 1; i < published.size(); i++) {
+            assertTrue(published.get(i) < published.get(i - 1));
+        }
+        assertEquals(published.get(published.size() - 1), score(problem, result.get().get(0)), 1e-9);
+    }
+
+    @Test
+    public void combinedLimitsKeepTheTighterOne() {
+        SolveBudget combined = SolveBudget.millis(100).andMillis(500).andEvaluations(300).andEvaluations(200);
+        assertEquals(100L, combined.getMillis());
+        assertEquals(200L, combined.getEvaluations());
+        // 0 is no limit, not the tightest one
+        assertEquals(100L, SolveBudget.millis(100).andMillis(0).getMillis());
+        assertEquals(100L, SolveBudget.unlimited().andMillis(100).getMillis());
+    }
+}
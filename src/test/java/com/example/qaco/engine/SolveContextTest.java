@@ -0,0 +1,52 @@
+package com.example.qaco.engine;
+
+import com.example.qaco.domain.QACOProblem;
+import com.example.qaco.domain.binding.Binding;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.example.qaco.TestProblems.constrainedProblem;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SolveContextTest {
+
+    @Test
+    public void immigrantsLowerTheSharedBoundWithoutBeingPublished() {
+        List<Double> published = Collections.synchronizedList(new ArrayList<Double>());
+        SolveContext context = new SolveContext().shareIncumbent().acceptImmigrants()
+                .withListener((binding, score, c) -> published.add(score));
+        Binding immigrant = CompiledQACOProblem.compile(constrainedProblem()).toBinding(new int[]{0, 2, 3});
+        context.immigrate(immigrant, 8.0);
+        assertEquals(8.0, context.child().sharedBound(), 0.0);
+        assertTrue(published.isEmpty());
+        // Each immigrant is polled once, from any context under the one accepting them
+        assertSame(immigrant, context.child().pollImmigrant());
+        assertNull(context.pollImmigrant());
+    }
+
+    @Test
+    public void childrenStopWithTheirParent() {
+        SolveContext parent = new SolveContext();
+        SolveContext child = parent.child();
+        assertFalse(child.isStopRequested());
+        parent.cancel();
+        assertTrue(child.isStopRequested());
+        assertFalse(new SolveContext().withTimeout(60_000L).isStopRequested());
+    }
+
+    @Test
+    public void validatedProblemsAreMatchedByIdentity() {
+        QACOProblem problem = constrainedProblem();
+        SolveContext context = new SolveContext().withValidatedProblem(problem);
+        assertTrue(context.child().isValidated(problem));
+        assertFalse(context.child().isValidated(constrainedProblem()));
+        assertFalse(context.isValidated(null));
+    }
+}
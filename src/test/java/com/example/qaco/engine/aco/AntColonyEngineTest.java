@@ -0,0 +1,50 @@
+package com.example.qaco.engine.aco;
+
+import com.example.qaco.domain.QACOProblem;
+import com.example.qaco.domain.binding.Binding;
+import com.example.qaco.engine.CompiledQACOProblem;
+import com.example.qaco.engine.SolveContext;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.example.qaco.TestProblems.bruteForceOptimum;
+import static com.example.qaco.TestProblems.constrainedProblem;
+import static com.example.qaco.TestProblems.score;
+import static org.junit.Assert.assertEquals;
+
+public class AntColonyEngineTest {
+
+    @Test
+    public void findsTheOptimumReproducibly() {
+        QACOProblem problem = constrainedProblem();
+        Map<String, Object> config = new HashMap<>();
+        config.put(AntColonyEngine.SEED, 42L);
+        config.put(AntColonyEngine.ITERATIONS, 50);
+        config.put(AntColonyEngine.THREADS, 2);
+
+        List<Binding> first = new AntColonyEngine().solve(problem, Optional.<Object>of(config)).get();
+        config.put(AntColonyEngine.THREADS, 1);
+        List<Binding> second = new AntColonyEngine().solve(problem, Optional.<Object>of(config)).get();
+
+        assertEquals(first, second);
+        assertEquals(bruteForceOptimum(problem), score(problem, first.get(0)), 1e-9);
+    }
+
+    @Test
+    public void dropsImmigrantsThatAreNotCandidates() {
+        QACOProblem problem = constrainedProblem();
+        Map<String, Object> config = new HashMap<>();
+        config.put(AntColonyEngine.SEED, 3L);
+        config.put(AntColonyEngine.ITERATIONS, 50);
+        // B1 is no candidate of C: dropped even if it scores better
+        SolveContext receiving = new SolveContext().acceptImmigrants();
+        receiving.immigrate(CompiledQACOProblem.compile(problem).toBinding(new int[]{0, 2, 2}), 11.0);
+        Binding solved = receiving.call(() -> new AntColonyEngine().solve(problem, Optional.<Object>of(config)))
+                .get().get(0);
+        assertEquals(bruteForceOptimum(problem), score(problem, solved), 1e-9);
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.qaco.engine.cache;
+
+import com.example.qaco.domain.QACOProblem;
+import com.example.qaco.domain.binding.Binding;
+import com.example.qaco.domain.binding.BindingMapping;
+import com.example.qaco.domain.binding.BindingSpace;
+import com.example.qaco.domain.cws.CompositeWebService;
+import com.example.qaco.engine.SolveContext;
+import com.example.qaco.examples.SimpleQACOProblemSolver;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.example.qaco.TestProblems.sampleProblem;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CachingQACOEngineTest {
+
+    private final AtomicInteger solves = new AtomicInteger();
+    private final AtomicInteger spaces = new AtomicInteger();
+
+    /**
+     * Counts the solves and binding spaces it computes, and blocks solves until released.
+     */
+    private final class Counting extends SimpleQACOProblemSolver {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release;
+
+        Counting(boolean blocked) {
+            this.release = new CountDownLatch(blocked ? 1 : 0);
+        }
+
+        @Override
+        protected Optional<List<Binding>> doSolve(QACOProblem problem, Optional<Object> extraConfig) {
+            solves.incrementAndGet();
+            entered.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return super.doSolve(problem, extraConfig);
+        }
+
+        @Override
+        protected Optional<BindingSpace> getBindingSpace(CompositeWebService cws, Optional<Object> extraConfig) {
+            spaces.incrementAndGet();
+            return super.getBindingSpace(cws, extraConfig);
+        }
+    }
+
+    @Test
+    public void concurrentIdenticalRequestsRunTheEngineOnce() throws Exception {
+        Counting counting = new Counting(true);
+        CachingQACOEngine cache = new CachingQACOEngine(counting);
+        QACOProblem sample = sampleProblem();
+        List<List<Binding>> results = Collections.synchronizedList(new ArrayList<List<Binding>>());
+        Thread first = new Thread(() -> results.add(cache.solve(sample, Optional.empty()).get()));
+        first.start();
+        assertTrue(counting.entered.await(10, TimeUnit.SECONDS));
+        Thread second = new Thread(() -> results.add(cache.solve(sample, Optional.empty()).get()));
+        second.start();
+        while (cache.getStats().getJoins() == 0) {
+            Thread.yield();
+        }
+        counting.release.countDown();
+        first.join();
+        second.join();
+        assertEquals(1, solves.get());
+        assertEquals(results.get(0), results.get(1));
+        assertNotSame(results.get(0).get(0), results.get(1).get(0));
+    }
+
+    @Test
+    public void changingAReturnedBindingLeavesTheCacheAlone() {
+        CachingQACOEngine cache = new CachingQACOEngine(new Counting(false));
+        QACOProblem sample = sampleProblem();
+        List<Binding> first = cache.solve(sample, Optional.empty()).get();
+        List<Binding> expected = new ArrayList<>();
+        for (Binding binding : first) {
+            Binding copy = new Binding();
+            copy.setBindingMappings(new ArrayList<>(binding.getBindingMappings()));
+            expected.add(copy);
+        }
+        first.get(0).setBindingMappings(new ArrayList<BindingMapping>());
+
+        // Same CWS instance, so the hit must not share Bindings with the first caller
+        List<Binding> second = cache.solve(sample, Optional.empty()).get();
+        assertEquals(1, solves.get());
+        assertEquals(expected, second);
+        second.get(0).getBindingMappings().clear();
+        assertEquals(expected, cache.solve(sample, Optional.empty()).get());
+    }
+
+    @Test
+    public void theSameContentInAnotherOrderHitsOnTheCallersInstances() {
+        CachingQACOEngine cache = new CachingQACOEngine(new Counting(false));
+        List<Binding> cached = cache.solve(sampleProblem(), Optional.empty()).get();
+
+        QACOProblem reordered = sampleProblem();
+        Collections.reverse(reordered.getCompositeWebService().getCandidateServices());
+        List<Binding> rebound = cache.solve(reordered, Optional.empty()).get();
+        assertEquals(1, solves.get());
+        assertEquals(cached.size(), rebound.size());
+        for (int b = 0; b < rebound.size(); b++) {
+            List<BindingMapping> mappings = rebound.get(b).getBindingMappings();
+            for (int m = 0; m < mappings.size(); m++) {
+                BindingMapping original = cached.get(b).getBindingMappings().get(m);
+                BindingMapping own = mappings.get(m);
+                assertEquals(original.getTask().getName(), own.getTask().getName());
+                assertEquals(original.getCandidateService().getName(), own.getCandidateService().getName());
+                assertTrue(reordered.getCompositeWebService().getTasks().stream()
+                        .anyMatch(task -> task == own.getTask()));
+                assertTrue(reordered.getCompositeWebService().getCandidateServices().stream()
+                        .anyMatch(service -> service == own.getCandidateService()));
+            }
+        }
+    }
+
+    @Test
+    public void anotherConfigMisses() {
+        CachingQACOEngine cache = new CachingQACOEngine(new Counting(false));
+        cache.solve(sampleProblem(), Optional.empty());
+        Map<String, Object> config = new HashMap<>();
+        config.put("seed", 1L);
+        cache.solve(sampleProblem(), Optional.<Object>of(config));
+        assertEquals(2, solves.get());
+        assertEquals(2, cache.getStats().getMisses());
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyUsedEntry() {
+        CachingQACOEngine cache = new CachingQACOEngine(new Counting(false), 2, 1_000L, 0L);
+        cache.solve(sampleProblem(), Optional.empty());
+        CompositeWebService cws = sampleProblem().getCompositeWebService();
+        assertEquals(cache.bindingSpace(cws, Optional.empty()), cache.bindingSpace(cws, Optional.empty()));
+        assertEquals(1, spaces.get());
+        Map<String, Object> config = new HashMap<>();
+        config.put("seed", 1L);
+        cache.solve(sampleProblem(), Optional.<Object>of(config));
+
+        CacheStats stats = cache.getStats();
+        assertEquals(1, stats.getHits());
+        assertEquals(3, stats.getMisses());
+        assertEquals(1, stats.getEvictions());
+        assertEquals(2, stats.getSize());
+        // The first solve was the least recently used
+        cache.solve(sampleProblem(), Optional.empty());
+        assertEquals(3, solves.get());
+    }
+
+    @Test
+    public void expiredEntriesAreComputedAgain() throws Exception {
+        CachingQACOEngine cache = new CachingQACOEngine(new Counting(false), 2, 1_000L, 1L);
+        cache.solve(sampleProblem(), Optional.empty());
+        Thread.sleep(5);
+        cache.solve(sampleProblem(), Optional.empty());
+        assertEquals(2, solves.get());
+        assertEquals(1, cache.getStats().getExpirations());
+    }
+
+    @Test
+    public void aWaitingCallerStillStopsAtItsOwnDeadline() throws Exception {
+        Counting counting = new Counting(true);
+        CachingQACOEngine cache = new CachingQACOEngine(counting);
+        QACOProblem sample = sampleProblem();
+        Thread owner = new Thread(() -> cache.solve(sample, Optional.empty()));
+        owner.start();
+        assertTrue(counting.entered.await(10, TimeUnit.SECONDS));
+        long start = System.nanoTime();
+        try {
+            new SolveContext().withTimeout(100).call(() -> cache.solve(sample, Optional.empty()));
+            fail("The waiting caller's deadline passed.");
+        } catch (CancellationException expected) {
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 5000);
+        }
+        counting.release.countDown();
+        owner.join();
+        assertTrue(cache.solve(sample, Optional.empty()).isPresent());
+        assertEquals(1, solves.get());
+    }
+}
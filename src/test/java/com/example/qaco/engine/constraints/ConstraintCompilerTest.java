@@ -0,0 +1,91 @@
+package com.example.qaco.engine.constraints;
+
+import com.example.qaco.domain.QACOProblem;
+import com.example.qaco.domain.cws.Task;
+import com.example.qaco.domain.problem.Preference;
+import com.example.qaco.domain.problem.constraints.BindingConstraint;
+import com.example.qaco.domain.problem.constraints.Operator;
+import com.example.qaco.engine.CompiledQACOProblem;
+import com.example.qaco.engine.LazyBindingSpace;
+import com.example.qaco.engine.PartialAssignment;
+import com.example.qaco.engine.qos.WorkflowAggregator;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.example.qaco.TestProblems.constrainedProblem;
+import static com.example.qaco.TestProblems.sampleProblem;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ConstraintCompilerTest {
+
+    @Test
+    public void evaluatesCompleteAssignments() {
+        CompiledConstraint constraint = ConstraintCompiler.compile(CompiledQACOProblem.compile(constrainedProblem()));
+
+        // A1 + B1 + C1: cost 12, but C1 is too slow and A1/B1 share provider p1
+        assertFalse(constraint.test(new int[]{0, 2, 3}));
+        assertTrue(constraint.violation(new int[]{0, 2, 3}) >= 1.0);
+        // A2 + B1 + C1: cost 14, providers differ
+        assertTrue(constraint.test(new int[]{1, 2, 3}));
+        assertEquals(0.0, constraint.violation(new int[]{1, 2, 3}), 0.0);
+        // A2 + G + C1: cost 20 exceeds the budget
+        assertFalse(constraint.test(new int[]{1, 4, 3}));
+    }
+
+    @Test
+    public void bindingConstraintWithoutProvidersCoversEveryTask() {
+        QACOProblem problem = sampleProblem();
+        BindingConstraint sameProvider = new BindingConstraint();
+        sameProvider.setOperator(Operator.EQUALS);
+        problem.getProblem().getConstraints().add(sameProvider);
+        CompiledConstraint constraint = ConstraintCompiler.compile(CompiledQACOProblem.compile(problem));
+
+        // Only p2 (A2 and G) can serve all three tasks
+        assertTrue(constraint.test(new int[]{1, 4, 4}));
+        assertTrue(constraint.test(new int[]{4, 4, 4}));
+        assertFalse(constraint.test(new int[]{0, 2, 4}));
+        assertFalse(constraint.test(new int[]{1, 4, 3}));
+
+        sameProvider.setProviders(Collections.<Task>emptyList());
+        assertFalse(ConstraintCompiler.compile(CompiledQACOProblem.compile(problem)).test(new int[]{0, 2, 4}));
+    }
+
+    @Test
+    public void partialChecksAndBoundsHoldForEveryCompletion() {
+        QACOProblem problem = constrainedProblem();
+        // Also maximise time: its part of the bound must come from the upper completions
+        Preference slow = new Preference();
+        slow.setFeature(problem.getCompositeWebService().getFeatures().get(1));
+        slow.setWeight(-0.5);
+        problem.getProblem().getOptimization().getPreferences().add(slow);
+
+        CompiledQACOProblem compiled = CompiledQACOProblem.compile(problem);
+        WorkflowAggregator aggregator = WorkflowAggregator.of(compiled);
+        CompiledConstraint constraint = ConstraintCompiler.compile(compiled, aggregator);
+        for (int t = 0; t < compiled.taskCount(); t++) {
+            for (int s : compiled.candidates(t)) {
+                PartialAssignment partial = new PartialAssignment(compiled);
+                partial.assign(t, s);
+                int status = constraint.check(partial);
+                double bound = aggregator.lowerBound(partial);
+                final int task = t;
+                final int service = s;
+                List<int[]> completions = new LazyBindingSpace(compiled).assignments(false)
+                        .filter(a -> a[task] == service).collect(Collectors.toList());
+                for (int[] completion : completions) {
+                    assertTrue(bound <= aggregator.score(completion) + 1e-9);
+                    if (status == CompiledConstraint.VIOLATED) {
+                        assertFalse(constraint.test(completion));
+                    } else if (status == CompiledConstraint.SATISFIED) {
+                        assertTrue(constraint.test(completion));
+                    }
+                }
+            }
+        }
+    }
+}
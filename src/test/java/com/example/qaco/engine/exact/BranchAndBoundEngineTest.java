@@ -0,0 +1,65 @@
+package com.example.qaco.engine.exact;
+
+import com.example.qaco.domain.QACOProblem;
+import com.example.qaco.domain.binding.Binding;
+import com.example.qaco.domain.problem.Preference;
+import com.example.qaco.engine.SolveBudget;
+import com.example.qaco.engine.SolveContext;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.example.qaco.TestProblems.bruteForceOptimum;
+import static com.example.qaco.TestProblems.constrainedProblem;
+import static com.example.qaco.TestProblems.score;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BranchAndBoundEngineTest {
+
+    @Test
+    public void findsTheOptimumWithSeveralThreads() {
+        QACOProblem problem = constrainedProblem();
+        Map<String, Object> config = new HashMap<>();
+        config.put(BranchAndBoundEngine.THREADS, 2);
+        Binding best = new BranchAndBoundEngine().solve(problem, Optional.<Object>of(config)).get().get(0);
+        assertEquals(bruteForceOptimum(problem), score(problem, best), 1e-9);
+    }
+
+    @Test
+    public void findsTheOptimumWhenAFeatureIsMaximised() {
+        QACOProblem problem = constrainedProblem();
+        Preference slow = new Preference();
+        slow.setFeature(problem.getCompositeWebService().getFeatures().get(1));
+        slow.setWeight(-0.5);
+        problem.getProblem().getOptimization().getPreferences().add(slow);
+        Binding best = new BranchAndBoundEngine().solve(problem, Optional.empty()).get().get(0);
+        assertEquals(bruteForceOptimum(problem), score(problem, best), 1e-9);
+    }
+
+    @Test
+    public void prunesWithTheBoundSharedByTheContext() {
+        QACOProblem problem = constrainedProblem();
+        Binding best = new BranchAndBoundEngine().solve(problem, Optional.empty()).get().get(0);
+        // Nothing beats the shared optimum, so nothing is returned
+        SolveContext shared = new SolveContext().shareIncumbent();
+        shared.publish(best, bruteForceOptimum(problem));
+        assertFalse(shared.child().call(() -> new BranchAndBoundEngine().solve(problem, Optional.empty())).isPresent());
+    }
+
+    @Test
+    public void theListenerCanStopTheSearch() {
+        QACOProblem problem = constrainedProblem();
+        double[] first = new double[1];
+        Optional<List<Binding>> early = new BranchAndBoundEngine().solve(problem, Optional.empty(),
+                SolveBudget.unlimited(), (binding, score, solve) -> {
+                    first[0] = score;
+                    solve.cancel();
+                });
+        assertTrue(score(problem, early.get().get(0)) <= first[0]);
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.qaco.engine.genetic;
+
+import com.example.qaco.domain.QACOProblem;
+import com.example.qaco.domain.binding.Binding;
+import com.example.qaco.engine.CompiledQACOProblem;
+import com.example.qaco.engine.SolveBudget;
+import com.example.qaco.engine.SolveContext;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.example.qaco.TestProblems.bruteForceOptimum;
+import static com.example.qaco.TestProblems.constrainedProblem;
+import static com.example.qaco.TestProblems.score;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GeneticEngineTest {
+
+    @Test
+    public void findsTheOptimumReproducibly() {
+        QACOProblem problem = constrainedProblem();
+        Map<String, Object> config = new HashMap<>();
+        config.put(GeneticEngine.SEED, 7L);
+        config.put(GeneticEngine.POPULATION, 20);
+        config.put(GeneticEngine.GENERATIONS, 40);
+        config.put(GeneticEngine.THREADS, 2);
+
+        List<Binding> first = new GeneticEngine().solve(problem, Optional.<Object>of(config)).get();
+        config.put(GeneticEngine.THREADS, 1);
+        List<Binding> second = new GeneticEngine().solve(problem, Optional.<Object>of(config)).get();
+
+        assertEquals(first, second);
+        assertEquals(bruteForceOptimum(problem), score(problem, first.get(0)), 1e-9);
+    }
+
+    @Test
+    public void dropsImmigrantsThatAreNotCandidates() {
+        QACOProblem problem = constrainedProblem();
+        Map<String, Object> config = new HashMap<>();
+        config.put(GeneticEngine.SEED, 3L);
+        config.put(GeneticEngine.GENERATIONS, 50);
+        // B1 is no candidate of C: dropped even if it scores better
+        SolveContext receiving = new SolveContext().acceptImmigrants();
+        receiving.immigrate(CompiledQACOProblem.compile(problem).toBinding(new int[]{0, 2, 2}), 11.0);
+        Binding solved = receiving.call(() -> new GeneticEngine().solve(problem, Optional.<Object>of(config)))
+                .get().get(0);
+        assertEquals(bruteForceOptimum(problem), score(problem, solved), 1e-9);
+    }
+
+    @Test
+    public void anEvaluationBudgetStopsWithinOneGeneration() {
+        Map<String, Object> config = new HashMap<>();
+        config.put(GeneticEngine.SEED, 7L);
+        config.put(GeneticEngine.POPULATION, 20);
+        config.put(GeneticEngine.GENERATIONS, 1_000_000);
+        SolveContext context = new SolveContext().withBudget(SolveBudget.evaluations(100));
+        assertTrue(context.call(() -> new GeneticEngine().solve(constrainedProblem(), Optional.<Object>of(config)))
+                .isPresent());
+        assertTrue(context.getEvaluations() >= 100 && context.getEvaluations() <= 140);
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.qaco.engine.graph;
+
+import com.example.qaco.domain.QACOProblem;
+import com.example.qaco.domain.cws.graph.Graph;
+import com.example.qaco.domain.cws.graph.GraphNode;
+import com.example.qaco.domain.cws.graph.GraphNodeType;
+import com.example.qaco.engine.CompiledQACOProblem;
+import com.example.qaco.engine.ProblemValidator;
+import com.example.qaco.engine.ValidationLevel;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static com.example.qaco.TestProblems.branchGraph;
+import static com.example.qaco.TestProblems.edge;
+import static com.example.qaco.TestProblems.graph;
+import static com.example.qaco.TestProblems.loopGraph;
+import static com.example.qaco.TestProblems.node;
+import static com.example.qaco.TestProblems.sampleProblem;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class GraphIndexTest {
+
+    @Test
+    public void indexesNodesAndEdges() {
+        GraphIndex index = GraphIndex.of(branchGraph());
+        assertEquals(7, index.nodeCount());
+        assertEquals(7, index.edgeCount());
+        assertEquals(0, index.start());
+        assertEquals(6, index.end());
+        assertEquals(2, index.outDegree(2));
+        assertEquals(2, index.inDegree(5));
+        assertEquals(3, index.outTargets()[index.outOffsets()[2]]);
+        assertEquals(4, index.outTargets()[index.outOffsets()[2] + 1]);
+        assertEquals(5, index.join(2));
+        assertEquals(2, index.split(5));
+        assertEquals(-1, index.join(1));
+        assertFalse(index.hasLoops());
+        // Equal nodes resolve to the same id
+        assertEquals(2, index.nodeId(node("split", GraphNodeType.EXCLUSIVE_GATE)));
+    }
+
+    @Test
+    public void ordersNodesTopologically() {
+        Graph graph = branchGraph();
+        GraphIndex index = GraphIndex.of(graph);
+        int[] position = new int[index.nodeCount()];
+        for (int i = 0; i < position.length; i++) {
+            position[index.topologicalOrder()[i]] = i;
+        }
+        for (int e = 0; e < graph.getEdges().size(); e++) {
+            assertTrue(position[index.nodeId(graph.getEdges().get(e).getSource())]
+                    < position[index.nodeId(graph.getEdges().get(e).getTarget())]);
+        }
+    }
+
+    @Test
+    public void decomposesBranchesIntoRegions() {
+        // SEQUENCE[A, BRANCH[B, C]]
+        GraphIndex.Region root = GraphIndex.of(branchGraph()).root();
+        assertEquals(GraphIndex.Region.Kind.SEQUENCE, root.getKind());
+        assertEquals(2, root.getChildren().size());
+        assertEquals(GraphIndex.Region.Kind.ACTIVITY, root.getChildren().get(0).getKind());
+        GraphIndex.Region branch = root.getChildren().get(1);
+        assertEquals(GraphIndex.Region.Kind.BRANCH, branch.getKind());
+        assertEquals(2, branch.getEntry());
+        assertEquals(5, branch.getExit());
+        assertEquals(0.7, branch.getProbability(0), 1e-9);
+        assertEquals(0.3, branch.getProbability(1), 1e-9);
+    }
+
+    @Test
+    public void decomposesLoopsIntoRegions() {
+        GraphIndex loop = GraphIndex.of(loopGraph(0.75));
+        assertTrue(loop.hasLoops());
+        assertEquals(3, loop.loopLatch(1));
+        assertTrue(loop.isBackEdge(3));
+        assertFalse(loop.isBackEdge(4));
+        assertEquals(GraphIndex.Region.Kind.LOOP, loop.root().getKind());
+        assertEquals(4.0, loop.root().getIterations(), 1e-9);
+        assertEquals(GraphIndex.Region.Kind.ACTIVITY, loop.root().getChildren().get(0).getKind());
+    }
+
+    @Test
+    public void compiledProblemsShareTheIndexWithTheirViews() {
+        QACOProblem problem = sampleProblem();
+        problem.getCompositeWebService().setGraph(branchGraph());
+        CompiledQACOProblem compiled = CompiledQACOProblem.compile(problem);
+        assertEquals(7, compiled.graphIndex().nodeCount());
+        assertSame(compiled.graphIndex(), compiled.withCandidates(new int[][]{{0}, {2}, {3}}).graphIndex());
+        CompiledQACOProblem compiledCws = CompiledQACOProblem.compile(problem.getCompositeWebService());
+        assertSame(compiledCws.graphIndex(), compiledCws.withProblem(problem).graphIndex());
+        assertNull(CompiledQACOProblem.compile(sampleProblem()).graphIndex());
+    }
+
+    @Test
+    public void equalGraphsShareTheirCachedIndex() {
+        GraphIndex index = GraphIndex.cached(branchGraph());
+        assertSame(index, GraphIndex.cached(branchGraph()));
+        assertNotSame(index, GraphIndex.cached(loopGraph(0.5)));
+        assertNotSame(index, GraphIndex.of(branchGraph()));
+
+        Graph changed = branchGraph();
+        changed.getProbabilities().get(0).getNodes().get(0).getEdges().get(0).setValue(0.6);
+        changed.getProbabilities().get(0).getNodes().get(0).getEdges().get(1).setValue(0.4);
+        assertNotSame(index, GraphIndex.cached(changed));
+        assertEquals(0.6, GraphIndex.cached(changed).root().getChildren().get(1).getProbability(0), 1e-9);
+
+        // Compilations and the validator use the cache too
+        QACOProblem problem = sampleProblem();
+        problem.getCompositeWebService().setGraph(branchGraph());
+        new ProblemValidator().validate(problem, ValidationLevel.STRUCTURAL);
+        assertSame(index, CompiledQACOProblem.compile(problem).graphIndex());
+    }
+
+    @Test
+    public void graphsWithEqualNodesAreNotCached() {
+        // Two activities labelled A: edges resolve by instance, which the fingerprint cannot tell
+        GraphNode start = node("start", GraphNodeType.START);
+        GraphNode a = node("A", GraphNodeType.ACTIVITY);
+        GraphNode again = node("A", GraphNodeType.ACTIVITY);
+        GraphNode end = node("end", GraphNodeType.END);
+        Graph graph = graph(Arrays.asList(start, a, again, end),
+                Arrays.asList(edge(start, a), edge(a, again), edge(again, end)));
+        assertNotSame(GraphIndex.cached(graph), GraphIndex.cached(graph));
+    }
+
+    @Test
+    public void rejectsMalformedGraphs() {
+        GraphNode start = node("start", GraphNodeType.START);
+        GraphNode a = node("A", GraphNodeType.ACTIVITY);
+        GraphNode split = node("split", GraphNodeType.EXCLUSIVE_GATE);
+        GraphNode b = node("B", GraphNodeType.ACTIVITY);
+        GraphNode c = node("C", GraphNodeType.ACTIVITY);
+        GraphNode end = node("end", GraphNodeType.END);
+        GraphNode orphan = node("orphan", GraphNodeType.ACTIVITY);
+        GraphNode parallel = node("join", GraphNodeType.PARALLEL_GATE);
+        GraphNode sink = node("sink", GraphNodeType.ACTIVITY);
+        List<Graph> malformed = Arrays.asList(
+                // unreachable from START
+                graph(Arrays.asList(start, a, orphan, end), Arrays.asList(edge(start, a), edge(a, end), edge(orphan, end))),
+                // cannot reach END
+                graph(Arrays.asList(start, a, sink, end), Arrays.asList(edge(start, a), edge(a, end), edge(a, sink))),
+                // exclusive split joined by a parallel gate
+                graph(Arrays.asList(start, split, b, c, parallel, end),
+                        Arrays.asList(edge(start, split), edge(split, b), edge(split, c), edge(b, parallel),
+                                edge(c, parallel), edge(parallel, end))),
+                // branches that never meet
+                graph(Arrays.asList(start, split, b, c, end),
+                        Arrays.asList(edge(start, split), edge(split, b), edge(split, c), edge(b, end), edge(c, a),
+                                edge(a, end))),
+                // dangling edge
+                graph(Arrays.asList(start, end), Arrays.asList(edge(start, a), edge(a, end))));
+
+        QACOProblem problem = sampleProblem();
+        ProblemValidator validator = new ProblemValidator();
+        for (Graph bad : malformed) {
+            for (int attempt = 0; attempt < 2; attempt++) {
+                try {
+                    GraphIndex.cached(bad);
+                    fail("Malformed graph accepted: " + bad.getEdges());
+                } catch (IllegalArgumentException expected) {
+                    // rejected, every time
+                }
+            }
+            problem.getCompositeWebService().setGraph(bad);
+            try {
+                validator.validate(problem, ValidationLevel.FULL);
+                fail("Malformed graph validated: " + bad.getEdges());
+            } catch (IllegalArgumentException expected) {
+                // rejected up front
+            }
+        }
+    }
+}
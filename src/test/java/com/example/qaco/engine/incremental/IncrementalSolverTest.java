@@ -0,0 +1,60 @@
+package com.example.qaco.engine.incremental;
+
+import com.example.qaco.domain.QACOProblem;
+import com.example.qaco.domain.binding.Binding;
+import com.example.qaco.domain.cws.Task;
+import com.example.qaco.domain.problem.constraints.GlobalConstraint;
+import com.example.qaco.engine.CompiledQACOProblem;
+import com.example.qaco.engine.constraints.ConstraintCompiler;
+import com.example.qaco.engine.exact.BranchAndBoundEngine;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.example.qaco.TestProblems.bruteForceOptimum;
+import static com.example.qaco.TestProblems.constrainedProblem;
+import static com.example.qaco.TestProblems.score;
+import static com.example.qaco.TestProblems.service;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class IncrementalSolverTest {
+
+    @Test
+    public void followsQosCandidateAndThresholdChanges() {
+        QACOProblem problem = constrainedProblem();
+        Binding previous = new BranchAndBoundEngine().solve(problem, Optional.empty()).get().get(0);
+        GlobalConstraint budget = (GlobalConstraint) problem.getProblem().getConstraints().get(0);
+
+        // A1 leaves, a cheap A3 joins, B1 gets dearer and the budget grows
+        Map<String, Double> a3Values = new HashMap<>();
+        a3Values.put("cost", 1.0);
+        a3Values.put("time", 5.0);
+        Task a = problem.getCompositeWebService().getTasks().get(0);
+        ProblemDelta delta = new ProblemDelta()
+                .removeCandidate("A1")
+                .addCandidate(service("A3", "p4", a), a3Values)
+                .setValue("cost", "B1", 10.0)
+                .setThreshold(budget, 20.0);
+
+        Binding resolved = new IncrementalSolver(new BranchAndBoundEngine())
+                .resolve(problem, previous, delta, Optional.empty()).get().get(0);
+        assertEquals(20.0, budget.getValue(), 0.0);
+        assertEquals(bruteForceOptimum(problem), score(problem, resolved), 1e-9);
+        assertEquals("A3", resolved.getBindingMappings().get(0).getCandidateService().getName());
+    }
+
+    @Test
+    public void warmStartsFromThePreviousBinding() {
+        // A cheaper G: only the budget, which reads cost, is re-checked on the warm start
+        QACOProblem problem = constrainedProblem();
+        Binding before = new BranchAndBoundEngine().solve(problem, Optional.empty()).get().get(0);
+        Binding after = new IncrementalSolver().resolve(problem, before,
+                new ProblemDelta().setValue("cost", "G", 1.0), Optional.empty()).get().get(0);
+        CompiledQACOProblem compiled = CompiledQACOProblem.compile(problem);
+        assertTrue(ConstraintCompiler.compile(compiled).test(compiled.toAssignment(after)));
+        assertEquals(bruteForceOptimum(problem), score(problem, after), 1e-9);
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.qaco.engine.incremental;
+
+import com.example.qaco.domain.QACOProblem;
+import com.example.qaco.domain.problem.constraints.GlobalConstraint;
+import com.example.qaco.engine.ProblemFingerprint;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static com.example.qaco.TestProblems.constrainedProblem;
+import static com.example.qaco.TestProblems.service;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ProblemDeltaTest {
+
+    @Test
+    public void touchesConstraintsReadingChangedFeaturesOrThresholds() {
+        QACOProblem problem = constrainedProblem();
+        GlobalConstraint budget = (GlobalConstraint) problem.getProblem().getConstraints().get(0);
+        assertTrue(new ProblemDelta().setValue("cost", "B1", 10.0).touches(budget));
+        assertTrue(new ProblemDelta().setThreshold(budget, 20.0).touches(budget));
+        // The either/or reads time and providers only
+        assertFalse(new ProblemDelta().setValue("cost", "B1", 10.0)
+                .touches(problem.getProblem().getConstraints().get(1)));
+        assertTrue(new ProblemDelta().setValue("time", "B1", 10.0)
+                .touches(problem.getProblem().getConstraints().get(1)));
+    }
+
+    @Test
+    public void anInvalidDeltaLeavesTheProblemUnchanged() {
+        QACOProblem problem = constrainedProblem();
+        ProblemFingerprint fingerprint = ProblemFingerprint.of(problem);
+        GlobalConstraint otherBudget = (GlobalConstraint) constrainedProblem().getProblem().getConstraints().get(0);
+        for (ProblemDelta invalid : Arrays.asList(
+                new ProblemDelta().removeCandidate("A2").setValue("latency", "G", 1.0),
+                new ProblemDelta().setValue("cost", "G", 2.0).setValue("cost", "A9", 1.0),
+                new ProblemDelta().setValue("cost", "G", 2.0).setThreshold(otherBudget, 1.0),
+                new ProblemDelta().removeCandidate("A9"),
+                new ProblemDelta().addCandidate(service("G", "p2"), null))) {
+            try {
+                invalid.applyTo(problem);
+                fail("The delta references something not in the problem.");
+            } catch (IllegalArgumentException expected) {
+                assertEquals(fingerprint, ProblemFingerprint.of(problem));
+            }
+        }
+    }
+}
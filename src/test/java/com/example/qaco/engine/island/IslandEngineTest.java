@@ -0,0 +1,174 @@
+package com.example.qaco.engine.island;
+
+import com.example.qaco.domain.QACOProblem;
+import com.example.qaco.domain.binding.Binding;
+import com.example.qaco.engine.SolveBudget;
+import com.example.qaco.engine.SolveContext;
+import com.example.qaco.engine.aco.AntColonyEngine;
+import com.example.qaco.engine.genetic.GeneticEngine;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.qaco.TestProblems.bruteForceOptimum;
+import static com.example.qaco.TestProblems.constrainedProblem;
+import static com.example.qaco.TestProblems.score;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class IslandEngineTest {
+
+    private static volatile boolean notAnEngineInitialized;
+
+    public static final class NotAnEngine {
+        static {
+            notAnEngineInitialized = true;
+        }
+    }
+
+    private final QACOProblem problem = constrainedProblem();
+    private final Map<String, Object> config = new HashMap<>();
+    private IslandWorker worker;
+
+    @Before
+    public void startWorker() throws Exception {
+        config.put(IslandEngine.SEED, 5L);
+        config.put(IslandEngine.MIGRATION_INTERVAL, 10L);
+        worker = new IslandWorker(0).start();
+    }
+
+    @After
+    public void closeWorker() throws Exception {
+        worker.close();
+    }
+
+    @Test
+    public void localWorkerProcessesAreReusedAcrossSolves() throws Exception {
+        try (IslandEngine islands = new IslandEngine()) {
+            List<Double> improvements = Collections.synchronizedList(new ArrayList<Double>());
+            SolveContext context = new SolveContext().withListener((binding, score, c) -> improvements.add(score));
+            Optional<List<Binding>> result = context.call(() -> islands.solve(problem, Optional.<Object>of(config)));
+            assertEquals(1, result.get().size());
+            assertEquals(bruteForceOptimum(problem), score(problem, result.get().get(0)), 1e-9);
+            assertEquals(bruteForceOptimum(problem), improvements.get(improvements.size() - 1), 1e-9);
+            assertEquals(2, islands.getLocalWorkerCount());
+
+            config.put(IslandEngine.ISLAND_ENGINE, GeneticEngine.class.getName());
+            assertEquals(bruteForceOptimum(problem),
+                    score(problem, islands.solve(problem, Optional.<Object>of(config)).get().get(0)), 1e-9);
+            assertEquals(2, islands.getLocalWorkerCount());
+        }
+    }
+
+    @Test
+    public void anUnreachableWorkerIsIgnoredUnlessAllAre() throws Exception {
+        IslandWorker gone = new IslandWorker(0);
+        gone.close();
+        try (IslandEngine islands = new IslandEngine()) {
+            config.put(IslandEngine.WORKERS, "localhost:" + worker.getPort() + ", localhost:" + worker.getPort()
+                    + ", localhost:" + gone.getPort());
+            assertEquals(bruteForceOptimum(problem),
+                    score(problem, islands.solve(problem, Optional.<Object>of(config)).get().get(0)), 1e-9);
+            assertEquals(0, islands.getLocalWorkerCount());
+
+            config.put(IslandEngine.WORKERS, "localhost:" + gone.getPort());
+            try {
+                islands.solve(problem, Optional.<Object>of(config));
+                fail("No island could be reached.");
+            } catch (IllegalStateException expected) {
+                // the failure of the only island
+            }
+        }
+    }
+
+    @Test
+    public void workersRejectClassesThatAreNoEngines() throws Exception {
+        try (IslandEngine islands = new IslandEngine()) {
+            config.put(IslandEngine.WORKERS, "localhost:" + worker.getPort());
+            config.put(IslandEngine.ISLAND_ENGINE, String.class.getName());
+            try {
+                islands.solve(problem, Optional.<Object>of(config));
+                fail("String is not an engine.");
+            } catch (IllegalStateException expected) {
+                // reported by the worker
+            }
+        }
+    }
+
+    @Test
+    public void workersDoNotInitializeClassesThatAreNoEngines() throws Exception {
+        try (IslandEngine islands = new IslandEngine()) {
+            config.put(IslandEngine.WORKERS, "localhost:" + worker.getPort());
+            config.put(IslandEngine.ISLAND_ENGINE, NotAnEngine.class.getName());
+            try {
+                islands.solve(problem, Optional.<Object>of(config));
+                fail("NotAnEngine is not an engine.");
+            } catch (IllegalStateException expected) {
+                // reported by the worker
+            }
+        }
+        assertFalse(notAnEngineInitialized);
+    }
+
+    @Test
+    public void workersRejectOversizedMessagesBeforeAllocating() throws Exception {
+        try (Socket socket = new Socket(worker.getAddress(), worker.getPort())) {
+            socket.setSoTimeout(10_000);
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            IslandProtocol.writeHello(out);
+            IslandProtocol.readHello(in);
+            // A SOLVE whose engine class name claims to be 2 GB long
+            out.writeByte(IslandProtocol.SOLVE);
+            IslandProtocol.writeVarInt(out, Integer.MAX_VALUE);
+            out.flush();
+            assertEquals(-1, in.read());
+        }
+        try (Socket socket = new Socket(worker.getAddress(), worker.getPort())) {
+            socket.setSoTimeout(10_000);
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            IslandProtocol.writeHello(out);
+            IslandProtocol.readHello(in);
+            // A migrant with more tasks than any problem solved on the connection
+            out.writeByte(IslandProtocol.MIGRANT);
+            out.writeDouble(0.0);
+            IslandProtocol.writeVarInt(out, Integer.MAX_VALUE);
+            out.flush();
+            assertEquals(-1, in.read());
+        }
+    }
+
+    @Test
+    public void workersListenOnTheLoopbackInterface() {
+        assertTrue(worker.getAddress().isLoopbackAddress());
+    }
+
+    @Test
+    public void aSilentWorkerIsGivenUpAtTheDeadline() throws Exception {
+        try (IslandEngine islands = new IslandEngine();
+             ServerSocket silent = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            config.put(IslandEngine.WORKERS, "localhost:" + silent.getLocalPort());
+            config.put(IslandEngine.ISLAND_ENGINE, AntColonyEngine.class.getName());
+            config.put(SolveBudget.TIME_LIMIT, 200L);
+            long start = System.nanoTime();
+            assertFalse(islands.solve(problem, Optional.<Object>of(config)).isPresent());
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.qaco.engine.jobs;
+
+import com.example.qaco.domain.QACOProblem;
+import com.example.qaco.domain.binding.Binding;
+import com.example.qaco.domain.binding.BindingSpace;
+import com.example.qaco.engine.SolveContext;
+import com.example.qaco.engine.ValidationLevel;
+import com.example.qaco.engine.genetic.GeneticEngine;
+import com.example.qaco.examples.SimpleQACOProblemSolver;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.qaco.TestProblems.sampleProblem;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JobManagerTest {
+
+    private final CountDownLatch started = new CountDownLatch(1);
+
+    /**
+     * Runs until it is asked to stop, then returns its usual binding.
+     */
+    private final SimpleQACOProblemSolver stubborn = new SimpleQACOProblemSolver() {
+        @Override
+        protected Optional<List<Binding>> doSolve(QACOProblem problem, Optional<Object> extraConfig) {
+            SolveContext context = SolveContext.current();
+            context.reportProgress(0.5);
+            started.countDown();
+            while (!context.isStopRequested()) {
+                Thread.yield();
+            }
+            return super.doSolve(problem, extraConfig);
+        }
+    };
+
+    @Test
+    public void queuesJobsBehindABoundedQueue() throws Exception {
+        try (JobManager manager = new JobManager(stubborn, 1, 1, 60_000L, 10)) {
+            Job<Optional<List<Binding>>> running = manager.submitSolve(sampleProblem(), Optional.empty());
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            Job<Optional<List<Binding>>> queued = manager.submitSolve(sampleProblem(), Optional.empty());
+            try {
+                manager.submitSolve(sampleProblem(), Optional.empty());
+                fail("A full queue accepted a job");
+            } catch (RejectedExecutionException expected) {
+                // backpressure
+            }
+            assertEquals(JobStatus.State.PENDING, manager.status(queued.getId()).get().getStatus());
+            assertEquals(JobStatus.State.RUNNING, running.getState());
+            assertEquals(0.5, running.getProgress(), 0.0);
+        }
+    }
+
+    @Test
+    public void validatesProblemsOnSubmission() {
+        try (JobManager manager = new JobManager(stubborn, 1, 1, 60_000L, 10)) {
+            manager.submitSolve(new QACOProblem(), Optional.empty());
+            fail("An invalid problem was accepted");
+        } catch (IllegalArgumentException expected) {
+            // a 400, not a failed job
+        }
+    }
+
+    @Test
+    public void submittedProblemsAreNotValidatedAgain() throws Exception {
+        List<ValidationLevel> levels = Collections.synchronizedList(new ArrayList<ValidationLevel>());
+        SimpleQACOProblemSolver recording = new SimpleQACOProblemSolver() {
+            @Override
+            protected void validateInput(QACOProblem problem, ValidationLevel level) {
+                levels.add(level);
+                super.validateInput(problem, level);
+            }
+        };
+        try (JobManager manager = new JobManager(recording, 1, 1, 60_000L, 10)) {
+            Job<Optional<List<Binding>>> job = manager.submitSolve(sampleProblem(), Optional.empty());
+            assertTrue(job.await(10, TimeUnit.SECONDS));
+            assertEquals(JobStatus.State.COMPLETED, job.getState());
+        }
+        assertEquals(Collections.singletonList(ValidationLevel.TRUSTED), levels);
+    }
+
+    @Test
+    public void cancelledJobsFail() throws Exception {
+        try (JobManager manager = new JobManager(stubborn, 1, 1, 60_000L, 10)) {
+            Job<Optional<List<Binding>>> running = manager.submitSolve(sampleProblem(), Optional.empty());
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            Job<Optional<List<Binding>>> queued = manager.submitSolve(sampleProblem(), Optional.empty());
+
+            assertTrue(manager.cancel(queued.getId()));
+            assertEquals(JobStatus.State.FAILED, queued.getState());
+            assertEquals(0, manager.queuedCount());
+            assertTrue(manager.cancel(running.getId()));
+            assertTrue(running.await(10, TimeUnit.SECONDS));
+            assertEquals(JobStatus.State.FAILED, running.getState());
+            assertFalse(running.getResult().isPresent());
+        }
+    }
+
+    @Test
+    public void aDeadlineCompletesTheJobWithWhatItHas() throws Exception {
+        try (JobManager manager = new JobManager(stubborn, 1, 1, 60_000L, 10)) {
+            Job<Optional<List<Binding>>> timed = manager.submitSolve(sampleProblem(), Optional.empty(), 50L);
+            assertTrue(timed.await(10, TimeUnit.SECONDS));
+            JobStatus status = timed.getStatus();
+            assertEquals(JobStatus.State.COMPLETED, status.getStatus());
+            assertTrue(status.getMessage().startsWith("Deadline"));
+            assertEquals(1.0, status.getProgress(), 0.0);
+            assertTrue(timed.getResult().get().isPresent());
+            assertTrue(manager.findSolve(timed.getId()).isPresent());
+            assertFalse(manager.findBindingSpace(timed.getId()).isPresent());
+        }
+    }
+
+    @Test
+    public void finishedJobsAreForgottenWithoutRetention() throws Exception {
+        try (JobManager manager = new JobManager(new GeneticEngine(), 1, 4, 0L, 0)) {
+            Job<Optional<BindingSpace>> space =
+                    manager.submitBindingSpace(sampleProblem().getCompositeWebService(), Optional.empty());
+            assertTrue(space.await(10, TimeUnit.SECONDS));
+            assertEquals(JobStatus.State.COMPLETED, space.getState());
+            assertFalse(space.getResult().get().get().getBindings().isEmpty());
+            assertFalse(manager.find(space.getId()).isPresent());
+            assertEquals(0, manager.size());
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.qaco.engine.metrics;
+
+import com.example.qaco.domain.QACOProblem;
+import com.example.qaco.engine.SolveContext;
+import com.example.qaco.engine.exact.BranchAndBoundEngine;
+import com.example.qaco.engine.genetic.GeneticEngine;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static com.example.qaco.TestProblems.bruteForceOptimum;
+import static com.example.qaco.TestProblems.constrainedProblem;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class InstrumentationTest {
+
+    private final List<SolveMetrics> recorded = Collections.synchronizedList(new ArrayList<SolveMetrics>());
+    private final MetricsListener listener = recorded::add;
+
+    @Before
+    public void addListener() {
+        Instrumentation.addListener(listener);
+    }
+
+    @After
+    public void removeListener() {
+        Instrumentation.removeListener(listener);
+    }
+
+    @Test
+    public void disabledWithoutListenersOrRecordings() {
+        Instrumentation.removeListener(listener);
+        assertSame(SolveMetrics.DISABLED, new SolveContext().metrics());
+        assertFalse(Instrumentation.isEnabled());
+        new BranchAndBoundEngine().solve(constrainedProblem(), Optional.empty());
+        assertTrue(recorded.isEmpty());
+    }
+
+    @Test
+    public void solvesRecordPhasesAndCounters() {
+        QACOProblem problem = constrainedProblem();
+        new BranchAndBoundEngine().solve(problem, Optional.empty());
+        assertEquals(1, recorded.size());
+
+        SolveMetrics solve = recorded.get(0);
+        assertEquals(BranchAndBoundEngine.class.getName(), solve.getEngine());
+        assertEquals(SolveMetrics.Operation.SOLVE, solve.getOperation());
+        for (SolveMetrics.Phase phase : Arrays.asList(SolveMetrics.Phase.VALIDATION, SolveMetrics.Phase.COMPILATION,
+                SolveMetrics.Phase.SEARCH, SolveMetrics.Phase.OUTPUT_VALIDATION)) {
+            assertTrue(phase.name(), solve.getNanos(phase) > 0);
+        }
+        assertTrue(solve.getTotalNanos() >= solve.getNanos(SolveMetrics.Phase.SEARCH));
+        assertEquals(BigInteger.valueOf(12), solve.getSearchSpace());
+        assertTrue(solve.getReducedSearchSpace().compareTo(solve.getSearchSpace()) <= 0);
+        assertTrue(solve.getNodes() > 0 && solve.getConstraintChecks() > 0 && solve.getEvaluations() > 0);
+        assertTrue(solve.getPruneRatio() >= 0.0 && solve.getPruneRatio() <= 1.0);
+        assertTrue(solve.getImprovements() >= 1);
+        assertEquals(bruteForceOptimum(problem), solve.getBestScore(), 1e-9);
+        assertEquals(1L, solve.getBindings());
+    }
+
+    @Test
+    public void bindingSpacesAndFailuresAreRecordedToo() {
+        new GeneticEngine().bindingSpace(constrainedProblem().getCompositeWebService(), Optional.empty());
+        try {
+            new GeneticEngine().solve(new QACOProblem(), Optional.empty());
+            fail("An empty problem is invalid.");
+        } catch (IllegalArgumentException expected) {
+            // recorded as a failure
+        }
+        assertEquals(2, recorded.size());
+        assertEquals(SolveMetrics.Operation.BINDING_SPACE, recorded.get(0).getOperation());
+        assertEquals(12L, recorded.get(0).getBindings());
+        assertTrue(recorded.get(1).getFailure() instanceof IllegalArgumentException);
+    }
+
+    @Test
+    public void flightRecorderEventsAreMeasuredWhileARecordingEnablesThem() throws Exception {
+        Instrumentation.removeListener(listener);
+        Path file = Files.createTempFile("qaco", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.example.qaco.Solve");
+            recording.start();
+            assertTrue(Instrumentation.isEnabled());
+            new BranchAndBoundEngine().solve(constrainedProblem(), Optional.empty());
+            recording.stop();
+            recording.dump(file);
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                    .filter(event -> event.getEventType().getName().equals("com.example.qaco.Solve"))
+                    .collect(Collectors.toList());
+            assertEquals(1, events.size());
+            assertEquals("SOLVE", events.get(0).getString("operation"));
+            assertTrue(events.get(0).getLong("nodes") > 0);
+        } finally {
+            Files.delete(file);
+        }
+        assertFalse(Instrumentation.isEnabled());
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.qaco.engine.pareto;
+
+import com.example.qaco.domain.QACOProblem;
+import com.example.qaco.domain.binding.Binding;
+import com.example.qaco.domain.problem.Preference;
+import com.example.qaco.domain.problem.constraints.GlobalConstraint;
+import com.example.qaco.domain.problem.constraints.Operator;
+import com.example.qaco.engine.CompiledQACOProblem;
+import com.example.qaco.engine.LazyBindingSpace;
+import com.example.qaco.engine.constraints.CompiledConstraint;
+import com.example.qaco.engine.constraints.ConstraintCompiler;
+import com.example.qaco.engine.qos.WorkflowAggregator;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static com.example.qaco.TestProblems.sampleProblem;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ParetoEngineTest {
+
+    @Test
+    public void returnsTheWholeFront() {
+        QACOProblem problem = tradeOff(1.0);
+        Set<List<Double>> expected = bruteForceFront(problem);
+        List<Binding> front = new ParetoEngine().solve(problem, Optional.<Object>of(config())).get();
+
+        assertTrue(expected.size() > 1);
+        assertEquals(expected.size(), front.size());
+        assertEquals(expected, objectives(problem, front));
+    }
+
+    @Test
+    public void aZeroWeightIsStillAnObjective() {
+        // The skyline must not drop candidates that are only better on the weight-0 feature
+        QACOProblem problem = tradeOff(0.0);
+        List<Binding> front = new ParetoEngine().solve(problem, Optional.<Object>of(config())).get();
+        assertEquals(bruteForceFront(problem), objectives(problem, front));
+    }
+
+    /**
+     * Cheap services are slow, G is expensive but instant: a real trade-off under a budget.
+     */
+    private static QACOProblem tradeOff(double timeWeight) {
+        QACOProblem problem = sampleProblem();
+        GlobalConstraint budget = new GlobalConstraint();
+        budget.setInputFeature(problem.getCompositeWebService().getFeatures().get(0));
+        budget.setOperator(Operator.LESS_THAN_OR_EQUALS);
+        budget.setValue(22.0);
+        problem.getProblem().getConstraints().add(budget);
+        Preference fast = new Preference();
+        fast.setFeature(problem.getCompositeWebService().getFeatures().get(1));
+        fast.setWeight(timeWeight);
+        problem.getProblem().getOptimization().getPreferences().add(fast);
+        return problem;
+    }
+
+    private static Map<String, Object> config() {
+        Map<String, Object> config = new HashMap<>();
+        config.put(ParetoEngine.SEED, 3L);
+        config.put(ParetoEngine.POPULATION, 16);
+        config.put(ParetoEngine.GENERATIONS, 30);
+        return config;
+    }
+
+    private static Set<List<Double>> bruteForceFront(QACOProblem problem) {
+        CompiledQACOProblem compiled = CompiledQACOProblem.compile(problem);
+        WorkflowAggregator aggregator = WorkflowAggregator.of(compiled);
+        CompiledConstraint constraint = ConstraintCompiler.compile(compiled, aggregator);
+        List<List<Double>> feasible = new LazyBindingSpace(compiled).assignments(false)
+                .filter(constraint::test)
+                .map(a -> Arrays.asList(aggregator.aggregate(0, a), aggregator.aggregate(1, a)))
+                .collect(Collectors.toList());
+        return feasible.stream()
+                .filter(x -> feasible.stream().noneMatch(y -> y.get(0) <= x.get(0) && y.get(1) <= x.get(1)
+                        && !y.equals(x)))
+                .collect(Collectors.toSet());
+    }
+
+    private static Set<List<Double>> objectives(QACOProblem problem, Collection<Binding> bindings) {
+        CompiledQACOProblem compiled = CompiledQACOProblem.compile(problem);
+        WorkflowAggregator aggregator = WorkflowAggregator.of(compiled);
+        return bindings.stream()
+                .map(compiled::toAssignment)
+                .map(a -> Arrays.asList(aggregator.aggregate(0, a), aggregator.aggregate(1, a)))
+                .collect(Collectors.toSet());
+    }
+}
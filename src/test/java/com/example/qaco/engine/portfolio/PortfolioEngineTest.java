@@ -0,0 +1,104 @@
+package com.example.qaco.engine.portfolio;
+
+import com.example.qaco.domain.QACOProblem;
+import com.example.qaco.domain.binding.Binding;
+import com.example.qaco.engine.CompiledQACOProblem;
+import com.example.qaco.engine.SolveBudget;
+import com.example.qaco.engine.SolveContext;
+import com.example.qaco.engine.ValidationLevel;
+import com.example.qaco.engine.aco.AntColonyEngine;
+import com.example.qaco.engine.exact.BranchAndBoundEngine;
+import com.example.qaco.engine.genetic.GeneticEngine;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.qaco.TestProblems.bruteForceOptimum;
+import static com.example.qaco.TestProblems.constrainedProblem;
+import static com.example.qaco.TestProblems.score;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PortfolioEngineTest {
+
+    @Test
+    public void isExactWithAnExactEngine() {
+        assertTrue(new PortfolioEngine(Arrays.asList(new GeneticEngine(), new BranchAndBoundEngine())).isExact());
+        assertFalse(new PortfolioEngine(Arrays.asList(new GeneticEngine(), new AntColonyEngine())).isExact());
+    }
+
+    @Test
+    public void anExactEngineStopsTheHeuristicsOnceOptimal() {
+        List<ValidationLevel> levels = Collections.synchronizedList(new ArrayList<ValidationLevel>());
+        GeneticEngine genetic = new GeneticEngine() {
+            @Override
+            protected void validateInput(QACOProblem problem, ValidationLevel level) {
+                levels.add(level);
+                super.validateInput(problem, level);
+            }
+        };
+        PortfolioEngine portfolio = new PortfolioEngine(Arrays.asList(genetic, new AntColonyEngine(),
+                new BranchAndBoundEngine()));
+
+        // The heuristics would never stop on their own
+        QACOProblem problem = constrainedProblem();
+        List<Double> published = Collections.synchronizedList(new ArrayList<Double>());
+        SolveContext context = new SolveContext().withListener((binding, score, c) -> published.add(score));
+        Optional<List<Binding>> result = context.call(() -> portfolio.solve(problem, Optional.<Object>of(endless())));
+        assertEquals(1, result.get().size());
+        assertEquals(bruteForceOptimum(problem), score(problem, result.get().get(0)), 1e-9);
+        assertEquals(bruteForceOptimum(problem), published.get(published.size() - 1), 1e-9);
+        // The portfolio validated the problem for all of them
+        assertEquals(Collections.singletonList(ValidationLevel.TRUSTED), levels);
+    }
+
+    @Test
+    public void theEnginesShareOneCompiledCws() {
+        QACOProblem problem = constrainedProblem();
+        List<CompiledQACOProblem> compiled = Collections.synchronizedList(new ArrayList<CompiledQACOProblem>());
+        List<BranchAndBoundEngine> engines = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            engines.add(new BranchAndBoundEngine() {
+                @Override
+                protected Optional<List<Binding>> doSolve(QACOProblem problem, Optional<Object> extraConfig) {
+                    compiled.add(SolveContext.current().compiledCws(problem.getCompositeWebService()));
+                    return super.doSolve(problem, extraConfig);
+                }
+            });
+        }
+        new PortfolioEngine(engines).solve(problem, Optional.empty());
+        assertEquals(2, compiled.size());
+        assertNotNull(compiled.get(0));
+        assertSame(compiled.get(0), compiled.get(1));
+    }
+
+    @Test
+    public void heuristicsAloneRunUntilTheDeadline() {
+        QACOProblem problem = constrainedProblem();
+        Map<String, Object> config = endless();
+        config.put(SolveBudget.TIME_LIMIT, 200L);
+        long start = System.nanoTime();
+        Optional<List<Binding>> result = new PortfolioEngine(Arrays.asList(new GeneticEngine(), new AntColonyEngine()))
+                .solve(problem, Optional.<Object>of(config));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(elapsedMillis >= 200 && elapsedMillis < 5000);
+        assertEquals(bruteForceOptimum(problem), score(problem, result.get().get(0)), 1e-9);
+    }
+
+    private static Map<String, Object> endless() {
+        Map<String, Object> config = new HashMap<>();
+        config.put(GeneticEngine.GENERATIONS, Integer.MAX_VALUE);
+        config.put(AntColonyEngine.ITERATIONS, Integer.MAX_VALUE);
+        return config;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.qaco.engine.qos;
+
+import com.example.qaco.domain.QACOProblem;
+import com.example.qaco.engine.CompiledQACOProblem;
+import org.junit.Test;
+
+import static com.example.qaco.TestProblems.branchGraph;
+import static com.example.qaco.TestProblems.loopGraph;
+import static com.example.qaco.TestProblems.sampleProblem;
+import static org.junit.Assert.assertEquals;
+
+public class WorkflowAggregatorTest {
+
+    @Test
+    public void sumsTasksInSequenceWithoutAGraph() {
+        WorkflowAggregator aggregator = WorkflowAggregator.of(CompiledQACOProblem.compile(sampleProblem()));
+        // cost: A1 (5) + B1 (3) + C1 (4)
+        assertEquals(12.0, aggregator.aggregate(0, new int[]{0, 2, 3}), 1e-9);
+        assertEquals(12.0, aggregator.score(new int[]{0, 2, 3}), 1e-9);
+    }
+
+    @Test
+    public void weighsExclusiveBranchesByTheirProbability() {
+        QACOProblem problem = sampleProblem();
+        problem.getCompositeWebService().setGraph(branchGraph());
+        WorkflowAggregator aggregator = WorkflowAggregator.of(CompiledQACOProblem.compile(problem));
+        // cost: A1 (5) + 0.7 * B1 (3) + 0.3 * C1 (4)
+        assertEquals(5 + 0.7 * 3 + 0.3 * 4, aggregator.aggregate(0, new int[]{0, 2, 3}), 1e-9);
+    }
+
+    @Test
+    public void evaluationsFollowSingleTaskChanges() {
+        QACOProblem problem = sampleProblem();
+        problem.getCompositeWebService().setGraph(branchGraph());
+        WorkflowAggregator aggregator = WorkflowAggregator.of(CompiledQACOProblem.compile(problem));
+
+        WorkflowEvaluation evaluation = aggregator.newEvaluation();
+        evaluation.reset(new int[]{0, 2, 3});
+        evaluation.set(1, 4);
+        evaluation.set(0, 1);
+        assertEquals(aggregator.score(new int[]{1, 4, 3}), evaluation.score(), 1e-9);
+        assertEquals(7 + 0.7 * 9 + 0.3 * 4, evaluation.value(0), 1e-9);
+    }
+
+    @Test
+    public void repeatsLoopBodiesTheExpectedNumberOfTimes() {
+        QACOProblem problem = sampleProblem();
+        // A runs twice on average
+        problem.getCompositeWebService().setGraph(loopGraph(0.5));
+        WorkflowAggregator aggregator = WorkflowAggregator.of(CompiledQACOProblem.compile(problem));
+        // B and C are not in the graph and run once, in sequence
+        assertEquals(2 * 5 + 3 + 4, aggregator.aggregate(0, new int[]{0, 2, 3}), 1e-9);
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.qaco.engine.qos;
+
+import com.example.qaco.domain.QACOProblem;
+import com.example.qaco.domain.binding.Binding;
+import com.example.qaco.engine.CompiledQACOProblem;
+import org.junit.Test;
+
+import static com.example.qaco.TestProblems.branchGraph;
+import static com.example.qaco.TestProblems.loopGraph;
+import static com.example.qaco.TestProblems.sampleProblem;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class WorkflowSimulatorTest {
+
+    private static final int[] ASSIGNMENT = {0, 2, 3};
+
+    @Test
+    public void estimatesTheDistributionOfABranchingWorkflow() {
+        QACOProblem problem = sampleProblem();
+        problem.getCompositeWebService().setGraph(branchGraph());
+        CompiledQACOProblem compiled = CompiledQACOProblem.compile(problem);
+        Binding binding = compiled.toBinding(ASSIGNMENT);
+
+        // cost: A1 (5) + B1 (3) 70% of the time, + C1 (4) otherwise
+        SimulationResult result = new WorkflowSimulator(7L).percentiles(0.5, 0.95).simulate(problem, binding);
+        FeatureStatistics cost = result.getStatistics(compiled.feature(0));
+        assertEquals(8.3, cost.getExpected(), 1e-9);
+        assertTrue(cost.getMeanLower() <= cost.getMean() && cost.getMean() <= cost.getMeanUpper());
+        assertEquals(8.3, cost.getMean(), 0.05);
+        assertEquals(8.0, cost.getPercentile(0.5), 1e-9);
+        assertEquals(9.0, cost.getPercentile(0.95), 1e-9);
+        assertEquals(9.0, cost.getPercentileLower(0.95), 1e-9);
+        assertEquals(8.0, cost.getMin(), 1e-9);
+        assertEquals(9.0, cost.getMax(), 1e-9);
+        try {
+            cost.getPercentile(0.99);
+            fail("p99 was not simulated.");
+        } catch (IllegalArgumentException expected) {
+            // only the requested levels
+        }
+    }
+
+    @Test
+    public void convergesOnTheTailOfALoop() {
+        // A runs 1 + Geometric(0.5) times
+        SimulationResult loop = new WorkflowSimulator(11L).threads(4).samples(10_000, 1_000_000)
+                .percentiles(0.9, 0.95).simulate(loopAggregator(), ASSIGNMENT);
+        assertTrue(loop.isConverged());
+        assertTrue(loop.getSamples() < 1_000_000);
+        FeatureStatistics cost = loop.getStatistics(0);
+        // 5 per run of A, plus B and C once
+        assertEquals(2 * 5 + 3 + 4, cost.getExpected(), 1e-9);
+        assertEquals(17.0, cost.getMean(), 17.0 * 0.01);
+        assertEquals(4 * 5 + 7, cost.getPercentile(0.9), 1e-9);
+        assertEquals(5 * 5 + 7, cost.getPercentile(0.95), 1e-9);
+    }
+
+    @Test
+    public void seededResultsDoNotDependOnTheThreads() {
+        WorkflowAggregator aggregator = loopAggregator();
+        SimulationResult parallel = new WorkflowSimulator(11L).threads(4).samples(10_000, 1_000_000)
+                .percentiles(0.9, 0.95).simulate(aggregator, ASSIGNMENT);
+        SimulationResult single = new WorkflowSimulator(11L).threads(1).samples(10_000, 1_000_000)
+                .percentiles(0.9, 0.95).simulate(aggregator, ASSIGNMENT);
+        assertEquals(parallel.getSamples(), single.getSamples());
+        assertEquals(parallel.getStatistics(0).getMean(), single.getStatistics(0).getMean(), 0.0);
+        assertEquals(parallel.getStatistics(0).getStandardDeviation(),
+                single.getStatistics(0).getStandardDeviation(), 0.0);
+    }
+
+    @Test
+    public void theSampleLimitStopsAnUnconvergedSimulation() {
+        SimulationResult capped = new WorkflowSimulator(3L).samples(1_000, 2_000).precision(1e-6)
+                .simulate(loopAggregator(), ASSIGNMENT);
+        assertFalse(capped.isConverged());
+        assertEquals(2_000, capped.getSamples());
+    }
+
+    @Test
+    public void rejectsIncompleteAssignments() {
+        try {
+            new WorkflowSimulator().simulate(loopAggregator(), new int[]{0, -1, 3});
+            fail("Incomplete assignments cannot be simulated.");
+        } catch (IllegalArgumentException expected) {
+            // every task must be bound
+        }
+    }
+
+    private static WorkflowAggregator loopAggregator() {
+        QACOProblem problem = sampleProblem();
+        problem.getCompositeWebService().setGraph(loopGraph(0.5));
+        return WorkflowAggregator.of(CompiledQACOProblem.compile(problem));
+    }
+}
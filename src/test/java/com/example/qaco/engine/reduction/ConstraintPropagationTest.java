@@ -0,0 +1,94 @@
+package com.example.qaco.engine.reduction;
+
+import com.example.qaco.domain.QACOProblem;
+import com.example.qaco.domain.cws.Feature;
+import com.example.qaco.domain.cws.Task;
+import com.example.qaco.domain.problem.constraints.BindingConstraint;
+import com.example.qaco.domain.problem.constraints.Constraint;
+import com.example.qaco.domain.problem.constraints.FeatureConstraint;
+import com.example.qaco.domain.problem.constraints.GlobalConstraint;
+import com.example.qaco.domain.problem.constraints.LocalConstraint;
+import com.example.qaco.domain.problem.constraints.Operator;
+import com.example.qaco.engine.CompiledQACOProblem;
+import com.example.qaco.engine.LazyBindingSpace;
+import com.example.qaco.engine.SolveContext;
+import com.example.qaco.engine.constraints.CompiledConstraint;
+import com.example.qaco.engine.constraints.ConstraintCompiler;
+import com.example.qaco.engine.exact.BranchAndBoundEngine;
+import com.example.qaco.engine.genetic.GeneticEngine;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static com.example.qaco.TestProblems.sampleProblem;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ConstraintPropagationTest {
+
+    @Test
+    public void prunesCandidatesNoFeasibleBindingUses() {
+        QACOProblem problem = budgetAndSameProvider();
+
+        // The budget rules G out everywhere, which leaves B1 to B, and then A1 to A for the provider
+        CompiledQACOProblem compiled = CompiledQACOProblem.compile(problem);
+        int[][] domains = ConstraintPropagation.domains(compiled);
+        assertArrayEquals(new int[]{0}, domains[0]);
+        assertArrayEquals(new int[]{2}, domains[1]);
+        assertArrayEquals(new int[]{3}, domains[2]);
+        CompiledConstraint constraint = ConstraintCompiler.compile(compiled);
+        assertEquals(Collections.singletonList(Arrays.asList(0, 2, 3)), new LazyBindingSpace(compiled).assignments(false)
+                .filter(constraint::test)
+                .map(assignment -> Arrays.asList(assignment[0], assignment[1], assignment[2]))
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    public void detectsInfeasibilityWithoutSearching() {
+        QACOProblem problem = budgetAndSameProvider();
+        // Every task under 25 leaves only G to C, which breaks the budget
+        FeatureConstraint everyTaskTime = new FeatureConstraint();
+        everyTaskTime.setFeature(problem.getCompositeWebService().getFeatures().get(1));
+        LocalConstraint fastEnough = new LocalConstraint();
+        fastEnough.setInputFeature(everyTaskTime);
+        fastEnough.setOperator(Operator.LESS_THAN);
+        fastEnough.setValue(25.0);
+        problem.getProblem().getConstraints().add(fastEnough);
+
+        assertTrue(ConstraintPropagation.reduce(CompiledQACOProblem.compile(problem)).hasEmptyDomain());
+        SolveContext context = new SolveContext();
+        assertFalse(context.call(() -> new GeneticEngine().solve(problem, Optional.empty())).isPresent());
+        assertEquals(0L, context.getEvaluations());
+
+        Map<String, Object> config = new HashMap<>();
+        config.put(ConstraintPropagation.PROPAGATION, false);
+        assertFalse(new BranchAndBoundEngine().solve(problem, Optional.<Object>of(config)).isPresent());
+    }
+
+    /**
+     * The sample problem with a cost budget of 15 and A and B using the same provider.
+     */
+    private static QACOProblem budgetAndSameProvider() {
+        QACOProblem problem = sampleProblem();
+        List<Task> tasks = problem.getCompositeWebService().getTasks();
+        Feature cost = problem.getCompositeWebService().getFeatures().get(0);
+
+        GlobalConstraint budget = new GlobalConstraint();
+        budget.setInputFeature(cost);
+        budget.setOperator(Operator.LESS_THAN_OR_EQUALS);
+        budget.setValue(15.0);
+        BindingConstraint sameProvider = new BindingConstraint();
+        sameProvider.setProviders(Arrays.asList(tasks.get(0), tasks.get(1)));
+        sameProvider.setOperator(Operator.EQUALS);
+        problem.getProblem().getConstraints().addAll(Arrays.<Constraint>asList(budget, sameProvider));
+        return problem;
+    }
+}
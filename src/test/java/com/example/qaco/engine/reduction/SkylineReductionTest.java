@@ -0,0 +1,107 @@
+package com.example.qaco.engine.reduction;
+
+import com.example.qaco.domain.QACOProblem;
+import com.example.qaco.domain.binding.Binding;
+import com.example.qaco.domain.cws.Task;
+import com.example.qaco.domain.problem.Preference;
+import com.example.qaco.domain.problem.constraints.BindingConstraint;
+import com.example.qaco.domain.problem.constraints.Operator;
+import com.example.qaco.engine.CompiledQACOProblem;
+import com.example.qaco.engine.exact.BranchAndBoundEngine;
+import com.example.qaco.generator.SyntheticProblemGenerator;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.example.qaco.TestProblems.bruteForceOptimum;
+import static com.example.qaco.TestProblems.constrainedProblem;
+import static com.example.qaco.TestProblems.sampleProblem;
+import static com.example.qaco.TestProblems.score;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class SkylineReductionTest {
+
+    @Test
+    public void keepsOnlyTheCheapestWhenOnlyCostMatters() {
+        // A1 dominates A2 and G everywhere
+        CompiledQACOProblem plain = CompiledQACOProblem.compile(sampleProblem());
+        int[][] skylines = SkylineReduction.skylines(plain, null);
+        for (int t = 0; t < plain.taskCount(); t++) {
+            assertEquals(1, skylines[t].length);
+            assertEquals(plain.task(t).getName() + "1", plain.service(skylines[t][0]).getName());
+        }
+    }
+
+    @Test
+    public void keepsCandidatesConstraintsMayNeed() {
+        // Time limits keep G (no time value), and A2 / G are compared within provider p2 only
+        CompiledQACOProblem compiled = CompiledQACOProblem.compile(constrainedProblem());
+        CompiledQACOProblem reduced = SkylineReduction.reduce(compiled, null);
+        for (int t = 0; t < compiled.taskCount(); t++) {
+            assertArrayEquals(compiled.candidates(t), reduced.candidates(t));
+        }
+    }
+
+    @Test
+    public void featuresWantedBothWaysMustTie() {
+        QACOProblem problem = constrainedProblem();
+        // Time is wanted both lower (limit) and higher (preference)
+        Preference slow = new Preference();
+        slow.setFeature(problem.getCompositeWebService().getFeatures().get(1));
+        slow.setWeight(-1.0);
+        problem.getProblem().getOptimization().getPreferences().add(slow);
+        CompiledQACOProblem compiled = CompiledQACOProblem.compile(problem);
+        CompiledQACOProblem reduced = SkylineReduction.reduce(compiled, null);
+        assertEquals(3, reduced.candidates(compiled.taskId(problem.getCompositeWebService().getTasks().get(0))).length);
+
+        Map<String, Object> config = new HashMap<>();
+        config.put(SkylineReduction.SKYLINE, false);
+        Binding unreduced = new BranchAndBoundEngine().solve(problem, Optional.<Object>of(config)).get().get(0);
+        Binding best = new BranchAndBoundEngine().solve(problem, Optional.empty()).get().get(0);
+        assertEquals(score(problem, unreduced), score(problem, best), 1e-9);
+    }
+
+    @Test
+    public void aBindingConstraintWithoutProvidersBindsEveryTask() {
+        // One provider for every task leaves p2 only: A2, G, G. G is dominated within p2 for A only
+        for (List<Task> providers : Arrays.asList(null, Collections.<Task>emptyList())) {
+            QACOProblem problem = sampleProblem();
+            problem.getProblem().getConstraints().add(sameProvider(providers));
+            CompiledQACOProblem compiled = CompiledQACOProblem.compile(problem);
+            CompiledQACOProblem reduced = SkylineReduction.reduce(compiled, null);
+            assertEquals(2, reduced.candidates(0).length);
+            assertArrayEquals(compiled.candidates(1), reduced.candidates(1));
+            assertArrayEquals(compiled.candidates(2), reduced.candidates(2));
+            Binding best = new BranchAndBoundEngine().solve(problem, Optional.empty()).get().get(0);
+            assertEquals(25.0, score(problem, best), 1e-9);
+        }
+    }
+
+    @Test
+    public void exactEnginesStayExactWithProviderlessBindingConstraints() {
+        for (long seed = 1; seed <= 20; seed++) {
+            QACOProblem problem = new SyntheticProblemGenerator(seed).tasks(5).candidates(4).generate();
+            problem.getProblem().setConstraints(new ArrayList<>(Collections.singletonList(sameProvider(null))));
+            Optional<List<Binding>> best = new BranchAndBoundEngine().solve(problem, Optional.empty());
+            double optimum = bruteForceOptimum(problem);
+            assertEquals("seed " + seed, !Double.isNaN(optimum), best.isPresent());
+            if (best.isPresent()) {
+                assertEquals("seed " + seed, optimum, score(problem, best.get().get(0)), 1e-9);
+            }
+        }
+    }
+
+    private static BindingConstraint sameProvider(List<Task> providers) {
+        BindingConstraint constraint = new BindingConstraint();
+        constraint.setProviders(providers);
+        constraint.setOperator(Operator.EQUALS);
+        return constraint;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.qaco.examples;
+
+import com.example.qaco.domain.binding.Binding;
+import com.example.qaco.domain.cws.CompositeWebService;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.example.qaco.TestProblems.sampleProblem;
+import static org.junit.Assert.assertEquals;
+
+public class SimpleQACOProblemSolverTest {
+
+    @Test
+    public void streamsTheCandidateProduct() {
+        Stream<Binding> stream = new SimpleQACOProblemSolver()
+                .bindingSpaceStream(sampleProblem().getCompositeWebService(), Optional.empty());
+        assertEquals(12L, stream.spliterator().getExactSizeIfKnown());
+    }
+
+    @Test
+    public void reportsTheSameSpaceAsItStreams() {
+        SimpleQACOProblemSolver solver = new SimpleQACOProblemSolver();
+        CompositeWebService cws = sampleProblem().getCompositeWebService();
+        List<Binding> space = solver.bindingSpace(cws, Optional.empty()).get().getBindings();
+        assertEquals(12, space.size());
+        assertEquals(solver.bindingSpaceStream(cws, Optional.empty()).collect(Collectors.toList()), space);
+        // Every binding maps each task to one of its candidates
+        for (Binding binding : space) {
+            assertEquals(cws.getTasks().size(), binding.getBindingMappings().size());
+        }
+    }
+}
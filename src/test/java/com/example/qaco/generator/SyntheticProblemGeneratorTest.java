@@ -0,0 +1,51 @@
+package com.example.qaco.generator;
+
+import com.example.qaco.domain.QACOProblem;
+import com.example.qaco.domain.binding.Binding;
+import com.example.qaco.engine.CompiledQACOProblem;
+import com.example.qaco.engine.ProblemFingerprint;
+import com.example.qaco.engine.ProblemValidator;
+import com.example.qaco.engine.ValidationLevel;
+import com.example.qaco.engine.constraints.ConstraintCompiler;
+import com.example.qaco.engine.exact.BranchAndBoundEngine;
+import org.junit.Test;
+
+import java.util.Optional;
+
+import static com.example.qaco.TestProblems.bruteForceOptimum;
+import static com.example.qaco.TestProblems.score;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SyntheticProblemGeneratorTest {
+
+    @Test
+    public void problemsAreSeededAndValid() {
+        for (SyntheticProblemGenerator.Shape shape : SyntheticProblemGenerator.Shape.values()) {
+            SyntheticProblemGenerator generator = generator(shape);
+            QACOProblem problem = generator.generate();
+            ProblemValidator.shared().validate(problem, ValidationLevel.FULL);
+            assertEquals(ProblemFingerprint.of(problem), ProblemFingerprint.of(generator.generate()));
+            assertNotEquals(ProblemFingerprint.of(problem), ProblemFingerprint.of(generator.seed(8).generate()));
+            assertEquals(24, problem.getCompositeWebService().getCandidateServices().size());
+            assertEquals(7, problem.getProblem().getConstraints().size());
+        }
+    }
+
+    @Test
+    public void thresholdsAdmitAFeasibleBinding() {
+        for (SyntheticProblemGenerator.Shape shape : SyntheticProblemGenerator.Shape.values()) {
+            QACOProblem problem = generator(shape).generate();
+            Binding best = new BranchAndBoundEngine().solve(problem, Optional.empty()).get().get(0);
+            CompiledQACOProblem compiled = CompiledQACOProblem.compile(problem);
+            assertTrue(ConstraintCompiler.compile(compiled).test(compiled.toAssignment(best)));
+            assertEquals(bruteForceOptimum(problem), score(problem, best), 1e-6);
+        }
+    }
+
+    private static SyntheticProblemGenerator generator(SyntheticProblemGenerator.Shape shape) {
+        return new SyntheticProblemGenerator(7).tasks(8).candidates(3).features(4).constraints(2, 2, 1, 1, 1)
+                .shape(shape);
+    }
+}
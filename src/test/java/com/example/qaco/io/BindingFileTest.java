@@ -0,0 +1,96 @@
+package com.example.qaco.io;
+
+import com.example.qaco.domain.QACOProblem;
+import com.example.qaco.domain.binding.Binding;
+import com.example.qaco.engine.CompiledQACOProblem;
+import com.example.qaco.engine.LazyBindingSpace;
+import com.example.qaco.engine.constraints.CompiledConstraint;
+import com.example.qaco.engine.constraints.ConstraintCompiler;
+import com.example.qaco.engine.pareto.ParetoEngine;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static com.example.qaco.TestProblems.constrainedProblem;
+import static com.example.qaco.TestProblems.score;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BindingFileTest {
+
+    private Path file;
+
+    @Before
+    public void createFile() throws Exception {
+        file = Files.createTempFile("bindings", ".qbs");
+    }
+
+    @After
+    public void deleteFile() throws Exception {
+        Files.delete(file);
+    }
+
+    @Test
+    public void mapsAWholeBindingSpace() throws Exception {
+        CompiledQACOProblem compiled = CompiledQACOProblem.compile(constrainedProblem());
+        CompiledConstraint constraint = ConstraintCompiler.compile(compiled);
+        LazyBindingSpace space = new LazyBindingSpace(compiled);
+        assertEquals(12L, BindingFile.write(file, space));
+        try (BindingFile read = BindingFile.open(file)) {
+            assertEquals(12L, read.size());
+            assertEquals(space.get(7), read.get(7));
+            assertEquals(compiled.toAssignment(space.get(11))[1], read.service(11, 1));
+            assertEquals(12L, read.assignments(true).map(Arrays::toString).distinct().count());
+            long[] feasible = new long[1];
+            read.scan(0, read.size(), (assignment, index) -> feasible[0] += constraint.test(assignment) ? 1 : 0);
+            assertEquals(space.assignments(false).filter(constraint::test).count(), feasible[0]);
+        }
+    }
+
+    @Test
+    public void archivesKeepTheObjectivesOfEachBinding() throws Exception {
+        QACOProblem problem = constrainedProblem();
+        List<Binding> front = new ParetoEngine().solve(problem, Optional.empty()).get();
+        assertEquals(front.size(), BindingFile.writeArchive(file, problem, front));
+        try (BindingFile archive = BindingFile.open(file)) {
+            assertEquals(Collections.singletonList("cost"), archive.getObjectives());
+            assertEquals(score(problem, front.get(0)), archive.objective(0, 0), 1e-9);
+            assertEquals(front.get(0), archive.get(0));
+        }
+    }
+
+    @Test
+    public void unboundTasksRoundTrip() throws Exception {
+        try (BindingFile.Writer writer = BindingFile.create(file, constrainedProblem().getCompositeWebService())) {
+            writer.append(new int[]{1, -1, 3});
+        }
+        try (BindingFile partial = BindingFile.open(file)) {
+            assertEquals(-1, partial.service(0, 1));
+            assertEquals(2, partial.get(0).getBindingMappings().size());
+        }
+    }
+
+    @Test
+    public void rejectsTruncatedFiles() throws Exception {
+        BindingFile.write(file, new LazyBindingSpace(CompiledQACOProblem.compile(constrainedProblem())));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1);
+        }
+        try {
+            BindingFile.open(file).close();
+            fail("Truncated file");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("truncated"));
+        }
+    }
+}
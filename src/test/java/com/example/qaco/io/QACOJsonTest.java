@@ -0,0 +1,99 @@
+package com.example.qaco.io;
+
+import com.example.qaco.domain.QACOProblem;
+import com.example.qaco.domain.binding.Binding;
+import com.example.qaco.domain.binding.BindingSpace;
+import com.example.qaco.domain.cws.CompositeWebService;
+import com.example.qaco.engine.CompiledQACOProblem;
+import com.example.qaco.engine.LazyBindingSpace;
+import com.example.qaco.engine.ProblemFingerprint;
+import com.example.qaco.engine.ProblemValidator;
+import com.example.qaco.engine.ValidationLevel;
+import com.example.qaco.engine.exact.BranchAndBoundEngine;
+import com.example.qaco.generator.SyntheticProblemGenerator;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static com.example.qaco.TestProblems.score;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class QACOJsonTest {
+
+    @Test
+    public void problemsRoundTripOntoSharedInstances() throws Exception {
+        QACOProblem problem = generated();
+        problem.getCompositeWebService().getTasks().get(0).setDescription("quote \" and\nnewline");
+        QACOProblem read = QACOJson.readProblem(new StringReader(write(problem)));
+
+        assertEquals(problem, read);
+        assertEquals(ProblemFingerprint.of(problem), ProblemFingerprint.of(read));
+        CompositeWebService cws = read.getCompositeWebService();
+        assertSame(cws.getCandidateServices().get(4),
+                cws.getFeatures().get(0).getValues().get(4).getService());
+        assertSame(cws.getTasks().get(1), cws.getCandidateServices().get(4).getTasks().get(0));
+        ProblemValidator.shared().validate(read, ValidationLevel.FULL);
+        assertEquals(score(problem, new BranchAndBoundEngine().solve(problem, Optional.empty()).get().get(0)),
+                score(read, new BranchAndBoundEngine().solve(read, Optional.empty()).get().get(0)), 0.0);
+    }
+
+    @Test
+    public void bindingSpacesStreamOutAndBackOntoTheCws() throws Exception {
+        CompositeWebService cws = generated().getCompositeWebService();
+        // 3^6 bindings
+        StringWriter bindings = new StringWriter();
+        assertEquals(729L, QACOJson.writeBindingSpace(new LazyBindingSpace(CompiledQACOProblem.compile(cws)), bindings));
+        List<Binding> back = new ArrayList<>();
+        assertEquals(729L, QACOJson.readBindings(new StringReader(bindings.toString()), cws, back::add));
+        assertSame(cws.getTasks().get(5), back.get(728).getBindingMappings().get(5).getTask());
+        assertEquals(new LazyBindingSpace(CompiledQACOProblem.compile(cws)).get(100), back.get(100));
+
+        StringWriter again = new StringWriter();
+        BindingSpace space = new BindingSpace();
+        space.setBindings(back);
+        QACOJson.writeBindingSpace(cws, space, again);
+        assertEquals(bindings.toString(), again.toString());
+        assertEquals(back, QACOJson.readBindingSpace(new StringReader(again.toString()), null).getBindings());
+    }
+
+    @Test
+    public void rejectsDanglingIndexes() throws Exception {
+        String json = write(generated());
+        try {
+            QACOJson.readProblem(new StringReader(json.replace("\"inputFeature\":0", "\"inputFeature\":9")));
+            fail("Dangling feature index");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("Feature"));
+        }
+    }
+
+    @Test
+    public void rejectsMalformedJsonWithItsPosition() throws Exception {
+        for (String malformed : new String[]{"{\"problem\": {\"name\": \"x\",}}", "{\"problem\": [1, 2"}) {
+            try {
+                QACOJson.readProblem(new StringReader(malformed));
+                fail("Malformed JSON accepted: " + malformed);
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage().startsWith("Malformed JSON at line 1"));
+            }
+        }
+    }
+
+    private static QACOProblem generated() {
+        return new SyntheticProblemGenerator(3).tasks(6).candidates(3)
+                .shape(SyntheticProblemGenerator.Shape.MIXED).generate();
+    }
+
+    private static String write(QACOProblem problem) throws Exception {
+        StringWriter out = new StringWriter();
+        QACOJson.writeProblem(problem, out);
+        return out.toString();
+    }
+}